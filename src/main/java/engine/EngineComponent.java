@@ -5,4 +5,12 @@ public interface EngineComponent {
     public void update(float interval) throws Exception;
     
     public float getUpdateInterval();
+    
+    /**
+     * @return false if the same update intervals and input can still end in a different state, e.g. because the 
+     * component works on its own thread or against the clock, so sessions using it can't be replayed
+     */
+    public default boolean isReplayable() {
+	return true;
+    }
 }
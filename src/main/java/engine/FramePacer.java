@@ -0,0 +1,161 @@
+package engine;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Holds a loop to a target rate. Each frame gets a deadline one period after the last one, and the pacer parks the 
+ * thread until just short of it, then yields the last stretch away, so frames land on time without burning a core.
+ * 
+ * How much short of the deadline to wake is calibrated against how late parkNanos actually wakes on this machine. 
+ * Lateness above the estimate raises it straight away, lateness below lowers it slowly. Frame times are tracked so 
+ * jitter can be measured.
+ * 
+ * @author cypress980
+ *
+ */
+public class FramePacer {
+
+    // Always spin at least this long, to absorb wake up latency the estimate hasn't caught yet
+    private static final long MIN_SPIN_NANOS = 100_000;
+
+    // Set from any thread, e.g. by GameEngine.setTargetFps while the loop is pacing
+    private volatile long periodNanos;
+
+    private long deadline;
+
+    private long oversleepNanos = 100_000;
+
+    private long lastFrameEnd;
+    private long frameCount;
+    private long lastFrameNanos;
+    private long minFrameNanos;
+    private long maxFrameNanos;
+    private double meanFrameNanos;
+    private double frameNanosM2; // Sum of squared differences from the mean, for the variance
+
+    /**
+     * @param targetRate frames per second
+     */
+    public FramePacer(float targetRate) {
+	setTargetRate(targetRate);
+	resetStats();
+    }
+
+    /**
+     * Can be called from any thread, the loop picks the new rate up from its next frame
+     */
+    public void setTargetRate(float targetRate) {
+	if (targetRate <= 0) {
+	    throw new IllegalArgumentException("Target rate must be positive, was " + targetRate);
+	}
+	periodNanos = (long) (1_000_000_000L / targetRate);
+    }
+
+    public float getTargetRate() {
+	return 1_000_000_000f / periodNanos;
+    }
+
+    public long getPeriodNanos() {
+	return periodNanos;
+    }
+
+    /**
+     * Block until this frame's deadline. If the loop has fallen more than a frame behind, the schedule restarts 
+     * from now rather than rushing frames to catch up.
+     */
+    public void waitForNextFrame() {
+	long period = periodNanos; // Once, so a rate changed mid frame doesn't mix two periods
+	long now = System.nanoTime();
+	if (deadline == 0 || now - deadline > period) {
+	    deadline = now;
+	}
+	deadline += period;
+	
+	sleepUntil(deadline);
+	recordFrame(System.nanoTime());
+    }
+
+    private void sleepUntil(long deadline) {
+	while (true) {
+	    long sleep = deadline - System.nanoTime() - oversleepNanos - MIN_SPIN_NANOS;
+	    if (sleep <= 0) {
+		break;
+	    }
+	    long start = System.nanoTime();
+	    LockSupport.parkNanos(sleep);
+	    calibrate(System.nanoTime() - start - sleep);
+	}
+	
+	while (System.nanoTime() - deadline < 0) {
+	    Thread.yield();
+	}
+    }
+
+    private void calibrate(long oversleep) {
+	if (oversleep > oversleepNanos) {
+	    oversleepNanos = oversleep;
+	} else {
+	    oversleepNanos += (Math.max(oversleep, 0) - oversleepNanos) / 64;
+	}
+    }
+
+    private void recordFrame(long frameEnd) {
+	if (lastFrameEnd != 0) {
+	    long frameNanos = frameEnd - lastFrameEnd;
+	    frameCount++;
+	    lastFrameNanos = frameNanos;
+	    minFrameNanos = Math.min(minFrameNanos, frameNanos);
+	    maxFrameNanos = Math.max(maxFrameNanos, frameNanos);
+	    
+	    // Welford's running variance
+	    double delta = frameNanos - meanFrameNanos;
+	    meanFrameNanos += delta / frameCount;
+	    frameNanosM2 += delta * (frameNanos - meanFrameNanos);
+	}
+	lastFrameEnd = frameEnd;
+    }
+
+    public void resetStats() {
+	lastFrameEnd = 0;
+	frameCount = 0;
+	lastFrameNanos = 0;
+	minFrameNanos = Long.MAX_VALUE;
+	maxFrameNanos = 0;
+	meanFrameNanos = 0;
+	frameNanosM2 = 0;
+    }
+
+    /**
+     * @return how late parkNanos is currently estimated to wake
+     */
+    public long getOversleepNanos() {
+	return oversleepNanos;
+    }
+
+    public long getFrameCount() {
+	return frameCount;
+    }
+
+    public long getLastFrameNanos() {
+	return lastFrameNanos;
+    }
+
+    public long getMinFrameNanos() {
+	return frameCount == 0 ? 0 : minFrameNanos;
+    }
+
+    public long getMaxFrameNanos() {
+	return maxFrameNanos;
+    }
+
+    public double getMeanFrameNanos() {
+	return meanFrameNanos;
+    }
+
+    /**
+     * @return standard deviation of the frame time
+     */
+    public double getJitterNanos() {
+	return frameCount < 2 ? 0 : Math.sqrt(frameNanosM2 / (frameCount - 1));
+    }
+}
@@ -1,6 +1,7 @@
 package engine;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -8,20 +9,31 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import engine.physics.PhysicsEngine;
+import engine.replay.ReplayRecorder;
 
 public class GameEngine implements Runnable {
     private static final Logger logger = LogManager.getLogger(PhysicsEngine.class.getName());
     
-    private static final float TARGET_FPS = 60;
-    public static final int TARGET_UPS = 30;
+    public static final float DEFAULT_TARGET_FPS = 60;
+    public static final int DEFAULT_TARGET_UPS = 30;
 
     private final Thread gameLoopThread;
     private final GameLogic gameLogic;
     private final GameWindow window;
     private final GameTimer timer;
     private MouseInput mouseInput;
+    private final FramePacer framePacer;
+    private volatile int targetUps;
     
     private final Map<EngineComponent, Float> engineAccumulators;
+    private float accumulator = 0f;
+    
+    // Threaded rendering - the simulation publishes snapshots on its own thread, the GL thread draws the latest
+    private boolean threadedRendering = false;
+    private volatile boolean running;
+    private final TripleBuffer<RenderSnapshot> snapshots = new TripleBuffer<>(RenderSnapshot::new);
+    
+    private ReplayRecorder replayRecorder;
 
     public GameEngine(String windowTitle, int width, int height, boolean vsSync, GameLogic gameLogic) throws Exception {
 	gameLoopThread = new Thread(this, "GAME_LOOP_THREAD");
@@ -29,7 +41,10 @@ public class GameEngine implements Runnable {
 	this.gameLogic = gameLogic;
 	this.mouseInput = new MouseInput();
 	timer = new GameTimer();
-	engineAccumulators = new HashMap<>();
+	framePacer = new FramePacer(DEFAULT_TARGET_FPS);
+	targetUps = DEFAULT_TARGET_UPS;
+	// Linked, so components always update in the same order and replays line up
+	engineAccumulators = new LinkedHashMap<>();
 	for (EngineComponent component : gameLogic.getEngineComponents() ) {
 	    engineAccumulators.put(component, 0f);
 	}
@@ -58,6 +73,24 @@ public class GameEngine implements Runnable {
 
     private void cleanup() {
 	gameLogic.cleanup();
+	if (replayRecorder != null) {
+	    try {
+		replayRecorder.close();
+	    } catch (Exception e) {
+		logger.error("Could not finish the replay", e);
+	    }
+	}
+    }
+
+    /**
+     * Record the session for a ReplayPlayer. Must be set before the engine starts, and is closed when it stops.
+     * 
+     * @throws IllegalStateException if an engine component can't be replayed
+     */
+    public void setReplayRecorder(ReplayRecorder replayRecorder) {
+	this.replayRecorder = replayRecorder;
+	checkReplayable();
+	window.getInput().setRecorder(replayRecorder);
     }
 
     protected void init() throws Exception {
@@ -65,38 +98,73 @@ public class GameEngine implements Runnable {
 	timer.init();
 	gameLogic.init(window);
 	mouseInput.init(window);
+	checkReplayable(); // Again, components may be set up differently once the game is initialised
+    }
+
+    private void checkReplayable() {
+	if (replayRecorder == null) {
+	    return;
+	}
+	// Ticks are recorded by index, and the player indexes the game logic's components
+	if (!new ArrayList<>(engineAccumulators.keySet()).equals(gameLogic.getEngineComponents())) {
+	    replayRecorder = null;
+	    throw new IllegalStateException("Can't record a replay, the engine's components aren't the game logic's");
+	}
+	for (EngineComponent component : engineAccumulators.keySet()) {
+	    if (!component.isReplayable()) {
+		replayRecorder = null;
+		throw new IllegalStateException("Can't record a replay, " + component.getClass().getSimpleName() 
+			+ " can't be replayed");
+	    }
+	}
+    }
+
+    /**
+     * Frame rate to hold when vSync is off
+     */
+    public void setTargetFps(float targetFps) {
+	framePacer.setTargetRate(targetFps);
+    }
+
+    /**
+     * Rate of the fixed input and update ticks
+     */
+    public void setTargetUps(int targetUps) {
+	if (targetUps < 1) {
+	    throw new IllegalArgumentException("Target UPS must be at least 1, was " + targetUps);
+	}
+	this.targetUps = targetUps;
+    }
+
+    public int getTargetUps() {
+	return targetUps;
+    }
+
+    /**
+     * Paces frames and tracks their jitter when vSync is off
+     */
+    public FramePacer getFramePacer() {
+	return framePacer;
+    }
+
+    /**
+     * Run the simulation on its own thread, so a slow frame doesn't hold up physics or the other way around. Must be 
+     * set before the engine starts.
+     */
+    public void setThreadedRendering(boolean threadedRendering) {
+	this.threadedRendering = threadedRendering;
     }
 
     //TODO: we need separate time scales for updating User Input, Physics, and Graphics
     protected void gameLoop() throws Exception {
-	float elapsedTime;
-	float accumulator = 0f;
-	float interval = 1f / TARGET_UPS;
+	if (threadedRendering) {
+	    threadedGameLoop();
+	    return;
+	}
 
-	boolean running = true;
+	running = true;
 	while (running && !window.windowShouldClose()) {
-	    elapsedTime = timer.getElapsedTime();
-	    
-	    for (Entry<EngineComponent, Float> engineAccumulator : engineAccumulators.entrySet()) {
-		float engAccum = engineAccumulator.getValue() + elapsedTime;
-		EngineComponent engine = engineAccumulator.getKey();
-		
-		if (engAccum >= engine.getUpdateInterval()) {
-		    logger.trace("Refresh [{}] after [{}]", engine, engAccum);
-		    engine.update(engAccum);
-		    engAccum = 0f;
-		}
-		
-		engineAccumulators.put(engine, engAccum);
-	    }
-	    
-	    accumulator += elapsedTime;
-	    
-	    while (accumulator >= interval) {
-		input(interval);
-		update(interval);
-		accumulator -= interval;
-	    }
+	    simulate(timer.getElapsedTime());
 
 	    render();
 
@@ -106,18 +174,112 @@ public class GameEngine implements Runnable {
 	}
     }
 
-    private void sync() {
-	float loopSlot = 1f / TARGET_FPS;
-	double endTime = timer.getLastLoopTime() + loopSlot;
-	while (timer.getTime() < endTime) {
-	    try {
-		Thread.sleep(1);
-	    } catch (InterruptedException ie) {
+    /**
+     * Render on this thread, which owns the GL context and the window, and simulate on another
+     */
+    private void threadedGameLoop() throws Exception {
+	running = true;
+	Thread simulationThread = new Thread(this::simulationLoop, "SIMULATION_THREAD");
+	simulationThread.start();
+	
+	// Our own copies, since the triple buffer takes the front buffer back on the next swap
+	RenderSnapshot previous = new RenderSnapshot();
+	RenderSnapshot current = new RenderSnapshot();
+	try {
+	    while (running && !window.windowShouldClose()) {
+		if (snapshots.swap()) {
+		    RenderSnapshot oldest = previous;
+		    previous = current;
+		    current = oldest;
+		    current.copyFrom(snapshots.getFront());
+		}
+		
+		gameLogic.render(window, previous, current, current.getAlpha(previous, System.nanoTime()));
+		window.update();
+		
+		if (!window.isvSync()) {
+		    sync();
+		}
+	    }
+	} finally {
+	    running = false;
+	    simulationThread.join();
+	}
+    }
+
+    private void simulationLoop() {
+	// Wake often enough for the most frequently updated engine component
+	float wakeInterval = 1f / targetUps;
+	for (EngineComponent component : engineAccumulators.keySet()) {
+	    wakeInterval = Math.min(wakeInterval, component.getUpdateInterval());
+	}
+	FramePacer simulationPacer = new FramePacer(1 / wakeInterval);
+	
+	GameTimer simulationTimer = new GameTimer();
+	simulationTimer.init();
+	try {
+	    while (running) {
+		simulate(simulationTimer.getElapsedTime());
+		simulationPacer.waitForNextFrame();
+	    }
+	} catch (Exception ex) {
+	    logger.error("Simulation stopped", ex);
+	} finally {
+	    running = false;
+	}
+    }
+
+    /**
+     * Update the engine components that are due, then run as many fixed input and update ticks as have elapsed
+     */
+    private void simulate(float elapsedTime) throws Exception {
+	float interval = 1f / targetUps;
+	
+	int componentIndex = 0;
+	for (Entry<EngineComponent, Float> engineAccumulator : engineAccumulators.entrySet()) {
+	    float engAccum = engineAccumulator.getValue() + elapsedTime;
+	    EngineComponent engine = engineAccumulator.getKey();
+	    
+	    if (engAccum >= engine.getUpdateInterval()) {
+		logger.trace("Refresh [{}] after [{}]", engine, engAccum);
+		if (replayRecorder != null) {
+		    replayRecorder.recordComponentTick(componentIndex, engAccum);
+		}
+		engine.update(engAccum);
+		engAccum = 0f;
+	    }
+	    
+	    engineAccumulator.setValue(engAccum);
+	    componentIndex++;
+	}
+	
+	accumulator += elapsedTime;
+	
+	while (accumulator >= interval) {
+	    input(interval);
+	    update(interval);
+	    accumulator -= interval;
+	    
+	    if (replayRecorder != null) {
+		replayRecorder.recordFixedTick(interval, gameLogic.getStateHash());
+	    }
+	    
+	    if (threadedRendering) {
+		RenderSnapshot snapshot = snapshots.getBack();
+		snapshot.clear();
+		gameLogic.snapshot(snapshot);
+		snapshot.setTimeNanos(System.nanoTime());
+		snapshots.publish();
 	    }
 	}
     }
 
+    private void sync() {
+	framePacer.waitForNextFrame();
+    }
+
     protected void input(float interval) {
+	window.pollInput();
 	mouseInput.input(window);
 	gameLogic.input(window, mouseInput, interval);
     }
@@ -131,7 +293,14 @@ public class GameEngine implements Runnable {
 	window.update();
     }
 
+    /**
+     * @throws IllegalStateException while recording a replay, since the ReplayPlayer only knows the game logic's 
+     * components and would update the wrong ones
+     */
     public void addEngineComponent(EngineComponent engineComponent) {
+	if (replayRecorder != null) {
+	    throw new IllegalStateException("Can't add an engine component while recording a replay");
+	}
 	engineAccumulators.put(engineComponent, 0f);
     }
 }
@@ -15,8 +15,32 @@ public interface GameLogic {
 	void update(float interval);
 
 	void render(GameWindow window);
+
+	/**
+	 * Copy what rendering needs out of the game state. Called on the simulation thread after every update, when 
+	 * rendering runs on its own thread.
+	 */
+	default void snapshot(RenderSnapshot snapshot) {
+	}
+
+	/**
+	 * Render between the last two snapshots instead of from the live game state. Called on the render thread, 
+	 * when rendering runs on its own thread.
+	 * 
+	 * @param alpha how far to draw from the previous snapshot to the current one, 0 to 1
+	 */
+	default void render(GameWindow window, RenderSnapshot previous, RenderSnapshot current, float alpha) {
+		render(window);
+	}
 	
 	void cleanup();
+
+	/**
+	 * Hash of the simulation state, recorded after every fixed tick so replays can find the tick they diverge on
+	 */
+	default long getStateHash() {
+		return 0;
+	}
 	
 	List<EngineComponent> getEngineComponents();
 }
@@ -9,6 +9,9 @@ import org.lwjgl.opengl.GL;
 import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.system.MemoryUtil.NULL;
 
+import engine.input.InputEventQueue;
+import engine.input.InputState;
+
 public class GameWindow {
 
     private final String title;
@@ -29,12 +32,19 @@ public class GameWindow {
 
     private boolean vSync;
 
+    // GLFW callbacks push here as events arrive, and the game loop drains them into the input state once a tick
+    private final InputEventQueue inputEvents;
+
+    private final InputState input;
+
     public GameWindow(String title, int width, int height, boolean vSync) {
 	this.title = title;
 	this.width = width;
 	this.height = height;
 	this.vSync = vSync;
 	this.resized = false;
+	this.inputEvents = new InputEventQueue(1024);
+	this.input = new InputState();
     }
 
     public void init() {
@@ -81,6 +91,7 @@ public class GameWindow {
 		if (key == GLFW_KEY_ESCAPE && action == GLFW_RELEASE) {
 		    glfwSetWindowShouldClose(window, true);
 		}
+		inputEvents.offer(InputEventQueue.KEY, key, action, 0, 0, System.nanoTime());
 	    }
 	};
 
@@ -125,8 +136,26 @@ public class GameWindow {
 	glClearColor(r, g, b, alpha);
     }
 
+    /**
+     * @return true if the key is down, or was tapped since the last input tick
+     */
     public boolean isKeyPressed(int keyCode) {
-	return glfwGetKey(windowHandle, keyCode) == GLFW_PRESS;
+	return input.isKeyDown(keyCode) || input.wasKeyPressed(keyCode);
+    }
+
+    /**
+     * Apply the input events received since the last input tick
+     */
+    public void pollInput() {
+	input.update(inputEvents);
+    }
+
+    public InputState getInput() {
+	return input;
+    }
+
+    public InputEventQueue getInputEvents() {
+	return inputEvents;
     }
 
     public boolean windowShouldClose() {
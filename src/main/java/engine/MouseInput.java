@@ -7,19 +7,16 @@ import org.lwjgl.glfw.GLFWCursorPosCallback;
 import org.lwjgl.glfw.GLFWCursorEnterCallback;
 import org.lwjgl.glfw.GLFWMouseButtonCallback;
 
+import engine.input.InputEventQueue;
+import engine.input.InputState;
+
 public class MouseInput {
 
     private final Vector2d previousPos;
 
-    private final Vector2d currentPos;
-
     private final Vector2f displVec;
 
-    private boolean inWindow = false;
-
-    private boolean leftButtonPressed = false;
-
-    private boolean rightButtonPressed = false;
+    private InputState state;
 
     // Hold onto our callback references
     // Callbacks are implemented in native code, so if we don't hold onto our reference,
@@ -35,16 +32,21 @@ public class MouseInput {
 
     public MouseInput() {
         previousPos = new Vector2d(-1, -1);
-        currentPos = new Vector2d(0, 0);
         displVec = new Vector2f();
     }
 
+    /**
+     * The callbacks only queue events. The mouse state is read from the window's input state, which the game 
+     * loop updates once per input tick.
+     */
     public void init(GameWindow window) {
+	InputEventQueue events = window.getInputEvents();
+	state = window.getInput();
+	
 	cursorPosCallback = new GLFWCursorPosCallback() {
             @Override
             public void invoke(long window, double xpos, double ypos) {
-                currentPos.x = xpos;
-                currentPos.y = ypos;
+                events.offer(InputEventQueue.CURSOR_POSITION, 0, 0, xpos, ypos, System.nanoTime());
             }
         };
 	
@@ -53,7 +55,7 @@ public class MouseInput {
         cursorEnterCallback = new GLFWCursorEnterCallback() {
             @Override
             public void invoke(long window, boolean entered) {
-                inWindow = entered;
+                events.offer(InputEventQueue.CURSOR_ENTER, 0, entered ? 1 : 0, 0, 0, System.nanoTime());
             }
         };
         
@@ -62,8 +64,7 @@ public class MouseInput {
         mouseButtonCallback = new GLFWMouseButtonCallback() {
             @Override
             public void invoke(long window, int button, int action, int mods) {
-                leftButtonPressed = button == GLFW_MOUSE_BUTTON_1 && action == GLFW_PRESS;
-                rightButtonPressed = button == GLFW_MOUSE_BUTTON_2 && action == GLFW_PRESS;
+                events.offer(InputEventQueue.MOUSE_BUTTON, button, action, 0, 0, System.nanoTime());
             }
         };
         
@@ -75,11 +76,14 @@ public class MouseInput {
     }
 
     public void input(GameWindow window) {
+        state = window.getInput(); // Set here too, so a window without callbacks (e.g. in a replay) still works
         displVec.x = 0;
         displVec.y = 0;
-        if (previousPos.x > 0 && previousPos.y > 0 && inWindow) {
-            double deltax = currentPos.x - previousPos.x;
-            double deltay = currentPos.y - previousPos.y;
+        double currentX = state.getCursorX();
+        double currentY = state.getCursorY();
+        if (previousPos.x > 0 && previousPos.y > 0 && state.isCursorInWindow()) {
+            double deltax = currentX - previousPos.x;
+            double deltay = currentY - previousPos.y;
             boolean rotateX = deltax != 0;
             boolean rotateY = deltay != 0;
             if (rotateX) {
@@ -89,15 +93,18 @@ public class MouseInput {
                 displVec.x = (float) deltay;
             }
         }
-        previousPos.x = currentPos.x;
-        previousPos.y = currentPos.y;
+        previousPos.x = currentX;
+        previousPos.y = currentY;
     }
 
+    /**
+     * @return true if the button is down, or was clicked since the last input tick
+     */
     public boolean isLeftButtonPressed() {
-        return leftButtonPressed;
+        return state.isButtonDown(GLFW_MOUSE_BUTTON_1) || state.wasButtonPressed(GLFW_MOUSE_BUTTON_1);
     }
 
     public boolean isRightButtonPressed() {
-        return rightButtonPressed;
+        return state.isButtonDown(GLFW_MOUSE_BUTTON_2) || state.wasButtonPressed(GLFW_MOUSE_BUTTON_2);
     }
-}
\ No newline at end of file
+}
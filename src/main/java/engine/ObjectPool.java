@@ -0,0 +1,155 @@
+package engine;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Fixed set of reusable objects for things that come and go all the time, like projectiles and particles, so
+ * spawning one doesn't allocate anything - not even its GL buffers or physics body, which are made once up front.
+ *
+ * Objects are referred to by handles that pair the object's slot with a generation, bumped every time the slot
+ * is freed. A handle kept after its object was despawned is stale, and is refused rather than reaching whatever
+ * was spawned into the slot since. Spawn and despawn are constant time, and the live objects are kept densely
+ * packed for iterating.
+ *
+ * @author cypress980
+ *
+ */
+public class ObjectPool<T> {
+
+    public static final long NO_HANDLE = -1;
+
+    private final Object[] objects;
+    private final int[] generations;
+    private final Consumer<T> onSpawn;
+    private final Consumer<T> onDespawn;
+
+    private final int[] freeSlots;
+    private int freeCount;
+
+    // The live slots, packed, and where each live slot sits in that list
+    private final int[] liveSlots;
+    private final int[] liveIndices;
+    private int liveCount;
+
+    public ObjectPool(int capacity, Supplier<T> factory) {
+	this(capacity, factory, null, null);
+    }
+
+    /**
+     * @param factory makes every object of the pool, when the pool is made
+     * @param onSpawn readies an object when it's spawned, or null
+     * @param onDespawn puts an object away when it's despawned, e.g. hides its sprite, or null
+     */
+    public ObjectPool(int capacity, Supplier<T> factory, Consumer<T> onSpawn, Consumer<T> onDespawn) {
+	if (capacity < 1) {
+	    throw new IllegalArgumentException("Capacity must be positive, was " + capacity);
+	}
+	this.onSpawn = onSpawn;
+	this.onDespawn = onDespawn;
+	objects = new Object[capacity];
+	generations = new int[capacity];
+	freeSlots = new int[capacity];
+	liveSlots = new int[capacity];
+	liveIndices = new int[capacity];
+	for (int slot = 0; slot < capacity; slot++) {
+	    objects[slot] = factory.get();
+	    // Hand out the low slots first
+	    freeSlots[slot] = capacity - 1 - slot;
+	}
+	freeCount = capacity;
+    }
+
+    /**
+     * @return handle of the spawned object, or NO_HANDLE if every object is in use
+     */
+    public long spawn() {
+	if (freeCount == 0) {
+	    return NO_HANDLE;
+	}
+	int slot = freeSlots[--freeCount];
+	liveIndices[slot] = liveCount;
+	liveSlots[liveCount++] = slot;
+	if (onSpawn != null) {
+	    onSpawn.accept(getObject(slot));
+	}
+	return toHandle(slot, generations[slot]);
+    }
+
+    /**
+     * @return false if the handle was stale, and nothing was despawned
+     */
+    public boolean despawn(long handle) {
+	if (!isAlive(handle)) {
+	    return false;
+	}
+	int slot = getSlot(handle);
+	if (onDespawn != null) {
+	    onDespawn.accept(getObject(slot));
+	}
+	generations[slot]++;
+
+	// Move the last live slot into the hole
+	int index = liveIndices[slot];
+	int last = liveSlots[--liveCount];
+	liveSlots[index] = last;
+	liveIndices[last] = index;
+
+	freeSlots[freeCount++] = slot;
+	return true;
+    }
+
+    public boolean isAlive(long handle) {
+	int slot = getSlot(handle);
+	if (slot < 0 || slot >= objects.length || generations[slot] != getGeneration(handle)) {
+	    return false;
+	}
+	int index = liveIndices[slot];
+	return index < liveCount && liveSlots[index] == slot;
+    }
+
+    /**
+     * @return the object, or null if the handle is stale
+     */
+    public T get(long handle) {
+	return isAlive(handle) ? getObject(getSlot(handle)) : null;
+    }
+
+    public int getLiveCount() {
+	return liveCount;
+    }
+
+    public int getCapacity() {
+	return objects.length;
+    }
+
+    /**
+     * @param index between 0 and getLiveCount(). Despawning moves the last live object into the hole, so iterate
+     * backwards to despawn while iterating.
+     */
+    public T getLive(int index) {
+	return getObject(liveSlots[index]);
+    }
+
+    public long getLiveHandle(int index) {
+	int slot = liveSlots[index];
+	return toHandle(slot, generations[slot]);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T getObject(int slot) {
+	return (T) objects[slot];
+    }
+
+    private static long toHandle(int slot, int generation) {
+	return (long) generation << 32 | slot;
+    }
+
+    private static int getSlot(long handle) {
+	return (int) handle;
+    }
+
+    private static int getGeneration(long handle) {
+	return (int) (handle >>> 32);
+    }
+}
@@ -0,0 +1,198 @@
+package engine;
+
+import java.util.Arrays;
+
+import org.joml.Vector3f;
+
+/**
+ * What the renderer needs from one simulation tick - the position, rotation, scale, sprite frame and text of every 
+ * renderable, by the order they were added, and where the camera was. Snapshots are filled on the simulation 
+ * thread, handed to the render thread through a {@link TripleBuffer}, and never written again while the render 
+ * thread holds them.
+ * 
+ * Each item also keeps the object it was captured from, which stays the same from tick to tick however the scene 
+ * is reordered, so the render thread can draw it and match it up with the previous snapshot without touching the 
+ * live scene.
+ * 
+ * @author cypress980
+ *
+ */
+public class RenderSnapshot {
+
+    private float[] coordinates = new float[3 * 64];
+
+    private int[] frames = new int[64];
+
+    private String[] texts = new String[64];
+
+    private float[] rotations = new float[3 * 64];
+
+    private float[] scales = new float[64];
+
+    private Object[] owners = new Object[64];
+
+    // x, y, z, then rotation x, y, z
+    private final float[] camera = new float[6];
+
+    private int size;
+
+    private long timeNanos;
+
+    public void clear() {
+	Arrays.fill(texts, 0, size, null);
+	Arrays.fill(owners, 0, size, null);
+	size = 0;
+    }
+
+    /**
+     * @param frame sprite frame, or 0
+     * @param text the text shown, or null
+     * @return the item's index
+     */
+    public int add(float x, float y, float z, int frame, String text) {
+	if (size == frames.length) {
+	    coordinates = Arrays.copyOf(coordinates, size * 6);
+	    frames = Arrays.copyOf(frames, size * 2);
+	    texts = Arrays.copyOf(texts, size * 2);
+	    rotations = Arrays.copyOf(rotations, size * 6);
+	    scales = Arrays.copyOf(scales, size * 2);
+	    owners = Arrays.copyOf(owners, size * 2);
+	}
+	coordinates[size * 3] = x;
+	coordinates[size * 3 + 1] = y;
+	coordinates[size * 3 + 2] = z;
+	frames[size] = frame;
+	texts[size] = text;
+	rotations[size * 3] = 0;
+	rotations[size * 3 + 1] = 0;
+	rotations[size * 3 + 2] = 0;
+	scales[size] = 1;
+	owners[size] = null;
+	return size++;
+    }
+
+    /**
+     * @param owner the object the item was captured from, the same every tick
+     * @param rotation degrees about each axis
+     */
+    public void setTransform(int item, Object owner, Vector3f rotation, float scale) {
+	owners[item] = owner;
+	rotations[item * 3] = rotation.x;
+	rotations[item * 3 + 1] = rotation.y;
+	rotations[item * 3 + 2] = rotation.z;
+	scales[item] = scale;
+    }
+
+    public void setCamera(Vector3f position, Vector3f rotation) {
+	camera[0] = position.x;
+	camera[1] = position.y;
+	camera[2] = position.z;
+	camera[3] = rotation.x;
+	camera[4] = rotation.y;
+	camera[5] = rotation.z;
+    }
+
+    public int size() {
+	return size;
+    }
+
+    public float getX(int item) {
+	return coordinates[item * 3];
+    }
+
+    public float getY(int item) {
+	return coordinates[item * 3 + 1];
+    }
+
+    public float getZ(int item) {
+	return coordinates[item * 3 + 2];
+    }
+
+    public int getFrame(int item) {
+	return frames[item];
+    }
+
+    public String getText(int item) {
+	return texts[item];
+    }
+
+    public Vector3f getRotation(int item, Vector3f dest) {
+	return dest.set(rotations[item * 3], rotations[item * 3 + 1], rotations[item * 3 + 2]);
+    }
+
+    public float getScale(int item) {
+	return scales[item];
+    }
+
+    public Object getOwner(int item) {
+	return owners[item];
+    }
+
+    /**
+     * Find the item captured from an owner, looking first where it was in another snapshot since scenes rarely 
+     * change order.
+     * 
+     * @return the item's index, or -1 if the owner wasn't captured
+     */
+    public int indexOf(Object owner, int hint) {
+	if (owner == null) {
+	    return -1;
+	}
+	if (hint < size && owners[hint] == owner) {
+	    return hint;
+	}
+	for (int i = 0; i < size; i++) {
+	    if (owners[i] == owner) {
+		return i;
+	    }
+	}
+	return -1;
+    }
+
+    public Vector3f getCameraPosition(Vector3f dest) {
+	return dest.set(camera[0], camera[1], camera[2]);
+    }
+
+    public Vector3f getCameraRotation(Vector3f dest) {
+	return dest.set(camera[3], camera[4], camera[5]);
+    }
+
+    /**
+     * @return System.nanoTime() when the snapshot was published
+     */
+    public long getTimeNanos() {
+	return timeNanos;
+    }
+
+    public void setTimeNanos(long timeNanos) {
+	this.timeNanos = timeNanos;
+    }
+
+    public void copyFrom(RenderSnapshot other) {
+	clear();
+	for (int i = 0; i < other.size; i++) {
+	    add(other.getX(i), other.getY(i), other.getZ(i), other.frames[i], other.texts[i]);
+	    rotations[i * 3] = other.rotations[i * 3];
+	    rotations[i * 3 + 1] = other.rotations[i * 3 + 1];
+	    rotations[i * 3 + 2] = other.rotations[i * 3 + 2];
+	    scales[i] = other.scales[i];
+	    owners[i] = other.owners[i];
+	}
+	System.arraycopy(other.camera, 0, camera, 0, camera.length);
+	timeNanos = other.timeNanos;
+    }
+
+    /**
+     * How far the render thread is between the previous snapshot and this one, assuming the next snapshot arrives 
+     * one tick after this one did.
+     * 
+     * @return 0 at the previous snapshot, up to 1 at this one
+     */
+    public float getAlpha(RenderSnapshot previous, long nowNanos) {
+	long tick = timeNanos - previous.timeNanos;
+	if (previous.timeNanos == 0 || tick <= 0) {
+	    return 1;
+	}
+	return Math.min(1f, Math.max(0f, (float) (nowNanos - timeNanos) / tick));
+    }
+}
@@ -0,0 +1,71 @@
+package engine;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Lock free hand off of the latest value from one producer thread to one consumer thread. The producer always has 
+ * a back buffer to write and the consumer always has a front buffer to read, so neither ever waits on the other - 
+ * a producer running ahead just replaces the value the consumer has not picked up yet.
+ * 
+ * @author cypress980
+ *
+ * @param <T> the buffered value, reused rather than reallocated
+ */
+public class TripleBuffer<T> {
+
+    private static final int INDEX = 3;
+    private static final int FRESH = 4;
+
+    private final Object[] buffers;
+
+    // Index of the buffer between the two threads, and whether it holds a value the consumer has not seen
+    private final AtomicInteger middle;
+
+    private int back; // Only touched by the producer
+
+    private int front; // Only touched by the consumer
+
+    public TripleBuffer(Supplier<T> factory) {
+	buffers = new Object[] { factory.get(), factory.get(), factory.get() };
+	front = 0;
+	middle = new AtomicInteger(1);
+	back = 2;
+    }
+
+    /**
+     * Producer side. The buffer to fill before publishing.
+     */
+    @SuppressWarnings("unchecked")
+    public T getBack() {
+	return (T) buffers[back];
+    }
+
+    /**
+     * Producer side. Make the back buffer the latest value and take a new back buffer.
+     */
+    public void publish() {
+	back = middle.getAndSet(back | FRESH) & INDEX;
+    }
+
+    /**
+     * Consumer side. Pick up the latest value, if one has been published since the last swap.
+     * 
+     * @return true if the front buffer changed
+     */
+    public boolean swap() {
+	if ((middle.get() & FRESH) == 0) {
+	    return false;
+	}
+	front = middle.getAndSet(front) & INDEX;
+	return true;
+    }
+
+    /**
+     * Consumer side. The latest value picked up by swap().
+     */
+    @SuppressWarnings("unchecked")
+    public T getFront() {
+	return (T) buffers[front];
+    }
+}
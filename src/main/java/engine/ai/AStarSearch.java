@@ -0,0 +1,145 @@
+package engine.ai;
+
+import java.util.Arrays;
+
+/**
+ * A* over a NavigationGrid with 8 way movement (no cutting corners past blocked cells) and the octile distance 
+ * heuristic.
+ * 
+ * All per node state lives in arrays sized to the grid and reused between searches. Instead of clearing them, 
+ * each search bumps a generation number and nodes from older generations count as unvisited. A search instance 
+ * is not thread safe - use one per thread.
+ * 
+ * @author cypress980
+ *
+ */
+public class AStarSearch {
+
+    private static final float DIAGONAL_COST = (float) Math.sqrt(2);
+
+    private static final int[] DX = { 1, -1, 0, 0, 1, 1, -1, -1 };
+    private static final int[] DY = { 0, 0, 1, -1, 1, -1, 1, -1 };
+
+    private final NavigationGrid grid;
+
+    private final float[] costs;
+    private final int[] parents;
+    private final int[] visited;
+    private final int[] closed;
+    private int generation = 0;
+
+    private final FloatMinHeap open;
+
+    private int[] pathCells = new int[64];
+
+    private int nodesExpanded;
+
+    public AStarSearch(NavigationGrid grid) {
+	this.grid = grid;
+	int cells = grid.getCellCount();
+	costs = new float[cells];
+	parents = new int[cells];
+	visited = new int[cells];
+	closed = new int[cells];
+	open = new FloatMinHeap(256);
+    }
+
+    public Path findPath(float fromX, float fromY, float toX, float toY) {
+	return findPath(grid.toCellX(fromX), grid.toCellY(fromY), grid.toCellX(toX), grid.toCellY(toY));
+    }
+
+    public Path findPath(int startX, int startY, int goalX, int goalY) {
+	nodesExpanded = 0;
+	long[] blocked = grid.getBlockedCells();
+	if (!isWalkable(blocked, startX, startY) || !isWalkable(blocked, goalX, goalY)) {
+	    return Path.NOT_FOUND;
+	}
+
+	generation++;
+	open.clear();
+	int width = grid.getWidth();
+	int start = grid.getCell(startX, startY);
+	int goal = grid.getCell(goalX, goalY);
+
+	visit(start, 0f, -1);
+	open.push(start, heuristic(startX, startY, goalX, goalY));
+
+	while (!open.isEmpty()) {
+	    int cell = open.pop();
+	    if (closed[cell] == generation) {
+		continue; // Stale entry, we already found a cheaper way here
+	    }
+	    closed[cell] = generation;
+	    nodesExpanded++;
+
+	    if (cell == goal) {
+		return buildPath(goal);
+	    }
+
+	    int x = cell % width;
+	    int y = cell / width;
+	    for (int d = 0; d < DX.length; d++) {
+		int nx = x + DX[d];
+		int ny = y + DY[d];
+		if (!isWalkable(blocked, nx, ny)) {
+		    continue;
+		}
+		boolean diagonal = DX[d] != 0 && DY[d] != 0;
+		if (diagonal && (!isWalkable(blocked, nx, y) || !isWalkable(blocked, x, ny))) {
+		    continue;
+		}
+
+		int next = grid.getCell(nx, ny);
+		float cost = costs[cell] + (diagonal ? DIAGONAL_COST : 1f);
+		if (visited[next] != generation || cost < costs[next]) {
+		    visit(next, cost, cell);
+		    open.push(next, cost + heuristic(nx, ny, goalX, goalY));
+		}
+	    }
+	}
+
+	return Path.NOT_FOUND;
+    }
+
+    /**
+     * @return nodes the last search expanded, for profiling
+     */
+    public int getNodesExpanded() {
+	return nodesExpanded;
+    }
+
+    private boolean isWalkable(long[] blocked, int x, int y) {
+	return grid.inBounds(x, y) && !NavigationGrid.isBlocked(blocked, grid.getCell(x, y));
+    }
+
+    private void visit(int cell, float cost, int parent) {
+	visited[cell] = generation;
+	costs[cell] = cost;
+	parents[cell] = parent;
+    }
+
+    private static float heuristic(int x, int y, int goalX, int goalY) {
+	int dx = Math.abs(goalX - x);
+	int dy = Math.abs(goalY - y);
+	return (dx + dy) + (DIAGONAL_COST - 2) * Math.min(dx, dy);
+    }
+
+    private Path buildPath(int goal) {
+	int length = 0;
+	for (int cell = goal; cell != -1; cell = parents[cell]) {
+	    if (length == pathCells.length) {
+		pathCells = Arrays.copyOf(pathCells, length * 2);
+	    }
+	    pathCells[length++] = cell;
+	}
+
+	int width = grid.getWidth();
+	float[] points = new float[length * 2];
+	for (int i = 0; i < length; i++) {
+	    int cell = pathCells[length - 1 - i];
+	    points[i * 2] = grid.getCenterX(cell % width);
+	    points[i * 2 + 1] = grid.getCenterY(cell / width);
+	}
+	return new Path(points);
+    }
+}
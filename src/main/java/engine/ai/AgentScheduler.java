@@ -0,0 +1,268 @@
+package engine.ai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.joml.Vector3f;
+
+import engine.physics.BodyControl;
+
+/**
+ * Decides which agents think on each AI tick, so AI cost stays within a fixed time budget no matter how many
+ * agents there are.
+ * 
+ * Agents are grouped into level of detail bands by their distance to the focus (the player or the camera). Each
+ * band has its own think rate, e.g. distant viklings only think 5 times a second. Bands are served nearest first,
+ * and once the budget is spent the remaining due agents wait for the next tick. Each band resumes where it 
+ * stopped, and every tick that runs out of budget moves the band served first on to the next band, so agents in 
+ * far bands still get their turn when the near ones could use the whole budget.
+ * 
+ * Think time is measured for every agent so slow agents can be found.
+ * 
+ * @author cypress980
+ *
+ */
+public class AgentScheduler {
+
+    private long budgetNanos;
+
+    private final List<IntelligentAgent> agents = new ArrayList<>();
+    private final List<BodyControl> bodies = new ArrayList<>();
+
+    private float[] sinceThink = new float[16];
+    private long[] lastThinkNanos = new long[16];
+    private long[] maxThinkNanos = new long[16];
+    private long[] totalThinkNanos = new long[16];
+    private int[] thinkCounts = new int[16];
+
+    // Level of detail bands, sorted by distance. The last band covers everything beyond.
+    private float[] bandMaxDistancesSquared = new float[] { Float.POSITIVE_INFINITY };
+    private float[] bandPeriods = new float[] { 0f };
+    private int[][] bandMembers = new int[][] { new int[16] };
+    private int[] bandSizes = new int[1];
+    private int[] bandCursors = new int[1];
+    private int firstBand;
+    private boolean levelsOfDetail = false;
+
+    private float focusX, focusY;
+    private final Vector3f scratch = new Vector3f();
+
+    private long lastTickNanos;
+    private int lastTickThinks;
+    private int lastTickDeferred;
+
+    /**
+     * @param budgetNanos time agents may spend thinking each tick. At least one agent thinks every tick.
+     */
+    public AgentScheduler(long budgetNanos) {
+	this.budgetNanos = budgetNanos;
+    }
+
+    /**
+     * @param body where the agent is, to pick its level of detail. A PhysicsThread control when physics has its 
+     * own thread, so the scheduler doesn't read bodies while they're stepped.
+     * @return index of the agent, for the latency getters. Indices above a removed agent shift down by one.
+     */
+    public int addAgent(IntelligentAgent agent, BodyControl body) {
+	int index = agents.size();
+	if (index == sinceThink.length) {
+	    int capacity = index * 2;
+	    sinceThink = Arrays.copyOf(sinceThink, capacity);
+	    lastThinkNanos = Arrays.copyOf(lastThinkNanos, capacity);
+	    maxThinkNanos = Arrays.copyOf(maxThinkNanos, capacity);
+	    totalThinkNanos = Arrays.copyOf(totalThinkNanos, capacity);
+	    thinkCounts = Arrays.copyOf(thinkCounts, capacity);
+	}
+	agents.add(agent);
+	bodies.add(body);
+	// New agents are due right away
+	sinceThink[index] = Float.POSITIVE_INFINITY;
+	lastThinkNanos[index] = 0;
+	maxThinkNanos[index] = 0;
+	totalThinkNanos[index] = 0;
+	thinkCounts[index] = 0;
+	return index;
+    }
+
+    public void removeAgent(IntelligentAgent agent) {
+	int index = agents.indexOf(agent);
+	if (index < 0) {
+	    return;
+	}
+	agents.remove(index);
+	bodies.remove(index);
+	int moved = agents.size() - index;
+	System.arraycopy(sinceThink, index + 1, sinceThink, index, moved);
+	System.arraycopy(lastThinkNanos, index + 1, lastThinkNanos, index, moved);
+	System.arraycopy(maxThinkNanos, index + 1, maxThinkNanos, index, moved);
+	System.arraycopy(totalThinkNanos, index + 1, totalThinkNanos, index, moved);
+	System.arraycopy(thinkCounts, index + 1, thinkCounts, index, moved);
+    }
+
+    /**
+     * Agents up to maxDistance from the focus (and beyond any nearer band) think thinkRateHz times per second.
+     * Agents beyond the farthest band use the farthest band's rate. Without any bands every agent is due every 
+     * tick.
+     */
+    public void addLevelOfDetail(float maxDistance, float thinkRateHz) {
+	float distanceSquared = maxDistance * maxDistance;
+	int bands = levelsOfDetail ? bandPeriods.length : 0;
+	int insertAt = 0;
+	while (insertAt < bands && bandMaxDistancesSquared[insertAt] < distanceSquared) {
+	    insertAt++;
+	}
+
+	float[] distances = new float[bands + 1];
+	float[] periods = new float[bands + 1];
+	System.arraycopy(bandMaxDistancesSquared, 0, distances, 0, insertAt);
+	System.arraycopy(bandPeriods, 0, periods, 0, insertAt);
+	distances[insertAt] = distanceSquared;
+	periods[insertAt] = 1f / thinkRateHz;
+	System.arraycopy(bandMaxDistancesSquared, insertAt, distances, insertAt + 1, bands - insertAt);
+	System.arraycopy(bandPeriods, insertAt, periods, insertAt + 1, bands - insertAt);
+
+	bandMaxDistancesSquared = distances;
+	bandPeriods = periods;
+	bandMembers = new int[bands + 1][16];
+	bandSizes = new int[bands + 1];
+	bandCursors = new int[bands + 1];
+	firstBand = 0;
+	levelsOfDetail = true;
+    }
+
+    public void setFocus(float x, float y) {
+	focusX = x;
+	focusY = y;
+    }
+
+    public void setBudgetNanos(long budgetNanos) {
+	this.budgetNanos = budgetNanos;
+    }
+
+    public void update(float interval) {
+	long tickStart = System.nanoTime();
+	assignBands(interval);
+
+	int thinks = 0;
+	int deferred = 0;
+	boolean outOfTime = false;
+	int bands = bandSizes.length;
+	for (int i = 0; i < bands; i++) {
+	    int b = (firstBand + i) % bands;
+	    int[] members = bandMembers[b];
+	    int size = bandSizes[b];
+	    float period = bandPeriods[b];
+	    int cursor = size == 0 ? 0 : bandCursors[b] % size;
+
+	    for (int k = 0; k < size; k++) {
+		int position = (cursor + k) % size;
+		int agent = members[position];
+		if (sinceThink[agent] < period) {
+		    continue;
+		}
+		if (outOfTime) {
+		    deferred++;
+		    continue;
+		}
+
+		think(agent);
+		thinks++;
+
+		if (System.nanoTime() - tickStart >= budgetNanos) {
+		    outOfTime = true;
+		    // Start from the next agent in this band next tick
+		    bandCursors[b] = position + 1;
+		}
+	    }
+	}
+
+	if (outOfTime) {
+	    // Serve the next band first next tick, or a saturated band would starve the ones after it
+	    firstBand = (firstBand + 1) % bands;
+	}
+
+	lastTickNanos = System.nanoTime() - tickStart;
+	lastTickThinks = thinks;
+	lastTickDeferred = deferred;
+    }
+
+    private void assignBands(float interval) {
+	Arrays.fill(bandSizes, 0);
+	int lastBand = bandSizes.length - 1;
+	for (int i = 0; i < agents.size(); i++) {
+	    sinceThink[i] += interval;
+
+	    bodies.get(i).getPosition(scratch);
+	    float dx = scratch.x - focusX;
+	    float dy = scratch.y - focusY;
+	    float distanceSquared = dx * dx + dy * dy;
+
+	    int b = 0;
+	    while (b < lastBand && distanceSquared > bandMaxDistancesSquared[b]) {
+		b++;
+	    }
+
+	    if (bandSizes[b] == bandMembers[b].length) {
+		bandMembers[b] = Arrays.copyOf(bandMembers[b], bandSizes[b] * 2);
+	    }
+	    bandMembers[b][bandSizes[b]++] = i;
+	}
+    }
+
+    private void think(int agent) {
+	long start = System.nanoTime();
+	agents.get(agent).think();
+	long nanos = System.nanoTime() - start;
+
+	sinceThink[agent] = 0;
+	lastThinkNanos[agent] = nanos;
+	totalThinkNanos[agent] += nanos;
+	thinkCounts[agent]++;
+	if (nanos > maxThinkNanos[agent]) {
+	    maxThinkNanos[agent] = nanos;
+	}
+    }
+
+    public int indexOf(IntelligentAgent agent) {
+	return agents.indexOf(agent);
+    }
+
+    public int getAgentCount() {
+	return agents.size();
+    }
+
+    public long getLastThinkNanos(int agent) {
+	return lastThinkNanos[agent];
+    }
+
+    public long getMaxThinkNanos(int agent) {
+	return maxThinkNanos[agent];
+    }
+
+    public long getAverageThinkNanos(int agent) {
+	return thinkCounts[agent] == 0 ? 0 : totalThinkNanos[agent] / thinkCounts[agent];
+    }
+
+    public int getThinkCount(int agent) {
+	return thinkCounts[agent];
+    }
+
+    /**
+     * @return time the last update took, including scheduling overhead
+     */
+    public long getLastTickNanos() {
+	return lastTickNanos;
+    }
+
+    public int getLastTickThinks() {
+	return lastTickThinks;
+    }
+
+    /**
+     * @return agents that were due on the last tick, but didn't fit in the budget
+     */
+    public int getLastTickDeferred() {
+	return lastTickDeferred;
+    }
+}
@@ -0,0 +1,19 @@
+package engine.ai;
+
+/**
+ * A condition or action at the bottom of a behavior tree. Leaves are registered by name with a 
+ * {@link BehaviorTreeCompiler} and shared by every agent running the tree, so they must keep per-agent state in 
+ * the blackboard (or the agent), never in fields.
+ * 
+ * @author cypress980
+ *
+ * @param <T> the agent the tree drives
+ */
+public interface BehaviorLeaf<T> {
+
+    /**
+     * @param param the node's "param" from the tree definition, 0 if it has none
+     * @return {@link BehaviorTree#SUCCESS}, {@link BehaviorTree#FAILURE} or {@link BehaviorTree#RUNNING}
+     */
+    int tick(T agent, Blackboard blackboard, float param);
+}
@@ -0,0 +1,130 @@
+package engine.ai;
+
+import java.util.Arrays;
+
+/**
+ * A behavior tree compiled into flat arrays. Nodes are stored depth first, so a node's first child is the next 
+ * node and {@code ends[node]} is the index just past its subtree - the next sibling. One tree is shared by every 
+ * agent that runs it, each with its own {@link Blackboard}, and ticking it allocates nothing.
+ * 
+ * Sequences and selectors are reactive and start from their first child every tick. Their memory variants 
+ * resume from the child that was running last tick.
+ * 
+ * @author cypress980
+ *
+ * @param <T> the agent the tree drives
+ */
+public class BehaviorTree<T> {
+
+    public static final int SUCCESS = 0;
+    public static final int FAILURE = 1;
+    public static final int RUNNING = 2;
+
+    static final byte LEAF = 0;
+    static final byte SEQUENCE = 1;
+    static final byte SELECTOR = 2;
+    static final byte MEMORY_SEQUENCE = 3;
+    static final byte MEMORY_SELECTOR = 4;
+    static final byte INVERT = 5;
+
+    private final String name;
+
+    private final byte[] types;
+
+    private final int[] ends;
+
+    private final BehaviorLeaf<T>[] leaves;
+
+    private final float[] params;
+
+    private final String[] floatKeys;
+
+    private final String[] intKeys;
+
+    BehaviorTree(String name, byte[] types, int[] ends, BehaviorLeaf<T>[] leaves, float[] params, 
+	    String[] floatKeys, String[] intKeys) {
+	this.name = name;
+	this.types = types;
+	this.ends = ends;
+	this.leaves = leaves;
+	this.params = params;
+	this.floatKeys = floatKeys;
+	this.intKeys = intKeys;
+    }
+
+    public String getName() {
+	return name;
+    }
+
+    public int size() {
+	return types.length;
+    }
+
+    public Blackboard createBlackboard() {
+	return new Blackboard(floatKeys.length, intKeys.length, types.length);
+    }
+
+    public int getFloatSlot(String key) {
+	return slotOf(floatKeys, key);
+    }
+
+    public int getIntSlot(String key) {
+	return slotOf(intKeys, key);
+    }
+
+    private int slotOf(String[] keys, String key) {
+	int slot = Arrays.asList(keys).indexOf(key);
+	if (slot < 0) {
+	    throw new IllegalArgumentException("Behavior tree " + name + " has no blackboard key " + key);
+	}
+	return slot;
+    }
+
+    public int tick(T agent, Blackboard blackboard) {
+	return tick(0, agent, blackboard);
+    }
+
+    private int tick(int node, T agent, Blackboard blackboard) {
+	switch (types[node]) {
+	case LEAF:
+	    return leaves[node].tick(agent, blackboard, params[node]);
+	case INVERT:
+	    int status = tick(node + 1, agent, blackboard);
+	    return status == RUNNING ? RUNNING : status == SUCCESS ? FAILURE : SUCCESS;
+	case SEQUENCE:
+	    return tickChildren(node, node + 1, FAILURE, SUCCESS, agent, blackboard);
+	case SELECTOR:
+	    return tickChildren(node, node + 1, SUCCESS, FAILURE, agent, blackboard);
+	case MEMORY_SEQUENCE:
+	    return tickChildren(node, resumeFrom(node, blackboard), FAILURE, SUCCESS, agent, blackboard);
+	case MEMORY_SELECTOR:
+	    return tickChildren(node, resumeFrom(node, blackboard), SUCCESS, FAILURE, agent, blackboard);
+	default:
+	    throw new IllegalStateException("Unknown node type " + types[node]);
+	}
+    }
+
+    private int resumeFrom(int node, Blackboard blackboard) {
+	int child = blackboard.resume[node];
+	return child == 0 ? node + 1 : child;
+    }
+
+    /**
+     * Tick children in order until one returns the stop status or is still running
+     */
+    private int tickChildren(int node, int child, int stopOn, int otherwise, T agent, Blackboard blackboard) {
+	for (; child < ends[node]; child = ends[child]) {
+	    int status = tick(child, agent, blackboard);
+	    if (status == RUNNING) {
+		blackboard.resume[node] = child;
+		return RUNNING;
+	    }
+	    if (status == stopOn) {
+		blackboard.resume[node] = 0;
+		return stopOn;
+	    }
+	}
+	blackboard.resume[node] = 0;
+	return otherwise;
+    }
+}
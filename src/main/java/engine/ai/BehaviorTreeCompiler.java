@@ -0,0 +1,152 @@
+package engine.ai;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compiles behavior trees from JSON into {@link BehaviorTree}s. A definition names the tree, declares its 
+ * blackboard keys and nests nodes under "root":
+ * 
+ * <pre>
+ * {
+ *   "name": "guard",
+ *   "blackboard": { "floats": ["homeX", "homeY"], "ints": [] },
+ *   "root": { "type": "selector", "children": [
+ *     { "type": "leaf", "name": "isNearHome", "param": 1 },
+ *     { "type": "leaf", "name": "walkHome" }
+ *   ]}
+ * }
+ * </pre>
+ * 
+ * Node types are leaf, sequence, selector, memorySequence, memorySelector and invert. Leaves must be registered 
+ * before compiling a tree that uses them.
+ * 
+ * @author cypress980
+ *
+ * @param <T> the agent the trees drive
+ */
+public class BehaviorTreeCompiler<T> {
+
+    private static final Map<String, Byte> TYPES = new HashMap<>();
+    static {
+	TYPES.put("leaf", BehaviorTree.LEAF);
+	TYPES.put("sequence", BehaviorTree.SEQUENCE);
+	TYPES.put("selector", BehaviorTree.SELECTOR);
+	TYPES.put("memorySequence", BehaviorTree.MEMORY_SEQUENCE);
+	TYPES.put("memorySelector", BehaviorTree.MEMORY_SELECTOR);
+	TYPES.put("invert", BehaviorTree.INVERT);
+    }
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final Map<String, BehaviorLeaf<T>> leaves = new HashMap<>();
+
+    public BehaviorTreeCompiler<T> register(String name, BehaviorLeaf<T> leaf) {
+	leaves.put(name, leaf);
+	return this;
+    }
+
+    /**
+     * Compile a tree from a classpath resource, e.g. "behaviors/vikling.json"
+     */
+    public BehaviorTree<T> compileResource(String resourceName) throws IOException {
+	try (InputStream in = getClass().getClassLoader().getResourceAsStream(resourceName)) {
+	    if (in == null) {
+		throw new IOException("No behavior tree resource " + resourceName);
+	    }
+	    return compile(mapper.readTree(in));
+	}
+    }
+
+    public BehaviorTree<T> compile(String json) throws IOException {
+	return compile(mapper.readTree(json));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private BehaviorTree<T> compile(JsonNode definition) {
+	String name = definition.path("name").asText("unnamed");
+	JsonNode root = definition.get("root");
+	if (root == null) {
+	    throw new IllegalArgumentException("Behavior tree " + name + " has no root");
+	}
+
+	Nodes nodes = new Nodes();
+	add(name, root, nodes);
+
+	int size = nodes.types.size();
+	byte[] types = new byte[size];
+	int[] ends = new int[size];
+	BehaviorLeaf<T>[] leafNodes = new BehaviorLeaf[size];
+	float[] params = new float[size];
+	for (int i = 0; i < size; i++) {
+	    types[i] = nodes.types.get(i);
+	    ends[i] = nodes.ends.get(i);
+	    leafNodes[i] = nodes.leaves.get(i);
+	    params[i] = nodes.params.get(i);
+	}
+
+	JsonNode blackboard = definition.path("blackboard");
+	return new BehaviorTree<>(name, types, ends, leafNodes, params, 
+		keys(blackboard.path("floats")), keys(blackboard.path("ints")));
+    }
+
+    private void add(String tree, JsonNode definition, Nodes nodes) {
+	String typeName = definition.path("type").asText();
+	Byte type = TYPES.get(typeName);
+	if (type == null) {
+	    throw new IllegalArgumentException("Behavior tree " + tree + " has unknown node type '" + typeName + "'");
+	}
+
+	int node = nodes.types.size();
+	nodes.types.add(type);
+	nodes.ends.add(0);
+	nodes.params.add((float) definition.path("param").asDouble(0));
+
+	JsonNode children = definition.path("children");
+	if (type == BehaviorTree.LEAF) {
+	    String leafName = definition.path("name").asText();
+	    BehaviorLeaf<T> leaf = leaves.get(leafName);
+	    if (leaf == null) {
+		throw new IllegalArgumentException("Behavior tree " + tree + " uses unregistered leaf '" + leafName + "'");
+	    }
+	    if (children.size() > 0) {
+		throw new IllegalArgumentException("Behavior tree " + tree + " has children under leaf '" + leafName + "'");
+	    }
+	    nodes.leaves.add(leaf);
+	} else {
+	    nodes.leaves.add(null);
+	    int expected = type == BehaviorTree.INVERT ? 1 : children.size();
+	    if (children.size() == 0 || children.size() != expected) {
+		throw new IllegalArgumentException("Behavior tree " + tree + " has a " + typeName + " with " 
+			+ children.size() + " children");
+	    }
+	}
+
+	for (JsonNode child : children) {
+	    add(tree, child, nodes);
+	}
+	nodes.ends.set(node, nodes.types.size());
+    }
+
+    private static String[] keys(JsonNode keys) {
+	String[] result = new String[keys.size()];
+	for (int i = 0; i < result.length; i++) {
+	    result[i] = keys.get(i).asText();
+	}
+	return result;
+    }
+
+    private class Nodes {
+	final List<Byte> types = new ArrayList<>();
+	final List<Integer> ends = new ArrayList<>();
+	final List<BehaviorLeaf<T>> leaves = new ArrayList<>();
+	final List<Float> params = new ArrayList<>();
+    }
+}
@@ -0,0 +1,48 @@
+package engine.ai;
+
+/**
+ * Per-agent state for a behavior tree - the float and int keys the tree declares, plus the child each memory 
+ * composite is resuming from. Keys are looked up once by name through the tree and then accessed by slot.
+ * 
+ * @author cypress980
+ *
+ */
+public class Blackboard {
+
+    private final float[] floats;
+
+    private final int[] ints;
+
+    final int[] resume;
+
+    Blackboard(int floats, int ints, int nodes) {
+	this.floats = new float[floats];
+	this.ints = new int[ints];
+	this.resume = new int[nodes];
+    }
+
+    public float getFloat(int slot) {
+	return floats[slot];
+    }
+
+    public void setFloat(int slot, float value) {
+	floats[slot] = value;
+    }
+
+    public int getInt(int slot) {
+	return ints[slot];
+    }
+
+    public void setInt(int slot, int value) {
+	ints[slot] = value;
+    }
+
+    /**
+     * Forget any running composites so the next tick starts from the root
+     */
+    public void reset() {
+	for (int i = 0; i < resume.length; i++) {
+	    resume[i] = 0;
+	}
+    }
+}
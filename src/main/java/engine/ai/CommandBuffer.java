@@ -0,0 +1,51 @@
+package engine.ai;
+
+import java.util.Arrays;
+
+/**
+ * Commands emitted by parallel agents during a tick. Each worker thread owns one buffer, so emitting never 
+ * contends, and the game thread drains the buffers once all agents are done.
+ * 
+ * @author cypress980
+ *
+ */
+public class CommandBuffer {
+
+    private int[] agents = new int[64];
+
+    private int[] commands = new int[64];
+
+    private int size = 0;
+
+    private int currentAgent;
+
+    public void emit(int command) {
+	if (size == commands.length) {
+	    agents = Arrays.copyOf(agents, size * 2);
+	    commands = Arrays.copyOf(commands, size * 2);
+	}
+	agents[size] = currentAgent;
+	commands[size] = command;
+	size++;
+    }
+
+    void begin(int agent) {
+	currentAgent = agent;
+    }
+
+    void clear() {
+	size = 0;
+    }
+
+    int size() {
+	return size;
+    }
+
+    int getAgent(int i) {
+	return agents[i];
+    }
+
+    int getCommand(int i) {
+	return commands[i];
+    }
+}
@@ -0,0 +1,83 @@
+package engine.ai;
+
+import java.util.Arrays;
+
+/**
+ * Binary min heap of int values keyed by float priorities, in two parallel primitive arrays so pushes and pops 
+ * never allocate once it has grown to size. There is no decrease key - searches push again and skip stale 
+ * entries when they pop them.
+ * 
+ * @author cypress980
+ *
+ */
+class FloatMinHeap {
+
+    private float[] keys;
+    private int[] values;
+    private int size = 0;
+
+    FloatMinHeap(int capacity) {
+	keys = new float[capacity];
+	values = new int[capacity];
+    }
+
+    boolean isEmpty() {
+	return size == 0;
+    }
+
+    void clear() {
+	size = 0;
+    }
+
+    void push(int value, float key) {
+	if (size == keys.length) {
+	    keys = Arrays.copyOf(keys, size * 2);
+	    values = Arrays.copyOf(values, size * 2);
+	}
+
+	int i = size++;
+	while (i > 0) {
+	    int parent = (i - 1) >>> 1;
+	    if (keys[parent] <= key) {
+		break;
+	    }
+	    keys[i] = keys[parent];
+	    values[i] = values[parent];
+	    i = parent;
+	}
+	keys[i] = key;
+	values[i] = value;
+    }
+
+    float peekKey() {
+	return keys[0];
+    }
+
+    /**
+     * @return the value with the smallest key
+     */
+    int pop() {
+	int top = values[0];
+	size--;
+	float key = keys[size];
+	int value = values[size];
+
+	int i = 0;
+	int half = size >>> 1;
+	while (i < half) {
+	    int child = 2 * i + 1;
+	    if (child + 1 < size && keys[child + 1] < keys[child]) {
+		child++;
+	    }
+	    if (key <= keys[child]) {
+		break;
+	    }
+	    keys[i] = keys[child];
+	    values[i] = values[child];
+	    i = child;
+	}
+	keys[i] = key;
+	values[i] = value;
+	return top;
+    }
+}
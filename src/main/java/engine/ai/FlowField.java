@@ -0,0 +1,199 @@
+package engine.ai;
+
+import java.util.Arrays;
+
+/**
+ * Direction to step in from every cell of a NavigationGrid to reach one shared goal, for crowds of agents 
+ * heading to the same place. One Dijkstra pass out from the goal replaces an A* search per agent, and after that
+ * each agent just samples its cell.
+ * 
+ * When the goal moves to another cell, or the obstacles of the grid change, the new field is built a slice at a 
+ * time by update(maxCells), so a rebuild never spikes a frame. Agents keep sampling the last complete field until 
+ * the new one is swapped in. Every rebuild starts from scratch rather than patching the old field - the grids are 
+ * small enough that a time sliced full pass is cheap, and it can't leave stale directions behind.
+ * 
+ * @author cypress980
+ *
+ */
+public class FlowField {
+
+    public static final byte NO_DIRECTION = -1;
+
+    private static final float DIAGONAL_COST = (float) Math.sqrt(2);
+
+    // Same order as AStarSearch - the first four are straight steps
+    private static final int[] DX = { 1, -1, 0, 0, 1, 1, -1, -1 };
+    private static final int[] DY = { 0, 0, 1, -1, 1, -1, 1, -1 };
+    private static final int[] OPPOSITE = { 1, 0, 3, 2, 7, 6, 5, 4 };
+
+    private final NavigationGrid grid;
+
+    private final float[] costs;
+    private final boolean[] settled;
+    private final FloatMinHeap open;
+    private long[] blocked;
+    private byte[] building;
+    private boolean isBuilding = false;
+
+    // The last complete field, read by agents on any thread
+    private volatile byte[] directions;
+
+    private int goalCellX = -1, goalCellY = -1;
+
+    // Version of the grid the latest build started from
+    private int buildVersion = -1;
+
+    public FlowField(NavigationGrid grid) {
+	this.grid = grid;
+	int cells = grid.getCellCount();
+	costs = new float[cells];
+	settled = new boolean[cells];
+	open = new FloatMinHeap(256);
+	building = new byte[cells];
+	byte[] empty = new byte[cells];
+	Arrays.fill(empty, NO_DIRECTION);
+	directions = empty;
+    }
+
+    /**
+     * Start building a field toward the goal, unless it is still in the same cell as the current goal and the 
+     * obstacles haven't changed
+     */
+    public void setGoal(float x, float y) {
+	int cellX = grid.toCellX(x);
+	int cellY = grid.toCellY(y);
+	if (cellX == goalCellX && cellY == goalCellY && !isStale()) {
+	    return;
+	}
+	goalCellX = cellX;
+	goalCellY = cellY;
+	startBuild();
+    }
+
+    /**
+     * @return true if the obstacles have changed since the field was built, and it may lead through them
+     */
+    public boolean isStale() {
+	return grid.getVersion() != buildVersion;
+    }
+
+    private void startBuild() {
+	Arrays.fill(costs, Float.POSITIVE_INFINITY);
+	Arrays.fill(settled, false);
+	Arrays.fill(building, NO_DIRECTION);
+	open.clear();
+	// Version first, if the grid changes in between the build is only redone once more
+	buildVersion = grid.getVersion();
+	blocked = grid.getBlockedCells();
+	isBuilding = true;
+
+	if (grid.inBounds(goalCellX, goalCellY)
+		&& !NavigationGrid.isBlocked(blocked, grid.getCell(goalCellX, goalCellY))) {
+	    int goal = grid.getCell(goalCellX, goalCellY);
+	    costs[goal] = 0;
+	    open.push(goal, 0);
+	}
+    }
+
+    /**
+     * Continue building the field, starting over if the obstacles have changed since the build started
+     * 
+     * @param maxCells cells to settle before returning
+     * @return true if the field is complete and agents now sample it
+     */
+    public boolean update(int maxCells) {
+	if (buildVersion >= 0 && isStale()) {
+	    startBuild();
+	}
+	if (!isBuilding) {
+	    return true;
+	}
+
+	int width = grid.getWidth();
+	int count = 0;
+	while (!open.isEmpty()) {
+	    if (count == maxCells) {
+		return false;
+	    }
+
+	    int cell = open.pop();
+	    if (settled[cell]) {
+		continue;
+	    }
+	    settled[cell] = true;
+	    count++;
+
+	    int x = cell % width;
+	    int y = cell / width;
+	    for (int d = 0; d < DX.length; d++) {
+		int nx = x + DX[d];
+		int ny = y + DY[d];
+		if (!isWalkable(nx, ny)) {
+		    continue;
+		}
+		boolean diagonal = d >= 4;
+		if (diagonal && (!isWalkable(nx, y) || !isWalkable(x, ny))) {
+		    continue;
+		}
+
+		int next = grid.getCell(nx, ny);
+		float cost = costs[cell] + (diagonal ? DIAGONAL_COST : 1f);
+		if (!settled[next] && cost < costs[next]) {
+		    costs[next] = cost;
+		    // From next, step back the way we came to reach this cell
+		    building[next] = (byte) OPPOSITE[d];
+		    open.push(next, cost);
+		}
+	    }
+	}
+
+	// Done - publish the new field and keep the old array to build the next one in
+	byte[] published = directions;
+	directions = building;
+	building = published;
+	isBuilding = false;
+	return true;
+    }
+
+    /**
+     * Build the whole field now
+     */
+    public void build() {
+	update(Integer.MAX_VALUE);
+    }
+
+    public boolean isBuilding() {
+	return isBuilding;
+    }
+
+    /**
+     * @return index of the step to take from the cell containing the world position, or NO_DIRECTION at the goal,
+     *  off the grid, or where the goal can't be reached
+     */
+    public int getDirection(float x, float y) {
+	int cellX = grid.toCellX(x);
+	int cellY = grid.toCellY(y);
+	if (!grid.inBounds(cellX, cellY)) {
+	    return NO_DIRECTION;
+	}
+	return directions[grid.getCell(cellX, cellY)];
+    }
+
+    /**
+     * @return -1, 0 or 1 - the x part of a direction from getDirection
+     */
+    public static int getStepX(int direction) {
+	return direction == NO_DIRECTION ? 0 : DX[direction];
+    }
+
+    /**
+     * @return -1, 0 or 1 - the y part of a direction from getDirection
+     */
+    public static int getStepY(int direction) {
+	return direction == NO_DIRECTION ? 0 : DY[direction];
+    }
+
+    private boolean isWalkable(int x, int y) {
+	return grid.inBounds(x, y) && !NavigationGrid.isBlocked(blocked, grid.getCell(x, y));
+    }
+}
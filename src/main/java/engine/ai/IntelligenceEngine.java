@@ -1,38 +1,295 @@
 package engine.ai;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.joml.Vector3f;
 
 import engine.EngineComponent;
+import engine.game.state.EntitySystem;
+import engine.game.state.EntityWorld;
+import engine.physics.BodyControl;
+import engine.physics.PhysicsThread;
+import engine.physics.RigidBody;
 
+/**
+ * Runs every agent's think once per AI tick.
+ * 
+ * IntelligentAgents think serially on the game thread, either every tick or when the AgentScheduler gives them
+ * a turn. ParallelAgents are split into contiguous slices, one per
+ * thread. At the start of the tick the tracked bodies are captured into a WorldView, every slice thinks against
+ * that view and emits into its own CommandBuffer, and then the commands are executed on the game thread in 
+ * agent order, so the outcome doesn't depend on the number of threads.
+ * 
+ * @author cypress980
+ *
+ */
 public class IntelligenceEngine implements EngineComponent {
 
     private final float updateInterval;
     private final List<IntelligentAgent> agents;
+    private final List<EntitySystem> systems;
+    private EntityWorld entityWorld;
+    private AgentScheduler scheduler;
+    private PerceptionIndex perception;
+
+    private final List<ParallelAgent> parallelAgents;
+    private int[] agentBodies;
+    private final List<RigidBody> bodies;
+    private final Map<RigidBody, Integer> bodyIndices;
     
+    // What the tracked bodies are read through, the bodies themselves unless physics runs on its own thread
+    private final List<BodyControl> bodyReaders;
+    private PhysicsThread physicsThread;
+
+    // Double buffered, so the last tick's view stays intact while the next one is captured
+    private final WorldView[] views;
+    private int frontView;
+    private long tick;
+    private final Vector3f scratch;
+
+    private int parallelism;
+    private ExecutorService executor;
+    private CommandBuffer[] commandBuffers;
+    private List<Callable<Void>> slices;
+
     public IntelligenceEngine(float updateInterval) {
 	this.updateInterval = updateInterval;
 	agents = new ArrayList<>();
+	systems = new ArrayList<>();
+	parallelAgents = new ArrayList<>();
+	agentBodies = new int[16];
+	bodies = new ArrayList<>();
+	bodyIndices = new HashMap<>();
+	bodyReaders = new ArrayList<>();
+	views = new WorldView[] { new WorldView(), new WorldView() };
+	scratch = new Vector3f();
+	setParallelism(1);
     }
 
     @Override
     public void update(float interval) throws Exception {
+	resolveBodyReaders();
+	if (perception != null) {
+	    perception.rebuild(bodyReaders);
+	}
+	
 	for (IntelligentAgent agent : agents) {
 	    agent.think();
 	}
+	
+	if (scheduler != null) {
+	    scheduler.update(interval);
+	}
+	
+	if (!parallelAgents.isEmpty()) {
+	    thinkInParallel();
+	}
+	
+	// AI for entities runs as systems over their AI_STATE
+	if (entityWorld != null) {
+	    for (EntitySystem system : systems) {
+		system.update(entityWorld, interval);
+	    }
+	}
+    }
+
+    private void thinkInParallel() throws Exception {
+	frontView ^= 1;
+	views[frontView].capture(bodyReaders, tick++, scratch);
+	
+	if (executor == null) {
+	    slices.get(0).call();
+	} else {
+	    for (Future<Void> slice : executor.invokeAll(slices)) {
+		slice.get(); // Rethrow anything an agent threw
+	    }
+	}
+	
+	// Back on the game thread - execute in slice order, which is agent order
+	for (CommandBuffer commands : commandBuffers) {
+	    for (int i = 0; i < commands.size(); i++) {
+		parallelAgents.get(commands.getAgent(i)).execute(commands.getCommand(i));
+	    }
+	    commands.clear();
+	}
+    }
+
+    private Void thinkSlice(int slice) {
+	WorldView view = views[frontView];
+	CommandBuffer commands = commandBuffers[slice];
+	int agentCount = parallelAgents.size();
+	int start = (int) ((long) agentCount * slice / parallelism);
+	int end = (int) ((long) agentCount * (slice + 1) / parallelism);
+	
+	for (int i = start; i < end; i++) {
+	    commands.begin(i);
+	    parallelAgents.get(i).think(agentBodies[i], view, commands);
+	}
+	return null;
+    }
+
+    /**
+     * @param threads number of threads parallel agents think on. 1 thinks on the game thread.
+     */
+    public void setParallelism(int threads) {
+	if (threads < 1) {
+	    throw new IllegalArgumentException("Parallelism must be at least 1, was " + threads);
+	}
+	shutdown();
+	
+	parallelism = threads;
+	commandBuffers = new CommandBuffer[threads];
+	slices = new ArrayList<>();
+	for (int i = 0; i < threads; i++) {
+	    int slice = i;
+	    commandBuffers[i] = new CommandBuffer();
+	    slices.add(() -> thinkSlice(slice));
+	}
+	
+	if (threads > 1) {
+	    AtomicInteger threadCount = new AtomicInteger();
+	    executor = Executors.newFixedThreadPool(threads, runnable -> {
+		Thread thread = new Thread(runnable, "AI_THREAD_" + threadCount.getAndIncrement());
+		thread.setDaemon(true);
+		return thread;
+	    });
+	}
+    }
+
+    public int getParallelism() {
+	return parallelism;
+    }
+
+    /**
+     * Stop the AI threads, if any
+     */
+    public void shutdown() {
+	if (executor != null) {
+	    executor.shutdown();
+	    executor = null;
+	}
+    }
+
+    /**
+     * @return the view parallel agents thought against on the last tick
+     */
+    public WorldView getWorldView() {
+	return views[frontView];
+    }
+
+    /**
+     * Include a body in the WorldView, e.g. so agents can see the player. Bodies stay tracked for the life 
+     * of the engine.
+     * 
+     * @return index of the body in the view
+     */
+    public int trackBody(RigidBody body) {
+	Integer index = bodyIndices.get(body);
+	if (index == null) {
+	    index = bodies.size();
+	    bodies.add(body);
+	    bodyIndices.put(body, index);
+	}
+	return index;
+    }
+
+    /**
+     * Read the tracked bodies from the transforms a physics thread publishes, instead of from the bodies it is 
+     * stepping. Bodies must be registered with its physics engine before the next update.
+     * 
+     * @param physicsThread or null to read the bodies directly
+     */
+    public void setPhysicsThread(PhysicsThread physicsThread) {
+	this.physicsThread = physicsThread;
+	bodyReaders.clear();
+    }
+    
+    private void resolveBodyReaders() {
+	for (int i = bodyReaders.size(); i < bodies.size(); i++) {
+	    RigidBody body = bodies.get(i);
+	    bodyReaders.add(physicsThread == null ? body : physicsThread.getControl(body));
+	}
+    }
+
+    public void setEntityWorld(EntityWorld entityWorld) {
+	this.entityWorld = entityWorld;
+    }
+
+    public void addSystem(EntitySystem system) {
+	systems.add(system);
     }
 
     public void addAgent(IntelligentAgent agent) {
 	agents.add(agent);
     }
-    
+
     public void removeAgent(IntelligentAgent agent) {
 	agents.remove(agent);
     }
     
+    /**
+     * Agents added to the scheduler think within its time budget and level of detail rates, instead of on 
+     * every tick like agents added directly
+     */
+    public void setScheduler(AgentScheduler scheduler) {
+	this.scheduler = scheduler;
+    }
+    
+    public AgentScheduler getScheduler() {
+	return scheduler;
+    }
+    
+    /**
+     * The scheduler picks who thinks by how long thinking took, so with one the AI can't be replayed
+     */
+    @Override
+    public boolean isReplayable() {
+	return scheduler == null;
+    }
+    
+    /**
+     * The index is rebuilt from the tracked bodies at the start of every tick, before any agent thinks
+     */
+    public void setPerception(PerceptionIndex perception) {
+	this.perception = perception;
+    }
+    
+    public PerceptionIndex getPerception() {
+	return perception;
+    }
+
+    /**
+     * @param body the agent's own body, which it will find at index self of the view
+     */
+    public void addParallelAgent(ParallelAgent agent, RigidBody body) {
+	int index = parallelAgents.size();
+	if (index == agentBodies.length) {
+	    agentBodies = Arrays.copyOf(agentBodies, index * 2);
+	}
+	agentBodies[index] = trackBody(body);
+	parallelAgents.add(agent);
+    }
+
+    public void removeParallelAgent(ParallelAgent agent) {
+	int index = parallelAgents.indexOf(agent);
+	if (index >= 0) {
+	    parallelAgents.remove(index);
+	    System.arraycopy(agentBodies, index + 1, agentBodies, index, parallelAgents.size() - index);
+	}
+    }
+
     @Override
     public float getUpdateInterval() {
 	return updateInterval;
     }
-    
+
 }
@@ -0,0 +1,154 @@
+package engine.ai;
+
+import java.util.List;
+
+import engine.physics.HitBox;
+
+/**
+ * Walkable/blocked cells over the world, for path finding. Built from terrain tiles and static hit boxes.
+ * 
+ * The blocked cells are copy on write, so path searches on worker threads always see a consistent grid, and 
+ * every change bumps the version so cached paths can be thrown away.
+ * 
+ * @author cypress980
+ *
+ */
+public class NavigationGrid {
+
+    private final int width;
+    private final int height;
+    private final float cellSize;
+    private final float originX;
+    private final float originY;
+
+    private volatile long[] blocked;
+    private volatile int version = 0;
+
+    /**
+     * @param originX world x of the left edge of cell 0
+     * @param originY world y of the top edge of cell 0
+     */
+    public NavigationGrid(int width, int height, float cellSize, float originX, float originY) {
+	this.width = width;
+	this.height = height;
+	this.cellSize = cellSize;
+	this.originX = originX;
+	this.originY = originY;
+	this.blocked = new long[(width * height + 63) / 64];
+    }
+
+    public int getWidth() {
+	return width;
+    }
+
+    public int getHeight() {
+	return height;
+    }
+
+    public int getCellCount() {
+	return width * height;
+    }
+
+    public float getCellSize() {
+	return cellSize;
+    }
+
+    public int getVersion() {
+	return version;
+    }
+
+    public int toCellX(float x) {
+	return (int) Math.floor((x - originX) / cellSize);
+    }
+
+    public int toCellY(float y) {
+	return (int) Math.floor((y - originY) / cellSize);
+    }
+
+    public float getCenterX(int cellX) {
+	return originX + (cellX + 0.5f) * cellSize;
+    }
+
+    public float getCenterY(int cellY) {
+	return originY + (cellY + 0.5f) * cellSize;
+    }
+
+    public int getCell(int cellX, int cellY) {
+	return cellY * width + cellX;
+    }
+
+    public boolean inBounds(int cellX, int cellY) {
+	return cellX >= 0 && cellX < width && cellY >= 0 && cellY < height;
+    }
+
+    /**
+     * @return true if the cell is blocked or outside the grid
+     */
+    public boolean isBlocked(int cellX, int cellY) {
+	return !inBounds(cellX, cellY) || isBlocked(blocked, getCell(cellX, cellY));
+    }
+
+    /**
+     * The current blocked cells. The array is never modified once published, so it can be read from any thread.
+     */
+    long[] getBlockedCells() {
+	return blocked;
+    }
+
+    static boolean isBlocked(long[] blockedCells, int cell) {
+	return (blockedCells[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    public synchronized void setBlocked(int cellX, int cellY, boolean isBlocked) {
+	long[] cells = blocked.clone();
+	set(cells, cellX, cellY, isBlocked);
+	publish(cells);
+    }
+
+    /**
+     * Set a rectangle of cells at once, e.g. a run of solid terrain tiles
+     */
+    public synchronized void setBlocked(int cellX, int cellY, int cellsWide, int cellsHigh, boolean isBlocked) {
+	long[] cells = blocked.clone();
+	for (int y = cellY; y < cellY + cellsHigh; y++) {
+	    for (int x = cellX; x < cellX + cellsWide; x++) {
+		set(cells, x, y, isBlocked);
+	    }
+	}
+	publish(cells);
+    }
+
+    /**
+     * Block every cell a static hit box overlaps
+     */
+    public synchronized void blockHitBoxes(List<HitBox> hitBoxes) {
+	long[] cells = blocked.clone();
+	for (HitBox hitBox : hitBoxes) {
+	    int maxX = (int) Math.ceil((hitBox.getMaxX() - originX) / cellSize);
+	    int maxY = (int) Math.ceil((hitBox.getMaxY() - originY) / cellSize);
+	    for (int y = toCellY(hitBox.getMinY()); y < maxY; y++) {
+		for (int x = toCellX(hitBox.getMinX()); x < maxX; x++) {
+		    set(cells, x, y, true);
+		}
+	    }
+	}
+	publish(cells);
+    }
+
+    private void set(long[] cells, int cellX, int cellY, boolean isBlocked) {
+	if (!inBounds(cellX, cellY)) {
+	    return;
+	}
+	int cell = getCell(cellX, cellY);
+	if (isBlocked) {
+	    cells[cell >>> 6] |= 1L << cell;
+	} else {
+	    cells[cell >>> 6] &= ~(1L << cell);
+	}
+    }
+
+    private void publish(long[] cells) {
+	blocked = cells;
+	version++;
+    }
+}
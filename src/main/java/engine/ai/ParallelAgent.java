@@ -0,0 +1,23 @@
+package engine.ai;
+
+/**
+ * An agent that can think on any thread. Instead of touching the game directly, it reads a snapshot of the world
+ * taken at the start of the AI tick, and emits commands that are executed afterwards on the game thread.
+ * 
+ * @author cypress980
+ *
+ */
+public interface ParallelAgent {
+
+    /**
+     * Called on a worker thread. Must only read the view and emit commands - no shared state.
+     * 
+     * @param self index of the agent's own body in the view
+     */
+    void think(int self, WorldView view, CommandBuffer commands);
+
+    /**
+     * Called on the game thread for each command emitted by think, in order
+     */
+    void execute(int command);
+}
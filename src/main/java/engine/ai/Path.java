@@ -0,0 +1,35 @@
+package engine.ai;
+
+/**
+ * Result of a path search - the world position of the center of every cell along the way, start and goal 
+ * included.
+ * 
+ * @author cypress980
+ *
+ */
+public class Path {
+
+    public static final Path NOT_FOUND = new Path(new float[0]);
+
+    private final float[] points;
+
+    Path(float[] points) {
+	this.points = points;
+    }
+
+    public boolean isFound() {
+	return this != NOT_FOUND;
+    }
+
+    public int size() {
+	return points.length / 2;
+    }
+
+    public float getX(int i) {
+	return points[i * 2];
+    }
+
+    public float getY(int i) {
+	return points[i * 2 + 1];
+    }
+}
@@ -0,0 +1,58 @@
+package engine.ai;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least recently used cache of paths by start and goal cell. Tagged with the version of the NavigationGrid 
+ * the paths were found on - as soon as a newer version shows up, every cached path is dropped.
+ * 
+ * @author cypress980
+ *
+ */
+class PathCache {
+
+    private final LinkedHashMap<Long, Path> paths;
+
+    private int gridVersion = 0;
+
+    PathCache(int capacity) {
+	paths = new LinkedHashMap<Long, Path>(capacity * 4 / 3 + 1, 0.75f, true) {
+	    private static final long serialVersionUID = 1L;
+
+	    @Override
+	    protected boolean removeEldestEntry(Map.Entry<Long, Path> eldest) {
+		return size() > capacity;
+	    }
+	};
+    }
+
+    static long key(int startCell, int goalCell) {
+	return ((long) startCell << 32) | (goalCell & 0xFFFFFFFFL);
+    }
+
+    synchronized Path get(long key, int version) {
+	return checkVersion(version) ? paths.get(key) : null;
+    }
+
+    synchronized void put(long key, Path path, int version) {
+	if (checkVersion(version)) {
+	    paths.put(key, path);
+	}
+    }
+
+    synchronized int size() {
+	return paths.size();
+    }
+
+    /**
+     * @return false if the version is older than the cache, i.e. the path is stale
+     */
+    private boolean checkVersion(int version) {
+	if (version > gridVersion) {
+	    paths.clear();
+	    gridVersion = version;
+	}
+	return version == gridVersion;
+    }
+}
@@ -0,0 +1,33 @@
+package engine.ai;
+
+/**
+ * Handle for a path being found in the background. Agents keep it and poll it on later ticks.
+ * 
+ * @author cypress980
+ *
+ */
+public class PathRequest {
+
+    private volatile Path path;
+
+    PathRequest() {}
+
+    PathRequest(Path path) {
+	this.path = path;
+    }
+
+    public boolean isDone() {
+	return path != null;
+    }
+
+    /**
+     * @return the path, Path.NOT_FOUND if there is none, or null if the search isn't done yet
+     */
+    public Path getPath() {
+	return path;
+    }
+
+    void complete(Path path) {
+	this.path = path;
+    }
+}
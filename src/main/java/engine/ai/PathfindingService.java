@@ -0,0 +1,167 @@
+package engine.ai;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Finds paths for agents on a pool of worker threads, so path finding never stalls a frame. 
+ * 
+ * Requests for a path that is cached complete immediately, and requests for a path that is already being 
+ * searched on the same version of the NavigationGrid share that search. Each worker has its own AStarSearch, and 
+ * the cache is dropped whenever the grid changes. Paths to or from outside the grid are never found.
+ * 
+ * @author cypress980
+ *
+ */
+public class PathfindingService {
+    private static final Logger logger = LogManager.getLogger(PathfindingService.class.getName());
+
+    // Never a real key, cell indices aren't negative
+    private static final long OUT_OF_BOUNDS = -1;
+
+    private final NavigationGrid grid;
+
+    private final PathCache cache;
+
+    private final ConcurrentHashMap<SearchKey, PathRequest> inFlight = new ConcurrentHashMap<>();
+
+    private final ExecutorService executor;
+
+    private final ThreadLocal<AStarSearch> searches;
+
+    private final AtomicLong searchCount = new AtomicLong();
+
+    private final AtomicLong cacheHits = new AtomicLong();
+
+    public PathfindingService(NavigationGrid grid, int threads, int cacheCapacity) {
+	this.grid = grid;
+	this.cache = new PathCache(cacheCapacity);
+	this.searches = ThreadLocal.withInitial(() -> new AStarSearch(grid));
+
+	AtomicInteger threadCount = new AtomicInteger();
+	this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+	    Thread thread = new Thread(runnable, "PATHFINDING_THREAD_" + threadCount.getAndIncrement());
+	    thread.setDaemon(true);
+	    return thread;
+	});
+    }
+
+    /**
+     * Start finding a path between two world positions. Poll the returned request on later ticks.
+     */
+    public PathRequest requestPath(float fromX, float fromY, float toX, float toY) {
+	long key = getKey(fromX, fromY, toX, toY);
+	if (key == OUT_OF_BOUNDS) {
+	    return new PathRequest(Path.NOT_FOUND);
+	}
+
+	int version = grid.getVersion();
+	Path cached = cache.get(key, version);
+	if (cached != null) {
+	    cacheHits.incrementAndGet();
+	    return new PathRequest(cached);
+	}
+
+	// Only join a search of the same grid, one started before the obstacles changed may go through them
+	SearchKey searchKey = new SearchKey(key, version);
+	PathRequest request = new PathRequest();
+	PathRequest existing = inFlight.putIfAbsent(searchKey, request);
+	if (existing != null) {
+	    return existing;
+	}
+
+	executor.execute(() -> {
+	    try {
+		request.complete(search(key, fromX, fromY, toX, toY));
+	    } catch (RuntimeException e) {
+		logger.error("Path search from [{}, {}] to [{}, {}] failed", fromX, fromY, toX, toY, e);
+		request.complete(Path.NOT_FOUND);
+	    } finally {
+		inFlight.remove(searchKey);
+	    }
+	});
+	return request;
+    }
+
+    /**
+     * Find a path on the calling thread, going through the cache
+     */
+    public Path findPath(float fromX, float fromY, float toX, float toY) {
+	long key = getKey(fromX, fromY, toX, toY);
+	if (key == OUT_OF_BOUNDS) {
+	    return Path.NOT_FOUND;
+	}
+
+	Path cached = cache.get(key, grid.getVersion());
+	if (cached != null) {
+	    cacheHits.incrementAndGet();
+	    return cached;
+	}
+	return search(key, fromX, fromY, toX, toY);
+    }
+
+    public long getSearchCount() {
+	return searchCount.get();
+    }
+
+    public long getCacheHits() {
+	return cacheHits.get();
+    }
+
+    public void shutdown() {
+	executor.shutdown();
+    }
+
+    /**
+     * @return the cache key of the two cells, or OUT_OF_BOUNDS if either is off the grid, where cell indices 
+     * would wrap onto other cells
+     */
+    private long getKey(float fromX, float fromY, float toX, float toY) {
+	int fromCellX = grid.toCellX(fromX);
+	int fromCellY = grid.toCellY(fromY);
+	int toCellX = grid.toCellX(toX);
+	int toCellY = grid.toCellY(toY);
+	if (!grid.inBounds(fromCellX, fromCellY) || !grid.inBounds(toCellX, toCellY)) {
+	    return OUT_OF_BOUNDS;
+	}
+	return PathCache.key(grid.getCell(fromCellX, fromCellY), grid.getCell(toCellX, toCellY));
+    }
+
+    private Path search(long key, float fromX, float fromY, float toX, float toY) {
+	int version = grid.getVersion();
+	Path path = searches.get().findPath(fromX, fromY, toX, toY);
+	searchCount.incrementAndGet();
+	cache.put(key, path, version);
+	return path;
+    }
+
+    private static final class SearchKey {
+	private final long cells;
+	private final int version;
+
+	SearchKey(long cells, int version) {
+	    this.cells = cells;
+	    this.version = version;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+	    if (!(o instanceof SearchKey)) {
+		return false;
+	    }
+	    SearchKey that = (SearchKey) o;
+	    return cells == that.cells && version == that.version;
+	}
+
+	@Override
+	public int hashCode() {
+	    return Long.hashCode(cells) * 31 + version;
+	}
+    }
+}
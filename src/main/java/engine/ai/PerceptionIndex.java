@@ -0,0 +1,278 @@
+package engine.ai;
+
+import java.util.List;
+
+import org.joml.Vector3f;
+
+import engine.physics.BodyControl;
+
+/**
+ * Spatial hash over body positions for AI perception - who is within range, who is nearest, and who can be seen.
+ * 
+ * The index is rebuilt once per AI tick from the tracked bodies and then only read, so agents on any thread can 
+ * query it while they think. Bodies are referenced by the same index as in the WorldView. Positions are kept in 
+ * packed float arrays and bucketed with a counting sort, so a rebuild is linear and allocates nothing once the 
+ * arrays have grown, and a query only visits the cells its range covers.
+ * 
+ * @author cypress980
+ *
+ */
+public class PerceptionIndex {
+
+    private final float cellSize;
+
+    private NavigationGrid occluders;
+
+    private final Vector3f scratch = new Vector3f();
+
+    private int bodyCount;
+    private float[] xs = new float[0];
+    private float[] ys = new float[0];
+    private int[] cellXs = new int[0];
+    private int[] cellYs = new int[0];
+
+    // Bodies sorted by bucket - bucket b holds sorted[bucketStarts[b]] up to sorted[bucketStarts[b + 1]]
+    private int bucketMask;
+    private int[] bucketStarts = new int[1];
+    private int[] sorted = new int[0];
+    private int[] buckets = new int[0];
+
+    /**
+     * @param cellSize about the most common query radius. Much smaller wastes time visiting empty cells, much 
+     * larger checks too many bodies per cell.
+     */
+    public PerceptionIndex(float cellSize) {
+	if (cellSize <= 0) {
+	    throw new IllegalArgumentException("Cell size must be positive, was " + cellSize);
+	}
+	this.cellSize = cellSize;
+    }
+
+    /**
+     * Line of sight queries are blocked by the blocked cells of this grid. Null sees through everything.
+     */
+    public void setOccluders(NavigationGrid occluders) {
+	this.occluders = occluders;
+    }
+
+    public int getBodyCount() {
+	return bodyCount;
+    }
+
+    public float getX(int body) {
+	return xs[body];
+    }
+
+    public float getY(int body) {
+	return ys[body];
+    }
+
+    /**
+     * Re-index the bodies at their current positions. Must not run while agents are querying.
+     */
+    public void rebuild(List<? extends BodyControl> bodies) {
+	bodyCount = bodies.size();
+	if (xs.length < bodyCount) {
+	    int capacity = Math.max(bodyCount, xs.length * 2);
+	    xs = new float[capacity];
+	    ys = new float[capacity];
+	    cellXs = new int[capacity];
+	    cellYs = new int[capacity];
+	    sorted = new int[capacity];
+	    buckets = new int[capacity];
+	}
+	
+	int bucketCount = Integer.highestOneBit(Math.max(16, bodyCount * 2) - 1) << 1;
+	if (bucketStarts.length != bucketCount + 1) {
+	    bucketStarts = new int[bucketCount + 1];
+	}
+	bucketMask = bucketCount - 1;
+	for (int b = 0; b <= bucketCount; b++) {
+	    bucketStarts[b] = 0;
+	}
+
+	for (int i = 0; i < bodyCount; i++) {
+	    bodies.get(i).getPosition(scratch);
+	    xs[i] = scratch.x;
+	    ys[i] = scratch.y;
+	    cellXs[i] = toCell(scratch.x);
+	    cellYs[i] = toCell(scratch.y);
+	    buckets[i] = bucketOf(cellXs[i], cellYs[i]);
+	    bucketStarts[buckets[i] + 1]++;
+	}
+	
+	for (int b = 0; b < bucketCount; b++) {
+	    bucketStarts[b + 1] += bucketStarts[b];
+	}
+	for (int i = 0; i < bodyCount; i++) {
+	    sorted[bucketStarts[buckets[i]]++] = i;
+	}
+	// Placing the bodies moved every start to the next bucket's start, shift them back
+	for (int b = bucketCount; b > 0; b--) {
+	    bucketStarts[b] = bucketStarts[b - 1];
+	}
+	bucketStarts[0] = 0;
+    }
+
+    /**
+     * Find the bodies within radius of a point, in no particular order.
+     * 
+     * @param results filled with body indices, at most results.length of them
+     * @return the number of bodies found
+     */
+    public int queryRadius(float x, float y, float radius, int[] results) {
+	int found = 0;
+	float radiusSquared = radius * radius;
+	int maxCellX = toCell(x + radius);
+	int maxCellY = toCell(y + radius);
+	for (int cellY = toCell(y - radius); cellY <= maxCellY; cellY++) {
+	    for (int cellX = toCell(x - radius); cellX <= maxCellX; cellX++) {
+		int bucket = bucketOf(cellX, cellY);
+		for (int i = bucketStarts[bucket]; i < bucketStarts[bucket + 1]; i++) {
+		    int body = sorted[i];
+		    if (cellXs[body] == cellX && cellYs[body] == cellY 
+			    && distanceSquared(body, x, y) <= radiusSquared) {
+			if (found == results.length) {
+			    return found;
+			}
+			results[found++] = body;
+		    }
+		}
+	    }
+	}
+	return found;
+    }
+
+    /**
+     * Find the bodies nearest a point, searching outward one ring of cells at a time.
+     * 
+     * @param exclude a body to skip, e.g. the agent asking, or -1
+     * @param results filled with body indices nearest first, up to results.length of them
+     * @return the number of bodies found, fewer than results.length if fewer are within maxRadius
+     */
+    public int queryNearest(float x, float y, float maxRadius, int exclude, int[] results) {
+	if (results.length == 0) {
+	    return 0;
+	}
+	
+	int found = 0;
+	float maxRadiusSquared = maxRadius * maxRadius;
+	int centerX = toCell(x);
+	int centerY = toCell(y);
+	int maxRing = (int) Math.ceil(maxRadius / cellSize);
+	for (int ring = 0; ring <= maxRing; ring++) {
+	    for (int dy = -ring; dy <= ring; dy++) {
+		// Inner rows of the ring only have the left and right cell
+		int step = dy == -ring || dy == ring ? 1 : Math.max(1, ring * 2);
+		for (int dx = -ring; dx <= ring; dx += step) {
+		    found = collectNearest(centerX + dx, centerY + dy, x, y, maxRadiusSquared, exclude, results, 
+			    found);
+		}
+	    }
+	    
+	    // Anything in a further ring is at least this far away
+	    float reach = ring * cellSize;
+	    if (found == results.length && distanceSquared(results[found - 1], x, y) <= reach * reach) {
+		break;
+	    }
+	}
+	return found;
+    }
+
+    private int collectNearest(int cellX, int cellY, float x, float y, float maxRadiusSquared, int exclude, 
+	    int[] results, int found) {
+	int bucket = bucketOf(cellX, cellY);
+	for (int i = bucketStarts[bucket]; i < bucketStarts[bucket + 1]; i++) {
+	    int body = sorted[i];
+	    if (body == exclude || cellXs[body] != cellX || cellYs[body] != cellY) {
+		continue;
+	    }
+	    float distance = distanceSquared(body, x, y);
+	    if (distance > maxRadiusSquared) {
+		continue;
+	    }
+	    if (found == results.length) {
+		if (distance >= distanceSquared(results[found - 1], x, y)) {
+		    continue;
+		}
+		found--; // Drop the furthest
+	    }
+	    
+	    // Insertion sort, the results are short
+	    int slot = found++;
+	    while (slot > 0 && distanceSquared(results[slot - 1], x, y) > distance) {
+		results[slot] = results[slot - 1];
+		slot--;
+	    }
+	    results[slot] = body;
+	}
+	return found;
+    }
+
+    /**
+     * @return true if no occluding cell lies on the line between the two bodies
+     */
+    public boolean canSee(int observer, int target) {
+	return hasLineOfSight(xs[observer], ys[observer], xs[target], ys[target]);
+    }
+
+    /**
+     * Walks the occluder cells the segment passes through. Cells outside the occluder grid don't block.
+     * 
+     * @return true if no occluding cell lies on the segment
+     */
+    public boolean hasLineOfSight(float fromX, float fromY, float toX, float toY) {
+	NavigationGrid grid = occluders;
+	if (grid == null) {
+	    return true;
+	}
+	long[] blocked = grid.getBlockedCells();
+	
+	int cellX = grid.toCellX(fromX);
+	int cellY = grid.toCellY(fromY);
+	int endX = grid.toCellX(toX);
+	int endY = grid.toCellY(toY);
+	float dx = toX - fromX;
+	float dy = toY - fromY;
+	int stepX = dx > 0 ? 1 : -1;
+	int stepY = dy > 0 ? 1 : -1;
+	
+	// Distance along the segment, as a fraction of it, to cross one cell and to reach the first boundary
+	float size = grid.getCellSize();
+	float deltaX = dx == 0 ? Float.POSITIVE_INFINITY : Math.abs(size / dx);
+	float deltaY = dy == 0 ? Float.POSITIVE_INFINITY : Math.abs(size / dy);
+	float boundaryX = grid.getCenterX(cellX) + stepX * size / 2;
+	float boundaryY = grid.getCenterY(cellY) + stepY * size / 2;
+	float nextX = dx == 0 ? Float.POSITIVE_INFINITY : (boundaryX - fromX) / dx;
+	float nextY = dy == 0 ? Float.POSITIVE_INFINITY : (boundaryY - fromY) / dy;
+	
+	int cells = Math.abs(endX - cellX) + Math.abs(endY - cellY);
+	for (int i = 0; i <= cells; i++) {
+	    if (grid.inBounds(cellX, cellY) && NavigationGrid.isBlocked(blocked, grid.getCell(cellX, cellY))) {
+		return false;
+	    }
+	    if (nextX < nextY) {
+		cellX += stepX;
+		nextX += deltaX;
+	    } else {
+		cellY += stepY;
+		nextY += deltaY;
+	    }
+	}
+	return true;
+    }
+
+    private float distanceSquared(int body, float x, float y) {
+	float dx = xs[body] - x;
+	float dy = ys[body] - y;
+	return dx * dx + dy * dy;
+    }
+
+    private int toCell(float coordinate) {
+	return (int) Math.floor(coordinate / cellSize);
+    }
+
+    private int bucketOf(int cellX, int cellY) {
+	return ((cellX * 73856093) ^ (cellY * 19349663)) & bucketMask;
+    }
+}
@@ -0,0 +1,78 @@
+package engine.ai;
+
+import java.util.List;
+
+import org.joml.Vector3f;
+
+import engine.physics.BodyControl;
+
+/**
+ * Read only snapshot of the rigid bodies the AI cares about, taken once per AI tick on the game thread. Bodies 
+ * are referenced by the index they were tracked with in the IntelligenceEngine.
+ * 
+ * @author cypress980
+ *
+ */
+public class WorldView {
+
+    private static final int STRIDE = 4; // x, y, velocity x, velocity y
+
+    private float[] state = new float[0];
+
+    private boolean[] sliding = new boolean[0];
+
+    private int bodyCount;
+
+    private long tick;
+
+    public int getBodyCount() {
+	return bodyCount;
+    }
+
+    /**
+     * @return the AI tick this view was captured on
+     */
+    public long getTick() {
+	return tick;
+    }
+
+    public float getX(int body) {
+	return state[body * STRIDE];
+    }
+
+    public float getY(int body) {
+	return state[body * STRIDE + 1];
+    }
+
+    public float getVelocityX(int body) {
+	return state[body * STRIDE + 2];
+    }
+
+    public float getVelocityY(int body) {
+	return state[body * STRIDE + 3];
+    }
+
+    public boolean isSliding(int body) {
+	return sliding[body];
+    }
+
+    void capture(List<? extends BodyControl> bodies, long tick, Vector3f scratch) {
+	bodyCount = bodies.size();
+	if (sliding.length < bodyCount) {
+	    state = new float[bodyCount * STRIDE];
+	    sliding = new boolean[bodyCount];
+	}
+
+	for (int i = 0; i < bodyCount; i++) {
+	    BodyControl body = bodies.get(i);
+	    body.getPosition(scratch);
+	    state[i * STRIDE] = scratch.x;
+	    state[i * STRIDE + 1] = scratch.y;
+	    body.getVelocity(scratch);
+	    state[i * STRIDE + 2] = scratch.x;
+	    state[i * STRIDE + 3] = scratch.y;
+	    sliding[i] = body.isSliding();
+	}
+	this.tick = tick;
+    }
+}
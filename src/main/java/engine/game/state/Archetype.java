@@ -0,0 +1,58 @@
+package engine.game.state;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * All entities with exactly the same set of components. The entities are packed into chunks, and every chunk but
+ * the last is always full.
+ * 
+ * @author cypress980
+ *
+ */
+public class Archetype {
+
+    private final int mask;
+
+    private final List<EntityChunk> chunks = new ArrayList<>();
+
+    Archetype(int mask) {
+	this.mask = mask;
+    }
+
+    public int getMask() {
+	return mask;
+    }
+
+    public boolean has(ComponentType type) {
+	return (mask & type.bit()) != 0;
+    }
+
+    public List<EntityChunk> getChunks() {
+	return chunks;
+    }
+
+    public int size() {
+	int lastIndex = chunks.size() - 1;
+	return lastIndex < 0 ? 0 : lastIndex * EntityChunk.CAPACITY + chunks.get(lastIndex).size();
+    }
+
+    EntityChunk chunkWithSpace() {
+	EntityChunk last = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+	if (last == null || last.isFull()) {
+	    last = new EntityChunk(this);
+	    chunks.add(last);
+	}
+	return last;
+    }
+
+    EntityChunk lastChunk() {
+	return chunks.get(chunks.size() - 1);
+    }
+
+    void dropEmptyLastChunk() {
+	if (!chunks.isEmpty() && lastChunk().size() == 0) {
+	    chunks.remove(chunks.size() - 1);
+	}
+    }
+}
@@ -0,0 +1,50 @@
+package engine.game.state;
+
+/**
+ * The primitive component columns an entity can have. Each type is stored as a column of floats or ints, 
+ * width values per entity, in every chunk of an archetype that has it.
+ * 
+ * @author cypress980
+ *
+ */
+public enum ComponentType {
+    /** x, y, z */
+    POSITION(3, false),
+    /** x, y, z in units per second */
+    VELOCITY(3, false),
+    /** offsetX, offsetY from the position, width, height */
+    HIT_BOX(4, false),
+    /** frame of the entity's sprite sheet */
+    SPRITE_FRAME(1, true),
+    /** state of the entity's AI, defined by the agent */
+    AI_STATE(1, true);
+
+    private final int width;
+
+    private final boolean integer;
+
+    private ComponentType(int width, boolean integer) {
+	this.width = width;
+	this.integer = integer;
+    }
+
+    public int getWidth() {
+	return width;
+    }
+
+    public boolean isInteger() {
+	return integer;
+    }
+
+    public int bit() {
+	return 1 << ordinal();
+    }
+
+    public static int mask(ComponentType... types) {
+	int mask = 0;
+	for (ComponentType type : types) {
+	    mask |= type.bit();
+	}
+	return mask;
+    }
+}
@@ -0,0 +1,118 @@
+package engine.game.state;
+
+import java.util.Arrays;
+
+/**
+ * A fixed size block of entities of one archetype. Each component is a flat primitive array, so a system 
+ * walking a column reads memory front to back.
+ * 
+ * Columns are indexed by entity index * the component width, e.g. the y of the position of the entity at index 
+ * i is getFloats(POSITION)[i * 3 + 1].
+ * 
+ * @author cypress980
+ *
+ */
+public class EntityChunk {
+
+    public static final int CAPACITY = 1024;
+
+    private static final ComponentType[] TYPES = ComponentType.values();
+
+    private static final int TYPE_COUNT = TYPES.length;
+
+    private final Archetype archetype;
+
+    private final int[] entities = new int[CAPACITY];
+
+    private final float[][] floatColumns = new float[TYPE_COUNT][];
+
+    private final int[][] intColumns = new int[TYPE_COUNT][];
+
+    private int size = 0;
+
+    EntityChunk(Archetype archetype) {
+	this.archetype = archetype;
+	for (ComponentType type : TYPES) {
+	    if (archetype.has(type)) {
+		if (type.isInteger()) {
+		    intColumns[type.ordinal()] = new int[CAPACITY * type.getWidth()];
+		} else {
+		    floatColumns[type.ordinal()] = new float[CAPACITY * type.getWidth()];
+		}
+	    }
+	}
+    }
+
+    public Archetype getArchetype() {
+	return archetype;
+    }
+
+    public int size() {
+	return size;
+    }
+
+    public boolean isFull() {
+	return size == CAPACITY;
+    }
+
+    public int getEntity(int index) {
+	return entities[index];
+    }
+
+    public float[] getFloats(ComponentType type) {
+	float[] column = floatColumns[type.ordinal()];
+	if (column == null) {
+	    throw new IllegalArgumentException("Archetype has no float column for " + type);
+	}
+	return column;
+    }
+
+    public int[] getInts(ComponentType type) {
+	int[] column = intColumns[type.ordinal()];
+	if (column == null) {
+	    throw new IllegalArgumentException("Archetype has no int column for " + type);
+	}
+	return column;
+    }
+
+    /**
+     * @return index of the new entity, with zeroed components
+     */
+    int add(int entity) {
+	int index = size++;
+	entities[index] = entity;
+	clear(index);
+	return index;
+    }
+
+    int removeLast() {
+	return entities[--size];
+    }
+
+    /**
+     * Copy the entity at index from another chunk into this chunk at index. Only components both chunks have
+     * are copied.
+     */
+    void copyFrom(EntityChunk from, int fromIndex, int toIndex) {
+	entities[toIndex] = from.entities[fromIndex];
+	for (int t = 0; t < TYPE_COUNT; t++) {
+	    int width = TYPES[t].getWidth();
+	    if (floatColumns[t] != null && from.floatColumns[t] != null) {
+		System.arraycopy(from.floatColumns[t], fromIndex * width, floatColumns[t], toIndex * width, width);
+	    } else if (intColumns[t] != null && from.intColumns[t] != null) {
+		System.arraycopy(from.intColumns[t], fromIndex * width, intColumns[t], toIndex * width, width);
+	    }
+	}
+    }
+
+    private void clear(int index) {
+	for (int t = 0; t < TYPE_COUNT; t++) {
+	    int width = TYPES[t].getWidth();
+	    if (floatColumns[t] != null) {
+		Arrays.fill(floatColumns[t], index * width, (index + 1) * width, 0f);
+	    } else if (intColumns[t] != null) {
+		Arrays.fill(intColumns[t], index * width, (index + 1) * width, 0);
+	    }
+	}
+    }
+}
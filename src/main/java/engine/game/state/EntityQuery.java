@@ -0,0 +1,60 @@
+package engine.game.state;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Iterates the chunks of every archetype that has all of the required components. The matching archetypes are
+ * cached, and only looked up again when the world creates a new archetype.
+ * 
+ * @author cypress980
+ *
+ */
+public class EntityQuery {
+
+    private final EntityWorld world;
+
+    private final int mask;
+
+    private final List<Archetype> matches = new ArrayList<>();
+
+    private int archetypesSeen = 0;
+
+    EntityQuery(EntityWorld world, int mask) {
+	this.world = world;
+	this.mask = mask;
+    }
+
+    public void forEach(ChunkVisitor visitor) {
+	refresh();
+	for (int a = 0; a < matches.size(); a++) {
+	    List<EntityChunk> chunks = matches.get(a).getChunks();
+	    for (int c = 0; c < chunks.size(); c++) {
+		visitor.visit(chunks.get(c));
+	    }
+	}
+    }
+
+    public int count() {
+	refresh();
+	int count = 0;
+	for (int a = 0; a < matches.size(); a++) {
+	    count += matches.get(a).size();
+	}
+	return count;
+    }
+
+    private void refresh() {
+	List<Archetype> archetypes = world.getArchetypes();
+	for (; archetypesSeen < archetypes.size(); archetypesSeen++) {
+	    Archetype archetype = archetypes.get(archetypesSeen);
+	    if ((archetype.getMask() & mask) == mask) {
+		matches.add(archetype);
+	    }
+	}
+    }
+
+    public static interface ChunkVisitor {
+	void visit(EntityChunk chunk);
+    }
+}
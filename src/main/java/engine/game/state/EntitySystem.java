@@ -0,0 +1,13 @@
+package engine.game.state;
+
+/**
+ * Logic that runs over every entity matching a query, e.g. integrating velocity into position. Engine 
+ * components run their systems as part of their own update.
+ * 
+ * @author cypress980
+ *
+ */
+public interface EntitySystem {
+
+    void update(EntityWorld world, float interval);
+}
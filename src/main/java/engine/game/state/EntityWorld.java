@@ -0,0 +1,213 @@
+package engine.game.state;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Entity component system storage. Entities are plain int ids, and their components live in the primitive
+ * columns of the chunks of their archetype - the set of components they have. Systems iterate entities through
+ * queries, chunk by chunk, instead of chasing one object per entity.
+ * 
+ * Removing an entity moves the last entity of its archetype into the hole, so archetypes stay densely packed.
+ * 
+ * An entity id is a slot in the world plus a generation, bumped each time the slot is freed, so an id kept after 
+ * its entity was destroyed is refused rather than reaching whichever entity took the slot next. The generation 
+ * wraps after 2048 reuses of a slot.
+ * 
+ * Only the simulation runs systems over entities so far. The renderers still draw FlatRenderables, and the game 
+ * creates no entities yet, so a render system over the position and sprite frame columns waits until the first 
+ * entities are drawn.
+ * 
+ * @author cypress980
+ *
+ */
+public class EntityWorld {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Low bits of an id are the slot, high bits the generation, leaving the sign bit clear
+    private static final int SLOT_BITS = 20;
+    private static final int SLOT_MASK = (1 << SLOT_BITS) - 1;
+    private static final int GENERATION_MASK = 0x7FF;
+
+    private final Map<Integer, Archetype> archetypesByMask = new HashMap<>();
+
+    private final List<Archetype> archetypes = new ArrayList<>();
+
+    // Where each entity lives, indexed by slot. A null chunk means the slot is free.
+    private EntityChunk[] entityChunks = new EntityChunk[INITIAL_CAPACITY];
+
+    private int[] entityIndices = new int[INITIAL_CAPACITY];
+
+    private int[] generations = new int[INITIAL_CAPACITY];
+
+    private int[] freeIds = new int[INITIAL_CAPACITY];
+
+    private int freeCount = 0;
+
+    private int nextId = 0;
+
+    private int entityCount = 0;
+
+    public int createEntity(ComponentType... types) {
+	return createEntity(ComponentType.mask(types));
+    }
+
+    /**
+     * @return the id of a new entity with zeroed components
+     */
+    public int createEntity(int mask) {
+	int slot;
+	if (freeCount > 0) {
+	    slot = freeIds[--freeCount];
+	} else {
+	    if (nextId > SLOT_MASK) {
+		throw new IllegalStateException("No more than " + (SLOT_MASK + 1) + " entities at once");
+	    }
+	    slot = nextId++;
+	    if (slot == entityChunks.length) {
+		entityChunks = Arrays.copyOf(entityChunks, slot * 2);
+		entityIndices = Arrays.copyOf(entityIndices, slot * 2);
+		generations = Arrays.copyOf(generations, slot * 2);
+	    }
+	}
+
+	int entity = generations[slot] << SLOT_BITS | slot;
+	EntityChunk chunk = getArchetype(mask).chunkWithSpace();
+	entityChunks[slot] = chunk;
+	entityIndices[slot] = chunk.add(entity);
+	entityCount++;
+	return entity;
+    }
+
+    public void destroyEntity(int entity) {
+	checkAlive(entity);
+	int slot = entity & SLOT_MASK;
+	removeFromChunk(slot);
+	entityChunks[slot] = null;
+	generations[slot] = (generations[slot] + 1) & GENERATION_MASK;
+
+	if (freeCount == freeIds.length) {
+	    freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+	}
+	freeIds[freeCount++] = slot;
+	entityCount--;
+    }
+
+    public boolean isAlive(int entity) {
+	int slot = entity & SLOT_MASK;
+	return entity >= 0 && slot < nextId && entityChunks[slot] != null
+		&& generations[slot] == entity >>> SLOT_BITS;
+    }
+
+    public boolean has(int entity, ComponentType type) {
+	checkAlive(entity);
+	return entityChunks[entity & SLOT_MASK].getArchetype().has(type);
+    }
+
+    public void addComponent(int entity, ComponentType type) {
+	checkAlive(entity);
+	int slot = entity & SLOT_MASK;
+	moveToArchetype(slot, entityChunks[slot].getArchetype().getMask() | type.bit());
+    }
+
+    public void removeComponent(int entity, ComponentType type) {
+	checkAlive(entity);
+	int slot = entity & SLOT_MASK;
+	moveToArchetype(slot, entityChunks[slot].getArchetype().getMask() & ~type.bit());
+    }
+
+    public EntityChunk getChunk(int entity) {
+	checkAlive(entity);
+	return entityChunks[entity & SLOT_MASK];
+    }
+
+    public int getIndex(int entity) {
+	checkAlive(entity);
+	return entityIndices[entity & SLOT_MASK];
+    }
+
+    public float getFloat(int entity, ComponentType type, int component) {
+	return getChunk(entity).getFloats(type)[getIndex(entity) * type.getWidth() + component];
+    }
+
+    public void setFloats(int entity, ComponentType type, float... values) {
+	float[] column = getChunk(entity).getFloats(type);
+	System.arraycopy(values, 0, column, getIndex(entity) * type.getWidth(), type.getWidth());
+    }
+
+    public int getInt(int entity, ComponentType type) {
+	return getChunk(entity).getInts(type)[getIndex(entity) * type.getWidth()];
+    }
+
+    public void setInt(int entity, ComponentType type, int value) {
+	getChunk(entity).getInts(type)[getIndex(entity) * type.getWidth()] = value;
+    }
+
+    public EntityQuery query(ComponentType... required) {
+	return new EntityQuery(this, ComponentType.mask(required));
+    }
+
+    public int getEntityCount() {
+	return entityCount;
+    }
+
+    List<Archetype> getArchetypes() {
+	return archetypes;
+    }
+
+    private Archetype getArchetype(int mask) {
+	Archetype archetype = archetypesByMask.get(mask);
+	if (archetype == null) {
+	    archetype = new Archetype(mask);
+	    archetypesByMask.put(mask, archetype);
+	    archetypes.add(archetype);
+	}
+	return archetype;
+    }
+
+    private void moveToArchetype(int slot, int mask) {
+	EntityChunk from = entityChunks[slot];
+	if (from.getArchetype().getMask() == mask) {
+	    return;
+	}
+
+	int fromIndex = entityIndices[slot];
+	EntityChunk to = getArchetype(mask).chunkWithSpace();
+	int toIndex = to.add(from.getEntity(fromIndex));
+	to.copyFrom(from, fromIndex, toIndex);
+
+	removeFromChunk(slot);
+	entityChunks[slot] = to;
+	entityIndices[slot] = toIndex;
+    }
+
+    /**
+     * Fill the entity's slot with the last entity of the archetype, keeping the archetype packed
+     */
+    private void removeFromChunk(int slot) {
+	EntityChunk chunk = entityChunks[slot];
+	int index = entityIndices[slot];
+	Archetype archetype = chunk.getArchetype();
+	EntityChunk last = archetype.lastChunk();
+	int lastIndex = last.size() - 1;
+
+	if (last != chunk || lastIndex != index) {
+	    chunk.copyFrom(last, lastIndex, index);
+	    int moved = chunk.getEntity(index) & SLOT_MASK;
+	    entityChunks[moved] = chunk;
+	    entityIndices[moved] = index;
+	}
+	last.removeLast();
+	archetype.dropEmptyLastChunk();
+    }
+
+    private void checkAlive(int entity) {
+	if (!isAlive(entity)) {
+	    throw new IllegalArgumentException("No such entity: " + entity);
+	}
+    }
+}
@@ -1,5 +1,6 @@
 package engine.game.state;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import graphics.core.scene.SceneRenderable;
@@ -16,9 +17,14 @@ import graphics.core.scene.SceneRenderable;
  */
 public class GameComponent implements SceneRenderable {
     
+    // Dirty bits of the component itself. The low bits are Position's dirty fields.
+    public static final int DIRTY_MODEL = 1 << 3;
+    public static final int DIRTY_MATERIAL = 1 << 4;
+    
     private String modelFile;
     private Material material;
     private Position position;
+    private int dirtyFields;
     
     public GameComponent(String modelFile, Material material) {
 	this.modelFile = modelFile;
@@ -29,6 +35,7 @@ public class GameComponent implements SceneRenderable {
     @JsonProperty
     public void setPosition(Position position) {
 	this.position = position;
+	dirtyFields |= Position.DIRTY_ALL;
     }
     
     @Override
@@ -53,12 +60,40 @@ public class GameComponent implements SceneRenderable {
     @JsonProperty
     public void setModelFile(String modelFile) {
 	this.modelFile = modelFile;
+	dirtyFields |= DIRTY_MODEL;
     }
     
     //For SerDe
     @JsonProperty
     public void setTextureFile(Material material) {
 	this.material = material;
+	dirtyFields |= DIRTY_MATERIAL;
+    }
+    
+    /**
+     * Everything changed since the last clearDirtyFields(), including changes made directly to the position 
+     * and material
+     */
+    @JsonIgnore
+    public int getDirtyFields() {
+	int dirty = dirtyFields;
+	if (position != null) {
+	    dirty |= position.getDirtyFields();
+	}
+	if (material != null && material.isDirty()) {
+	    dirty |= DIRTY_MATERIAL;
+	}
+	return dirty;
+    }
+    
+    public void clearDirtyFields() {
+	dirtyFields = 0;
+	if (position != null) {
+	    position.clearDirtyFields();
+	}
+	if (material != null) {
+	    material.clearDirty();
+	}
     }
 
     @Override
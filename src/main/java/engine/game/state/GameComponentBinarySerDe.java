@@ -0,0 +1,193 @@
+package engine.game.state;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.joml.Vector3f;
+import org.joml.Vector4f;
+
+/**
+ * Hand written binary encoding of a GameComponent. This is what we use for save files and network snapshots,
+ * where the JSON from jackson is far too large and slow.
+ * 
+ * Layout of format version 1 (all floats are raw IEEE 754, big endian):
+ * <pre>
+ * component := version:u8 body              (serialize/deserialize only - streams write the version once)
+ * body      := modelFile:str flags:u8 [material] [position]
+ * material  := flags:u8 color:4f reflectance:f [textureFile:str]
+ * position  := coordinates:3f scale:f rotation:3f
+ * str       := varint 0                     null
+ *            | varint 1 len:varint utf8     new string, interned with the next id of the StringTable
+ *            | varint (id + 2)              previously interned string
+ * </pre>
+ * 
+ * Model and texture paths repeat across nearly every component, so when many components are written with the
+ * same StringTable each path is only written once.
+ * 
+ * @author cypress980
+ *
+ */
+public class GameComponentBinarySerDe implements GameComponentSerDe<ByteBuffer> {
+
+    public static final byte FORMAT_VERSION = 1;
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private static final int HAS_MATERIAL = 1;
+    private static final int HAS_POSITION = 1 << 1;
+
+    private static final int HAS_TEXTURE = 1;
+
+    private static final int NULL_STRING = 0;
+    private static final int NEW_STRING = 1;
+    private static final int FIRST_STRING_ID = 2;
+
+    private ByteBuffer scratch = ByteBuffer.allocate(INITIAL_CAPACITY);
+
+    @Override
+    public GameComponent deserialize(ByteBuffer in) throws Exception {
+	checkVersion(in.get());
+	return read(in, new StringTable());
+    }
+
+    /**
+     * @return a new buffer, ready to be read, holding exactly the encoded component
+     */
+    @Override
+    public ByteBuffer serialize(GameComponent out) throws Exception {
+	StringTable strings = new StringTable();
+	while (true) {
+	    try {
+		scratch.clear();
+		scratch.put(FORMAT_VERSION);
+		write(out, scratch, strings);
+		break;
+	    } catch (BufferOverflowException e) {
+		strings.clear();
+		scratch = ByteBuffer.allocate(scratch.capacity() * 2);
+	    }
+	}
+	scratch.flip();
+	ByteBuffer result = ByteBuffer.allocate(scratch.remaining());
+	result.put(scratch).flip();
+	return result;
+    }
+
+    public static void checkVersion(byte version) {
+	if (version != FORMAT_VERSION) {
+	    throw new IllegalArgumentException("Unsupported game component format version: " + version);
+	}
+    }
+
+    /**
+     * Write the body of a component, without the version header.
+     * 
+     * @throws BufferOverflowException if the component doesn't fit. Strings interned during the failed
+     *  write stay in the table, so callers retrying the write should truncate it first.
+     */
+    public void write(GameComponent comp, ByteBuffer out, StringTable strings) {
+	Material material = comp.getMaterial();
+	Position position = comp.getPosition();
+
+	putString(out, comp.getModelFile(), strings);
+	out.put((byte) ((material != null ? HAS_MATERIAL : 0) | (position != null ? HAS_POSITION : 0)));
+
+	if (material != null) {
+	    writeMaterial(material, out, strings);
+	}
+	if (position != null) {
+	    writePosition(position, out);
+	}
+    }
+
+    /**
+     * Read the body of a component, without the version header.
+     */
+    public GameComponent read(ByteBuffer in, StringTable strings) {
+	String modelFile = getString(in, strings);
+	int flags = in.get();
+
+	Material material = (flags & HAS_MATERIAL) != 0 ? readMaterial(in, strings) : null;
+	Position position = (flags & HAS_POSITION) != 0 ? readPosition(in) : null;
+
+	GameComponent comp = new GameComponent(modelFile, material);
+	comp.setPosition(position);
+	return comp;
+    }
+
+    void writeMaterial(Material material, ByteBuffer out, StringTable strings) {
+	Vector4f color = material.getColor();
+	String textureFile = material.getTextureFile();
+
+	out.put((byte) (textureFile != null ? HAS_TEXTURE : 0));
+	out.putFloat(color.x).putFloat(color.y).putFloat(color.z).putFloat(color.w);
+	out.putFloat(material.getReflectance());
+	if (textureFile != null) {
+	    putString(out, textureFile, strings);
+	}
+    }
+
+    Material readMaterial(ByteBuffer in, StringTable strings) {
+	int flags = in.get();
+	Material material = new Material();
+
+	material.setColor(new Vector4f(in.getFloat(), in.getFloat(), in.getFloat(), in.getFloat()));
+	material.setReflectance(in.getFloat());
+	if ((flags & HAS_TEXTURE) != 0) {
+	    material.setTextureFile(getString(in, strings));
+	}
+	return material;
+    }
+
+    void writePosition(Position position, ByteBuffer out) {
+	Vector3f coordinates = position.getCoordinates();
+	Vector3f rotation = position.getRotation();
+
+	out.putFloat(coordinates.x).putFloat(coordinates.y).putFloat(coordinates.z);
+	out.putFloat(position.getScale());
+	out.putFloat(rotation.x).putFloat(rotation.y).putFloat(rotation.z);
+    }
+
+    Position readPosition(ByteBuffer in) {
+	Vector3f coordinates = new Vector3f(in.getFloat(), in.getFloat(), in.getFloat());
+	float scale = in.getFloat();
+	Vector3f rotation = new Vector3f(in.getFloat(), in.getFloat(), in.getFloat());
+	return new Position(coordinates, scale, rotation);
+    }
+
+    static void putString(ByteBuffer out, String string, StringTable strings) {
+	if (string == null) {
+	    VarInt.putUnsigned(out, NULL_STRING);
+	    return;
+	}
+
+	int id = strings.getId(string);
+	if (id >= 0) {
+	    VarInt.putUnsigned(out, id + FIRST_STRING_ID);
+	    return;
+	}
+
+	byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+	VarInt.putUnsigned(out, NEW_STRING);
+	VarInt.putUnsigned(out, bytes.length);
+	out.put(bytes);
+	strings.intern(string);
+    }
+
+    static String getString(ByteBuffer in, StringTable strings) {
+	int code = VarInt.getUnsigned(in);
+	switch (code) {
+	case NULL_STRING:
+	    return null;
+	case NEW_STRING:
+	    byte[] bytes = new byte[VarInt.getUnsigned(in)];
+	    in.get(bytes);
+	    String string = new String(bytes, StandardCharsets.UTF_8);
+	    strings.intern(string);
+	    return string;
+	default:
+	    return strings.getString(code - FIRST_STRING_ID);
+	}
+    }
+}
@@ -31,6 +31,9 @@ public class Material {
 
     private String textureFile;
     
+    // Set by any setter since the last clearDirty(), so deltas only carry changed materials. Not part of equality.
+    private boolean dirty;
+    
     public Material() {
         color = DEFAULT_COLOUR;
         reflectance = 0;
@@ -65,11 +68,13 @@ public class Material {
     
     public void setColor(Vector3f color) {
         this.color = new Vector4f(color.x, color.y, color.z, ALPHA_DEFAULT);
+        dirty = true;
     }
 
     @JsonProperty
     public void setColor(Vector4f color) {
         this.color = color;
+        dirty = true;
     }
     
     public float getReflectance() {
@@ -78,6 +83,7 @@ public class Material {
 
     public void setReflectance(float reflectance) {
         this.reflectance = reflectance;
+        dirty = true;
     }
 
     @JsonIgnore
@@ -91,6 +97,16 @@ public class Material {
 
     public void setTextureFile(String textureFile) {
         this.textureFile = textureFile;
+        dirty = true;
+    }
+    
+    @JsonIgnore
+    public boolean isDirty() {
+        return dirty;
+    }
+    
+    public void clearDirty() {
+        dirty = false;
     }
 
     @Override
@@ -3,16 +3,25 @@ package engine.game.state;
 import org.joml.Vector3f;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 public class Position {
 
+    public static final int DIRTY_COORDINATES = 1;
+    public static final int DIRTY_SCALE = 1 << 1;
+    public static final int DIRTY_ROTATION = 1 << 2;
+    public static final int DIRTY_ALL = DIRTY_COORDINATES | DIRTY_SCALE | DIRTY_ROTATION;
+
     private final Vector3f coordinates;
 
     private float scale;
 
     private final Vector3f rotation;
 
+    // Fields changed since the last clearDirtyFields(), so deltas only carry what moved. Not part of equality.
+    private int dirtyFields;
+
     public Position() {
 	coordinates = new Vector3f(0, 0, 0);
 	scale = 1;
@@ -23,14 +32,23 @@ public class Position {
 	return new Vector3f(coordinates);
     }
     
+    /**
+     * Copy the coordinates into dest, for callers that can't allocate
+     */
+    public Vector3f getCoordinates(Vector3f dest) {
+	return dest.set(coordinates);
+    }
+    
     public void setCoordinates(float x, float y, float z) {
 	this.coordinates.x = x;
 	this.coordinates.y = y;
 	this.coordinates.z = z;
+	dirtyFields |= DIRTY_COORDINATES;
     }
     
     public void setCoordinates(Vector3f coordinates) {
 	this.coordinates.set(coordinates);
+	dirtyFields |= DIRTY_COORDINATES;
     }
     
     public float getScale() {
@@ -39,16 +57,34 @@ public class Position {
     
     public void setScale(float scale) {
 	this.scale = scale;
+	dirtyFields |= DIRTY_SCALE;
     }
     
     public Vector3f getRotation() {
 	return new Vector3f(rotation);
     }
     
+    /**
+     * Copy the rotation into dest, for callers that can't allocate
+     */
+    public Vector3f getRotation(Vector3f dest) {
+	return dest.set(rotation);
+    }
+    
     public void setRotation(float x, float y, float z) {
 	this.rotation.x = x;
 	this.rotation.y = y;
 	this.rotation.z = z;
+	dirtyFields |= DIRTY_ROTATION;
+    }
+    
+    @JsonIgnore
+    public int getDirtyFields() {
+	return dirtyFields;
+    }
+    
+    public void clearDirtyFields() {
+	dirtyFields = 0;
     }
     
     @JsonCreator
@@ -97,5 +133,6 @@ public class Position {
 
     public void change(Vector3f displacement) {
 	this.coordinates.add(displacement);
+	dirtyFields |= DIRTY_COORDINATES;
     }
 }
\ No newline at end of file
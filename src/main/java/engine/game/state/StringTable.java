@@ -0,0 +1,63 @@
+package engine.game.state;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interns strings written to a binary stream so each distinct string (model files, texture files) is written
+ * once, and every later occurrence is written as a small integer id.
+ *
+ * A table is only valid for one stream - the writer and the reader each keep their own table, and both must see
+ * the same strings in the same order for the ids to line up.
+ *
+ * @author cypress980
+ *
+ */
+public class StringTable {
+
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    private final List<String> strings = new ArrayList<>();
+
+    /**
+     * @return the id of the string, or -1 if it has not been interned yet
+     */
+    public int getId(String string) {
+	Integer id = ids.get(string);
+	return id == null ? -1 : id;
+    }
+
+    public String getString(int id) {
+	return strings.get(id);
+    }
+
+    public int intern(String string) {
+	int id = getId(string);
+	if (id < 0) {
+	    id = strings.size();
+	    strings.add(string);
+	    ids.put(string, id);
+	}
+	return id;
+    }
+
+    public int size() {
+	return strings.size();
+    }
+
+    /**
+     * Forget every string interned after the table had the given size. Used to roll back a write that did not fit.
+     */
+    public void truncate(int size) {
+	while (strings.size() > size) {
+	    ids.remove(strings.remove(strings.size() - 1));
+	}
+    }
+
+    public void clear() {
+	ids.clear();
+	strings.clear();
+    }
+}
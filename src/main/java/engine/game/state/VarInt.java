@@ -0,0 +1,44 @@
+package engine.game.state;
+
+import java.nio.ByteBuffer;
+
+/**
+ * LEB128 style variable length integers for our binary formats. Small values - string ids, lengths, counts - 
+ * take a single byte instead of four.
+ * 
+ * @author cypress980
+ *
+ */
+public final class VarInt {
+
+    private VarInt() {}
+
+    public static void putUnsigned(ByteBuffer out, int value) {
+	while ((value & ~0x7F) != 0) {
+	    out.put((byte) ((value & 0x7F) | 0x80));
+	    value >>>= 7;
+	}
+	out.put((byte) value);
+    }
+
+    public static int getUnsigned(ByteBuffer in) {
+	int value = 0;
+	for (int shift = 0; shift < 32; shift += 7) {
+	    byte b = in.get();
+	    value |= (b & 0x7F) << shift;
+	    if ((b & 0x80) == 0) {
+		return value;
+	    }
+	}
+	throw new IllegalArgumentException("Malformed varint at position " + in.position());
+    }
+
+    public static int sizeOfUnsigned(int value) {
+	int size = 1;
+	while ((value & ~0x7F) != 0) {
+	    value >>>= 7;
+	    size++;
+	}
+	return size;
+    }
+}
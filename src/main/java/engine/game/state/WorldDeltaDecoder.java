@@ -0,0 +1,95 @@
+package engine.game.state;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Applies deltas from WorldDeltaEncoder to a world, in order. The decoder remembers which snapshot its world is
+ * at, and refuses deltas taken against any other snapshot.
+ * 
+ * @author cypress980
+ *
+ */
+public class WorldDeltaDecoder {
+
+    private final GameComponentBinarySerDe serDe = new GameComponentBinarySerDe();
+
+    private final StringTable strings = new StringTable();
+
+    private long snapshotId = WorldDeltaEncoder.NO_SNAPSHOT;
+
+    /**
+     * @throws IllegalStateException if the delta is not against the snapshot the world is at. The world is left
+     *  untouched, and the sender should be asked for a full snapshot.
+     */
+    public void apply(ByteBuffer delta, List<GameComponent> world) {
+	GameComponentBinarySerDe.checkVersion(delta.get());
+	long baselineId = delta.getLong();
+	long newSnapshotId = delta.getLong();
+	if (baselineId != snapshotId) {
+	    throw new IllegalStateException("Delta against snapshot [" + baselineId + "] can't be applied to snapshot [" 
+		    + snapshotId + "]");
+	}
+
+	int size = VarInt.getUnsigned(delta);
+	int count = delta.getInt();
+	while (world.size() < size) {
+	    world.add(null);
+	}
+
+	strings.clear();
+	int index = -1;
+	for (int i = 0; i < count; i++) {
+	    index += VarInt.getUnsigned(delta) + 1;
+	    int mask = delta.get();
+
+	    if ((mask & WorldDeltaEncoder.REMOVED) != 0) {
+		if (index < size) {
+		    world.set(index, null);
+		}
+	    } else if ((mask & WorldDeltaEncoder.ADDED) != 0) {
+		world.set(index, serDe.read(delta, strings));
+	    } else {
+		GameComponent comp = world.get(index);
+		readFields(comp, mask, delta);
+		// The change came from the baseline, it's not a local change
+		comp.clearDirtyFields();
+	    }
+	}
+
+	while (world.size() > size) {
+	    world.remove(world.size() - 1);
+	}
+	snapshotId = newSnapshotId;
+    }
+
+    public long getSnapshotId() {
+	return snapshotId;
+    }
+
+    /**
+     * Forget the snapshot, e.g. before loading a full snapshot into an empty world
+     */
+    public void reset() {
+	snapshotId = WorldDeltaEncoder.NO_SNAPSHOT;
+    }
+
+    private void readFields(GameComponent comp, int mask, ByteBuffer in) {
+	Position position = comp.getPosition();
+	if ((mask & Position.DIRTY_COORDINATES) != 0) {
+	    position.setCoordinates(in.getFloat(), in.getFloat(), in.getFloat());
+	}
+	if ((mask & Position.DIRTY_SCALE) != 0) {
+	    position.setScale(in.getFloat());
+	}
+	if ((mask & Position.DIRTY_ROTATION) != 0) {
+	    position.setRotation(in.getFloat(), in.getFloat(), in.getFloat());
+	}
+	if ((mask & GameComponent.DIRTY_MODEL) != 0) {
+	    comp.setModelFile(GameComponentBinarySerDe.getString(in, strings));
+	}
+	if ((mask & GameComponent.DIRTY_MATERIAL) != 0) {
+	    comp.setTextureFile(serDe.readMaterial(in, strings));
+	}
+    }
+}
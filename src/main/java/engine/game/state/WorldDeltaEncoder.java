@@ -0,0 +1,198 @@
+package engine.game.state;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import org.joml.Vector3f;
+
+/**
+ * Encodes what changed in a world of GameComponents since the last encode, using the dirty fields that Position,
+ * Material and GameComponent track, so a tick where a few entities move costs a few bytes per moved entity.
+ * 
+ * A component's index in the world list is its id. Slots may be null. Each delta is taken against the previous
+ * delta's snapshot id - the first one is against NO_SNAPSHOT and carries the whole world.
+ * <pre>
+ * delta  := version:u8 baselineId:i64 snapshotId:i64 worldSize:varint changes:i32 change*
+ * change := gap:varint mask:u8 fields                gap is the distance from the previous change's index - 1
+ * fields := body                                     if mask has ADDED (see GameComponentBinarySerDe)
+ *         | [coordinates:3f] [scale:f] [rotation:3f] [modelFile:str] [material]
+ * </pre>
+ * Encoding clears the dirty fields of the world, so only one encoder should track a given world.
+ * 
+ * @author cypress980
+ *
+ */
+public class WorldDeltaEncoder {
+
+    public static final long NO_SNAPSHOT = -1;
+
+    static final int ADDED = 1 << 5;
+    static final int REMOVED = 1 << 6;
+
+    static final int FIELD_MASK = Position.DIRTY_ALL | GameComponent.DIRTY_MODEL | GameComponent.DIRTY_MATERIAL;
+
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+
+    private final GameComponentBinarySerDe serDe = new GameComponentBinarySerDe();
+
+    private final StringTable strings = new StringTable();
+
+    private ByteBuffer scratch = ByteBuffer.allocate(INITIAL_CAPACITY);
+
+    // The components as of the baseline, by reference, to spot added, replaced and removed components
+    private GameComponent[] baseline = new GameComponent[0];
+
+    private int baselineSize = 0;
+
+    private long baselineId = NO_SNAPSHOT;
+
+    private int[] changed = new int[64];
+
+    private int changedCount;
+
+    /**
+     * @return a new buffer, ready to be read, holding the delta from the last snapshot to this one
+     */
+    public ByteBuffer encode(List<GameComponent> world, long snapshotId) {
+	while (true) {
+	    try {
+		scratch.clear();
+		strings.clear();
+		changedCount = 0;
+		encodeInto(world, snapshotId, scratch);
+		break;
+	    } catch (BufferOverflowException e) {
+		scratch = ByteBuffer.allocate(scratch.capacity() * 2);
+	    }
+	}
+
+	// Only advance the baseline once the delta is complete
+	for (int i = 0; i < changedCount; i++) {
+	    GameComponent comp = world.get(changed[i]);
+	    if (comp != null) {
+		comp.clearDirtyFields();
+	    }
+	}
+	updateBaseline(world);
+	baselineId = snapshotId;
+
+	scratch.flip();
+	ByteBuffer delta = ByteBuffer.allocate(scratch.remaining());
+	delta.put(scratch).flip();
+	return delta;
+    }
+
+    public long getBaselineId() {
+	return baselineId;
+    }
+
+    /**
+     * Forget the baseline, so the next delta carries the whole world again, e.g. for a client that lost sync
+     */
+    public void reset() {
+	Arrays.fill(baseline, null);
+	baselineSize = 0;
+	baselineId = NO_SNAPSHOT;
+    }
+
+    private void encodeInto(List<GameComponent> world, long snapshotId, ByteBuffer out) {
+	int size = world.size();
+
+	out.put(GameComponentBinarySerDe.FORMAT_VERSION);
+	out.putLong(baselineId);
+	out.putLong(snapshotId);
+	VarInt.putUnsigned(out, size);
+	int countPosition = out.position();
+	out.putInt(0);
+
+	int count = 0;
+	int previous = -1;
+	int end = Math.max(size, baselineSize);
+	for (int i = 0; i < end; i++) {
+	    GameComponent comp = i < size ? world.get(i) : null;
+	    GameComponent base = i < baselineSize ? baseline[i] : null;
+
+	    int mask = changeMask(comp, base);
+	    if (mask == 0) {
+		continue;
+	    }
+
+	    VarInt.putUnsigned(out, i - previous - 1);
+	    out.put((byte) mask);
+	    if ((mask & ADDED) != 0) {
+		serDe.write(comp, out, strings);
+	    } else if ((mask & REMOVED) == 0) {
+		writeFields(comp, mask, out);
+	    }
+
+	    previous = i;
+	    count++;
+	    if (i < size) {
+		addChanged(i);
+	    }
+	}
+
+	out.putInt(countPosition, count);
+    }
+
+    private int changeMask(GameComponent comp, GameComponent base) {
+	if (comp == null) {
+	    return base == null ? 0 : REMOVED;
+	}
+	if (comp != base) {
+	    return ADDED;
+	}
+
+	int dirty = comp.getDirtyFields() & FIELD_MASK;
+	// Position or material was replaced with nothing - just send the component whole
+	if (((dirty & Position.DIRTY_ALL) != 0 && comp.getPosition() == null) 
+		|| ((dirty & GameComponent.DIRTY_MATERIAL) != 0 && comp.getMaterial() == null)) {
+	    return ADDED;
+	}
+	return dirty;
+    }
+
+    private void writeFields(GameComponent comp, int mask, ByteBuffer out) {
+	Position position = comp.getPosition();
+	if ((mask & Position.DIRTY_COORDINATES) != 0) {
+	    putVector(out, position.getCoordinates());
+	}
+	if ((mask & Position.DIRTY_SCALE) != 0) {
+	    out.putFloat(position.getScale());
+	}
+	if ((mask & Position.DIRTY_ROTATION) != 0) {
+	    putVector(out, position.getRotation());
+	}
+	if ((mask & GameComponent.DIRTY_MODEL) != 0) {
+	    GameComponentBinarySerDe.putString(out, comp.getModelFile(), strings);
+	}
+	if ((mask & GameComponent.DIRTY_MATERIAL) != 0) {
+	    serDe.writeMaterial(comp.getMaterial(), out, strings);
+	}
+    }
+
+    private static void putVector(ByteBuffer out, Vector3f vector) {
+	out.putFloat(vector.x).putFloat(vector.y).putFloat(vector.z);
+    }
+
+    private void addChanged(int index) {
+	if (changedCount == changed.length) {
+	    changed = Arrays.copyOf(changed, changed.length * 2);
+	}
+	changed[changedCount++] = index;
+    }
+
+    private void updateBaseline(List<GameComponent> world) {
+	int size = world.size();
+	if (baseline.length < size) {
+	    baseline = Arrays.copyOf(baseline, Math.max(size, baseline.length * 2));
+	}
+	for (int i = 0; i < size; i++) {
+	    baseline[i] = world.get(i);
+	}
+	Arrays.fill(baseline, size, Math.max(size, baselineSize), null);
+	baselineSize = size;
+    }
+}
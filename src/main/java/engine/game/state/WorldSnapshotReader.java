@@ -0,0 +1,163 @@
+package engine.game.state;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * Reads a snapshot written by WorldSnapshotWriter, one frame at a time, handing each component to a consumer
+ * as soon as it is decoded. Only the current frame is held in memory, no matter how large the world is.
+ * 
+ * @author cypress980
+ *
+ */
+public class WorldSnapshotReader implements Closeable {
+
+    private final ReadableByteChannel channel;
+
+    private final GameComponentBinarySerDe serDe = new GameComponentBinarySerDe();
+
+    private final ByteBuffer frameHeader = ByteBuffer.allocate(WorldSnapshotWriter.FRAME_HEADER_BYTES);
+
+    private boolean finished = false;
+
+    public WorldSnapshotReader(ReadableByteChannel channel) throws IOException {
+	this.channel = channel;
+
+	ByteBuffer header = ByteBuffer.allocate(WorldSnapshotWriter.MAGIC.length + 1);
+	readFully(header);
+	for (int i = 0; i < WorldSnapshotWriter.MAGIC.length; i++) {
+	    if (header.get(i) != WorldSnapshotWriter.MAGIC[i]) {
+		throw new IOException("Not a world snapshot");
+	    }
+	}
+	GameComponentBinarySerDe.checkVersion(header.get(WorldSnapshotWriter.MAGIC.length));
+    }
+
+    public static WorldSnapshotReader fromFile(Path file) throws IOException {
+	return new WorldSnapshotReader(FileChannel.open(file, StandardOpenOption.READ));
+    }
+
+    /**
+     * Decode every remaining component on the calling thread, in the order they were written
+     * 
+     * @return number of components read
+     */
+    public long read(Consumer<GameComponent> consumer) throws IOException {
+	long count = 0;
+	ByteBuffer frame = ByteBuffer.allocate(0);
+	while (true) {
+	    frame = nextFrame(frame);
+	    if (frame == null) {
+		return count;
+	    }
+	    count += decodeFrame(frame, consumer);
+	}
+    }
+
+    /**
+     * Read frames on the calling thread and decode them on the executor. Components within a frame arrive in 
+     * order, but frames may be decoded in any order and the consumer is called from the executor's threads, so
+     * it must be thread safe.
+     * 
+     * @param maxFramesInFlight frames read but not yet decoded - this bounds the memory used
+     * @return number of components read
+     */
+    public long readParallel(Consumer<GameComponent> consumer, ExecutorService executor, int maxFramesInFlight) 
+	    throws IOException, InterruptedException {
+	Semaphore inFlight = new Semaphore(maxFramesInFlight);
+	List<Future<Integer>> decoded = new ArrayList<>();
+	long count = 0;
+
+	try {
+	    while (true) {
+		inFlight.acquire();
+		ByteBuffer frame = nextFrame(ByteBuffer.allocate(0));
+		if (frame == null) {
+		    inFlight.release();
+		    break;
+		}
+		decoded.add(executor.submit(() -> {
+		    try {
+			return decodeFrame(frame, consumer);
+		    } finally {
+			inFlight.release();
+		    }
+		}));
+	    }
+
+	    for (Future<Integer> frameCount : decoded) {
+		count += frameCount.get();
+	    }
+	} catch (ExecutionException e) {
+	    throw new IOException("Failed to decode snapshot frame", e.getCause());
+	} finally {
+	    for (Future<Integer> frameCount : decoded) {
+		frameCount.cancel(false);
+	    }
+	}
+
+	return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+	channel.close();
+    }
+
+    /**
+     * @param reuse buffer to read the frame into if it is big enough
+     * @return the frame positioned at the count, or null at the end of the snapshot
+     */
+    private ByteBuffer nextFrame(ByteBuffer reuse) throws IOException {
+	if (finished) {
+	    return null;
+	}
+
+	frameHeader.clear();
+	readFully(frameHeader);
+	int length = frameHeader.getInt(0);
+	int count = frameHeader.getInt(4);
+	if (length == 0 && count == 0) {
+	    finished = true;
+	    return null;
+	}
+
+	ByteBuffer frame = reuse.capacity() >= length + 4 ? reuse : ByteBuffer.allocate(length + 4);
+	frame.clear();
+	frame.putInt(count);
+	frame.limit(length + 4);
+	readFully(frame);
+	frame.flip();
+	return frame;
+    }
+
+    private int decodeFrame(ByteBuffer frame, Consumer<GameComponent> consumer) {
+	StringTable strings = new StringTable();
+	int count = frame.getInt();
+	for (int i = 0; i < count; i++) {
+	    consumer.accept(serDe.read(frame, strings));
+	}
+	return count;
+    }
+
+    private void readFully(ByteBuffer buffer) throws IOException {
+	while (buffer.hasRemaining()) {
+	    if (channel.read(buffer) < 0) {
+		throw new EOFException("Unexpected end of world snapshot");
+	    }
+	}
+    }
+}
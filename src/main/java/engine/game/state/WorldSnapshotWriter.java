@@ -0,0 +1,163 @@
+package engine.game.state;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams a whole world of GameComponents to a channel without ever holding more than one chunk in memory.
+ * 
+ * Components are encoded with GameComponentBinarySerDe and grouped into frames:
+ * <pre>
+ * snapshot := magic:"VKWS" version:u8 frame* end
+ * frame    := length:i32 count:i32 body{count}     length is the byte length of the bodies
+ * end      := 0:i32 0:i32
+ * </pre>
+ * Every frame starts with an empty StringTable, so frames can be decoded independently of each other. That is 
+ * what lets WorldSnapshotReader decode chunks in parallel.
+ * 
+ * @author cypress980
+ *
+ */
+public class WorldSnapshotWriter implements Closeable {
+
+    static final byte[] MAGIC = "VKWS".getBytes(StandardCharsets.US_ASCII);
+
+    static final int FRAME_HEADER_BYTES = 8;
+
+    public static final int DEFAULT_CHUNK_SIZE = 4096;
+
+    private static final int INITIAL_FRAME_CAPACITY = 64 * 1024;
+
+    private final WritableByteChannel channel;
+
+    private final GameComponentBinarySerDe serDe = new GameComponentBinarySerDe();
+
+    private final StringTable strings = new StringTable();
+
+    private final int chunkSize;
+
+    private ByteBuffer frame;
+
+    private int frameCount = 0;
+
+    private long componentsWritten = 0;
+
+    private boolean closed = false;
+
+    public WorldSnapshotWriter(WritableByteChannel channel) throws IOException {
+	this(channel, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param chunkSize maximum number of components per frame
+     */
+    public WorldSnapshotWriter(WritableByteChannel channel, int chunkSize) throws IOException {
+	if (chunkSize < 1) {
+	    throw new IllegalArgumentException("Chunk size must be positive, was " + chunkSize);
+	}
+	this.channel = channel;
+	this.chunkSize = chunkSize;
+	this.frame = ByteBuffer.allocate(INITIAL_FRAME_CAPACITY);
+
+	ByteBuffer header = ByteBuffer.allocate(MAGIC.length + 1);
+	header.put(MAGIC).put(GameComponentBinarySerDe.FORMAT_VERSION).flip();
+	writeFully(header);
+
+	startFrame();
+    }
+
+    public static WorldSnapshotWriter toFile(Path file) throws IOException {
+	return new WorldSnapshotWriter(FileChannel.open(file, StandardOpenOption.CREATE, 
+		StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+    }
+
+    public void write(GameComponent comp) throws IOException {
+	if (closed) {
+	    throw new IllegalStateException("Snapshot writer is closed");
+	}
+
+	while (true) {
+	    int mark = frame.position();
+	    int stringsMark = strings.size();
+	    try {
+		serDe.write(comp, frame, strings);
+		break;
+	    } catch (BufferOverflowException e) {
+		frame.position(mark);
+		strings.truncate(stringsMark);
+		if (frameCount == 0) {
+		    //A single component bigger than the frame - grow the frame rather than fail
+		    frame = ByteBuffer.allocate(frame.capacity() * 2);
+		    startFrame();
+		} else {
+		    flushFrame();
+		}
+	    }
+	}
+
+	frameCount++;
+	componentsWritten++;
+	if (frameCount == chunkSize) {
+	    flushFrame();
+	}
+    }
+
+    public void writeAll(Iterable<GameComponent> comps) throws IOException {
+	for (GameComponent comp : comps) {
+	    write(comp);
+	}
+    }
+
+    public long getComponentsWritten() {
+	return componentsWritten;
+    }
+
+    /**
+     * Flush the last frame, write the end marker and close the channel
+     */
+    @Override
+    public void close() throws IOException {
+	if (closed) {
+	    return;
+	}
+	closed = true;
+
+	try {
+	    if (frameCount > 0) {
+		flushFrame();
+	    }
+	    //An empty frame marks the end of the snapshot
+	    flushFrame();
+	} finally {
+	    channel.close();
+	}
+    }
+
+    private void flushFrame() throws IOException {
+	frame.putInt(0, frame.position() - FRAME_HEADER_BYTES);
+	frame.putInt(4, frameCount);
+	frame.flip();
+	writeFully(frame);
+	startFrame();
+    }
+
+    private void startFrame() {
+	frame.clear();
+	frame.position(FRAME_HEADER_BYTES);
+	frameCount = 0;
+	strings.clear();
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+	while (buffer.hasRemaining()) {
+	    channel.write(buffer);
+	}
+    }
+}
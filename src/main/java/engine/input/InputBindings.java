@@ -0,0 +1,82 @@
+package engine.input;
+
+import java.util.Arrays;
+
+/**
+ * Maps game actions to the keys and mouse buttons that trigger them, so game logic asks "is the player moving 
+ * up" instead of "is W down". An action can have any number of bindings, and is active while any of them is.
+ * 
+ * @author cypress980
+ *
+ * @param <A> the game's actions
+ */
+public class InputBindings<A extends Enum<A>> {
+
+    private static final int[] UNBOUND = new int[0];
+
+    private final InputState state;
+
+    private final int[][] inputs;
+
+    public InputBindings(Class<A> actions, InputState state) {
+	this.state = state;
+	this.inputs = new int[actions.getEnumConstants().length][];
+	Arrays.fill(inputs, UNBOUND);
+    }
+
+    public InputBindings<A> bindKey(A action, int key) {
+	return bind(action, key);
+    }
+
+    public InputBindings<A> bindButton(A action, int button) {
+	return bind(action, InputState.BUTTON_OFFSET + button);
+    }
+
+    private InputBindings<A> bind(A action, int input) {
+	int[] bound = inputs[action.ordinal()];
+	bound = Arrays.copyOf(bound, bound.length + 1);
+	bound[bound.length - 1] = input;
+	inputs[action.ordinal()] = bound;
+	return this;
+    }
+
+    public void unbind(A action) {
+	inputs[action.ordinal()] = UNBOUND;
+    }
+
+    /**
+     * @return true if a binding is down, or was tapped since the last input tick
+     */
+    public boolean isActive(A action) {
+	for (int input : inputs[action.ordinal()]) {
+	    if (state.isDown(input) || state.wasPressed(input)) {
+		return true;
+	    }
+	}
+	return false;
+    }
+
+    /**
+     * @return true if a binding was pressed since the last input tick
+     */
+    public boolean wasTriggered(A action) {
+	for (int input : inputs[action.ordinal()]) {
+	    if (state.wasPressed(input)) {
+		return true;
+	    }
+	}
+	return false;
+    }
+
+    /**
+     * @return true if a binding was released since the last input tick
+     */
+    public boolean wasReleased(A action) {
+	for (int input : inputs[action.ordinal()]) {
+	    if (state.wasReleased(input)) {
+		return true;
+	    }
+	}
+	return false;
+    }
+}
@@ -0,0 +1,22 @@
+package engine.input;
+
+/**
+ * Receives events drained from an {@link InputEventQueue}. Events are passed as primitives so draining allocates 
+ * nothing.
+ * 
+ * @author cypress980
+ *
+ */
+public interface InputEventHandler {
+
+    /**
+     * @param type one of the InputEventQueue event types
+     * @param code the GLFW key or mouse button, 0 for cursor events
+     * @param action GLFW_PRESS, GLFW_RELEASE or GLFW_REPEAT for keys and buttons, 1 if the cursor entered the 
+     * window and 0 if it left
+     * @param x cursor x, 0 for other events
+     * @param y cursor y, 0 for other events
+     * @param timeNanos System.nanoTime() when the event was received
+     */
+    void onEvent(int type, int code, int action, double x, double y, long timeNanos);
+}
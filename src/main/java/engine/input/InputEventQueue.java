@@ -0,0 +1,108 @@
+package engine.input;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock free single producer, single consumer ring buffer of input events. The GLFW callbacks produce and the game 
+ * loop consumes once per input tick, so every press and release in between is kept in order, however short.
+ * 
+ * Events are stored in parallel primitive arrays, so neither side allocates. If the queue is full, new events are 
+ * dropped and counted rather than blocking the window thread.
+ * 
+ * @author cypress980
+ *
+ */
+public class InputEventQueue {
+
+    public static final int KEY = 0;
+    public static final int MOUSE_BUTTON = 1;
+    public static final int CURSOR_POSITION = 2;
+    public static final int CURSOR_ENTER = 3;
+
+    private final int mask;
+    private final int[] types;
+    private final int[] codes;
+    private final int[] actions;
+    private final double[] xs;
+    private final double[] ys;
+    private final long[] times;
+
+    // Only the consumer writes head and only the producer writes tail
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    public InputEventQueue(int capacity) {
+	if (capacity < 1) {
+	    throw new IllegalArgumentException("Capacity must be positive, was " + capacity);
+	}
+	int size = Integer.highestOneBit(capacity);
+	if (size < capacity) {
+	    size <<= 1;
+	}
+	mask = size - 1;
+	types = new int[size];
+	codes = new int[size];
+	actions = new int[size];
+	xs = new double[size];
+	ys = new double[size];
+	times = new long[size];
+    }
+
+    public int getCapacity() {
+	return mask + 1;
+    }
+
+    /**
+     * Producer side
+     * 
+     * @return false if the queue was full and the event was dropped
+     */
+    public boolean offer(int type, int code, int action, double x, double y, long timeNanos) {
+	long next = tail.get();
+	if (next - head.get() > mask) {
+	    dropped.incrementAndGet();
+	    return false;
+	}
+	
+	int slot = (int) next & mask;
+	types[slot] = type;
+	codes[slot] = code;
+	actions[slot] = action;
+	xs[slot] = x;
+	ys[slot] = y;
+	times[slot] = timeNanos;
+	tail.lazySet(next + 1); // Publishes the slot
+	return true;
+    }
+
+    /**
+     * Consumer side. Hands every event published so far to the handler, oldest first.
+     * 
+     * @return the number of events drained
+     */
+    public int drain(InputEventHandler handler) {
+	long first = head.get();
+	long end = tail.get();
+	for (long i = first; i < end; i++) {
+	    int slot = (int) i & mask;
+	    handler.onEvent(types[slot], codes[slot], actions[slot], xs[slot], ys[slot], times[slot]);
+	}
+	head.lazySet(end); // Hands the slots back to the producer
+	return (int) (end - first);
+    }
+
+    public int size() {
+	return (int) (tail.get() - head.get());
+    }
+
+    /**
+     * @return how many events have been dropped because the queue was full
+     */
+    public long getDroppedCount() {
+	return dropped.get();
+    }
+}
@@ -0,0 +1,153 @@
+package engine.input;
+
+import static org.lwjgl.glfw.GLFW.GLFW_KEY_LAST;
+import static org.lwjgl.glfw.GLFW.GLFW_MOUSE_BUTTON_LAST;
+import static org.lwjgl.glfw.GLFW.GLFW_PRESS;
+import static org.lwjgl.glfw.GLFW.GLFW_RELEASE;
+
+/**
+ * Keyboard and mouse state as of the last input tick, built from the events drained from an 
+ * {@link InputEventQueue}. Keys and buttons are kept in bitsets of what is down, what was pressed and what was 
+ * released since the tick before, so a key tapped and let go between two ticks still reads as pressed.
+ * 
+ * Only read and update from the game loop thread.
+ * 
+ * @author cypress980
+ *
+ */
+public class InputState implements InputEventHandler {
+
+    /**
+     * Mouse buttons are stored after the keys, so keys and buttons share one code space
+     */
+    static final int BUTTON_OFFSET = GLFW_KEY_LAST + 1;
+
+    private static final int INPUT_COUNT = BUTTON_OFFSET + GLFW_MOUSE_BUTTON_LAST + 1;
+
+    private final long[] down = new long[(INPUT_COUNT + 63) / 64];
+    private final long[] pressed = new long[down.length];
+    private final long[] released = new long[down.length];
+
+    private double cursorX;
+    private double cursorY;
+    private boolean cursorInWindow;
+    private long lastEventNanos;
+
+    private InputEventHandler recorder;
+
+    /**
+     * Start a new input tick - forget the last tick's presses and releases and apply everything queued since
+     */
+    public void update(InputEventQueue events) {
+	for (int i = 0; i < down.length; i++) {
+	    pressed[i] = 0;
+	    released[i] = 0;
+	}
+	events.drain(this);
+    }
+
+    /**
+     * Also hand every applied event to the recorder, e.g. a ReplayRecorder. Null stops recording.
+     */
+    public void setRecorder(InputEventHandler recorder) {
+	this.recorder = recorder;
+    }
+
+    @Override
+    public void onEvent(int type, int code, int action, double x, double y, long timeNanos) {
+	if (recorder != null) {
+	    recorder.onEvent(type, code, action, x, y, timeNanos);
+	}
+	lastEventNanos = timeNanos;
+	switch (type) {
+	case InputEventQueue.KEY:
+	    apply(code, action);
+	    break;
+	case InputEventQueue.MOUSE_BUTTON:
+	    apply(BUTTON_OFFSET + code, action);
+	    break;
+	case InputEventQueue.CURSOR_POSITION:
+	    cursorX = x;
+	    cursorY = y;
+	    break;
+	case InputEventQueue.CURSOR_ENTER:
+	    cursorInWindow = action != 0;
+	    break;
+	default:
+	    throw new IllegalArgumentException("Unknown input event type " + type);
+	}
+    }
+
+    private void apply(int input, int action) {
+	if (input < 0 || input >= INPUT_COUNT) {
+	    return; // GLFW_KEY_UNKNOWN
+	}
+	long bit = 1L << input;
+	if (action == GLFW_PRESS) {
+	    down[input >>> 6] |= bit;
+	    pressed[input >>> 6] |= bit;
+	} else if (action == GLFW_RELEASE) {
+	    down[input >>> 6] &= ~bit;
+	    released[input >>> 6] |= bit;
+	}
+    }
+
+    public boolean isKeyDown(int key) {
+	return isSet(down, key);
+    }
+
+    public boolean wasKeyPressed(int key) {
+	return isSet(pressed, key);
+    }
+
+    public boolean wasKeyReleased(int key) {
+	return isSet(released, key);
+    }
+
+    public boolean isButtonDown(int button) {
+	return isSet(down, BUTTON_OFFSET + button);
+    }
+
+    public boolean wasButtonPressed(int button) {
+	return isSet(pressed, BUTTON_OFFSET + button);
+    }
+
+    public boolean wasButtonReleased(int button) {
+	return isSet(released, BUTTON_OFFSET + button);
+    }
+
+    boolean isDown(int input) {
+	return isSet(down, input);
+    }
+
+    boolean wasPressed(int input) {
+	return isSet(pressed, input);
+    }
+
+    boolean wasReleased(int input) {
+	return isSet(released, input);
+    }
+
+    private static boolean isSet(long[] bits, int input) {
+	return input >= 0 && input < INPUT_COUNT && (bits[input >>> 6] & (1L << input)) != 0;
+    }
+
+    public double getCursorX() {
+	return cursorX;
+    }
+
+    public double getCursorY() {
+	return cursorY;
+    }
+
+    public boolean isCursorInWindow() {
+	return cursorInWindow;
+    }
+
+    /**
+     * @return System.nanoTime() of the latest event applied
+     */
+    public long getLastEventNanos() {
+	return lastEventNanos;
+    }
+}
@@ -0,0 +1,102 @@
+package engine.physics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock free single producer, single consumer ring buffer of changes to bodies. The game thread produces, and the
+ * physics thread applies them before its next step, so nothing but the physics thread ever writes to a body.
+ *
+ * Commands are stored in parallel arrays, so neither side allocates. If the queue is full, new commands are
+ * dropped and counted rather than blocking the game thread.
+ *
+ * @author cypress980
+ *
+ */
+public class BodyCommandQueue {
+
+    public static final int SET_VELOCITY = 0;
+    public static final int MOVE = 1;
+    public static final int SET_POSITION = 2;
+
+    private final int mask;
+    private final int[] types;
+    private final RigidBody[] bodies;
+    private final float[] xs;
+    private final float[] ys;
+
+    // Only the consumer writes head and only the producer writes tail
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    public BodyCommandQueue(int capacity) {
+	if (capacity < 1) {
+	    throw new IllegalArgumentException("Capacity must be positive, was " + capacity);
+	}
+	int size = Integer.highestOneBit(capacity);
+	if (size < capacity) {
+	    size <<= 1;
+	}
+	mask = size - 1;
+	types = new int[size];
+	bodies = new RigidBody[size];
+	xs = new float[size];
+	ys = new float[size];
+    }
+
+    /**
+     * Producer side
+     *
+     * @return the sequence number of the command, or -1 if the queue was full and it was dropped
+     */
+    public long offer(int type, RigidBody body, float x, float y) {
+	long next = tail.get();
+	if (next - head.get() > mask) {
+	    dropped.incrementAndGet();
+	    return -1;
+	}
+
+	int slot = (int) next & mask;
+	types[slot] = type;
+	bodies[slot] = body;
+	xs[slot] = x;
+	ys[slot] = y;
+	tail.lazySet(next + 1); // Publishes the slot
+	return next;
+    }
+
+    /**
+     * Consumer side. Hands every command published so far to the handler, oldest first.
+     *
+     * @return the sequence number after the last command drained
+     */
+    public long drain(Handler handler) {
+	long first = head.get();
+	long end = tail.get();
+	for (long i = first; i < end; i++) {
+	    int slot = (int) i & mask;
+	    handler.apply(types[slot], bodies[slot], xs[slot], ys[slot]);
+	    bodies[slot] = null;
+	}
+	head.lazySet(end); // Hands the slots back to the producer
+	return end;
+    }
+
+    public int size() {
+	return (int) (tail.get() - head.get());
+    }
+
+    /**
+     * @return how many commands have been dropped because the queue was full
+     */
+    public long getDroppedCount() {
+	return dropped.get();
+    }
+
+    public static interface Handler {
+	void apply(int type, RigidBody body, float x, float y);
+    }
+}
@@ -0,0 +1,23 @@
+package engine.physics;
+
+import org.joml.Vector3f;
+
+/**
+ * What game code needs to steer a body. A RigidBody controls itself directly, while a body stepped on the
+ * physics thread is controlled through PhysicsThread.getControl, which queues the changes instead.
+ *
+ * @author cypress980
+ *
+ */
+public interface BodyControl {
+
+    Vector3f getPosition(Vector3f dest);
+
+    Vector3f getVelocity(Vector3f dest);
+
+    boolean isSliding();
+
+    void setVelocity(Vector3f velocity);
+
+    void move(Vector3f ds);
+}
@@ -0,0 +1,86 @@
+package engine.physics;
+
+import java.util.List;
+
+import org.joml.Vector3f;
+
+/**
+ * Where every body of a physics engine was after a step, published by the physics thread for other threads to
+ * read. Bodies are indexed by their physics id.
+ *
+ * @author cypress980
+ *
+ */
+public class BodyTransforms {
+
+    private int count;
+    private float[] xs = new float[0];
+    private float[] ys = new float[0];
+    private float[] velocityXs = new float[0];
+    private float[] velocityYs = new float[0];
+    private boolean[] sliding = new boolean[0];
+    private boolean[] sleeping = new boolean[0];
+
+    private long step;
+    private long appliedCommands;
+
+    void capture(List<RigidBody> bodies, long step, long appliedCommands, Vector3f scratch) {
+	count = bodies.size();
+	if (xs.length < count) {
+	    int capacity = Math.max(count, xs.length * 2);
+	    xs = new float[capacity];
+	    ys = new float[capacity];
+	    velocityXs = new float[capacity];
+	    velocityYs = new float[capacity];
+	    sliding = new boolean[capacity];
+	    sleeping = new boolean[capacity];
+	}
+	for (int i = 0; i < count; i++) {
+	    RigidBody body = bodies.get(i);
+	    body.getPosition(scratch);
+	    xs[i] = scratch.x;
+	    ys[i] = scratch.y;
+	    body.getVelocity(scratch);
+	    velocityXs[i] = scratch.x;
+	    velocityYs[i] = scratch.y;
+	    sliding[i] = body.isSliding();
+	    sleeping[i] = body.isSleeping();
+	}
+	this.step = step;
+	this.appliedCommands = appliedCommands;
+    }
+
+    public int getBodyCount() {
+	return count;
+    }
+
+    /**
+     * @return number of physics steps taken when these transforms were captured
+     */
+    public long getStep() {
+	return step;
+    }
+
+    /**
+     * @return sequence number after the last body command applied before the capture
+     */
+    public long getAppliedCommands() {
+	return appliedCommands;
+    }
+
+    public Vector3f getPosition(int body, Vector3f dest) {
+	return dest.set(xs[body], ys[body], 0);
+    }
+
+    public Vector3f getVelocity(int body, Vector3f dest) {
+	return dest.set(velocityXs[body], velocityYs[body], 0);
+    }
+
+    public boolean isSliding(int body) {
+	return sliding[body];
+    }
+
+    public boolean isSleeping(int body) {
+	return sleeping[body];
+    }
+}
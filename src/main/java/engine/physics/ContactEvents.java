@@ -0,0 +1,75 @@
+package engine.physics;
+
+import java.util.Arrays;
+
+/**
+ * The contact events of a tick for one contact listener, handed over all at once.
+ *
+ * Events are only valid during the notifyOfContacts call, the buffer is cleared and reused on the next tick.
+ *
+ * @author cypress980
+ *
+ */
+public class ContactEvents {
+    public static final int BEGIN = 1;
+    public static final int PERSIST = 2;
+    public static final int END = 4;
+    public static final int ALL = BEGIN | PERSIST | END;
+
+    final PhysicsEngine.ContactListener listener;
+
+    private int size;
+    private int[] types = new int[8];
+    private RigidBody[] bodies = new RigidBody[8];
+    private RigidBody[] others = new RigidBody[8];
+
+    ContactEvents(PhysicsEngine.ContactListener listener) {
+	this.listener = listener;
+    }
+
+    /**
+     * @return true if this was the first event of the tick
+     */
+    boolean add(int type, RigidBody body, RigidBody other) {
+	if (size == types.length) {
+	    types = Arrays.copyOf(types, size * 2);
+	    bodies = Arrays.copyOf(bodies, size * 2);
+	    others = Arrays.copyOf(others, size * 2);
+	}
+	types[size] = type;
+	bodies[size] = body;
+	others[size] = other;
+	return size++ == 0;
+    }
+
+    void clear() {
+	Arrays.fill(bodies, 0, size, null);
+	Arrays.fill(others, 0, size, null);
+	size = 0;
+    }
+
+    public int size() {
+	return size;
+    }
+
+    /**
+     * @return BEGIN, PERSIST or END
+     */
+    public int getType(int event) {
+	return types[event];
+    }
+
+    /**
+     * @return the body the listener was registered for
+     */
+    public RigidBody getBody(int event) {
+	return bodies[event];
+    }
+
+    /**
+     * @return the body it started, kept or stopped touching
+     */
+    public RigidBody getOther(int event) {
+	return others[event];
+    }
+}
@@ -0,0 +1,189 @@
+package engine.physics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tracks which bodies are touching from tick to tick, so contact listeners hear when a contact begins and ends
+ * instead of on every tick it lasts.
+ *
+ * Pairs are kept in an open addressing table keyed by the ids of both bodies, with linear probing and
+ * backward shift deletion, so tracking a contact allocates nothing once the table has grown. Only pairs where
+ * at least one body has a contact listener are tracked.
+ *
+ * @author cypress980
+ *
+ */
+class ContactManager {
+    private static final long EMPTY = -1;
+
+    private long[] keys;
+    private int[] lastSeen;
+    private RigidBody[] bodiesA;
+    private RigidBody[] bodiesB;
+    private int mask;
+    private int size;
+
+    private int tick;
+    private long[] ended = new long[16];
+    private final List<ContactEvents> pending = new ArrayList<>();
+
+    ContactManager() {
+	allocate(64);
+    }
+
+    private void allocate(int capacity) {
+	keys = new long[capacity];
+	Arrays.fill(keys, EMPTY);
+	lastSeen = new int[capacity];
+	bodiesA = new RigidBody[capacity];
+	bodiesB = new RigidBody[capacity];
+	mask = capacity - 1;
+	size = 0;
+    }
+
+    void beginTick() {
+	tick++;
+    }
+
+    /**
+     * Record that two bodies are touching this tick
+     */
+    void touch(RigidBody a, RigidBody b) {
+	if (a.contactEvents == null && b.contactEvents == null || a.physicsId < 0 || b.physicsId < 0) {
+	    return;
+	}
+	long key = getKey(a.physicsId, b.physicsId);
+	int slot = find(key);
+	if (keys[slot] == key) {
+	    if (lastSeen[slot] != tick) {
+		lastSeen[slot] = tick;
+		fire(ContactEvents.PERSIST, bodiesA[slot], bodiesB[slot]);
+	    }
+	    return;
+	}
+
+	if ((size + 1) * 2 > keys.length) {
+	    grow();
+	    slot = find(key);
+	}
+	keys[slot] = key;
+	lastSeen[slot] = tick;
+	bodiesA[slot] = a;
+	bodiesB[slot] = b;
+	size++;
+	fire(ContactEvents.BEGIN, a, b);
+    }
+
+    /**
+     * End the contacts that weren't touched this tick, then hand every listener its events
+     */
+    void endTick() {
+	int endedCount = 0;
+	for (int slot = 0; slot < keys.length; slot++) {
+	    if (keys[slot] == EMPTY || lastSeen[slot] == tick) {
+		continue;
+	    }
+	    if (bodiesA[slot].isSleeping() && bodiesB[slot].isSleeping()) {
+		lastSeen[slot] = tick; // Sleeping pairs aren't tested, but they're still touching
+		continue;
+	    }
+	    fire(ContactEvents.END, bodiesA[slot], bodiesB[slot]);
+	    if (endedCount == ended.length) {
+		ended = Arrays.copyOf(ended, endedCount * 2);
+	    }
+	    ended[endedCount++] = keys[slot];
+	}
+	// Removing shifts later entries back, so only remove once the scan is done
+	for (int i = 0; i < endedCount; i++) {
+	    remove(find(ended[i]));
+	}
+
+	for (int i = 0; i < pending.size(); i++) {
+	    ContactEvents events = pending.get(i);
+	    events.listener.notifyOfContacts(events);
+	    events.clear();
+	}
+	pending.clear();
+    }
+
+    private void fire(int type, RigidBody a, RigidBody b) {
+	if (a.contactEvents != null && (a.contactEventMask & type) != 0 && a.contactEvents.add(type, a, b)) {
+	    pending.add(a.contactEvents);
+	}
+	if (b.contactEvents != null && (b.contactEventMask & type) != 0 && b.contactEvents.add(type, b, a)) {
+	    pending.add(b.contactEvents);
+	}
+    }
+
+    int getContactCount() {
+	return size;
+    }
+
+    /**
+     * @return the slot holding the key, or the empty slot it would go in
+     */
+    private int find(long key) {
+	int slot = hash(key) & mask;
+	while (keys[slot] != EMPTY && keys[slot] != key) {
+	    slot = (slot + 1) & mask;
+	}
+	return slot;
+    }
+
+    private void remove(int slot) {
+	int hole = slot;
+	int next = slot;
+	while (true) {
+	    next = (next + 1) & mask;
+	    if (keys[next] == EMPTY) {
+		break;
+	    }
+	    // Entries whose home is cyclically after the hole and up to here are already where they can be found
+	    int home = hash(keys[next]) & mask;
+	    if (hole <= next ? hole < home && home <= next : hole < home || home <= next) {
+		continue;
+	    }
+	    keys[hole] = keys[next];
+	    lastSeen[hole] = lastSeen[next];
+	    bodiesA[hole] = bodiesA[next];
+	    bodiesB[hole] = bodiesB[next];
+	    hole = next;
+	}
+	keys[hole] = EMPTY;
+	bodiesA[hole] = null;
+	bodiesB[hole] = null;
+	size--;
+    }
+
+    private void grow() {
+	long[] oldKeys = keys;
+	int[] oldLastSeen = lastSeen;
+	RigidBody[] oldBodiesA = bodiesA;
+	RigidBody[] oldBodiesB = bodiesB;
+	allocate(oldKeys.length * 2);
+	for (int i = 0; i < oldKeys.length; i++) {
+	    if (oldKeys[i] != EMPTY) {
+		int slot = find(oldKeys[i]);
+		keys[slot] = oldKeys[i];
+		lastSeen[slot] = oldLastSeen[i];
+		bodiesA[slot] = oldBodiesA[i];
+		bodiesB[slot] = oldBodiesB[i];
+		size++;
+	    }
+	}
+    }
+
+    private static long getKey(int a, int b) {
+	return ((long) Math.min(a, b) << 32) | Math.max(a, b);
+    }
+
+    /**
+     * Spreads the ids of a pair over the whole int, so neighbouring pairs don't probe the same run of slots
+     */
+    static int hash(long key) {
+	long h = key * 0x9E3779B97F4A7C15L;
+	return (int) (h ^ (h >>> 32));
+    }
+}
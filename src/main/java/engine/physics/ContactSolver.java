@@ -0,0 +1,312 @@
+package engine.physics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.joml.Vector3f;
+
+/**
+ * Sequential impulse solver for bodies in contact.
+ *
+ * Resolving each pair on its own and summing the results, like RigidBody.getCollision does, double counts when a
+ * body is pushed from several sides at once, so crowds jitter. The solver instead sweeps over all of the tick's
+ * contacts a number of times, each time correcting one contact's impulse against the velocities the others have
+ * left, until they agree. Contacts that last from tick to tick start from the impulse they ended on last tick,
+ * so resting contacts converge in a sweep or two. Those impulses are kept in an open addressing table keyed by the
+ * ids of both bodies, like ContactManager's, so warm starting boxes nothing.
+ *
+ * Overlap is corrected separately from velocity, by pushing the bodies apart by a fraction of the penetration
+ * each tick (Baumgarte stabilization, applied to position so it doesn't add energy). The resulting velocity
+ * change and push for each body are delivered as ordinary collision messages.
+ *
+ * @author cypress980
+ *
+ */
+public class ContactSolver {
+
+    public static final int DEFAULT_ITERATIONS = 8;
+    public static final float DEFAULT_BAUMGARTE = 0.2f;
+    public static final float DEFAULT_SLOP = 0.5f; // px of overlap left alone, so resting contacts stay in contact
+    public static final float DEFAULT_RESTITUTION = 0f;
+
+    private int iterations = DEFAULT_ITERATIONS;
+    private float baumgarte = DEFAULT_BAUMGARTE;
+    private float slop = DEFAULT_SLOP;
+    private float restitution = DEFAULT_RESTITUTION;
+    private boolean warmStarting = true;
+
+    // Contacts are pooled, only the first contactCount are live
+    private final List<Contact> contacts = new ArrayList<>();
+    private int contactCount;
+
+    // Impulse each contact ended the last tick on, keyed by the ids of its bodies
+    private ImpulseTable impulses = new ImpulseTable();
+    private ImpulseTable nextImpulses = new ImpulseTable();
+
+    /**
+     * Add a contact between two bodies for this tick
+     *
+     * @return false if they aren't overlapping
+     */
+    public boolean addContact(RigidBody a, RigidBody b) {
+	HitBox boxA = a.getHitBox();
+	HitBox boxB = b.getHitBox();
+	if (!boxA.isCollision(boxB)) {
+	    return false;
+	}
+	float inverseMassSum = a.getInverseMass() + b.getInverseMass();
+	if (inverseMassSum == 0) {
+	    return false; // Neither can move
+	}
+
+	if (contactCount == contacts.size()) {
+	    contacts.add(new Contact());
+	}
+	Contact contact = contacts.get(contactCount++);
+	contact.a = a;
+	contact.b = b;
+	contact.effectiveMass = 1 / inverseMassSum;
+	contact.key = a.physicsId < 0 || b.physicsId < 0 ? -1 : getKey(a.physicsId, b.physicsId);
+
+	// Push out along the axis of least overlap, normal pointing from a to b
+	float overlapX = Math.min(boxA.getMaxX(), boxB.getMaxX()) - Math.max(boxA.getMinX(), boxB.getMinX());
+	float overlapY = Math.min(boxA.getMaxY(), boxB.getMaxY()) - Math.max(boxA.getMinY(), boxB.getMinY());
+	if (overlapX < overlapY) {
+	    float direction = boxB.getMinX() + boxB.getMaxX() >= boxA.getMinX() + boxA.getMaxX() ? 1 : -1;
+	    contact.normalX = direction;
+	    contact.normalY = 0;
+	    contact.depth = overlapX;
+	} else {
+	    float direction = boxB.getMinY() + boxB.getMaxY() >= boxA.getMinY() + boxA.getMaxY() ? 1 : -1;
+	    contact.normalX = 0;
+	    contact.normalY = direction;
+	    contact.depth = overlapY;
+	}
+	return true;
+    }
+
+    /**
+     * Solve this tick's contacts. Afterwards each contact's collision can be read with getCollision.
+     */
+    public void solve() {
+	for (int i = 0; i < contactCount; i++) {
+	    Contact contact = contacts.get(i);
+	    contact.a.beginSolve();
+	    contact.b.beginSolve();
+	}
+
+	for (int i = 0; i < contactCount; i++) {
+	    Contact contact = contacts.get(i);
+	    // Bounce back at a fraction of the approach speed, before the warm start hides it
+	    float approach = getNormalVelocity(contact);
+	    contact.bias = approach < 0 ? -restitution * approach : 0;
+
+	    contact.impulse = warmStarting && contact.key >= 0 ? impulses.get(contact.key) : 0;
+	    applyImpulse(contact, contact.impulse);
+	}
+
+	for (int iteration = 0; iteration < iterations; iteration++) {
+	    for (int i = 0; i < contactCount; i++) {
+		Contact contact = contacts.get(i);
+		float lambda = (contact.bias - getNormalVelocity(contact)) * contact.effectiveMass;
+		// Contacts can only push, so the total impulse can't go below zero
+		float total = Math.max(contact.impulse + lambda, 0);
+		applyImpulse(contact, total - contact.impulse);
+		contact.impulse = total;
+	    }
+	}
+
+	nextImpulses.clear();
+	for (int i = 0; i < contactCount; i++) {
+	    Contact contact = contacts.get(i);
+	    if (contact.key >= 0) {
+		nextImpulses.put(contact.key, contact.impulse);
+	    }
+	}
+	ImpulseTable swap = impulses;
+	impulses = nextImpulses;
+	nextImpulses = swap;
+    }
+
+    private float getNormalVelocity(Contact contact) {
+	return (contact.b.solverVx - contact.a.solverVx) * contact.normalX
+		+ (contact.b.solverVy - contact.a.solverVy) * contact.normalY;
+    }
+
+    private void applyImpulse(Contact contact, float impulse) {
+	float inverseMassA = contact.a.getInverseMass();
+	float inverseMassB = contact.b.getInverseMass();
+	contact.a.solverVx -= contact.normalX * impulse * inverseMassA;
+	contact.a.solverVy -= contact.normalY * impulse * inverseMassA;
+	contact.b.solverVx += contact.normalX * impulse * inverseMassB;
+	contact.b.solverVy += contact.normalY * impulse * inverseMassB;
+    }
+
+    public int getContactCount() {
+	return contactCount;
+    }
+
+    /**
+     * @return the velocity change and push out of contact i of this tick, for each of its bodies
+     */
+    public CollisionEvent getCollision(int i) {
+	Contact contact = contacts.get(i);
+	float inverseMassA = contact.a.getInverseMass();
+	float inverseMassB = contact.b.getInverseMass();
+	float correction = baumgarte * Math.max(contact.depth - slop, 0) * contact.effectiveMass;
+
+	Vector3f normal = new Vector3f(contact.normalX, contact.normalY, 0);
+	return new CollisionEvent(
+		new ElasticCollisionMessage(contact.a,
+			new Vector3f(normal).mul(-contact.impulse * inverseMassA),
+			new Vector3f(normal).mul(-correction * inverseMassA)),
+		new ElasticCollisionMessage(contact.b,
+			new Vector3f(normal).mul(contact.impulse * inverseMassB),
+			new Vector3f(normal).mul(correction * inverseMassB)));
+    }
+
+    /**
+     * Drop this tick's contacts, ready for the next
+     */
+    public void clear() {
+	for (int i = 0; i < contactCount; i++) {
+	    Contact contact = contacts.get(i);
+	    contact.a = null;
+	    contact.b = null;
+	}
+	contactCount = 0;
+    }
+
+    private static long getKey(int a, int b) {
+	return ((long) Math.min(a, b) << 32) | Math.max(a, b);
+    }
+
+    public int getIterations() {
+	return iterations;
+    }
+
+    /**
+     * More iterations resolve deeper piles of bodies, at the cost of a pass over the contacts each
+     */
+    public void setIterations(int iterations) {
+	if (iterations < 1) {
+	    throw new IllegalArgumentException("Solver needs at least 1 iteration, was " + iterations);
+	}
+	this.iterations = iterations;
+    }
+
+    /**
+     * @param baumgarte fraction of the overlap pushed out each tick, between 0 and 1
+     */
+    public void setBaumgarte(float baumgarte) {
+	if (baumgarte < 0 || baumgarte > 1) {
+	    throw new IllegalArgumentException("Baumgarte factor must be between 0 and 1, was " + baumgarte);
+	}
+	this.baumgarte = baumgarte;
+    }
+
+    /**
+     * @param slop overlap in px that isn't pushed out
+     */
+    public void setSlop(float slop) {
+	this.slop = slop;
+    }
+
+    /**
+     * @param restitution 0 for bodies that stop dead against each other, 1 for a perfectly elastic bounce
+     */
+    public void setRestitution(float restitution) {
+	this.restitution = restitution;
+    }
+
+    public void setWarmStarting(boolean warmStarting) {
+	this.warmStarting = warmStarting;
+    }
+
+    /**
+     * Impulses by contact key, with linear probing. Refilled from scratch every tick, so entries are never removed.
+     */
+    private static class ImpulseTable {
+	private static final long EMPTY = -1;
+
+	private long[] keys;
+	private float[] values;
+	private int mask;
+	private int size;
+
+	ImpulseTable() {
+	    allocate(64);
+	}
+
+	private void allocate(int capacity) {
+	    keys = new long[capacity];
+	    Arrays.fill(keys, EMPTY);
+	    values = new float[capacity];
+	    mask = capacity - 1;
+	    size = 0;
+	}
+
+	/**
+	 * @return the impulse stored for the key, or 0 if there is none
+	 */
+	float get(long key) {
+	    int slot = find(key);
+	    return keys[slot] == key ? values[slot] : 0;
+	}
+
+	void put(long key, float impulse) {
+	    int slot = find(key);
+	    if (keys[slot] != key) {
+		if ((size + 1) * 2 > keys.length) {
+		    grow();
+		    slot = find(key);
+		}
+		keys[slot] = key;
+		size++;
+	    }
+	    values[slot] = impulse;
+	}
+
+	void clear() {
+	    if (size > 0) {
+		Arrays.fill(keys, EMPTY);
+		size = 0;
+	    }
+	}
+
+	private int find(long key) {
+	    int slot = ContactManager.hash(key) & mask;
+	    while (keys[slot] != EMPTY && keys[slot] != key) {
+		slot = (slot + 1) & mask;
+	    }
+	    return slot;
+	}
+
+	private void grow() {
+	    long[] oldKeys = keys;
+	    float[] oldValues = values;
+	    allocate(oldKeys.length * 2);
+	    for (int i = 0; i < oldKeys.length; i++) {
+		if (oldKeys[i] != EMPTY) {
+		    int slot = find(oldKeys[i]);
+		    keys[slot] = oldKeys[i];
+		    values[slot] = oldValues[i];
+		    size++;
+		}
+	    }
+	}
+    }
+
+    private static class Contact {
+	RigidBody a;
+	RigidBody b;
+	float normalX;
+	float normalY;
+	float depth;
+	float effectiveMass;
+	float bias;
+	float impulse;
+	long key;
+    }
+}
@@ -68,6 +68,61 @@ public class HitBox {
 	maxY = minY + height;
     }
 
+    /**
+     * Sweep this box and that one along their displacements for a step, to find when they first touch.
+     * 
+     * @param normal set to the axis this box hits that one on, pointing back toward this box
+     * @return fraction of the step at which they touch, or 1 if they don't touch within the step, or were already 
+     * overlapping at its start
+     */
+    public float sweep(float dx, float dy, HitBox that, float thatDx, float thatDy, Vector3f normal) {
+	// Sweep this box against that one standing still
+	float vx = dx - thatDx;
+	float vy = dy - thatDy;
+	
+	float entryX, exitX;
+	if (vx > 0) {
+	    entryX = (that.minX - this.maxX) / vx;
+	    exitX = (that.maxX - this.minX) / vx;
+	} else if (vx < 0) {
+	    entryX = (that.maxX - this.minX) / vx;
+	    exitX = (that.minX - this.maxX) / vx;
+	} else if (this.maxX > that.minX && this.minX < that.maxX) {
+	    entryX = Float.NEGATIVE_INFINITY;
+	    exitX = Float.POSITIVE_INFINITY;
+	} else {
+	    return 1;
+	}
+	
+	float entryY, exitY;
+	if (vy > 0) {
+	    entryY = (that.minY - this.maxY) / vy;
+	    exitY = (that.maxY - this.minY) / vy;
+	} else if (vy < 0) {
+	    entryY = (that.maxY - this.minY) / vy;
+	    exitY = (that.minY - this.maxY) / vy;
+	} else if (this.maxY > that.minY && this.minY < that.maxY) {
+	    entryY = Float.NEGATIVE_INFINITY;
+	    exitY = Float.POSITIVE_INFINITY;
+	} else {
+	    return 1;
+	}
+	
+	float entry = Math.max(entryX, entryY);
+	float exit = Math.min(exitX, exitY);
+	if (entry > exit || entry < 0 || entry >= 1) {
+	    return 1;
+	}
+	
+	// The axis entered last is the one they hit on
+	if (entryX > entryY) {
+	    normal.set(vx > 0 ? -1 : 1, 0, 0);
+	} else {
+	    normal.set(0, vy > 0 ? -1 : 1, 0);
+	}
+	return entry;
+    }
+
     public boolean isCollision(HitBox that) {
 	
 	return this.maxX > that.minX &&
@@ -77,6 +132,16 @@ public class HitBox {
 
     }
     
+    /**
+     * @return true if the boxes overlap or are within margin of each other on both axes
+     */
+    public boolean isTouching(HitBox that, float margin) {
+	return this.maxX + margin >= that.minX &&
+		this.minX - margin <= that.maxX &&
+		this.maxY + margin >= that.minY &&
+		this.minY - margin <= that.maxY;
+    }
+
     public Vector3f getIntersection(HitBox that) {
 	Vector3f intersection = new Vector3f();
 	
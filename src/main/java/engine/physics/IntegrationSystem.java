@@ -0,0 +1,44 @@
+package engine.physics;
+
+import engine.game.state.ComponentType;
+import engine.game.state.EntityChunk;
+import engine.game.state.EntityQuery;
+import engine.game.state.EntitySystem;
+import engine.game.state.EntityWorld;
+
+/**
+ * Moves every entity with a position and a velocity by velocity * interval. Hit boxes are stored relative to the 
+ * position, so they follow along for free.
+ * 
+ * @author cypress980
+ *
+ */
+public class IntegrationSystem implements EntitySystem {
+
+    private EntityQuery query;
+
+    private EntityWorld queryWorld;
+
+    private float interval;
+
+    private final EntityQuery.ChunkVisitor integrate = this::integrate;
+
+    @Override
+    public void update(EntityWorld world, float interval) {
+	if (queryWorld != world) {
+	    query = world.query(ComponentType.POSITION, ComponentType.VELOCITY);
+	    queryWorld = world;
+	}
+	this.interval = interval;
+	query.forEach(integrate);
+    }
+
+    private void integrate(EntityChunk chunk) {
+	float[] positions = chunk.getFloats(ComponentType.POSITION);
+	float[] velocities = chunk.getFloats(ComponentType.VELOCITY);
+	int end = chunk.size() * 3;
+	for (int i = 0; i < end; i++) {
+	    positions[i] += velocities[i] * interval;
+	}
+    }
+}
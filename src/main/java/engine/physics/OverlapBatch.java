@@ -0,0 +1,116 @@
+package engine.physics;
+
+import java.util.Arrays;
+
+/**
+ * A batch of box and point queries to run against the physics world together, e.g. area of effect checks or
+ * finding the body under the mouse.
+ *
+ * Add the queries, run the batch with PhysicsEngine.queryOverlaps, then read each query's bodies by the index
+ * add returned. Each query finds at most maxResults bodies, in no particular order. The batch can be cleared
+ * and reused, so querying every frame allocates nothing once it has grown.
+ *
+ * @author cypress980
+ *
+ */
+public class OverlapBatch implements PhysicsEngine.QueryBatch {
+
+    private final int maxResults;
+
+    private int size;
+    private float[] boxes; // minX, minY, maxX, maxY per query
+    private int[] masks;
+
+    private int[] resultCounts;
+    private RigidBody[] results;
+
+    /**
+     * @param maxResults most bodies any one query finds
+     */
+    public OverlapBatch(int capacity, int maxResults) {
+	if (maxResults < 1) {
+	    throw new IllegalArgumentException("Queries must be able to find a body, max results was " + maxResults);
+	}
+	this.maxResults = maxResults;
+	boxes = new float[capacity * 4];
+	masks = new int[capacity];
+	resultCounts = new int[capacity];
+	results = new RigidBody[capacity * maxResults];
+    }
+
+    /**
+     * Find the bodies whose hit boxes overlap a box, edges included
+     *
+     * @return index of the query
+     */
+    public int addBox(float minX, float minY, float maxX, float maxY) {
+	return addBox(minX, minY, maxX, maxY, RigidBody.ALL_CATEGORIES);
+    }
+
+    /**
+     * @param mask categories of body to find
+     * @return index of the query
+     */
+    public int addBox(float minX, float minY, float maxX, float maxY, int mask) {
+	if (size == masks.length) {
+	    grow();
+	}
+	int query = size++;
+	boxes[query * 4] = Math.min(minX, maxX);
+	boxes[query * 4 + 1] = Math.min(minY, maxY);
+	boxes[query * 4 + 2] = Math.max(minX, maxX);
+	boxes[query * 4 + 3] = Math.max(minY, maxY);
+	masks[query] = mask;
+	return query;
+    }
+
+    /**
+     * Find the bodies whose hit boxes contain a point
+     *
+     * @return index of the query
+     */
+    public int addPoint(float x, float y) {
+	return addBox(x, y, x, y, RigidBody.ALL_CATEGORIES);
+    }
+
+    public int addPoint(float x, float y, int mask) {
+	return addBox(x, y, x, y, mask);
+    }
+
+    private void grow() {
+	int capacity = Math.max(16, masks.length * 2);
+	boxes = Arrays.copyOf(boxes, capacity * 4);
+	masks = Arrays.copyOf(masks, capacity);
+	resultCounts = Arrays.copyOf(resultCounts, capacity);
+	results = Arrays.copyOf(results, capacity * maxResults);
+    }
+
+    public void clear() {
+	Arrays.fill(results, 0, size * maxResults, null);
+	size = 0;
+    }
+
+    @Override
+    public int size() {
+	return size;
+    }
+
+    @Override
+    public void run(QueryGrid grid, StaticCollisionLayer staticColliders, int start, int end) {
+	for (int query = start; query < end; query++) {
+	    resultCounts[query] = grid.queryBox(boxes[query * 4], boxes[query * 4 + 1],
+		    boxes[query * 4 + 2], boxes[query * 4 + 3], masks[query], results, query * maxResults, maxResults);
+	}
+    }
+
+    public int getResultCount(int query) {
+	return resultCounts[query];
+    }
+
+    /**
+     * @param result between 0 and getResultCount(query)
+     */
+    public RigidBody getResult(int query, int result) {
+	return results[query * maxResults + result];
+    }
+}
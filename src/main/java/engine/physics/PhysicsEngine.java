@@ -1,15 +1,30 @@
 package engine.physics;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.joml.Vector3f;
 
 import engine.EngineComponent;
+import engine.game.state.EntitySystem;
+import engine.game.state.EntityWorld;
 
 /**
  * The physics engine tests for physical interactions between items in the world, 
  * and notifies listeners of those interactions
  * 
+ * Bodies that stay slower than the sleep threshold for long enough fall asleep, and are skipped until something 
+ * hits or moves them. Bodies touching each other form an island, which only sleeps once all of its bodies are 
+ * at rest, and wakes all together.
+ * 
  * @author cypress980
  *
  */
@@ -19,14 +34,118 @@ public class PhysicsEngine implements EngineComponent {
     private final Map<RigidBody, Listener> listeners;
     private List<Pair<RigidBody>> possibleInteractions;
     private float updateIntervalHint;
+    private EntityWorld entityWorld;
+    private final List<EntitySystem> systems;
+    private final Vector3f impactNormal = new Vector3f();
+    private final ContactManager contacts = new ContactManager();
+    private final Map<ContactListener, ContactEvents> contactEvents = new IdentityHashMap<>();
+    private StaticCollisionLayer staticColliders;
+    private int staticCategory = RigidBody.DEFAULT_CATEGORY;
+    private ContactSolver contactSolver;
+    private final Vector3f staticPush = new Vector3f();
     
+    public static final float DEFAULT_SLEEP_VELOCITY = 1f; // px per second
+    public static final int DEFAULT_TICKS_TO_SLEEP = 60;
+    public static final float DEFAULT_CONTACT_MARGIN = 0.5f; // px
+
+    private float sleepVelocity = DEFAULT_SLEEP_VELOCITY;
+    private int ticksToSleep = DEFAULT_TICKS_TO_SLEEP;
+    private float contactMargin = DEFAULT_CONTACT_MARGIN;
+
+    // Indexed by RigidBody.physicsId. Islands are rebuilt each tick as a union find over touching pairs.
+    private final List<RigidBody> bodies;
+    private int[] islandParents = new int[16];
+    private int[] islandRestTicks = new int[16];
+    private List<RigidBody>[] islandMembers = newIslandMembers(16);
+
+    public static final float DEFAULT_QUERY_CELL_SIZE = 64f;
+    // Queries smaller than this run on the calling thread, handing them out would cost more than it saves
+    private static final int MIN_PARALLEL_QUERIES = 64;
+
+    // Rebuilt on the first query after the bodies have moved
+    private final QueryGrid queryGrid = new QueryGrid(DEFAULT_QUERY_CELL_SIZE);
+    private boolean queryGridStale = true;
+    private int queryParallelism = 1;
+    private ExecutorService queryExecutor;
+
     public PhysicsEngine(float updateIntervalHint) {
 	this.updateIntervalHint = updateIntervalHint;
-	listeners = new HashMap<>();
+	listeners = new LinkedHashMap<>(); // Bodies update in the order they were registered, so replays line up
+	systems = new ArrayList<>();
+	bodies = new ArrayList<>();
+    }
+    
+    /**
+     * Entities in this world are simulated by the systems added to this engine, alongside the rigid bodies
+     */
+    public void setEntityWorld(EntityWorld entityWorld) {
+	this.entityWorld = entityWorld;
+    }
+    
+    public void addSystem(EntitySystem system) {
+	systems.add(system);
     }
     
     public void registerListener(PhysicsEngine.Listener listener, RigidBody body) {
 	listeners.put(body, listener);
+	body.listener = listener;
+	if (body.physicsId < 0) {
+	    body.physicsId = bodies.size();
+	    bodies.add(body);
+	    queryGridStale = true;
+	}
+    }
+
+    /**
+     * Tell a listener when the body starts and stops touching other bodies. Each tick, the listener gets all 
+     * of its events in one call.
+     * 
+     * @param events the events it wants, any of ContactEvents.BEGIN, PERSIST and END or'd together
+     */
+    public void registerContactListener(ContactListener listener, RigidBody body, int events) {
+	if (!listeners.containsKey(body)) {
+	    throw new IllegalArgumentException("Register the body with registerListener first");
+	}
+	body.contactEvents = contactEvents.computeIfAbsent(listener, ContactEvents::new);
+	body.contactEventMask = events;
+    }
+
+    /**
+     * @return the number of touching pairs being tracked for contact listeners
+     */
+    public int getContactCount() {
+	return contacts.getContactCount();
+    }
+
+    /**
+     * @return the registered bodies, indexed by their physics id
+     */
+    List<RigidBody> getBodies() {
+	return bodies;
+    }
+
+    /**
+     * @param sleepVelocity bodies slower than this, in px per second, are at rest
+     */
+    public void setSleepVelocity(float sleepVelocity) {
+	this.sleepVelocity = sleepVelocity;
+    }
+
+    /**
+     * @param ticksToSleep ticks an island must be at rest before it sleeps, or 0 to never sleep
+     */
+    public void setTicksToSleep(int ticksToSleep) {
+	if (ticksToSleep < 0) {
+	    throw new IllegalArgumentException("Ticks to sleep can't be negative, was " + ticksToSleep);
+	}
+	this.ticksToSleep = ticksToSleep;
+    }
+
+    /**
+     * @param contactMargin bodies closer than this are in the same island
+     */
+    public void setContactMargin(float contactMargin) {
+	this.contactMargin = contactMargin;
     }
     
     /**
@@ -38,27 +157,315 @@ public class PhysicsEngine implements EngineComponent {
     public void simulatePhysics(float interval) throws Exception {
 	
 	for (Pair<RigidBody> pair : possibleInteractions) {
+	    // Filters first, most pairs are ruled out here
+	    if (!pair.a.canInteract(pair.b) || pair.a.isSleeping() && pair.b.isSleeping()) {
+		continue;
+	    }
+	    if (pair.a.isSensor() || pair.b.isSensor()) {
+		if (pair.a.getHitBox().isCollision(pair.b.getHitBox())) {
+		    getListener(pair.a).notifyOfOverlap(pair.a, pair.b);
+		    getListener(pair.b).notifyOfOverlap(pair.b, pair.a);
+		    contacts.touch(pair.a, pair.b);
+		}
+		continue;
+	    }
+	    if (ticksToSleep > 0 && pair.a.getHitBox().isTouching(pair.b.getHitBox(), contactMargin)) {
+		joinIslands(pair.a.physicsId, pair.b.physicsId);
+	    }
+	    if (contactSolver != null) {
+		if (contactSolver.addContact(pair.a, pair.b)) {
+		    contacts.touch(pair.a, pair.b);
+		}
+		continue;
+	    }
 	    CollisionEvent collision = pair.a.getCollision(pair.b);
 	    if (!collision.equals(CollisionEvent.NONE)) {
+		notifyOfCollision(collision);
+		contacts.touch(pair.a, pair.b);
+	    }
+	}
 
-		//Notify of each interaction
-		//This could probably be made more efficient by multithreading, but for now, we'll just 
-		//pump out messages as we test on a single thread;
-		Listener l1 = listeners.getOrDefault(collision.getMessageA().getBody(), DEFAULT_LISTENER);
-		Listener l2 = listeners.getOrDefault(collision.getMessageB().getBody(), DEFAULT_LISTENER);
-		
-		l1.notifyOfCollision(collision.getMessageA());
-		l2.notifyOfCollision(collision.getMessageB());
+	if (contactSolver != null) {
+	    contactSolver.solve();
+	    for (int i = 0; i < contactSolver.getContactCount(); i++) {
+		notifyOfCollision(contactSolver.getCollision(i));
 	    }
+	    contactSolver.clear();
+	}
+	
+	if (staticColliders != null) {
+	    simulateStaticCollisions();
 	}
     }
+
+    private void notifyOfCollision(CollisionEvent collision) {
+	//Notify of each interaction
+	//This could probably be made more efficient by multithreading, but for now, we'll just 
+	//pump out messages as we test on a single thread;
+	getListener(collision.getMessageA().getBody()).notifyOfCollision(collision.getMessageA());
+	getListener(collision.getMessageB().getBody()).notifyOfCollision(collision.getMessageB());
+    }
+	
+    // Kept on the body, so notifying doesn't need a map lookup per collision
+    private static Listener getListener(RigidBody body) {
+	return body.listener == null ? DEFAULT_LISTENER : body.listener;
+    }
+
+    /**
+     * Test the awake bodies against the static layer. Static geometry never moves, so it's never tested against 
+     * itself.
+     */
+    private void simulateStaticCollisions() {
+	for (Map.Entry<RigidBody, Listener> entry : listeners.entrySet()) {
+	    RigidBody body = entry.getKey();
+	    if ((body.getCollisionMask() & staticCategory) == 0 || body.isSensor() || !body.isActive()) {
+		continue;
+	    }
+	    if (!body.isSleeping() && staticColliders.getContact(body.getHitBox(), staticPush)) {
+		entry.getValue().notifyOfCollision(body.getStaticCollision(staticPush));
+	    }
+	}
+    }
+
+    /**
+     * @param staticColliders walls and solid terrain the bodies bounce off, or null for none
+     */
+    public void setStaticColliders(StaticCollisionLayer staticColliders) {
+	this.staticColliders = staticColliders;
+    }
+
+    public StaticCollisionLayer getStaticColliders() {
+	return staticColliders;
+    }
+
+    /**
+     * @param staticCategory category of the static layer, only bodies with it in their mask collide with the layer
+     */
+    public void setStaticCategory(int staticCategory) {
+	this.staticCategory = staticCategory;
+    }
+
+    /**
+     * @param contactSolver solves all of a tick's contacts together, or null to bounce each pair elastically on 
+     * its own
+     */
+    public void setContactSolver(ContactSolver contactSolver) {
+	this.contactSolver = contactSolver;
+    }
+
+    public ContactSolver getContactSolver() {
+	return contactSolver;
+    }
+    
+    /**
+     * Bounce pairs with a continuous collision body off each other at their time of impact within the step
+     */
+    private void resolveContinuousCollisions(float interval) {
+	if (possibleInteractions == null) {
+	    return;
+	}
+	for (Pair<RigidBody> pair : possibleInteractions) {
+	    if (!pair.a.isContinuousCollision() && !pair.b.isContinuousCollision()) {
+		continue;
+	    }
+	    if (!pair.a.canInteract(pair.b) || pair.a.isSensor() || pair.b.isSensor()) {
+		continue;
+	    }
+	    if (pair.a.isSleeping() && pair.b.isSleeping()) {
+		continue;
+	    }
+	    float timeOfImpact = pair.a.getTimeOfImpact(pair.b, interval, impactNormal);
+	    if (timeOfImpact < 1) {
+		pair.a.resolveImpact(pair.b, timeOfImpact, interval, impactNormal);
+	    }
+	}
+    }
+
+    private void resetIslands() {
+	int count = bodies.size();
+	if (islandParents.length < count) {
+	    int capacity = Math.max(count, islandParents.length * 2);
+	    islandParents = new int[capacity];
+	    islandRestTicks = new int[capacity];
+	    islandMembers = newIslandMembers(capacity);
+	}
+	for (int i = 0; i < count; i++) {
+	    islandParents[i] = i;
+	}
+    }
+
+    private int findIsland(int id) {
+	while (islandParents[id] != id) {
+	    islandParents[id] = islandParents[islandParents[id]]; // Path halving
+	    id = islandParents[id];
+	}
+	return id;
+    }
+
+    private void joinIslands(int a, int b) {
+	if (a < 0 || b < 0) {
+	    return; // Bodies with no listener aren't updated by this engine, so they never sleep
+	}
+	islandParents[findIsland(a)] = findIsland(b);
+    }
+
+    /**
+     * Put every island whose awake bodies have all been at rest for long enough to sleep. An island's sleeping 
+     * bodies join the new island, so waking any of them later wakes the lot.
+     */
+    private void sleepIslands() {
+	if (ticksToSleep == 0) {
+	    return;
+	}
+	int count = bodies.size();
+	for (int i = 0; i < count; i++) {
+	    islandRestTicks[i] = Integer.MAX_VALUE;
+	}
+	for (int i = 0; i < count; i++) {
+	    RigidBody body = bodies.get(i);
+	    if (body.isActive() && !body.isSleeping()) {
+		int island = findIsland(i);
+		islandRestTicks[island] = Math.min(islandRestTicks[island], body.updateRest(sleepVelocity));
+	    }
+	}
+	for (int i = 0; i < count; i++) {
+	    int island = findIsland(i);
+	    int restTicks = islandRestTicks[island];
+	    if (restTicks >= ticksToSleep && restTicks != Integer.MAX_VALUE) {
+		if (islandMembers[island] == null) {
+		    islandMembers[island] = new ArrayList<>();
+		}
+		islandMembers[island].add(bodies.get(i));
+	    }
+	}
+	for (int i = 0; i < count; i++) {
+	    List<RigidBody> members = islandMembers[i];
+	    if (members != null) {
+		for (RigidBody member : members) {
+		    member.sleep(members);
+		}
+		islandMembers[i] = null;
+	    }
+	}
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static List<RigidBody>[] newIslandMembers(int capacity) {
+	return new List[capacity];
+    }
     
     public void setPossibleInteractions(List<Pair<RigidBody>> possibleInteractions) {
 	this.possibleInteractions = possibleInteractions;
     }
     
+    /**
+     * Cast every ray in the batch against the registered bodies and the static layer
+     */
+    public void raycast(RaycastBatch rays) throws Exception {
+	runQueries(rays);
+    }
+
+    /**
+     * Find the registered bodies overlapping every box and point in the batch
+     */
+    public void queryOverlaps(OverlapBatch queries) throws Exception {
+	runQueries(queries);
+    }
+
+    private void runQueries(QueryBatch batch) throws Exception {
+	if (queryGridStale) {
+	    queryGrid.rebuild(bodies);
+	    queryGridStale = false;
+	}
+	
+	int size = batch.size();
+	if (queryExecutor == null || size < MIN_PARALLEL_QUERIES * 2) {
+	    batch.run(queryGrid, staticColliders, 0, size);
+	    return;
+	}
+	
+	// Contiguous slices, so each thread writes its own part of the results
+	int slices = Math.min(queryParallelism, size / MIN_PARALLEL_QUERIES);
+	List<Callable<Void>> tasks = new ArrayList<>(slices);
+	for (int slice = 0; slice < slices; slice++) {
+	    int start = (int) ((long) size * slice / slices);
+	    int end = (int) ((long) size * (slice + 1) / slices);
+	    tasks.add(() -> {
+		batch.run(queryGrid, staticColliders, start, end);
+		return null;
+	    });
+	}
+	for (Future<Void> task : queryExecutor.invokeAll(tasks)) {
+	    task.get(); // Rethrow anything a query threw
+	}
+    }
+
+    /**
+     * @param cellSize about the size of the most common body. Much smaller enters bodies in too many cells, 
+     * much larger checks too many bodies per cell.
+     */
+    public void setQueryCellSize(float cellSize) {
+	queryGrid.setCellSize(cellSize);
+	queryGridStale = true;
+    }
+
+    /**
+     * @param threads number of threads large query batches are split across. 1 runs them on the calling thread.
+     */
+    public void setQueryParallelism(int threads) {
+	if (threads < 1) {
+	    throw new IllegalArgumentException("Parallelism must be at least 1, was " + threads);
+	}
+	shutdown();
+	queryParallelism = threads;
+	if (threads > 1) {
+	    AtomicInteger threadCount = new AtomicInteger();
+	    queryExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+		Thread thread = new Thread(runnable, "PHYSICS_QUERY_THREAD_" + threadCount.getAndIncrement());
+		thread.setDaemon(true);
+		return thread;
+	    });
+	}
+    }
+
+    /**
+     * Stop the query threads, if any
+     */
+    public void shutdown() {
+	if (queryExecutor != null) {
+	    queryExecutor.shutdown();
+	    queryExecutor = null;
+	}
+    }
+
+    /**
+     * Queries that can be run against the world in slices, from any number of threads at once
+     */
+    static interface QueryBatch {
+	int size();
+	
+	void run(QueryGrid grid, StaticCollisionLayer staticColliders, int start, int end);
+    }
+
+    public static interface ContactListener {
+	/**
+	 * @param events this listener's contact events for the tick
+	 */
+	void notifyOfContacts(ContactEvents events);
+    }
+
     public static interface Listener {
 	void notifyOfCollision(ElasticCollisionMessage message);
+	
+	/**
+	 * A body overlapped a sensor, or a sensor overlapped something. Called every tick they overlap.
+	 * 
+	 * @param body the body this listener was registered for
+	 * @param other the body overlapping it
+	 */
+	default void notifyOfOverlap(RigidBody body, RigidBody other) {
+	    return; //Do Nothing
+	}
     }
     
     static class DummyListener implements Listener{
@@ -80,12 +487,27 @@ public class PhysicsEngine implements EngineComponent {
 
     @Override
     public void update(float interval) throws Exception{
+	// Sweep fast bodies before anything moves, so they can't pass through each other within the step
+	resolveContinuousCollisions(interval);
 	// Update bodies
 	for (RigidBody body : listeners.keySet()) {
-	    body.updatePhysics(interval);
+	    if (body.isActive() && !body.isSleeping()) {
+		body.updatePhysics(interval);
+	    }
+	}
+	// Update entities
+	if (entityWorld != null) {
+	    for (EntitySystem system : systems) {
+		system.update(entityWorld, interval);
+	    }
 	}
 	// Test for physical interactions
+	resetIslands();
+	contacts.beginTick();
 	this.simulatePhysics(interval);
+	contacts.endTick();
+	sleepIslands();
+	queryGridStale = true;
     }
 
     @Override
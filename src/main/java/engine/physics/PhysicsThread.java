@@ -0,0 +1,265 @@
+package engine.physics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.joml.Vector3f;
+
+import engine.EngineComponent;
+import engine.FramePacer;
+import engine.GameTimer;
+import engine.TripleBuffer;
+
+/**
+ * Steps a physics engine at a fixed rate on its own thread, so a slow physics step doesn't hold up rendering or
+ * input, and a slow frame doesn't hold up physics.
+ *
+ * Once started, only the physics thread touches the engine and its bodies. The game thread steers bodies through
+ * the BodyControls from getControl, which queue their changes for the physics thread to apply before its next
+ * step. After each step the physics thread publishes every body's transform through a triple buffer. Added to the
+ * game engine in place of the physics engine, this picks up the latest transforms once per update, so game code
+ * reads a consistent set for the whole tick.
+ *
+ * @author cypress980
+ *
+ */
+public class PhysicsThread implements EngineComponent {
+    private static final Logger logger = LogManager.getLogger(PhysicsThread.class.getName());
+
+    // Steps to catch up at most after a stall, further behind than this and physics slows down instead
+    private static final int MAX_CATCH_UP_STEPS = 5;
+
+    private final PhysicsEngine physics;
+    private final float stepInterval;
+    private final BodyCommandQueue commands;
+    private final TripleBuffer<BodyTransforms> published = new TripleBuffer<>(BodyTransforms::new);
+    private final Vector3f scratch = new Vector3f();
+
+    private Thread thread;
+    private volatile boolean running;
+    private volatile Exception failure;
+    private long step;
+    private long appliedCommands;
+
+    // Game thread's view, replaced on update
+    private BodyTransforms transforms;
+
+    /**
+     * @param stepInterval seconds of simulation per step, and how often steps are taken
+     * @param commandCapacity most body changes the game thread can queue between steps
+     */
+    public PhysicsThread(PhysicsEngine physics, float stepInterval, int commandCapacity) {
+	if (stepInterval <= 0) {
+	    throw new IllegalArgumentException("Step interval must be positive, was " + stepInterval);
+	}
+	this.physics = physics;
+	this.stepInterval = stepInterval;
+	this.commands = new BodyCommandQueue(commandCapacity);
+    }
+
+    /**
+     * Start stepping. Register every body with the physics engine first.
+     */
+    public void start() {
+	if (thread != null) {
+	    throw new IllegalStateException("Physics thread already started");
+	}
+	// Publish where everything starts, so the game thread has transforms to read before the first step
+	publish();
+	update(0);
+
+	running = true;
+	thread = new Thread(this::stepLoop, "PHYSICS_THREAD");
+	thread.setDaemon(true);
+	thread.start();
+    }
+
+    /**
+     * Stop stepping and wait for the step in progress to finish
+     */
+    public void stop() throws InterruptedException {
+	running = false;
+	if (thread != null) {
+	    thread.join();
+	    thread = null;
+	}
+    }
+
+    private void stepLoop() {
+	FramePacer pacer = new FramePacer(1 / stepInterval);
+	GameTimer timer = new GameTimer();
+	timer.init();
+	float accumulator = 0;
+	try {
+	    while (running) {
+		accumulator = Math.min(accumulator + timer.getElapsedTime(), stepInterval * MAX_CATCH_UP_STEPS);
+		if (accumulator >= stepInterval) {
+		    while (accumulator >= stepInterval) {
+			appliedCommands = commands.drain(this::apply);
+			physics.update(stepInterval);
+			step++;
+			accumulator -= stepInterval;
+		    }
+		    publish();
+		}
+		pacer.waitForNextFrame();
+	    }
+	} catch (Exception ex) {
+	    logger.error("Physics stopped", ex);
+	    failure = ex;
+	} finally {
+	    running = false;
+	}
+    }
+
+    private void apply(int type, RigidBody body, float x, float y) {
+	switch (type) {
+	case BodyCommandQueue.SET_VELOCITY:
+	    body.setVelocity(scratch.set(x, y, 0));
+	    break;
+	case BodyCommandQueue.MOVE:
+	    body.move(scratch.set(x, y, 0));
+	    break;
+	case BodyCommandQueue.SET_POSITION:
+	    body.setPosition(scratch.set(x, y, 0));
+	    break;
+	default:
+	    throw new IllegalStateException("Unknown body command " + type);
+	}
+    }
+
+    private void publish() {
+	BodyTransforms back = published.getBack();
+	back.capture(physics.getBodies(), step, appliedCommands, scratch);
+	published.publish();
+    }
+
+    /**
+     * Pick up the transforms from the latest step, for the game thread to read until the next update
+     */
+    @Override
+    public void update(float interval) {
+	if (failure != null) {
+	    throw new IllegalStateException("Physics thread failed", failure);
+	}
+	if (published.swap() || transforms == null) {
+	    transforms = published.getFront();
+	}
+    }
+
+    @Override
+    public float getUpdateInterval() {
+	return stepInterval;
+    }
+
+    /**
+     * Steps are timed by the physics thread's own clock, not by the updates, so they can't be replayed
+     */
+    @Override
+    public boolean isReplayable() {
+	return false;
+    }
+
+    /**
+     * @return the transforms picked up by the last update
+     */
+    public BodyTransforms getTransforms() {
+	return transforms;
+    }
+
+    public BodyCommandQueue getCommands() {
+	return commands;
+    }
+
+    /**
+     * Steer a body from the game thread. The control reads the body from the latest transforms, with the changes
+     * it has queued since added on top, so game code sees its own changes straight away.
+     */
+    public BodyControl getControl(RigidBody body) {
+	if (body.physicsId < 0) {
+	    throw new IllegalArgumentException("Register the body with the physics engine first");
+	}
+	return new QueuedBodyControl(body);
+    }
+
+    private class QueuedBodyControl implements BodyControl {
+	private static final int MAX_PENDING_MOVES = 32;
+
+	private final RigidBody body;
+	private final int id;
+
+	private long velocityCommand = -1;
+	private float velocityX;
+	private float velocityY;
+
+	// Moves queued but not yet applied when the transforms were captured, oldest first
+	private final long[] moveCommands = new long[MAX_PENDING_MOVES];
+	private final float[] moveXs = new float[MAX_PENDING_MOVES];
+	private final float[] moveYs = new float[MAX_PENDING_MOVES];
+	private int firstMove;
+	private int moveCount;
+
+	QueuedBodyControl(RigidBody body) {
+	    this.body = body;
+	    this.id = body.physicsId;
+	}
+
+	@Override
+	public Vector3f getPosition(Vector3f dest) {
+	    transforms.getPosition(id, dest);
+	    long applied = transforms.getAppliedCommands();
+	    while (moveCount > 0 && moveCommands[firstMove] < applied) {
+		firstMove = (firstMove + 1) % MAX_PENDING_MOVES;
+		moveCount--;
+	    }
+	    for (int i = 0; i < moveCount; i++) {
+		int move = (firstMove + i) % MAX_PENDING_MOVES;
+		dest.x += moveXs[move];
+		dest.y += moveYs[move];
+	    }
+	    return dest;
+	}
+
+	@Override
+	public Vector3f getVelocity(Vector3f dest) {
+	    if (velocityCommand >= transforms.getAppliedCommands()) {
+		return dest.set(velocityX, velocityY, 0);
+	    }
+	    return transforms.getVelocity(id, dest);
+	}
+
+	@Override
+	public boolean isSliding() {
+	    return transforms.isSliding(id);
+	}
+
+	@Override
+	public void setVelocity(Vector3f velocity) {
+	    long command = commands.offer(BodyCommandQueue.SET_VELOCITY, body, velocity.x, velocity.y);
+	    if (command >= 0) {
+		velocityCommand = command;
+		velocityX = velocity.x;
+		velocityY = velocity.y;
+	    }
+	}
+
+	@Override
+	public void move(Vector3f ds) {
+	    if (ds.x == 0 && ds.y == 0) {
+		return;
+	    }
+	    long command = commands.offer(BodyCommandQueue.MOVE, body, ds.x, ds.y);
+	    if (command < 0) {
+		return;
+	    }
+	    if (moveCount == MAX_PENDING_MOVES) {
+		// Physics has fallen far behind, forget the oldest so the newest still shows
+		firstMove = (firstMove + 1) % MAX_PENDING_MOVES;
+		moveCount--;
+	    }
+	    int move = (firstMove + moveCount++) % MAX_PENDING_MOVES;
+	    moveCommands[move] = command;
+	    moveXs[move] = ds.x;
+	    moveYs[move] = ds.y;
+	}
+    }
+}
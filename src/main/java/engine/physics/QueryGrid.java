@@ -0,0 +1,248 @@
+package engine.physics;
+
+import java.util.List;
+
+/**
+ * Uniform grid over the hit boxes of a physics engine's bodies, for answering queries about the world.
+ *
+ * A body is entered in every cell its hit box covers. Cells are hashed into buckets, and the entries are sorted
+ * by bucket with a counting sort, so a rebuild is linear and allocates nothing once the arrays have grown. After
+ * a rebuild the grid is only read, so any number of threads can query it at once.
+ *
+ * @author cypress980
+ *
+ */
+class QueryGrid {
+
+    private float cellSize;
+
+    private int bodyCount;
+    private RigidBody[] bodies = new RigidBody[0];
+    private float[] minXs = new float[0];
+    private float[] minYs = new float[0];
+    private float[] maxXs = new float[0];
+    private float[] maxYs = new float[0];
+    private int[] categories = new int[0];
+
+    // Entries sorted by bucket - bucket b holds entries[bucketStarts[b]] up to entries[bucketStarts[b + 1]]
+    private int bucketMask;
+    private int[] bucketStarts = new int[1];
+    private int[] entries = new int[0];
+    // Cell of each entry, since several cells share a bucket
+    private int[] entryCellXs = new int[0];
+    private int[] entryCellYs = new int[0];
+
+    QueryGrid(float cellSize) {
+	setCellSize(cellSize);
+    }
+
+    void setCellSize(float cellSize) {
+	if (cellSize <= 0) {
+	    throw new IllegalArgumentException("Cell size must be positive, was " + cellSize);
+	}
+	this.cellSize = cellSize;
+    }
+
+    /**
+     * Re-index the bodies where their hit boxes are now. Must not run while anything is querying.
+     */
+    void rebuild(List<RigidBody> source) {
+	bodyCount = source.size();
+	if (bodies.length < bodyCount) {
+	    int capacity = Math.max(bodyCount, bodies.length * 2);
+	    bodies = new RigidBody[capacity];
+	    minXs = new float[capacity];
+	    minYs = new float[capacity];
+	    maxXs = new float[capacity];
+	    maxYs = new float[capacity];
+	    categories = new int[capacity];
+	}
+
+	int entryCount = 0;
+	for (int i = 0; i < bodyCount; i++) {
+	    RigidBody body = source.get(i);
+	    HitBox hitBox = body.getHitBox();
+	    bodies[i] = body;
+	    minXs[i] = hitBox.getMinX();
+	    minYs[i] = hitBox.getMinY();
+	    maxXs[i] = hitBox.getMaxX();
+	    maxYs[i] = hitBox.getMaxY();
+	    categories[i] = body.isActive() ? body.getCollisionCategory() : 0; // No mask matches an inactive body
+	    entryCount += (toCell(maxXs[i]) - toCell(minXs[i]) + 1) * (toCell(maxYs[i]) - toCell(minYs[i]) + 1);
+	}
+	for (int i = bodyCount; i < bodies.length && bodies[i] != null; i++) {
+	    bodies[i] = null; // Don't hold on to removed bodies
+	}
+	if (entries.length < entryCount) {
+	    int capacity = Math.max(entryCount, entries.length * 2);
+	    entries = new int[capacity];
+	    entryCellXs = new int[capacity];
+	    entryCellYs = new int[capacity];
+	}
+
+	int bucketCount = Integer.highestOneBit(Math.max(16, entryCount * 2) - 1) << 1;
+	if (bucketStarts.length != bucketCount + 1) {
+	    bucketStarts = new int[bucketCount + 1];
+	}
+	bucketMask = bucketCount - 1;
+	for (int b = 0; b <= bucketCount; b++) {
+	    bucketStarts[b] = 0;
+	}
+
+	for (int i = 0; i < bodyCount; i++) {
+	    int maxCellX = toCell(maxXs[i]);
+	    int maxCellY = toCell(maxYs[i]);
+	    for (int cellY = toCell(minYs[i]); cellY <= maxCellY; cellY++) {
+		for (int cellX = toCell(minXs[i]); cellX <= maxCellX; cellX++) {
+		    bucketStarts[bucketOf(cellX, cellY) + 1]++;
+		}
+	    }
+	}
+	for (int b = 0; b < bucketCount; b++) {
+	    bucketStarts[b + 1] += bucketStarts[b];
+	}
+	for (int i = 0; i < bodyCount; i++) {
+	    int maxCellX = toCell(maxXs[i]);
+	    int maxCellY = toCell(maxYs[i]);
+	    for (int cellY = toCell(minYs[i]); cellY <= maxCellY; cellY++) {
+		for (int cellX = toCell(minXs[i]); cellX <= maxCellX; cellX++) {
+		    int entry = bucketStarts[bucketOf(cellX, cellY)]++;
+		    entries[entry] = i;
+		    entryCellXs[entry] = cellX;
+		    entryCellYs[entry] = cellY;
+		}
+	    }
+	}
+	// Placing the entries moved every start to the next bucket's start, shift them back
+	for (int b = bucketCount; b > 0; b--) {
+	    bucketStarts[b] = bucketStarts[b - 1];
+	}
+	bucketStarts[0] = 0;
+    }
+
+    /**
+     * Find the bodies whose hit boxes overlap a box, edges included, so a point is a box with no size.
+     *
+     * @param results filled from offset with the bodies found, at most max of them
+     * @return the number of bodies found
+     */
+    int queryBox(float minX, float minY, float maxX, float maxY, int mask, RigidBody[] results, int offset,
+	    int max) {
+	int found = 0;
+	int maxCellX = toCell(maxX);
+	int maxCellY = toCell(maxY);
+	for (int cellY = toCell(minY); cellY <= maxCellY; cellY++) {
+	    for (int cellX = toCell(minX); cellX <= maxCellX; cellX++) {
+		int bucket = bucketOf(cellX, cellY);
+		for (int e = bucketStarts[bucket]; e < bucketStarts[bucket + 1]; e++) {
+		    int body = entries[e];
+		    if (entryCellXs[e] != cellX || entryCellYs[e] != cellY || (categories[body] & mask) == 0
+			    || minXs[body] > maxX || maxXs[body] < minX || minYs[body] > maxY || maxYs[body] < minY) {
+			continue;
+		    }
+		    // A body spanning several cells is only reported from the cell holding the top left corner of
+		    // its overlap with the box
+		    if (toCell(Math.max(minX, minXs[body])) != cellX || toCell(Math.max(minY, minYs[body])) != cellY) {
+			continue;
+		    }
+		    if (found == max) {
+			return found;
+		    }
+		    results[offset + found++] = bodies[body];
+		}
+	    }
+	}
+	return found;
+    }
+
+    /**
+     * Walk the cells along a ray, nearest first, stopping once a hit is closer than the next cell.
+     *
+     * @param dirX direction of the ray, normalized
+     * @param hit set to the body hit at index 0, or null
+     * @return distance to the nearest body hit, or maxDistance if there is none
+     */
+    float raycast(float originX, float originY, float dirX, float dirY, float maxDistance, int mask,
+	    RigidBody ignore, RigidBody[] hit) {
+	hit[0] = null;
+	float nearest = maxDistance;
+
+	int cellX = toCell(originX);
+	int cellY = toCell(originY);
+	int stepX = dirX > 0 ? 1 : -1;
+	int stepY = dirY > 0 ? 1 : -1;
+	float deltaX = dirX == 0 ? Float.POSITIVE_INFINITY : Math.abs(cellSize / dirX);
+	float deltaY = dirY == 0 ? Float.POSITIVE_INFINITY : Math.abs(cellSize / dirY);
+	float nextX = dirX == 0 ? Float.POSITIVE_INFINITY
+		: ((dirX > 0 ? cellX + 1 : cellX) * cellSize - originX) / dirX;
+	float nextY = dirY == 0 ? Float.POSITIVE_INFINITY
+		: ((dirY > 0 ? cellY + 1 : cellY) * cellSize - originY) / dirY;
+
+	while (true) {
+	    int bucket = bucketOf(cellX, cellY);
+	    for (int e = bucketStarts[bucket]; e < bucketStarts[bucket + 1]; e++) {
+		int body = entries[e];
+		if (entryCellXs[e] != cellX || entryCellYs[e] != cellY 
+			|| (categories[body] & mask) == 0 || bodies[body] == ignore) {
+		    continue;
+		}
+		float distance = intersect(body, originX, originY, dirX, dirY);
+		if (distance < nearest) {
+		    nearest = distance;
+		    hit[0] = bodies[body];
+		}
+	    }
+
+	    float cellExit = Math.min(nextX, nextY);
+	    if (cellExit >= nearest) {
+		return nearest;
+	    }
+	    if (nextX < nextY) {
+		cellX += stepX;
+		nextX += deltaX;
+	    } else {
+		cellY += stepY;
+		nextY += deltaY;
+	    }
+	}
+    }
+
+    /**
+     * Slab test of a ray against a body's hit box
+     *
+     * @return distance along the ray to the hit box, 0 if it starts inside, or infinity if it misses
+     */
+    private float intersect(int body, float originX, float originY, float dirX, float dirY) {
+	float near = 0;
+	float far = Float.POSITIVE_INFINITY;
+	if (dirX == 0) {
+	    if (originX < minXs[body] || originX > maxXs[body]) {
+		return Float.POSITIVE_INFINITY;
+	    }
+	} else {
+	    float t1 = (minXs[body] - originX) / dirX;
+	    float t2 = (maxXs[body] - originX) / dirX;
+	    near = Math.max(near, Math.min(t1, t2));
+	    far = Math.min(far, Math.max(t1, t2));
+	}
+	if (dirY == 0) {
+	    if (originY < minYs[body] || originY > maxYs[body]) {
+		return Float.POSITIVE_INFINITY;
+	    }
+	} else {
+	    float t1 = (minYs[body] - originY) / dirY;
+	    float t2 = (maxYs[body] - originY) / dirY;
+	    near = Math.max(near, Math.min(t1, t2));
+	    far = Math.min(far, Math.max(t1, t2));
+	}
+	return near <= far ? near : Float.POSITIVE_INFINITY;
+    }
+
+    private int toCell(float coordinate) {
+	return (int) Math.floor(coordinate / cellSize);
+    }
+
+    private int bucketOf(int cellX, int cellY) {
+	return (cellX * 73856093 ^ cellY * 19349663) & bucketMask;
+    }
+}
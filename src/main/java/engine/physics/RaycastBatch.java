@@ -0,0 +1,139 @@
+package engine.physics;
+
+import java.util.Arrays;
+
+/**
+ * A batch of rays to cast through the physics world together, e.g. every agent's line of sight for a tick.
+ *
+ * Add the rays, run the batch with PhysicsEngine.raycast, then read each ray's hit by the index add returned.
+ * The batch can be cleared and reused, so casting every frame allocates nothing once it has grown.
+ *
+ * @author cypress980
+ *
+ */
+public class RaycastBatch implements PhysicsEngine.QueryBatch {
+
+    private int size;
+    private float[] rays; // x, y, dirX, dirY, maxDistance per ray
+    private int[] masks;
+    private RigidBody[] ignored;
+
+    private float[] distances;
+    private boolean[] hits;
+    private RigidBody[] hitBodies;
+
+    public RaycastBatch(int capacity) {
+	rays = new float[capacity * 5];
+	masks = new int[capacity];
+	ignored = new RigidBody[capacity];
+	distances = new float[capacity];
+	hits = new boolean[capacity];
+	hitBodies = new RigidBody[capacity];
+    }
+
+    /**
+     * @return index of the ray
+     */
+    public int add(float x, float y, float dirX, float dirY, float maxDistance) {
+	return add(x, y, dirX, dirY, maxDistance, RigidBody.ALL_CATEGORIES, null);
+    }
+
+    /**
+     * @param mask categories of body the ray can hit
+     * @param ignore a body the ray passes through, e.g. the one casting it, or null
+     * @return index of the ray
+     */
+    public int add(float x, float y, float dirX, float dirY, float maxDistance, int mask, RigidBody ignore) {
+	float length = (float) Math.sqrt(dirX * dirX + dirY * dirY);
+	if (length == 0) {
+	    throw new IllegalArgumentException("Ray needs a direction");
+	}
+	if (!(maxDistance >= 0) || Float.isInfinite(maxDistance)) {
+	    throw new IllegalArgumentException("Ray needs a finite length, was " + maxDistance);
+	}
+	if (size == masks.length) {
+	    grow();
+	}
+	int ray = size++;
+	rays[ray * 5] = x;
+	rays[ray * 5 + 1] = y;
+	rays[ray * 5 + 2] = dirX / length;
+	rays[ray * 5 + 3] = dirY / length;
+	rays[ray * 5 + 4] = maxDistance;
+	masks[ray] = mask;
+	ignored[ray] = ignore;
+	return ray;
+    }
+
+    private void grow() {
+	int capacity = Math.max(16, masks.length * 2);
+	rays = Arrays.copyOf(rays, capacity * 5);
+	masks = Arrays.copyOf(masks, capacity);
+	ignored = Arrays.copyOf(ignored, capacity);
+	distances = Arrays.copyOf(distances, capacity);
+	hits = Arrays.copyOf(hits, capacity);
+	hitBodies = Arrays.copyOf(hitBodies, capacity);
+    }
+
+    public void clear() {
+	Arrays.fill(ignored, 0, size, null);
+	Arrays.fill(hitBodies, 0, size, null);
+	size = 0;
+    }
+
+    @Override
+    public int size() {
+	return size;
+    }
+
+    @Override
+    public void run(QueryGrid grid, StaticCollisionLayer staticColliders, int start, int end) {
+	RigidBody[] hit = new RigidBody[1];
+	for (int ray = start; ray < end; ray++) {
+	    float x = rays[ray * 5];
+	    float y = rays[ray * 5 + 1];
+	    float dirX = rays[ray * 5 + 2];
+	    float dirY = rays[ray * 5 + 3];
+	    float maxDistance = rays[ray * 5 + 4];
+
+	    // Nothing behind a wall can be hit, so cast against the walls first to shorten the ray
+	    float distance = staticColliders == null ? maxDistance
+		    : staticColliders.raycast(x, y, dirX, dirY, maxDistance);
+	    boolean isHit = distance < maxDistance;
+	    float bodyDistance = grid.raycast(x, y, dirX, dirY, distance, masks[ray], ignored[ray], hit);
+
+	    hitBodies[ray] = hit[0];
+	    hits[ray] = isHit || hit[0] != null;
+	    distances[ray] = bodyDistance;
+	}
+    }
+
+    /**
+     * @return true if the ray hit a body or static geometry
+     */
+    public boolean isHit(int ray) {
+	return hits[ray];
+    }
+
+    /**
+     * @return the body the ray hit, or null if it hit static geometry or nothing
+     */
+    public RigidBody getHitBody(int ray) {
+	return hitBodies[ray];
+    }
+
+    /**
+     * @return distance along the ray to the hit, or its max distance if it hit nothing
+     */
+    public float getHitDistance(int ray) {
+	return distances[ray];
+    }
+
+    public float getHitX(int ray) {
+	return rays[ray * 5] + rays[ray * 5 + 2] * distances[ray];
+    }
+
+    public float getHitY(int ray) {
+	return rays[ray * 5 + 1] + rays[ray * 5 + 3] * distances[ray];
+    }
+}
@@ -7,7 +7,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.joml.Vector3f;
 
-public class RigidBody implements PhysicsEngine.Listener {
+public class RigidBody implements PhysicsEngine.Listener, Collidable, BodyControl {
     private static final Logger logger = LogManager.getLogger(RigidBody.class.getName());
     
     private static final float FRICTION_COEF = 1200f; // slow down by this many px per frame due to friction 
@@ -25,6 +25,38 @@ public class RigidBody implements PhysicsEngine.Listener {
 
     private final Vector3f position;
     
+    // Swept against the bodies it may hit, so it can't pass through them between ticks
+    private boolean continuousCollision = false;
+    
+    private final Vector3f impactOffset = new Vector3f();
+
+    public static final int DEFAULT_CATEGORY = 1;
+    public static final int ALL_CATEGORIES = -1;
+
+    // Bodies only interact if each one's category is in the other's mask
+    private int collisionCategory = DEFAULT_CATEGORY;
+    private int collisionMask = ALL_CATEGORIES;
+    // Sensors report overlaps to listeners, but nothing bounces off them
+    private boolean sensor = false;
+    // Inactive bodies are kept registered but ignored by the physics engine, e.g. while pooled
+    private boolean active = true;
+    
+    // Sleeping bodies are skipped by the physics engine until something touches or moves them
+    private boolean sleeping = false;
+    private int restTicks = 0;
+    // The bodies that fell asleep with this one. Waking any of them wakes them all.
+    private List<RigidBody> island;
+    // Index of this body in its physics engine, or -1 if it hasn't been registered
+    int physicsId = -1;
+    PhysicsEngine.Listener listener;
+    // Where the contact events for this body's contact listener are collected, if it has one
+    ContactEvents contactEvents;
+    int contactEventMask;
+
+    // Velocity while the contact solver works on it
+    float solverVx;
+    float solverVy;
+
     public RigidBody(HitBox hitBox, float mass, Vector3f position, Vector3f velocity) {
 	this.hitBox = hitBox;
 	this.mass = mass;
@@ -37,6 +69,7 @@ public class RigidBody implements PhysicsEngine.Listener {
     public void notifyOfCollision(ElasticCollisionMessage message) {
 	logger.debug("Collision! [{}]", message);
 	collisionEvents.add(message); //store the collision to process in the update
+	wake();
     }
     
     public void updatePhysics(float interval) {
@@ -157,6 +190,210 @@ public class RigidBody implements PhysicsEngine.Listener {
 	return CollisionEvent.NONE;
     }
 
+    /**
+     * Bounce off static geometry, which doesn't move however hard it's hit. The velocity into the geometry is 
+     * reversed, as in an elastic collision with an infinite mass.
+     * 
+     * @param push displacement that moves this body clear of the geometry
+     */
+    ElasticCollisionMessage getStaticCollision(Vector3f push) {
+	Vector3f dv = new Vector3f();
+	float pushLength = push.length();
+	if (pushLength > 0) {
+	    Vector3f normal = new Vector3f(push).div(pushLength);
+	    float intoGeometry = velocity.dot(normal);
+	    if (intoGeometry < 0) {
+		dv.set(normal).mul(-2 * intoGeometry);
+	    }
+	}
+	return new ElasticCollisionMessage(this, dv, new Vector3f(push));
+    }
+
+    /**
+     * Sweep both bodies along their velocity for a step.
+     * 
+     * @param normal set to the axis this body hits b on, pointing back toward this body
+     * @return fraction of the step at which they first touch, or 1 if they don't
+     */
+    float getTimeOfImpact(RigidBody b, float interval, Vector3f normal) {
+	return hitBox.sweep(velocity.x * interval, velocity.y * interval, 
+		b.hitBox, b.velocity.x * interval, b.velocity.y * interval, normal);
+    }
+    
+    /**
+     * Bounce two bodies off each other at their time of impact, exchanging momentum elastically along the normal. 
+     * Both hit boxes are offset so that integrating the whole step at the new velocity lands them where they would 
+     * be after travelling to the impact at the old velocity and the rest of the step at the new one.
+     */
+    void resolveImpact(RigidBody b, float timeOfImpact, float interval, Vector3f normal) {
+	float u1 = velocity.x * normal.x + velocity.y * normal.y;
+	float u2 = b.velocity.x * normal.x + b.velocity.y * normal.y;
+	if (u1 - u2 >= 0) {
+	    return; // Already separating
+	}
+	
+	// 1D elastic collision along the normal, see getCollision for the derivation
+	float massSum = mass + b.mass;
+	float v1 = (u1 * (mass - b.mass) + 2 * b.mass * u2) / massSum;
+	float v2 = (u2 * (b.mass - mass) + 2 * mass * u1) / massSum;
+	
+	float beforeImpact = timeOfImpact * interval;
+	applyImpact(normal, v1 - u1, beforeImpact);
+	b.applyImpact(normal, v2 - u2, beforeImpact);
+    }
+    
+    private void applyImpact(Vector3f normal, float dv, float beforeImpact) {
+	velocity.x += normal.x * dv;
+	velocity.y += normal.y * dv;
+	impactOffset.set(normal).mul(-dv * beforeImpact);
+	hitBox.move(impactOffset);
+    }
+    
+    void beginSolve() {
+	solverVx = velocity.x;
+	solverVy = velocity.y;
+    }
+
+    /**
+     * @return 1 / mass, or 0 for bodies with no mass, which can't be moved by collisions
+     */
+    float getInverseMass() {
+	return mass > 0 ? 1 / mass : 0;
+    }
+
+    @Override
+    public HitBox getHitBox() {
+	return hitBox;
+    }
+    
+    /**
+     * @return index of this body in its physics engine, e.g. in BodyTransforms, or -1 if it isn't registered
+     */
+    public int getPhysicsId() {
+	return physicsId;
+    }
+    
+    public boolean isSleeping() {
+	return sleeping;
+    }
+
+    /**
+     * Wake this body, and every body that fell asleep in contact with it
+     */
+    public void wake() {
+	if (!sleeping) {
+	    return;
+	}
+	sleeping = false;
+	restTicks = 0;
+	List<RigidBody> members = island;
+	island = null;
+	if (members != null) {
+	    for (RigidBody member : members) {
+		member.wake();
+	    }
+	}
+    }
+
+    /**
+     * Put this body to sleep along with the rest of its island
+     */
+    void sleep(List<RigidBody> island) {
+	this.sleeping = true;
+	this.island = island;
+	this.restTicks = 0;
+	velocity.set(0, 0, 0);
+	isSliding = false;
+	collisionEvents.clear();
+    }
+
+    /**
+     * Count the ticks this body has moved slower than the threshold, for deciding when it can sleep
+     * 
+     * @return ticks at rest so far
+     */
+    int updateRest(float velocityThreshold) {
+	if (!isSliding && velocity.lengthSquared() < velocityThreshold * velocityThreshold) {
+	    restTicks++;
+	} else {
+	    restTicks = 0;
+	}
+	return restTicks;
+    }
+
+    /**
+     * @return true if the filters of both bodies let them interact
+     */
+    public boolean canInteract(RigidBody b) {
+	return active && b.active
+		&& (collisionCategory & b.collisionMask) != 0 && (b.collisionCategory & collisionMask) != 0;
+    }
+
+    public int getCollisionCategory() {
+	return collisionCategory;
+    }
+
+    /**
+     * @param collisionCategory bits for what kind of body this is, e.g. player or projectile
+     */
+    public void setCollisionCategory(int collisionCategory) {
+	this.collisionCategory = collisionCategory;
+    }
+
+    public int getCollisionMask() {
+	return collisionMask;
+    }
+
+    /**
+     * @param collisionMask bits of the categories this body interacts with
+     */
+    public void setCollisionMask(int collisionMask) {
+	this.collisionMask = collisionMask;
+    }
+
+    public boolean isSensor() {
+	return sensor;
+    }
+
+    /**
+     * Sensors, like trigger volumes or an AI's field of view, tell the listeners of both bodies when something 
+     * overlaps them, without either body being pushed or slowed
+     */
+    public void setSensor(boolean sensor) {
+	this.sensor = sensor;
+    }
+
+    public boolean isActive() {
+	return active;
+    }
+
+    /**
+     * Take a body out of the simulation without unregistering it, so a pooled object's body can be despawned 
+     * and respawned without touching the physics engine. An inactive body doesn't move, collide, overlap or 
+     * show up in queries after the next update.
+     */
+    public void setActive(boolean active) {
+	this.active = active;
+	velocity.set(0, 0, 0);
+	isSliding = false;
+	collisionEvents.clear();
+	if (active) {
+	    wake();
+	}
+    }
+
+    public boolean isContinuousCollision() {
+	return continuousCollision;
+    }
+    
+    /**
+     * Sweep this body against the bodies it may interact with, so it can't tunnel through them when it moves 
+     * further than their size in a tick. Costs a sweep per pair per tick, so only turn it on for fast bodies.
+     */
+    public void setContinuousCollision(boolean continuousCollision) {
+	this.continuousCollision = continuousCollision;
+    }
+    
     public float getMass() {
 	return mass;
     }
@@ -169,7 +406,19 @@ public class RigidBody implements PhysicsEngine.Listener {
 	return new Vector3f(velocity);
     }
     
+    /**
+     * Allocation free version of getVelocity, for code that reads every body every tick
+     */
+    @Override
+    public Vector3f getVelocity(Vector3f dest) {
+	return dest.set(velocity);
+    }
+    
+    @Override
     public void setVelocity(Vector3f velocity) {
+	if (!this.velocity.equals(velocity)) {
+	    wake();
+	}
 	this.velocity = new Vector3f(velocity);
     }
     
@@ -177,16 +426,32 @@ public class RigidBody implements PhysicsEngine.Listener {
 	return new Vector3f(position);
     }
     
+    /**
+     * Allocation free version of getPosition, for code that reads every body every tick
+     */
+    @Override
+    public Vector3f getPosition(Vector3f dest) {
+	return dest.set(position);
+    }
+    
+    @Override
     public void move(Vector3f ds) {
+	if (ds.x != 0 || ds.y != 0 || ds.z != 0) {
+	    wake();
+	}
 	position.add(ds);
 	hitBox.setPosition(position);
     }
 
     public void setPosition(Vector3f position) {
+	if (!this.position.equals(position)) {
+	    wake();
+	}
 	this.position.set(position);
 	hitBox.setPosition(position);
     }
     
+    @Override
     public boolean isSliding() {
 	return isSliding;
     }
@@ -0,0 +1,257 @@
+package engine.physics;
+
+import org.joml.Vector3f;
+
+/**
+ * Solid cells of the world that never move, like walls and terrain tiles, packed one bit per cell.
+ *
+ * The layer is immutable once built, so it's safe to read from any thread. It's only ever tested against dynamic
+ * bodies, and a test only looks up the handful of cells under the body's hit box, so the size of the world
+ * doesn't matter.
+ *
+ * @author cypress980
+ *
+ */
+public class StaticCollisionLayer {
+
+    private final int width;
+    private final int height;
+    private final float cellSize;
+    private final float originX;
+    private final float originY;
+    private final long[] solid;
+
+    private StaticCollisionLayer(Builder builder) {
+	this.width = builder.width;
+	this.height = builder.height;
+	this.cellSize = builder.cellSize;
+	this.originX = builder.originX;
+	this.originY = builder.originY;
+	this.solid = builder.solid.clone();
+    }
+
+    /**
+     * @param originX world x of the left edge of cell 0
+     * @param originY world y of the top edge of cell 0
+     */
+    public static Builder builder(int width, int height, float cellSize, float originX, float originY) {
+	return new Builder(width, height, cellSize, originX, originY);
+    }
+
+    public int getWidth() {
+	return width;
+    }
+
+    public int getHeight() {
+	return height;
+    }
+
+    public float getCellSize() {
+	return cellSize;
+    }
+
+    /**
+     * @return true if the cell is solid. Cells outside the layer are open.
+     */
+    public boolean isSolid(int cellX, int cellY) {
+	if (cellX < 0 || cellX >= width || cellY < 0 || cellY >= height) {
+	    return false;
+	}
+	long cell = (long) cellY * width + cellX;
+	return (solid[(int) (cell >>> 6)] & (1L << cell)) != 0;
+    }
+
+    public boolean isSolidAt(float x, float y) {
+	return isSolid(toCellX(x), toCellY(y));
+    }
+
+    public boolean isOverlapping(HitBox hitBox) {
+	// Only the cells under the hit box that are in the layer, the rest are open
+	int minX = Math.max(toCellX(hitBox.getMinX()), 0);
+	int minY = Math.max(toCellY(hitBox.getMinY()), 0);
+	int maxX = Math.min(toLastCellX(hitBox.getMaxX()), width - 1);
+	int maxY = Math.min(toLastCellY(hitBox.getMaxY()), height - 1);
+	for (int y = minY; y <= maxY; y++) {
+	    for (int x = minX; x <= maxX; x++) {
+		if (isSolid(x, y)) {
+		    return true;
+		}
+	    }
+	}
+	return false;
+    }
+
+    /**
+     * Find the shortest push along an axis that moves the hit box clear of the solid cells it overlaps. If it
+     * lands in other solid cells, they're pushed out of on the next test.
+     *
+     * @param push set to the displacement that clears the overlap
+     * @return false if the hit box doesn't overlap any solid cell
+     */
+    public boolean getContact(HitBox hitBox, Vector3f push) {
+	float solidMinX = Float.MAX_VALUE, solidMinY = Float.MAX_VALUE;
+	float solidMaxX = -Float.MAX_VALUE, solidMaxY = -Float.MAX_VALUE;
+
+	// Only the cells under the hit box that are in the layer, the rest are open
+	int minX = Math.max(toCellX(hitBox.getMinX()), 0);
+	int minY = Math.max(toCellY(hitBox.getMinY()), 0);
+	int maxX = Math.min(toLastCellX(hitBox.getMaxX()), width - 1);
+	int maxY = Math.min(toLastCellY(hitBox.getMaxY()), height - 1);
+	for (int y = minY; y <= maxY; y++) {
+	    for (int x = minX; x <= maxX; x++) {
+		if (isSolid(x, y)) {
+		    float cellMinX = originX + x * cellSize;
+		    float cellMinY = originY + y * cellSize;
+		    solidMinX = Math.min(solidMinX, cellMinX);
+		    solidMinY = Math.min(solidMinY, cellMinY);
+		    solidMaxX = Math.max(solidMaxX, cellMinX + cellSize);
+		    solidMaxY = Math.max(solidMaxY, cellMinY + cellSize);
+		}
+	    }
+	}
+	if (solidMinX == Float.MAX_VALUE) {
+	    return false;
+	}
+
+	float left = hitBox.getMaxX() - solidMinX;
+	float right = solidMaxX - hitBox.getMinX();
+	float up = hitBox.getMaxY() - solidMinY;
+	float down = solidMaxY - hitBox.getMinY();
+	float shortest = Math.min(Math.min(left, right), Math.min(up, down));
+	if (shortest == left) {
+	    push.set(-left, 0, 0);
+	} else if (shortest == right) {
+	    push.set(right, 0, 0);
+	} else if (shortest == up) {
+	    push.set(0, -up, 0);
+	} else {
+	    push.set(0, down, 0);
+	}
+	return true;
+    }
+
+    /**
+     * Walk the cells along a ray until it enters a solid one
+     * 
+     * @param dirX direction of the ray, normalized
+     * @return distance to the first solid cell, 0 if the ray starts in one, or maxDistance if there is none
+     */
+    public float raycast(float x, float y, float dirX, float dirY, float maxDistance) {
+	int cellX = toCellX(x);
+	int cellY = toCellY(y);
+	int stepX = dirX > 0 ? 1 : -1;
+	int stepY = dirY > 0 ? 1 : -1;
+	float deltaX = dirX == 0 ? Float.POSITIVE_INFINITY : Math.abs(cellSize / dirX);
+	float deltaY = dirY == 0 ? Float.POSITIVE_INFINITY : Math.abs(cellSize / dirY);
+	// Distance along the ray to the next vertical and horizontal cell edges
+	float nextX = dirX == 0 ? Float.POSITIVE_INFINITY 
+		: (originX + (dirX > 0 ? cellX + 1 : cellX) * cellSize - x) / dirX;
+	float nextY = dirY == 0 ? Float.POSITIVE_INFINITY 
+		: (originY + (dirY > 0 ? cellY + 1 : cellY) * cellSize - y) / dirY;
+	
+	float distance = 0;
+	while (distance < maxDistance) {
+	    if (isSolid(cellX, cellY)) {
+		return distance;
+	    }
+	    if (nextX < nextY) {
+		distance = nextX;
+		cellX += stepX;
+		nextX += deltaX;
+	    } else {
+		distance = nextY;
+		cellY += stepY;
+		nextY += deltaY;
+	    }
+	}
+	return maxDistance;
+    }
+
+    public int toCellX(float x) {
+	return (int) Math.floor((x - originX) / cellSize);
+    }
+
+    public int toCellY(float y) {
+	return (int) Math.floor((y - originY) / cellSize);
+    }
+
+    // Hit boxes only collide when they overlap, so a max edge lying on a cell boundary doesn't reach the next cell
+    private int toLastCellX(float maxX) {
+	return (int) Math.ceil((maxX - originX) / cellSize) - 1;
+    }
+
+    private int toLastCellY(float maxY) {
+	return (int) Math.ceil((maxY - originY) / cellSize) - 1;
+    }
+
+    /**
+     * Collects solid cells, then bakes them into a layer
+     */
+    public static class Builder {
+	// Largest long array most VMs will allocate
+	private static final int MAX_WORDS = Integer.MAX_VALUE - 8;
+
+	private final int width;
+	private final int height;
+	private final float cellSize;
+	private final float originX;
+	private final float originY;
+	private final long[] solid;
+
+	private Builder(int width, int height, float cellSize, float originX, float originY) {
+	    if (width <= 0 || height <= 0 || cellSize <= 0) {
+		throw new IllegalArgumentException("Layer must have a positive size, was " + width + "x" + height
+			+ " cells of " + cellSize);
+	    }
+	    this.width = width;
+	    this.height = height;
+	    this.cellSize = cellSize;
+	    this.originX = originX;
+	    this.originY = originY;
+	    long words = ((long) width * height + 63) / 64;
+	    if (words > MAX_WORDS) {
+		throw new IllegalArgumentException("Layer of " + width + "x" + height + " cells is too big, at most " 
+			+ MAX_WORDS * 64 + " cells fit");
+	    }
+	    this.solid = new long[(int) words];
+	}
+
+	public Builder setSolid(int cellX, int cellY) {
+	    if (cellX >= 0 && cellX < width && cellY >= 0 && cellY < height) {
+		long cell = (long) cellY * width + cellX;
+		solid[(int) (cell >>> 6)] |= 1L << cell;
+	    }
+	    return this;
+	}
+
+	/**
+	 * Set a rectangle of cells at once, e.g. a run of solid terrain tiles
+	 */
+	public Builder setSolid(int cellX, int cellY, int cellsWide, int cellsHigh) {
+	    int maxX = (int) Math.min((long) cellX + cellsWide, width);
+	    int maxY = (int) Math.min((long) cellY + cellsHigh, height);
+	    for (int y = Math.max(cellY, 0); y < maxY; y++) {
+		for (int x = Math.max(cellX, 0); x < maxX; x++) {
+		    setSolid(x, y);
+		}
+	    }
+	    return this;
+	}
+
+	/**
+	 * Make every cell a hit box overlaps solid. Boxes that aren't aligned to the cells are rounded out to
+	 * whole cells.
+	 */
+	public Builder addHitBox(HitBox hitBox) {
+	    int minX = (int) Math.floor((hitBox.getMinX() - originX) / cellSize);
+	    int minY = (int) Math.floor((hitBox.getMinY() - originY) / cellSize);
+	    int maxX = (int) Math.ceil((hitBox.getMaxX() - originX) / cellSize);
+	    int maxY = (int) Math.ceil((hitBox.getMaxY() - originY) / cellSize);
+	    return setSolid(minX, minY, maxX - minX, maxY - minY);
+	}
+
+	public StaticCollisionLayer build() {
+	    return new StaticCollisionLayer(this);
+	}
+    }
+}
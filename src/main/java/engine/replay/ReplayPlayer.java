@@ -0,0 +1,165 @@
+package engine.replay;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import engine.EngineComponent;
+import engine.GameLogic;
+import engine.GameWindow;
+import engine.MouseInput;
+import engine.game.state.VarInt;
+import engine.input.InputEventQueue;
+
+/**
+ * Replays a {@link ReplayRecorder} log headless and as fast as possible - component updates and fixed ticks are 
+ * run back to back with their recorded intervals, and recorded input is fed through the window's input queue as if 
+ * it had just been typed. After every fixed tick the game's state hash is compared with the recorded one.
+ * 
+ * The game logic must already be initialized, and only its simulation is run, never render(). The window is only 
+ * used for its input state, so it never needs to be initialized either.
+ * 
+ * Replays are only exact if the simulation only depends on its inputs - e.g. an AgentScheduler with a time budget 
+ * defers agents based on how fast this machine is, so give it an unlimited budget when replaying.
+ * 
+ * @author cypress980
+ *
+ */
+public class ReplayPlayer {
+    private static final Logger logger = LogManager.getLogger(ReplayPlayer.class.getName());
+
+    private final GameLogic gameLogic;
+
+    private final List<EngineComponent> components;
+
+    private final GameWindow window;
+
+    private final MouseInput mouseInput = new MouseInput();
+
+    private long fixedTicks;
+
+    private long mismatches;
+
+    private long firstMismatchTick;
+
+    private long playNanos;
+
+    public ReplayPlayer(GameLogic gameLogic, GameWindow window) {
+	this(gameLogic, gameLogic.getEngineComponents(), window);
+    }
+
+    /**
+     * @param components the engine's components, in the order they were recorded
+     */
+    public ReplayPlayer(GameLogic gameLogic, List<EngineComponent> components, GameWindow window) {
+	this.gameLogic = gameLogic;
+	this.components = components;
+	this.window = window;
+    }
+
+    public static ByteBuffer readFile(Path file) throws IOException {
+	return ByteBuffer.wrap(Files.readAllBytes(file));
+    }
+
+    /**
+     * @return the number of fixed ticks played
+     */
+    public long play(ByteBuffer log) throws Exception {
+	byte[] magic = new byte[ReplayRecorder.MAGIC.length];
+	log.get(magic);
+	if (!Arrays.equals(magic, ReplayRecorder.MAGIC)) {
+	    throw new IllegalArgumentException("Not a replay log");
+	}
+	byte version = log.get();
+	if (version != ReplayRecorder.FORMAT_VERSION) {
+	    throw new IllegalArgumentException("Unsupported replay format version " + version);
+	}
+	
+	fixedTicks = 0;
+	mismatches = 0;
+	firstMismatchTick = -1;
+	InputEventQueue events = window.getInputEvents();
+	long start = System.nanoTime();
+	
+	for (byte record = log.get(); record != ReplayRecorder.END; record = log.get()) {
+	    switch (record) {
+	    case ReplayRecorder.COMPONENT_TICK:
+		components.get(VarInt.getUnsigned(log)).update(log.getFloat());
+		break;
+	    case ReplayRecorder.INPUT_EVENT:
+		int type = log.get();
+		int zigzag = VarInt.getUnsigned(log);
+		int code = (zigzag >>> 1) ^ -(zigzag & 1);
+		int action = log.get();
+		double x = 0, y = 0;
+		if (type == InputEventQueue.CURSOR_POSITION) {
+		    x = log.getDouble();
+		    y = log.getDouble();
+		}
+		if (!events.offer(type, code, action, x, y, 0)) {
+		    throw new IllegalStateException("More input events in one tick than the window's queue holds");
+		}
+		break;
+	    case ReplayRecorder.FIXED_TICK:
+		float interval = log.getFloat();
+		long expectedHash = log.getLong();
+		fixedTick(interval, expectedHash);
+		break;
+	    default:
+		throw new IllegalArgumentException("Corrupt replay, unknown record " + record + " at " + log.position());
+	    }
+	}
+	
+	playNanos = System.nanoTime() - start;
+	return fixedTicks;
+    }
+
+    private void fixedTick(float interval, long expectedHash) {
+	window.pollInput();
+	mouseInput.input(window);
+	gameLogic.input(window, mouseInput, interval);
+	gameLogic.update(interval);
+	
+	long hash = gameLogic.getStateHash();
+	if (hash != expectedHash) {
+	    if (mismatches == 0) {
+		firstMismatchTick = fixedTicks;
+		logger.warn("Replay diverged at tick [{}], state hash [{}] instead of [{}]", fixedTicks, hash, 
+			expectedHash);
+	    }
+	    mismatches++;
+	}
+	fixedTicks++;
+    }
+
+    public long getFixedTickCount() {
+	return fixedTicks;
+    }
+
+    /**
+     * @return the number of fixed ticks whose state hash didn't match the recording
+     */
+    public long getMismatchCount() {
+	return mismatches;
+    }
+
+    /**
+     * @return the first fixed tick whose state hash didn't match the recording, or -1
+     */
+    public long getFirstMismatchTick() {
+	return firstMismatchTick;
+    }
+
+    /**
+     * @return how long the last play() took
+     */
+    public long getPlayNanos() {
+	return playNanos;
+    }
+}
@@ -0,0 +1,143 @@
+package engine.replay;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import engine.game.state.VarInt;
+import engine.input.InputEventHandler;
+import engine.input.InputEventQueue;
+
+/**
+ * Records everything that drives the simulation, so a session can be replayed exactly by {@link ReplayPlayer}:
+ * every engine component update with the interval it was given, every input event, and every fixed input and 
+ * update tick with the game's state hash after it.
+ * <pre>
+ * replay  := magic:"VKRP" version:u8 record* end:u8
+ * record  := COMPONENT_TICK component:varint interval:f32
+ *          | INPUT_EVENT type:u8 code:zigzag-varint action:u8 [x:f64 y:f64, cursor positions only]
+ *          | FIXED_TICK interval:f32 stateHash:i64
+ * </pre>
+ * Input events belong to the fixed tick recorded after them. Components are referenced by their index in the 
+ * engine's component list, so the replay must be set up with the same components in the same order.
+ * 
+ * Only the inputs and intervals are recorded, so the session must be deterministic given them. Components that 
+ * aren't, like a PhysicsThread stepping on its own clock or AI run by a time budgeted AgentScheduler, say so 
+ * through {@link engine.EngineComponent#isReplayable()}, and the GameEngine refuses to record with them. It also 
+ * refuses components added to it outside the game logic's list, which the player wouldn't know about.
+ * 
+ * @author cypress980
+ *
+ */
+public class ReplayRecorder implements InputEventHandler, Closeable {
+
+    static final byte[] MAGIC = "VKRP".getBytes(StandardCharsets.US_ASCII);
+
+    static final byte FORMAT_VERSION = 1;
+
+    static final byte END = 0;
+    static final byte COMPONENT_TICK = 1;
+    static final byte INPUT_EVENT = 2;
+    static final byte FIXED_TICK = 3;
+
+    // Largest record is an input event with a cursor position
+    private static final int MAX_RECORD_BYTES = 1 + 1 + 5 + 1 + 16;
+
+    private final WritableByteChannel channel;
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+
+    private long fixedTicks = 0;
+
+    private boolean closed = false;
+
+    public ReplayRecorder(WritableByteChannel channel) throws IOException {
+	this.channel = channel;
+	buffer.put(MAGIC).put(FORMAT_VERSION);
+    }
+
+    public static ReplayRecorder toFile(Path file) throws IOException {
+	return new ReplayRecorder(FileChannel.open(file, StandardOpenOption.CREATE, 
+		StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+    }
+
+    /**
+     * @param component index of the component in the engine's component list
+     */
+    public void recordComponentTick(int component, float interval) throws IOException {
+	ensureRoom();
+	buffer.put(COMPONENT_TICK);
+	VarInt.putUnsigned(buffer, component);
+	buffer.putFloat(interval);
+    }
+
+    /**
+     * Record an input event drained for the next fixed tick
+     */
+    @Override
+    public void onEvent(int type, int code, int action, double x, double y, long timeNanos) {
+	try {
+	    ensureRoom();
+	} catch (IOException e) {
+	    throw new UncheckedIOException(e);
+	}
+	buffer.put(INPUT_EVENT);
+	buffer.put((byte) type);
+	VarInt.putUnsigned(buffer, (code << 1) ^ (code >> 31));
+	buffer.put((byte) action);
+	if (type == InputEventQueue.CURSOR_POSITION) {
+	    buffer.putDouble(x);
+	    buffer.putDouble(y);
+	}
+    }
+
+    /**
+     * @param stateHash the game's state hash after the tick's update
+     */
+    public void recordFixedTick(float interval, long stateHash) throws IOException {
+	ensureRoom();
+	buffer.put(FIXED_TICK);
+	buffer.putFloat(interval);
+	buffer.putLong(stateHash);
+	fixedTicks++;
+    }
+
+    public long getFixedTickCount() {
+	return fixedTicks;
+    }
+
+    private void ensureRoom() throws IOException {
+	if (closed) {
+	    throw new IllegalStateException("Replay recorder is closed");
+	}
+	if (buffer.remaining() < MAX_RECORD_BYTES) {
+	    flush();
+	}
+    }
+
+    public void flush() throws IOException {
+	buffer.flip();
+	while (buffer.hasRemaining()) {
+	    channel.write(buffer);
+	}
+	buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+	if (closed) {
+	    return;
+	}
+	ensureRoom();
+	buffer.put(END);
+	flush();
+	closed = true;
+	channel.close();
+    }
+}
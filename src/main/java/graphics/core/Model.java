@@ -129,6 +129,15 @@ public class Model {
 	this.texture = new Texture(material.getTextureFile());
     }
     
+    /**
+     * Use a texture that's already loaded, e.g. an atlas shared by many models. Delete these models with 
+     * deleteBuffers, since cleanUp would delete the shared texture too.
+     */
+    public void setMaterialAndTexture(Material material, Texture texture) {
+	this.material = material;
+	this.texture = texture;
+    }
+
     public int getVaoId() {
 	return vaoId;
     }
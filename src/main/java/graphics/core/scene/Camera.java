@@ -29,6 +29,13 @@ public class Camera {
         return new Vector3f(position); //Defensive copy
     }
 
+    /**
+     * Copy the position into dest, for callers that can't allocate
+     */
+    public Vector3f getPosition(Vector3f dest) {
+        return dest.set(position);
+    }
+
     public void setPosition(float x, float y, float z) {
         position.x = x;
         position.y = y;
@@ -1,9 +1,27 @@
 package graphics.flat;
 
+import org.joml.Vector3f;
+
+import engine.RenderSnapshot;
 import engine.game.state.Position;
 import graphics.core.Model;
 
 public interface FlatRenderable {
     Model getModel();
     Position getPosition();
+    
+    /**
+     * Add this item to a render snapshot. Called on the simulation thread when rendering runs on its own thread.
+     */
+    default void snapshot(RenderSnapshot snapshot, Vector3f scratch) {
+	getPosition().getCoordinates(scratch);
+	snapshot.add(scratch.x, scratch.y, scratch.z, 0, null);
+    }
+    
+    /**
+     * The model as of a snapshot, for items whose model changes with the game state. Called on the render thread.
+     */
+    default Model getModel(RenderSnapshot snapshot, int item) {
+	return getModel();
+    }
 }
@@ -5,6 +5,7 @@ import java.util.List;
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
 
+import engine.RenderSnapshot;
 import engine.game.state.Position;
 import graphics.Renderer;
 import graphics.ResourceLoader;
@@ -28,6 +29,23 @@ public class FlatRenderer implements Renderer {
     
     private final Camera camera;
     
+    // Set when rendering runs on its own thread, so the scene is drawn from snapshots, not the live game state
+    private RenderSnapshot previous;
+    
+    private RenderSnapshot current;
+    
+    private float alpha;
+    
+    private final Vector3f snapshotScratch = new Vector3f();
+    
+    private final Vector3f interpolated = new Vector3f();
+    
+    private final Vector3f rotation = new Vector3f();
+    
+    private final Vector3f cameraPosition = new Vector3f();
+    
+    private final Vector3f cameraRotation = new Vector3f();
+    
     public FlatRenderer(Camera camera) {
 	this.camera = camera;
 	orthoMatrix = new Matrix4f();
@@ -53,14 +71,43 @@ public class FlatRenderer implements Renderer {
         
         //TODO: we only need to make this call when the window size changes
         Matrix4f ortho = getOrthoProjectionMatrix(0, windowWidthPx, windowHeightPx, 0);
-        for (FlatRenderable item : scene) {
-            Model model = item.getModel();
+        // Position model view matrix for camera
+        if (current == null) {
+            camera.getPosition(cameraPosition);
+            cameraRotation.set(camera.getRotation());
+        } else {
+            current.getCameraPosition(cameraPosition);
+            current.getCameraRotation(cameraRotation);
+        }
+        Matrix4f modelViewMatrix = getViewMatrix(cameraPosition, cameraRotation);
+        
+        // Threaded, only the snapshot is read. The scene and its items belong to the simulation thread.
+        int items = current == null ? scene.size() : current.size();
+        for (int i = 0; i < items; i++) {
+            Model model;
+            float scale;
+            if (current == null) {
+                FlatRenderable item = scene.get(i);
+                model = item.getModel();
+                Position position = item.getPosition();
+                position.getCoordinates(interpolated);
+                position.getRotation(rotation);
+                scale = position.getScale();
+            } else {
+                FlatRenderable item = (FlatRenderable) current.getOwner(i);
+                model = item.getModel(current, i);
+                interpolate(i);
+                current.getRotation(i, rotation);
+                scale = current.getScale(i);
+            }
+            if (model == null) {
+                continue; // Hidden, e.g. a pooled sprite that isn't spawned
+            }
             // Set orthographic and model matrix for this HUD item
-            Matrix4f projModelMatrix = getOrthoProjModelMatrix(item.getPosition(), ortho);
-            // Position model view matrix for camera
-            hudShaderProgram.setUniform("modelViewMatrix", getViewMatrix(camera));
+            Matrix4f projModelMatrix = getOrthoProjModelMatrix(interpolated, rotation, scale, ortho);
+            hudShaderProgram.setUniform("modelViewMatrix", modelViewMatrix);
             hudShaderProgram.setUniform("projModelMatrix", projModelMatrix);
-            hudShaderProgram.setUniform("color", item.getModel().getMaterial().getColor());
+            hudShaderProgram.setUniform("color", model.getMaterial().getColor());
             
             // Render the mesh for this HUD item
             model.render();
@@ -69,16 +116,57 @@ public class FlatRenderer implements Renderer {
         hudShaderProgram.unbind();
     }
     
-    private Matrix4f getViewMatrix(Camera camera) {
+    /**
+     * Blend the item's coordinates from the previous snapshot into the current one. Items are matched by the 
+     * object they were captured from, so one added or removed doesn't make its neighbours jump.
+     */
+    private void interpolate(int item) {
+	interpolated.set(current.getX(item), current.getY(item), current.getZ(item));
+	int before = previous.indexOf(current.getOwner(item), item);
+	if (before >= 0) {
+	    interpolated.x = previous.getX(before) + (interpolated.x - previous.getX(before)) * alpha;
+	    interpolated.y = previous.getY(before) + (interpolated.y - previous.getY(before)) * alpha;
+	    interpolated.z = previous.getZ(before) + (interpolated.z - previous.getZ(before)) * alpha;
+	}
+    }
+    
+    /**
+     * Capture the scene and camera for the render thread. Called on the simulation thread.
+     */
+    public void snapshot(RenderSnapshot snapshot) {
+	for (FlatRenderable item : scene) {
+	    int first = snapshot.size();
+	    item.snapshot(snapshot, snapshotScratch);
+	    Position position = item.getPosition();
+	    position.getRotation(snapshotScratch);
+	    for (int i = first; i < snapshot.size(); i++) {
+		snapshot.setTransform(i, item, snapshotScratch, position.getScale());
+	    }
+	}
+	snapshot.setCamera(camera.getPosition(snapshotScratch), camera.getRotation());
+    }
+    
+    /**
+     * Draw the scene between two snapshots instead of from the live game state. Called on the render thread.
+     * 
+     * @param alpha 0 draws the previous snapshot, 1 the current one
+     */
+    public void setSnapshots(RenderSnapshot previous, RenderSnapshot current, float alpha) {
+	this.previous = previous;
+	this.current = current;
+	this.alpha = alpha;
+    }
+    
+    private Matrix4f getViewMatrix(Vector3f cameraPosition, Vector3f cameraRotation) {
 	viewMatrix.identity();
         
         // First do the rotation so camera rotates over its position
-	viewMatrix.rotate((float)Math.toRadians(camera.getRotation().x), new Vector3f(1, 0, 0))
-            	  .rotate((float)Math.toRadians(camera.getRotation().y), new Vector3f(0, 1, 0))
-            	  .rotate((float)Math.toRadians(camera.getRotation().z), new Vector3f(0, 0, 1));
+	viewMatrix.rotate((float)Math.toRadians(cameraRotation.x), new Vector3f(1, 0, 0))
+            	  .rotate((float)Math.toRadians(cameraRotation.y), new Vector3f(0, 1, 0))
+            	  .rotate((float)Math.toRadians(cameraRotation.z), new Vector3f(0, 0, 1));
         
         // Then do the translation
-	viewMatrix.translate(camera.getPosition().negate());
+	viewMatrix.translate(cameraPosition.negate());
         
         return viewMatrix;
     }
@@ -108,14 +196,14 @@ public class FlatRenderer implements Renderer {
         return orthoMatrix;
     }
     
-    private Matrix4f getOrthoProjModelMatrix(Position gameItem, Matrix4f orthoMatrix) {
-        Vector3f rotation = gameItem.getRotation();
+    private Matrix4f getOrthoProjModelMatrix(Vector3f coordinates, Vector3f rotation, float scale, 
+	    Matrix4f orthoMatrix) {
         Matrix4f modelMatrix = new Matrix4f();
-        modelMatrix.identity().translate(gameItem.getCoordinates()).
+        modelMatrix.identity().translate(coordinates).
                 rotateX((float)Math.toRadians(-rotation.x)).
                 rotateY((float)Math.toRadians(-rotation.y)).
                 rotateZ((float)Math.toRadians(-rotation.z)).
-                scale(gameItem.getScale());
+                scale(scale);
         Matrix4f orthoMatrixCurr = new Matrix4f(orthoMatrix);
         orthoMatrixCurr.mul(modelMatrix);
         return orthoMatrixCurr;
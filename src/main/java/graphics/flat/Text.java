@@ -1,11 +1,18 @@
 package graphics.flat;
 
+import org.joml.Vector3f;
+
+import engine.RenderSnapshot;
 import engine.game.state.Position;
 import graphics.core.Model;
 
 public class Text implements FlatRenderable {
 
-    private String text;
+    // Set by the game, maybe on the simulation thread. The model is only rebuilt when it is rendered, on the GL 
+    // thread.
+    private volatile String text;
+    
+    private String modelText;
     
     private Font font;
     
@@ -18,9 +25,10 @@ public class Text implements FlatRenderable {
     }
     
     public Text(String text, float z) throws Exception {
-        this.text = text;
+        this.text = checkText(text);
         this.font = new Font();
         this.model = font.buildMesh(text);
+        this.modelText = text;
         this.position = new Position();
         this.position.setCoordinates(0, 0, z);
     }
@@ -30,16 +38,23 @@ public class Text implements FlatRenderable {
         return text;
     }
     
-    public void setText(String text) throws Exception {
-        this.text = text;
-        model.deleteBuffers();
-        model = font.buildMesh(text);
+    /**
+     * The new text is built into the model the next time it is rendered
+     */
+    public void setText(String text) {
+        this.text = checkText(text);
+    }
+    
+    private static String checkText(String text) {
+	if (text == null) {
+	    throw new IllegalArgumentException("Text must not be null, set it to \"\" to show nothing");
+	}
+	return text;
     }
     
     public void setColor(int r, int g, int b) throws Exception {
 	font.setColor(r, g, b);
-	model.deleteBuffers();
-	model = font.buildMesh(text);
+	rebuild(text);
     }
     
     public void setPosition(float x, float y) {
@@ -47,17 +62,44 @@ public class Text implements FlatRenderable {
     }
     
     public Model getModel() {
+	return getModel(text);
+    }
+    
+    @Override
+    public Model getModel(RenderSnapshot snapshot, int item) {
+	return getModel(snapshot.getText(item));
+    }
+    
+    private Model getModel(String text) {
+	if (!text.equals(modelText)) {
+	    try {
+		rebuild(text);
+	    } catch (Exception e) {
+		throw new IllegalStateException("Could not build text '" + text + "'", e);
+	    }
+	}
 	return model;
     }
     
-    public void setFont(Font font) throws Exception {
-	this.font = font;
+    private void rebuild(String text) throws Exception {
 	model.deleteBuffers();
 	model = font.buildMesh(text);
+	modelText = text;
+    }
+    
+    public void setFont(Font font) throws Exception {
+	this.font = font;
+	rebuild(text);
     }
 
     @Override
     public Position getPosition() {
 	return position;
     }
+    
+    @Override
+    public void snapshot(RenderSnapshot snapshot, Vector3f scratch) {
+	position.getCoordinates(scratch);
+	snapshot.add(scratch.x, scratch.y, scratch.z, 0, text);
+    }
 }
\ No newline at end of file
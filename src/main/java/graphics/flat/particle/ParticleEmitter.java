@@ -0,0 +1,319 @@
+package graphics.flat.particle;
+
+import engine.TripleBuffer;
+import engine.physics.PhysicsEngine;
+import engine.physics.StaticCollisionLayer;
+
+/**
+ * Spawns, moves and expires up to a fixed number of particles, like dust, sparks or blood.
+ *
+ * Each particle attribute is kept in its own packed array, and dead particles are replaced by the last live one,
+ * so the update is a few tight loops over the first count elements that the JIT can vectorize, and nothing is
+ * allocated after construction. At the end of each update the particles are written out as vertices and handed to
+ * the renderer through a triple buffer, along with the color and depth they're drawn at, so emitters can be
+ * updated on any thread while the GL thread draws.
+ *
+ * Emitting and changing settings must not happen while the emitter is updating.
+ *
+ * @author cypress980
+ *
+ */
+public class ParticleEmitter {
+
+    // x, y, size and alpha of each particle
+    static final int FLOATS_PER_VERTEX = 4;
+
+    private final int capacity;
+    private final float[] xs;
+    private final float[] ys;
+    private final float[] vxs;
+    private final float[] vys;
+    private final float[] ages;
+    private final float[] lifetimes;
+    private int count;
+
+    private final TripleBuffer<Vertices> published;
+
+    // Where and how particles are spawned
+    private float x;
+    private float y;
+    private float z;
+    private float direction;
+    private float spread = (float) Math.PI;
+    private float minSpeed = 50;
+    private float maxSpeed = 100;
+    private float minLifetime = 1;
+    private float maxLifetime = 1;
+
+    // How particles move and look
+    private float gravityX;
+    private float gravityY;
+    private float drag;
+    private float bounce = 0.5f;
+    private float startSize = 4;
+    private float endSize = 4;
+    private final float[] color = { 1, 1, 1, 1 };
+
+    private float emissionRate;
+    private float emissionDebt;
+
+    private PhysicsEngine physics;
+
+    private int seed = 0x9E3779B9;
+
+    public ParticleEmitter(int capacity) {
+	if (capacity < 1) {
+	    throw new IllegalArgumentException("Capacity must be positive, was " + capacity);
+	}
+	this.capacity = capacity;
+	xs = new float[capacity];
+	ys = new float[capacity];
+	vxs = new float[capacity];
+	vys = new float[capacity];
+	ages = new float[capacity];
+	lifetimes = new float[capacity];
+	published = new TripleBuffer<>(() -> new Vertices(capacity));
+    }
+
+    /**
+     * Spawn particles at the emitter's position, with a random speed, direction and lifetime within the emitter's
+     * ranges.
+     *
+     * @return the number spawned, fewer than asked if the emitter is full, and none for a negative number
+     */
+    public int emit(int particles) {
+	int spawned = Math.max(0, Math.min(particles, capacity - count));
+	for (int i = count; i < count + spawned; i++) {
+	    float angle = direction + spread * (2 * nextRandom() - 1);
+	    float speed = minSpeed + (maxSpeed - minSpeed) * nextRandom();
+	    xs[i] = x;
+	    ys[i] = y;
+	    vxs[i] = (float) Math.cos(angle) * speed;
+	    vys[i] = (float) Math.sin(angle) * speed;
+	    ages[i] = 0;
+	    lifetimes[i] = minLifetime + (maxLifetime - minLifetime) * nextRandom();
+	}
+	count += spawned;
+	return spawned;
+    }
+
+    public void update(float interval) {
+	if (emissionRate > 0) {
+	    emissionDebt += emissionRate * interval;
+	    int due = (int) emissionDebt;
+	    emissionDebt -= due;
+	    emit(due);
+	}
+
+	// Accelerate and age. Kept free of branches so it vectorizes.
+	float damping = Math.max(0, 1 - drag * interval);
+	float dvx = gravityX * interval;
+	float dvy = gravityY * interval;
+	for (int i = 0; i < count; i++) {
+	    vxs[i] = vxs[i] * damping + dvx;
+	    vys[i] = vys[i] * damping + dvy;
+	    ages[i] += interval;
+	}
+
+	StaticCollisionLayer colliders = physics == null ? null : physics.getStaticColliders();
+	if (colliders == null) {
+	    for (int i = 0; i < count; i++) {
+		xs[i] += vxs[i] * interval;
+		ys[i] += vys[i] * interval;
+	    }
+	} else {
+	    moveAndBounce(colliders, interval);
+	}
+
+	expire();
+	publish();
+    }
+
+    /**
+     * Move each axis separately, bouncing off whichever one would enter solid ground
+     */
+    private void moveAndBounce(StaticCollisionLayer colliders, float interval) {
+	for (int i = 0; i < count; i++) {
+	    float nextX = xs[i] + vxs[i] * interval;
+	    if (colliders.isSolidAt(nextX, ys[i])) {
+		vxs[i] = -vxs[i] * bounce;
+	    } else {
+		xs[i] = nextX;
+	    }
+	    float nextY = ys[i] + vys[i] * interval;
+	    if (colliders.isSolidAt(xs[i], nextY)) {
+		vys[i] = -vys[i] * bounce;
+	    } else {
+		ys[i] = nextY;
+	    }
+	}
+    }
+
+    private void expire() {
+	for (int i = count - 1; i >= 0; i--) {
+	    if (ages[i] >= lifetimes[i]) {
+		int last = --count;
+		xs[i] = xs[last];
+		ys[i] = ys[last];
+		vxs[i] = vxs[last];
+		vys[i] = vys[last];
+		ages[i] = ages[last];
+		lifetimes[i] = lifetimes[last];
+	    }
+	}
+    }
+
+    private void publish() {
+	Vertices back = published.getBack();
+	float[] data = back.data;
+	float sizeChange = endSize - startSize;
+	for (int i = 0, v = 0; i < count; i++, v += FLOATS_PER_VERTEX) {
+	    float life = ages[i] / lifetimes[i];
+	    data[v] = xs[i];
+	    data[v + 1] = ys[i];
+	    data[v + 2] = startSize + sizeChange * life;
+	    data[v + 3] = 1 - life;
+	}
+	back.count = count;
+	System.arraycopy(color, 0, back.color, 0, color.length);
+	back.z = z;
+	published.publish();
+    }
+
+    /**
+     * Render thread side. The vertices of the latest update.
+     */
+    Vertices getVertices() {
+	published.swap();
+	return published.getFront();
+    }
+
+    // Xorshift, so emitters on different threads don't contend on a shared Random
+    private float nextRandom() {
+	seed ^= seed << 13;
+	seed ^= seed >>> 17;
+	seed ^= seed << 5;
+	return (seed >>> 8) / (float) (1 << 24);
+    }
+
+    public int getCount() {
+	return count;
+    }
+
+    public int getCapacity() {
+	return capacity;
+    }
+
+    public float getX(int particle) {
+	return xs[particle];
+    }
+
+    public float getY(int particle) {
+	return ys[particle];
+    }
+
+    public void setPosition(float x, float y, float z) {
+	this.x = x;
+	this.y = y;
+	this.z = z;
+    }
+
+    public float getZ() {
+	return z;
+    }
+
+    /**
+     * @param direction radians particles are fired towards
+     * @param spread radians either side of the direction they may stray, PI for all directions
+     */
+    public void setDirection(float direction, float spread) {
+	this.direction = direction;
+	this.spread = spread;
+    }
+
+    /**
+     * @param minSpeed px per second
+     * @param maxSpeed px per second
+     */
+    public void setSpeed(float minSpeed, float maxSpeed) {
+	this.minSpeed = minSpeed;
+	this.maxSpeed = maxSpeed;
+    }
+
+    /**
+     * @param minLifetime seconds
+     * @param maxLifetime seconds
+     */
+    public void setLifetime(float minLifetime, float maxLifetime) {
+	if (minLifetime <= 0 || maxLifetime < minLifetime) {
+	    throw new IllegalArgumentException("Bad lifetime range " + minLifetime + " to " + maxLifetime);
+	}
+	this.minLifetime = minLifetime;
+	this.maxLifetime = maxLifetime;
+    }
+
+    /**
+     * @param gravityX px per second squared
+     * @param gravityY px per second squared
+     */
+    public void setGravity(float gravityX, float gravityY) {
+	this.gravityX = gravityX;
+	this.gravityY = gravityY;
+    }
+
+    /**
+     * @param drag fraction of their velocity particles lose per second
+     */
+    public void setDrag(float drag) {
+	this.drag = drag;
+    }
+
+    /**
+     * @param startSize px across when spawned
+     * @param endSize px across when expiring
+     */
+    public void setSize(float startSize, float endSize) {
+	this.startSize = startSize;
+	this.endSize = endSize;
+    }
+
+    public void setColor(float r, float g, float b, float a) {
+	color[0] = r;
+	color[1] = g;
+	color[2] = b;
+	color[3] = a;
+    }
+
+    /**
+     * @param emissionRate particles spawned per second on update, on top of any emitted directly
+     */
+    public void setEmissionRate(float emissionRate) {
+	this.emissionRate = emissionRate;
+    }
+
+    /**
+     * Bounce particles off the static layer of a physics engine. Only the static layer is used, a particle
+     * testing itself against bodies would cost more than the particle.
+     *
+     * @param physics or null for particles to pass through everything
+     * @param bounce fraction of its speed a particle keeps when it bounces
+     */
+    public void setCollisions(PhysicsEngine physics, float bounce) {
+	this.physics = physics;
+	this.bounce = bounce;
+    }
+
+    /**
+     * The particles as packed vertices, ready to stream to the GPU, and how to draw them
+     */
+    static class Vertices {
+	final float[] data;
+	int count;
+	final float[] color = new float[4];
+	float z;
+
+	Vertices(int capacity) {
+	    data = new float[capacity * FLOATS_PER_VERTEX];
+	}
+    }
+}
@@ -0,0 +1,275 @@
+package graphics.flat.particle;
+
+import static org.lwjgl.opengl.GL11.GL_FLOAT;
+import static org.lwjgl.opengl.GL11.GL_POINTS;
+import static org.lwjgl.opengl.GL11.glDepthMask;
+import static org.lwjgl.opengl.GL11.glDisable;
+import static org.lwjgl.opengl.GL11.glDrawArrays;
+import static org.lwjgl.opengl.GL11.glEnable;
+import static org.lwjgl.opengl.GL15.GL_ARRAY_BUFFER;
+import static org.lwjgl.opengl.GL15.GL_STREAM_DRAW;
+import static org.lwjgl.opengl.GL15.glBindBuffer;
+import static org.lwjgl.opengl.GL15.glBufferData;
+import static org.lwjgl.opengl.GL15.glBufferSubData;
+import static org.lwjgl.opengl.GL15.glDeleteBuffers;
+import static org.lwjgl.opengl.GL15.glGenBuffers;
+import static org.lwjgl.opengl.GL20.glDisableVertexAttribArray;
+import static org.lwjgl.opengl.GL20.glEnableVertexAttribArray;
+import static org.lwjgl.opengl.GL20.glVertexAttribPointer;
+import static org.lwjgl.opengl.GL30.glBindVertexArray;
+import static org.lwjgl.opengl.GL30.glDeleteVertexArrays;
+import static org.lwjgl.opengl.GL30.glGenVertexArrays;
+import static org.lwjgl.opengl.GL32.GL_PROGRAM_POINT_SIZE;
+
+import java.nio.FloatBuffer;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.joml.Vector4f;
+import org.lwjgl.system.MemoryUtil;
+
+import engine.RenderSnapshot;
+import graphics.Renderer;
+import graphics.ResourceLoader;
+import graphics.core.ShaderProgram;
+import graphics.core.scene.Camera;
+
+/**
+ * Draws each particle emitter with a single call, as round points streamed from a vertex buffer the emitter owns.
+ * The buffer is re-specified every frame before it's filled, so the driver never waits for the GPU to finish
+ * drawing the last frame's particles.
+ *
+ * When rendering runs on its own thread, the camera is taken from the render snapshot instead of the live camera
+ * the simulation moves. The buffers of emitters removed from the particle system are deleted on the next frame.
+ *
+ * @author cypress980
+ *
+ */
+public class ParticleRenderer implements Renderer {
+
+    private ShaderProgram shaderProgram;
+
+    private final Camera camera;
+
+    private ParticleSystem particleSystem;
+
+    // The emitters drawn last frame, so removed ones are noticed when the system publishes a new list
+    private ParticleEmitter[] drawnEmitters;
+
+    // Set when rendering runs on its own thread
+    private RenderSnapshot snapshot;
+
+    private final Map<ParticleEmitter, Integer> vaoIds = new IdentityHashMap<>();
+
+    private final Map<ParticleEmitter, Integer> vboIds = new IdentityHashMap<>();
+
+    // Off heap staging for uploads, grown to the largest emitter
+    private FloatBuffer upload;
+
+    private int windowHeightPx;
+
+    private int windowWidthPx;
+
+    private final Matrix4f projMatrix = new Matrix4f();
+
+    private final Matrix4f viewMatrix = new Matrix4f();
+
+    private final Vector3f cameraPosition = new Vector3f();
+
+    private final Vector3f cameraRotation = new Vector3f();
+
+    private final Vector4f color = new Vector4f();
+
+    // Simulation thread only
+    private final Vector3f cameraScratch = new Vector3f();
+
+    public ParticleRenderer(Camera camera) {
+	this.camera = camera;
+    }
+
+    @Override
+    public void loadShaders() throws Exception {
+	shaderProgram = new ShaderProgram();
+	ResourceLoader resLoader = new ResourceLoader();
+	shaderProgram.createVertexShader(resLoader.loadToString("shaders/particle/particle_vertex.vs"));
+	shaderProgram.createFragmentShader(resLoader.loadToString("shaders/particle/particle_fragment.fs"));
+	shaderProgram.link();
+
+	shaderProgram.createUniform("projMatrix");
+	shaderProgram.createUniform("viewMatrix");
+	shaderProgram.createUniform("depth");
+	shaderProgram.createUniform("color");
+    }
+
+    @Override
+    public void render() {
+	if (particleSystem == null) {
+	    return;
+	}
+	ParticleEmitter[] emitters = particleSystem.getPublishedEmitters();
+	if (emitters != drawnEmitters) {
+	    deleteRemovedEmitters(emitters);
+	    drawnEmitters = emitters;
+	}
+	if (snapshot == null) {
+	    camera.getPosition(cameraPosition);
+	    cameraRotation.set(camera.getRotation());
+	} else {
+	    snapshot.getCameraPosition(cameraPosition);
+	    snapshot.getCameraRotation(cameraRotation);
+	}
+
+	shaderProgram.bind();
+	shaderProgram.setUniform("projMatrix", projMatrix.setOrtho2D(0, windowWidthPx, windowHeightPx, 0));
+	shaderProgram.setUniform("viewMatrix", getViewMatrix(cameraPosition, cameraRotation));
+	glEnable(GL_PROGRAM_POINT_SIZE);
+	// Particles are see through, don't let them hide each other
+	glDepthMask(false);
+
+	for (ParticleEmitter emitter : emitters) {
+	    ParticleEmitter.Vertices vertices = emitter.getVertices();
+	    if (vertices.count == 0) {
+		continue;
+	    }
+	    float[] rgba = vertices.color;
+	    shaderProgram.setUniform("color", color.set(rgba[0], rgba[1], rgba[2], rgba[3]));
+	    shaderProgram.setUniform("depth", vertices.z);
+
+	    int floats = vertices.count * ParticleEmitter.FLOATS_PER_VERTEX;
+	    upload.clear();
+	    upload.put(vertices.data, 0, floats).flip();
+	    glBindVertexArray(getVaoId(emitter));
+	    glBindBuffer(GL_ARRAY_BUFFER, vboIds.get(emitter));
+	    glBufferData(GL_ARRAY_BUFFER, (long) vertices.data.length * Float.BYTES, GL_STREAM_DRAW);
+	    glBufferSubData(GL_ARRAY_BUFFER, 0, upload);
+	    glEnableVertexAttribArray(0);
+
+	    glDrawArrays(GL_POINTS, 0, vertices.count);
+
+	    glDisableVertexAttribArray(0);
+	    glBindBuffer(GL_ARRAY_BUFFER, 0);
+	    glBindVertexArray(0);
+	}
+
+	glDepthMask(true);
+	glDisable(GL_PROGRAM_POINT_SIZE);
+	shaderProgram.unbind();
+    }
+
+    /**
+     * Make the emitter's vertex array the first time it's drawn
+     */
+    private int getVaoId(ParticleEmitter emitter) {
+	Integer vaoId = vaoIds.get(emitter);
+	if (vaoId != null) {
+	    return vaoId;
+	}
+	vaoId = glGenVertexArrays();
+	glBindVertexArray(vaoId);
+	int vboId = glGenBuffers();
+	glBindBuffer(GL_ARRAY_BUFFER, vboId);
+	glVertexAttribPointer(0, ParticleEmitter.FLOATS_PER_VERTEX, GL_FLOAT, false, 0, 0);
+	vaoIds.put(emitter, vaoId);
+	vboIds.put(emitter, vboId);
+
+	int floats = emitter.getCapacity() * ParticleEmitter.FLOATS_PER_VERTEX;
+	if (upload == null || upload.capacity() < floats) {
+	    if (upload != null) {
+		MemoryUtil.memFree(upload);
+	    }
+	    upload = MemoryUtil.memAllocFloat(floats);
+	}
+	return vaoId;
+    }
+
+    /**
+     * Delete the buffers of emitters no longer in the system
+     */
+    private void deleteRemovedEmitters(ParticleEmitter[] emitters) {
+	Iterator<Map.Entry<ParticleEmitter, Integer>> drawn = vaoIds.entrySet().iterator();
+	while (drawn.hasNext()) {
+	    ParticleEmitter emitter = drawn.next().getKey();
+	    if (!contains(emitters, emitter)) {
+		glDeleteBuffers(vboIds.remove(emitter));
+		glDeleteVertexArrays(vaoIds.get(emitter));
+		drawn.remove();
+	    }
+	}
+    }
+
+    private static boolean contains(ParticleEmitter[] emitters, ParticleEmitter emitter) {
+	for (ParticleEmitter candidate : emitters) {
+	    if (candidate == emitter) {
+		return true;
+	    }
+	}
+	return false;
+    }
+
+    private Matrix4f getViewMatrix(Vector3f cameraPosition, Vector3f cameraRotation) {
+	viewMatrix.identity();
+
+	// First do the rotation so camera rotates over its position
+	viewMatrix.rotate((float)Math.toRadians(cameraRotation.x), new Vector3f(1, 0, 0))
+		  .rotate((float)Math.toRadians(cameraRotation.y), new Vector3f(0, 1, 0))
+		  .rotate((float)Math.toRadians(cameraRotation.z), new Vector3f(0, 0, 1));
+
+	// Then do the translation
+	viewMatrix.translate(cameraPosition.negate());
+
+	return viewMatrix;
+    }
+
+    @Override
+    public void cleanupShaders() {
+	if (shaderProgram != null) {
+	    shaderProgram.cleanup();
+	}
+	for (int vboId : vboIds.values()) {
+	    glDeleteBuffers(vboId);
+	}
+	for (int vaoId : vaoIds.values()) {
+	    glDeleteVertexArrays(vaoId);
+	}
+	vboIds.clear();
+	vaoIds.clear();
+	if (upload != null) {
+	    MemoryUtil.memFree(upload);
+	    upload = null;
+	}
+    }
+
+    /**
+     * Draw the emitters of a particle system, which may be added and removed while this draws
+     */
+    public void setParticleSystem(ParticleSystem particleSystem) {
+	this.particleSystem = particleSystem;
+    }
+
+    /**
+     * Capture the camera for the render thread. Called on the simulation thread.
+     */
+    public void snapshot(RenderSnapshot snapshot) {
+	snapshot.setCamera(camera.getPosition(cameraScratch), camera.getRotation());
+    }
+
+    /**
+     * Draw with the camera of a snapshot instead of the live one. Called on the render thread.
+     *
+     * @param snapshot the latest snapshot, or null to use the live camera
+     */
+    public void setSnapshot(RenderSnapshot snapshot) {
+	this.snapshot = snapshot;
+    }
+
+    public void setWindowHeightPx(int windowHeightPx) {
+	this.windowHeightPx = windowHeightPx;
+    }
+
+    public void setWindowWidthPx(int windowWidthPx) {
+	this.windowWidthPx = windowWidthPx;
+    }
+}
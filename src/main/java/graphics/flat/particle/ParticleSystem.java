@@ -0,0 +1,127 @@
+package graphics.flat.particle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import engine.EngineComponent;
+
+/**
+ * Updates every particle emitter once per tick. Emitters share nothing, so with more than one thread they are
+ * updated in parallel, each emitter on one thread.
+ * 
+ * Emitters are added and removed on the game thread. The renderer gets its own copy of the emitter list, 
+ * republished on every change, so it never iterates the list while it's changed.
+ *
+ * @author cypress980
+ *
+ */
+public class ParticleSystem implements EngineComponent {
+
+    private final float updateIntervalHint;
+    private final List<ParticleEmitter> emitters = new ArrayList<>();
+    
+    // Copy of the emitters for the render thread
+    private volatile ParticleEmitter[] publishedEmitters = new ParticleEmitter[0];
+
+    // One task per emitter, made when the emitter is added so updating doesn't allocate them
+    private final List<Callable<Void>> tasks = new ArrayList<>();
+    private float interval;
+
+    private ExecutorService executor;
+
+    public ParticleSystem(float updateIntervalHint) {
+	this.updateIntervalHint = updateIntervalHint;
+    }
+
+    public void addEmitter(ParticleEmitter emitter) {
+	emitters.add(emitter);
+	tasks.add(() -> {
+	    emitter.update(interval);
+	    return null;
+	});
+	publishedEmitters = emitters.toArray(new ParticleEmitter[emitters.size()]);
+    }
+
+    public void removeEmitter(ParticleEmitter emitter) {
+	int index = emitters.indexOf(emitter);
+	if (index >= 0) {
+	    emitters.remove(index);
+	    tasks.remove(index);
+	    publishedEmitters = emitters.toArray(new ParticleEmitter[emitters.size()]);
+	}
+    }
+
+    public List<ParticleEmitter> getEmitters() {
+	return emitters;
+    }
+
+    /**
+     * Render thread side. The emitters as of the last add or remove, never changed once returned.
+     */
+    ParticleEmitter[] getPublishedEmitters() {
+	return publishedEmitters;
+    }
+
+    @Override
+    public void update(float interval) throws Exception {
+	if (executor == null || emitters.size() < 2) {
+	    for (ParticleEmitter emitter : emitters) {
+		emitter.update(interval);
+	    }
+	    return;
+	}
+	this.interval = interval; // Seen by the tasks, handing them to the executor publishes it
+	for (Future<Void> task : executor.invokeAll(tasks)) {
+	    task.get(); // Rethrow anything an update threw
+	}
+    }
+
+    @Override
+    public float getUpdateInterval() {
+	return updateIntervalHint;
+    }
+
+    /**
+     * @return the number of live particles across all emitters
+     */
+    public int getParticleCount() {
+	int count = 0;
+	for (ParticleEmitter emitter : emitters) {
+	    count += emitter.getCount();
+	}
+	return count;
+    }
+
+    /**
+     * @param threads number of threads emitters are updated on. 1 updates them on the calling thread.
+     */
+    public void setParallelism(int threads) {
+	if (threads < 1) {
+	    throw new IllegalArgumentException("Parallelism must be at least 1, was " + threads);
+	}
+	shutdown();
+	if (threads > 1) {
+	    AtomicInteger threadCount = new AtomicInteger();
+	    executor = Executors.newFixedThreadPool(threads, runnable -> {
+		Thread thread = new Thread(runnable, "PARTICLE_THREAD_" + threadCount.getAndIncrement());
+		thread.setDaemon(true);
+		return thread;
+	    });
+	}
+    }
+
+    /**
+     * Stop the update threads, if any
+     */
+    public void shutdown() {
+	if (executor != null) {
+	    executor.shutdown();
+	    executor = null;
+	}
+    }
+}
@@ -1,6 +1,9 @@
 package graphics.flat.sprite;
 
+import org.joml.Vector3f;
+
 import engine.GameWindow;
+import engine.RenderSnapshot;
 import engine.game.state.Position;
 import graphics.core.Model;
 import graphics.flat.FlatRenderable;
@@ -13,9 +16,13 @@ import graphics.flat.FlatRenderable;
  */
 public class Sprite implements FlatRenderable {
 
+    // Frame recorded in render snapshots while the sprite is hidden
+    private static final int HIDDEN_FRAME = -1;
+
     private final SpriteSheet spriteSheet;
     private final Position position;
     private int frame = 0;
+    private boolean visible = true;
     private final float z;
     
     public Sprite(SpriteSheet spriteSheet) throws Exception {
@@ -44,6 +51,18 @@ public class Sprite implements FlatRenderable {
 	return frame;
     }
     
+    public boolean isVisible() {
+	return visible;
+    }
+
+    /**
+     * Hidden sprites stay in the scene but aren't drawn, so a pooled sprite can be despawned without changing the 
+     * scene
+     */
+    public void setVisible(boolean visible) {
+	this.visible = visible;
+    }
+
     public void updateSize(GameWindow window) {
         this.setPosition(10f, window.getHeight() - 50f);
     }
@@ -52,12 +71,23 @@ public class Sprite implements FlatRenderable {
         this.position.setCoordinates(x, y, z);
     }
     
-    public void update() throws Exception {
-	spriteSheet.update();
+    /**
+     * @return the model of this sprite's frame, or null while hidden
+     */
+    @Override
+    public Model getModel() {
+	return visible ? spriteSheet.getModel(frame) : null;
     }
     
     @Override
-    public Model getModel() {
-	return spriteSheet.getModel();
+    public void snapshot(RenderSnapshot snapshot, Vector3f scratch) {
+	position.getCoordinates(scratch);
+	snapshot.add(scratch.x, scratch.y, scratch.z, visible ? frame : HIDDEN_FRAME, null);
+    }
+    
+    @Override
+    public Model getModel(RenderSnapshot snapshot, int item) {
+	int snapshotFrame = snapshot.getFrame(item);
+	return snapshotFrame == HIDDEN_FRAME ? null : spriteSheet.getModel(snapshotFrame);
     }
 }
@@ -44,8 +44,7 @@ public class SpriteAnimator {
 	secondsSinceFrameChange += interval;
 	
 	if (secondsSinceFrameChange >= FRAME_DURATION) {
-	    nextFrame();
-	    sprite.update();
+	    nextFrame(); // The sprite sheet picks up the new frame when it is next rendered
 	}
     }
     
@@ -17,16 +17,23 @@ public class SpriteSheet {
 
     private Model model;
 
-    private int frame = 0;
+    // Set by the game, maybe on the simulation thread. The model is only rebuilt when it is rendered, on the GL 
+    // thread.
+    private volatile int frame = 0;
+
+    private int modelFrame = 0;
+
+    // A quad per frame, built up front, so any number of sprites can show different frames of the sheet at once
+    private Model[] frameModels;
 
     public SpriteSheet(String fileName, int numCols, int numRows) throws Exception {
 	this.numCols = numCols;
 	this.numRows = numRows;
 	Material material = new Material(fileName);
-	this.model = buildModel(material, numCols, numRows);
+	this.model = buildModel(material, numCols, numRows, frame);
     }
 
-    private Model buildModel(Material material, int numCols, int numRows) throws Exception {
+    private Model buildModel(Material material, int numCols, int numRows, int frame) throws Exception {
 
 	List<Float> positions = new ArrayList<>();
 	List<Float> textCoords = new ArrayList<>();
@@ -107,13 +114,49 @@ public class SpriteSheet {
 	this.frame = frame;
     }
     
-    public void update() throws Exception {
+    public Model getModel() {
+	return getModel(frame);
+    }
+
+    /**
+     * Build a quad for every frame now, rather than rebuilding the model whenever the frame changes. For sheets 
+     * shared by pooled sprites, which spawn showing any frame and must not create GL buffers when they do. Must 
+     * be called on the GL thread.
+     */
+    public void preloadFrames() throws Exception {
+	if (frameModels != null) {
+	    return;
+	}
 	Material material = model.getMaterial();
-	model.deleteBuffers();
-	model = buildModel(material, numCols, numRows);
+	Model[] models = new Model[numCols * numRows];
+	for (int i = 0; i < models.length; i++) {
+	    models[i] = i == modelFrame ? model : buildModel(material, numCols, numRows, i);
+	}
+	frameModels = models;
     }
 
-    public Model getModel() {
+    public boolean isPreloaded() {
+	return frameModels != null;
+    }
+
+    /**
+     * Must be called on the GL thread, since it rebuilds the model if the frame changed and the frames weren't 
+     * preloaded
+     */
+    public Model getModel(int frame) {
+	if (frameModels != null) {
+	    return frameModels[frame];
+	}
+	if (frame != modelFrame) {
+	    Material material = model.getMaterial();
+	    model.deleteBuffers();
+	    try {
+		model = buildModel(material, numCols, numRows, frame);
+	    } catch (Exception e) {
+		throw new IllegalStateException("Could not build frame " + frame + " of " + material.getTextureFile(), e);
+	    }
+	    modelFrame = frame;
+	}
 	return model;
     }
 }
\ No newline at end of file
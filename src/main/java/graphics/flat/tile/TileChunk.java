@@ -0,0 +1,231 @@
+package graphics.flat.tile;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.joml.Vector3f;
+
+import engine.RenderSnapshot;
+import engine.game.state.Position;
+import graphics.core.Model;
+import graphics.core.Texture;
+import graphics.flat.FlatRenderable;
+
+/**
+ * A square block of a tile map, drawn as one model of a quad per tile
+ *
+ * @author cypress980
+ *
+ */
+public class TileChunk implements FlatRenderable {
+
+    private final TileMap map;
+    private final int chunkX;
+    private final int chunkY;
+    private final short[] tiles;
+    private final Position position;
+    private final float minX;
+    private final float minY;
+    private final float maxX;
+    private final float maxY;
+
+    // Edited since its mesh was last rebuilt. Game thread only.
+    private boolean dirty;
+
+    // Built off the render thread, waiting for the render thread to upload it
+    private final AtomicReference<ChunkMesh> builtMesh = new AtomicReference<>();
+    private volatile int meshBuilds;
+
+    // Render thread only
+    private Model model;
+    private final Vector3f cameraScratch = new Vector3f();
+
+    TileChunk(TileMap map, int chunkX, int chunkY) {
+	this.map = map;
+	this.chunkX = chunkX;
+	this.chunkY = chunkY;
+	int chunkTiles = map.getChunkTiles();
+	this.tiles = new short[chunkTiles * chunkTiles];
+	float chunkSize = chunkTiles * map.getTileSize();
+	minX = chunkX * chunkSize;
+	minY = chunkY * chunkSize;
+	maxX = minX + chunkSize;
+	maxY = minY + chunkSize;
+	position = new Position();
+	position.setCoordinates(minX, minY, map.getZ());
+    }
+
+    short getTile(int x, int y) {
+	return tiles[y * map.getChunkTiles() + x];
+    }
+
+    void setTile(int x, int y, short tile) {
+	int index = y * map.getChunkTiles() + x;
+	if (tiles[index] != tile) {
+	    tiles[index] = tile;
+	    dirty = true;
+	}
+    }
+
+    boolean isDirty() {
+	return dirty;
+    }
+
+    /**
+     * Build the mesh from a copy of the tiles, so the game can go on editing them while it's built
+     */
+    void rebuildMesh(Executor meshBuilder) {
+	short[] copy = tiles.clone();
+	dirty = false;
+	meshBuilder.execute(() -> {
+	    builtMesh.set(buildMesh(copy));
+	    meshBuilds++;
+	});
+    }
+
+    private ChunkMesh buildMesh(short[] tiles) {
+	int quads = 0;
+	for (short tile : tiles) {
+	    if (tile != TileMap.EMPTY) {
+		quads++;
+	    }
+	}
+	ChunkMesh mesh = new ChunkMesh(quads);
+
+	int chunkTiles = map.getChunkTiles();
+	float tileSize = map.getTileSize();
+	int atlasCols = map.getAtlasCols();
+	int atlasRows = map.getAtlasRows();
+	int quad = 0;
+	for (int i = 0; i < tiles.length; i++) {
+	    if (tiles[i] == TileMap.EMPTY) {
+		continue;
+	    }
+	    float left = i % chunkTiles * tileSize;
+	    float top = i / chunkTiles * tileSize;
+	    int frame = tiles[i] - 1;
+	    float u = (float) (frame % atlasCols) / atlasCols;
+	    float v = (float) (frame / atlasCols) / atlasRows;
+	    float du = 1f / atlasCols;
+	    float dv = 1f / atlasRows;
+
+	    // Left top, left bottom, right bottom and right top, as two triangles
+	    mesh.putVertex(quad * 4, left, top, u, v);
+	    mesh.putVertex(quad * 4 + 1, left, top + tileSize, u, v + dv);
+	    mesh.putVertex(quad * 4 + 2, left + tileSize, top + tileSize, u + du, v + dv);
+	    mesh.putVertex(quad * 4 + 3, left + tileSize, top, u + du, v);
+	    int index = quad * 6;
+	    int vertex = quad * 4;
+	    mesh.indices[index] = vertex;
+	    mesh.indices[index + 1] = vertex + 1;
+	    mesh.indices[index + 2] = vertex + 2;
+	    mesh.indices[index + 3] = vertex + 3;
+	    mesh.indices[index + 4] = vertex;
+	    mesh.indices[index + 5] = vertex + 2;
+	    quad++;
+	}
+	return mesh;
+    }
+
+    /**
+     * Swaps in the latest built mesh first, so must be called on the render thread
+     *
+     * @return the chunk's model, or null if it's empty or out of view
+     */
+    @Override
+    public Model getModel() {
+	swapInBuiltMesh();
+	if (model == null || !map.isVisible(minX, minY, maxX, maxY)) {
+	    return null;
+	}
+	return model;
+    }
+
+    /**
+     * Same as getModel, but culled against the camera in the snapshot rather than the live one
+     */
+    @Override
+    public Model getModel(RenderSnapshot snapshot, int item) {
+	swapInBuiltMesh();
+	if (model == null || map.hasView() 
+		&& !map.isVisible(snapshot.getCameraPosition(cameraScratch), minX, minY, maxX, maxY)) {
+	    return null;
+	}
+	return model;
+    }
+
+    private void swapInBuiltMesh() {
+	ChunkMesh mesh = builtMesh.getAndSet(null);
+	if (mesh != null) {
+	    if (model != null) {
+		model.deleteBuffers(); // The atlas is shared, so only the buffers go
+	    }
+	    model = mesh.isEmpty() ? null : mesh.toModel(map);
+	}
+    }
+
+    @Override
+    public Position getPosition() {
+	return position;
+    }
+
+    public int getChunkX() {
+	return chunkX;
+    }
+
+    public int getChunkY() {
+	return chunkY;
+    }
+
+    /**
+     * @return how many times the mesh has been built, for seeing that an edit rebuilds only its own chunk
+     */
+    int getMeshBuilds() {
+	return meshBuilds;
+    }
+
+    ChunkMesh peekBuiltMesh() {
+	return builtMesh.get();
+    }
+
+    void cleanup() {
+	if (model != null) {
+	    model.deleteBuffers();
+	    model = null;
+	}
+    }
+
+    /**
+     * Vertex data of a chunk, built without touching GL
+     */
+    static class ChunkMesh {
+	final float[] positions;
+	final float[] textCoords;
+	final int[] indices;
+
+	ChunkMesh(int quads) {
+	    positions = new float[quads * 4 * 3];
+	    textCoords = new float[quads * 4 * 2];
+	    indices = new int[quads * 6];
+	}
+
+	void putVertex(int vertex, float x, float y, float u, float v) {
+	    positions[vertex * 3] = x;
+	    positions[vertex * 3 + 1] = y;
+	    positions[vertex * 3 + 2] = 0;
+	    textCoords[vertex * 2] = u;
+	    textCoords[vertex * 2 + 1] = v;
+	}
+
+	boolean isEmpty() {
+	    return indices.length == 0;
+	}
+
+	Model toModel(TileMap map) {
+	    Texture atlas = map.getAtlas();
+	    Model model = new Model(positions, textCoords, new float[0], indices);
+	    model.setMaterialAndTexture(map.getMaterial(), atlas);
+	    return model;
+	}
+    }
+}
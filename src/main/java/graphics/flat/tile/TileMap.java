@@ -0,0 +1,271 @@
+package graphics.flat.tile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.joml.Vector3f;
+
+import engine.game.state.Material;
+import graphics.core.Texture;
+import graphics.core.scene.Camera;
+
+/**
+ * An editable grid of tiles, drawn from a texture atlas. The grid is split into square chunks, each with its own
+ * mesh, so a large map is drawn with one call per visible chunk and editing a tile only rebuilds the mesh of its
+ * chunk.
+ *
+ * Tiles are edited on the game thread, which marks their chunk dirty. rebuildDirtyChunks hands a copy of each
+ * dirty chunk's tiles to a mesh building thread, and the finished mesh is swapped in by the render thread the
+ * next time it draws the chunk, so neither the game nor the render thread builds meshes.
+ *
+ * Tile ids are indices into the atlas, counted from 1 left to right and top to bottom. 0 is no tile.
+ *
+ * @author cypress980
+ *
+ */
+public class TileMap {
+
+    public static final short EMPTY = 0;
+
+    private final int width;
+    private final int height;
+    private final int chunkTiles;
+    private final float tileSize;
+    private final String atlasFile;
+    private final int atlasCols;
+    private final int atlasRows;
+    private final float z;
+
+    private final int chunkCols;
+    private final int chunkRows;
+    private final List<TileChunk> chunks;
+
+    private Executor meshBuilder;
+    private ExecutorService ownMeshBuilder;
+
+    // Render thread only
+    private Material material;
+    private Texture atlas;
+    private Camera camera;
+    private float viewWidth;
+    private float viewHeight;
+    private final Vector3f cameraScratch = new Vector3f();
+
+    /**
+     * @param width tiles across
+     * @param height tiles down
+     * @param chunkTiles tiles across and down each chunk
+     * @param tileSize px across and down each tile
+     * @param atlasFile texture with atlasCols by atlasRows equally sized tiles
+     * @param z depth of the map in the flat scene
+     */
+    public TileMap(int width, int height, int chunkTiles, float tileSize, String atlasFile, int atlasCols,
+	    int atlasRows, float z) {
+	if (width < 1 || height < 1 || chunkTiles < 1) {
+	    throw new IllegalArgumentException("Bad tile map size " + width + "x" + height + " in chunks of "
+		    + chunkTiles);
+	}
+	this.width = width;
+	this.height = height;
+	this.chunkTiles = chunkTiles;
+	this.tileSize = tileSize;
+	this.atlasFile = atlasFile;
+	this.atlasCols = atlasCols;
+	this.atlasRows = atlasRows;
+	this.z = z;
+	chunkCols = (width + chunkTiles - 1) / chunkTiles;
+	chunkRows = (height + chunkTiles - 1) / chunkTiles;
+	List<TileChunk> chunks = new ArrayList<>(chunkCols * chunkRows);
+	for (int chunkY = 0; chunkY < chunkRows; chunkY++) {
+	    for (int chunkX = 0; chunkX < chunkCols; chunkX++) {
+		chunks.add(new TileChunk(this, chunkX, chunkY));
+	    }
+	}
+	this.chunks = Collections.unmodifiableList(chunks);
+    }
+
+    public short getTile(int x, int y) {
+	checkBounds(x, y);
+	return getChunk(x, y).getTile(x % chunkTiles, y % chunkTiles);
+    }
+
+    public void setTile(int x, int y, short tile) {
+	checkBounds(x, y);
+	if (tile < EMPTY || tile > atlasCols * atlasRows) {
+	    throw new IllegalArgumentException("No tile " + tile + " in a " + atlasCols + "x" + atlasRows + " atlas");
+	}
+	getChunk(x, y).setTile(x % chunkTiles, y % chunkTiles, tile);
+    }
+
+    /**
+     * Fill a rectangle of tiles, clipped to the map
+     */
+    public void fill(int x, int y, int tilesWide, int tilesHigh, short tile) {
+	int maxX = Math.min(width, x + tilesWide);
+	int maxY = Math.min(height, y + tilesHigh);
+	for (int tileY = Math.max(0, y); tileY < maxY; tileY++) {
+	    for (int tileX = Math.max(0, x); tileX < maxX; tileX++) {
+		setTile(tileX, tileY, tile);
+	    }
+	}
+    }
+
+    /**
+     * Start rebuilding the meshes of the chunks edited since the last call. Call on the game thread once the
+     * tick's edits are done, so several edits to a chunk cost one rebuild.
+     */
+    public void rebuildDirtyChunks() {
+	for (TileChunk chunk : chunks) {
+	    if (chunk.isDirty()) {
+		if (meshBuilder == null) {
+		    ownMeshBuilder = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "TILE_MESH_THREAD");
+			thread.setDaemon(true);
+			return thread;
+		    });
+		    meshBuilder = ownMeshBuilder;
+		}
+		chunk.rebuildMesh(meshBuilder);
+	    }
+	}
+    }
+
+    /**
+     * @param meshBuilder runs mesh builds in the order they're given, one at a time, so an older mesh never
+     * replaces a newer one. By default a thread of the map's own.
+     */
+    public void setMeshBuilder(Executor meshBuilder) {
+	shutdown();
+	this.meshBuilder = meshBuilder;
+    }
+
+    /**
+     * Stop the map's own mesh building thread, if it has one
+     */
+    public void shutdown() {
+	if (ownMeshBuilder != null) {
+	    ownMeshBuilder.shutdown();
+	    ownMeshBuilder = null;
+	    meshBuilder = null;
+	}
+    }
+
+    /**
+     * Only draw the chunks a camera can see. The flat renderer moves its camera in clip space, so a camera at x 1
+     * shows the map from half the view width across. When rendering from snapshots, the camera captured in the 
+     * snapshot is used instead of the live one, which belongs to the simulation thread.
+     *
+     * @param viewWidth px across the view
+     * @param viewHeight px down the view
+     */
+    public void setView(Camera camera, float viewWidth, float viewHeight) {
+	this.camera = camera;
+	this.viewWidth = viewWidth;
+	this.viewHeight = viewHeight;
+    }
+
+    boolean hasView() {
+	return camera != null;
+    }
+
+    /**
+     * Against the live camera, so only for rendering on the thread that moves it
+     */
+    boolean isVisible(float minX, float minY, float maxX, float maxY) {
+	if (camera == null) {
+	    return true;
+	}
+	return isVisible(camera.getPosition(cameraScratch), minX, minY, maxX, maxY);
+    }
+
+    /**
+     * @param cameraPosition where the view's camera is, e.g. as captured in a render snapshot
+     */
+    boolean isVisible(Vector3f cameraPosition, float minX, float minY, float maxX, float maxY) {
+	float viewX = cameraPosition.x * viewWidth / 2;
+	float viewY = -cameraPosition.y * viewHeight / 2;
+	return maxX > viewX && minX < viewX + viewWidth && maxY > viewY && minY < viewY + viewHeight;
+    }
+
+    /**
+     * The chunks to add to a flat scene, each drawn as one model
+     */
+    public List<TileChunk> getChunks() {
+	return chunks;
+    }
+
+    /**
+     * Delete the chunk meshes and the atlas. Must be called on the GL thread.
+     */
+    public void cleanup() {
+	for (TileChunk chunk : chunks) {
+	    chunk.cleanup();
+	}
+	if (atlas != null) {
+	    atlas.cleanup();
+	    atlas = null;
+	}
+    }
+
+    private TileChunk getChunk(int x, int y) {
+	return chunks.get(y / chunkTiles * chunkCols + x / chunkTiles);
+    }
+
+    private void checkBounds(int x, int y) {
+	if (x < 0 || y < 0 || x >= width || y >= height) {
+	    throw new IllegalArgumentException("Tile " + x + ", " + y + " is outside the " + width + "x" + height
+		    + " map");
+	}
+    }
+
+    /**
+     * Loads the atlas the first time a chunk is drawn. Must be called on the GL thread.
+     */
+    Texture getAtlas() {
+	if (atlas == null) {
+	    try {
+		atlas = new Texture(atlasFile);
+	    } catch (Exception e) {
+		throw new IllegalStateException("Could not load tile atlas " + atlasFile, e);
+	    }
+	    material = new Material(atlasFile);
+	}
+	return atlas;
+    }
+
+    Material getMaterial() {
+	return material;
+    }
+
+    public int getWidth() {
+	return width;
+    }
+
+    public int getHeight() {
+	return height;
+    }
+
+    public int getChunkTiles() {
+	return chunkTiles;
+    }
+
+    public float getTileSize() {
+	return tileSize;
+    }
+
+    int getAtlasCols() {
+	return atlasCols;
+    }
+
+    int getAtlasRows() {
+	return atlasRows;
+    }
+
+    float getZ() {
+	return z;
+    }
+}
@@ -5,6 +5,7 @@ import java.util.List;
 
 import org.joml.Vector3f;
 
+import engine.physics.BodyControl;
 import engine.physics.RigidBody;
 import graphics.flat.sprite.Sprite;
 import graphics.flat.sprite.SpriteAnimator;
@@ -19,6 +20,9 @@ public class ViklingCharacter {
     
     private final RigidBody body;
     
+    // Steers the body, directly unless physics runs on its own thread
+    private BodyControl control;
+    
     private static final float TOP_RUNNING_SPEED = 200; //pixels per second
     
     private static final float ACCELERATION = 400; // 0.5s to get to top speed
@@ -39,6 +43,7 @@ public class ViklingCharacter {
 	this.spriteAnimator = new SpriteAnimator(sprite);
 	this.moves = new ArrayList<>();
 	this.body = body;
+	this.control = body;
 	positionDelta = new Vector3f(body.getPosition()).sub(sprite.getPosition().getCoordinates());
     }
     
@@ -71,6 +76,18 @@ public class ViklingCharacter {
 	}
     }
 
+    public RigidBody getBody() {
+	return body;
+    }
+
+    public BodyControl getBodyControl() {
+	return control;
+    }
+
+    public void setBodyControl(BodyControl control) {
+	this.control = control;
+    }
+    
     public void update(float interval) throws Exception {
 	//Update animation
 	spriteAnimator.update(interval);
@@ -80,11 +97,11 @@ public class ViklingCharacter {
  	//to calculate final velocity
  	Vector3f vf;
  	
- 	if (!body.isSliding()) {
+ 	if (!control.isSliding()) {
 
  	    // If not in collision, Process Player Control Movement
  	    dv = calculateDeltaVForMovesForInterval(interval);
- 	    vf = body.getVelocity().add(dv);
+ 	    vf = control.getVelocity(new Vector3f()).add(dv);
  	    
  	    //Enforce top speed though
  	    if (vf.length() > TOP_RUNNING_SPEED) {
@@ -92,15 +109,15 @@ public class ViklingCharacter {
  	    }
  	    
  	    // Calculate new velocity after the interval based on movements and forces, and set the body's new velocity
- 	    body.setVelocity(vf);
+ 	    control.setVelocity(vf);
  	}
 	
 	// Calculate displacement from collision or player movement control
-	Vector3f ds = body.getVelocity().mul(interval); //Displacement is sum of previous velocity * time
-	body.move(ds);
+	Vector3f ds = control.getVelocity(new Vector3f()).mul(interval); //Displacement is sum of previous velocity * time
+	control.move(ds);
 	//Don't move sprite independently. Instead, move it to where the hitbox is explicitly, respecting the initial
 	//difference in position.
-	Vector3f spritePos = body.getPosition().add(positionDelta);
+	Vector3f spritePos = control.getPosition(new Vector3f()).add(positionDelta);
 	sprite.setPosition(spritePos.x, spritePos.y);
     }
     
@@ -110,7 +127,7 @@ public class ViklingCharacter {
 	// physics engine.
 	
 	// Get current Velocity of body
-	Vector3f bodyVelocity = body.getVelocity();
+	Vector3f bodyVelocity = control.getVelocity(new Vector3f());
 	Vector3f movesDv = new Vector3f();
 	Vector3f acc = new Vector3f();
 	
@@ -10,6 +10,7 @@ import static org.lwjgl.glfw.GLFW.GLFW_KEY_SPACE;
 import static org.lwjgl.glfw.GLFW.GLFW_KEY_UP;
 import static org.lwjgl.glfw.GLFW.GLFW_KEY_W;
 
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -22,11 +23,17 @@ import engine.GameEngine;
 import engine.GameLogic;
 import engine.GameWindow;
 import engine.MouseInput;
+import engine.RenderSnapshot;
+import engine.ai.FlowField;
 import engine.ai.IntelligenceEngine;
+import engine.ai.NavigationGrid;
+import engine.input.InputBindings;
 import engine.physics.HitBox;
 import engine.physics.PhysicsEngine;
 import engine.physics.PhysicsEngine.Pair;
+import engine.physics.PhysicsThread;
 import engine.physics.RigidBody;
+import engine.replay.ReplayRecorder;
 import graphics.GraphicsEngine;
 import graphics.core.scene.Camera;
 import graphics.flat.FlatRenderable;
@@ -34,6 +41,7 @@ import graphics.flat.FlatRenderer;
 import graphics.flat.Text;
 import graphics.flat.sprite.Sprite;
 import graphics.flat.sprite.SpriteSheet;
+import graphics.flat.tile.TileMap;
 import viklings.prototype.ViklingCharacter.Move;
 import viklings.prototype.ai.ViklingBrain;
 
@@ -50,10 +58,14 @@ public class ViklingsPrototype implements GameLogic {
     
     //TODO: make this a property
     private static final float AI_UPDATE_INTERVAL_SECONDS = 1f/60f;
+
+    // Cells of a flow field rebuild done per update, so a rebuild is spread over a few ticks
+    private static final int FLOW_FIELD_CELLS_PER_UPDATE = 64;
     
     public static void main(String[] args) {
 	try {
 	    boolean vSync = true;
+	    boolean threadedRendering = Boolean.getBoolean("viklings.threadedRendering");
 	    //TODO: I need to get rid of this game engine tutorial shit, where we call this class the game logic,
 	    // and the engine runs the logic. It's silly and confusing.
 	    // Instead, this will just be the startingpoint of the game. We will compose the game here
@@ -66,6 +78,11 @@ public class ViklingsPrototype implements GameLogic {
 	    // 3, we need to rework the graphics engine to work in the engine component framework
 	    GameLogic gameLogic = new ViklingsPrototype();
 	    GameEngine gameEng = new GameEngine("Viklings 2D", 600, 480, vSync, gameLogic);
+	    gameEng.setThreadedRendering(threadedRendering);
+	    String replayFile = System.getProperty("viklings.recordReplay");
+	    if (replayFile != null) {
+		gameEng.setReplayRecorder(ReplayRecorder.toFile(Paths.get(replayFile)));
+	    }
 	    gameEng.start();
 	} catch (Exception excp) {
 	    excp.printStackTrace();
@@ -77,6 +94,9 @@ public class ViklingsPrototype implements GameLogic {
 
     private final PhysicsEngine physicsEngine;
     
+    // Steps physics on its own thread when set
+    private final PhysicsThread physicsThread;
+
     private final IntelligenceEngine aiEngine;
     
     private FlatRenderer gameRenderer;
@@ -90,7 +110,13 @@ public class ViklingsPrototype implements GameLogic {
 	physicsEngine = new PhysicsEngine(PHYSICS_UPDATE_INTERVAL_SECONDS);
 	aiEngine = new IntelligenceEngine(AI_UPDATE_INTERVAL_SECONDS);
 	gameEngineComponents = new ArrayList<>();
-	gameEngineComponents.add(physicsEngine);
+	if (Boolean.getBoolean("viklings.threadedPhysics")) {
+	    physicsThread = new PhysicsThread(physicsEngine, PHYSICS_UPDATE_INTERVAL_SECONDS, 1024);
+	    gameEngineComponents.add(physicsThread);
+	} else {
+	    physicsThread = null;
+	    gameEngineComponents.add(physicsEngine);
+	}
 	gameEngineComponents.add(aiEngine);
     }
     
@@ -104,11 +130,33 @@ public class ViklingsPrototype implements GameLogic {
 
     private TerrainGenerator terrainGenerator;
     
+    private TileMap terrain;
+
+    // Leads punchy home around whatever blocks the way
+    private FlowField punchyHomeField;
+
+    private enum Control {
+	MOVE_UP, MOVE_DOWN, MOVE_LEFT, MOVE_RIGHT, PAUSE, CAMERA_UP, CAMERA_DOWN, CAMERA_LEFT, CAMERA_RIGHT
+    }
+    
+    private InputBindings<Control> controls;
+    
     //TODO: This entire method basically just does dependency injection and game setup
     // Introduce a dependency injection framework so that we don't have to have all this code sitting where game logic belongs
     // And work on a system to load the game declaratively
     @Override
     public void init(GameWindow window) throws Exception {
+	controls = new InputBindings<>(Control.class, window.getInput())
+		.bindKey(Control.MOVE_UP, GLFW_KEY_W)
+		.bindKey(Control.MOVE_DOWN, GLFW_KEY_S)
+		.bindKey(Control.MOVE_LEFT, GLFW_KEY_A)
+		.bindKey(Control.MOVE_RIGHT, GLFW_KEY_D)
+		.bindKey(Control.PAUSE, GLFW_KEY_SPACE)
+		.bindKey(Control.CAMERA_UP, GLFW_KEY_UP)
+		.bindKey(Control.CAMERA_DOWN, GLFW_KEY_DOWN)
+		.bindKey(Control.CAMERA_LEFT, GLFW_KEY_LEFT)
+		.bindKey(Control.CAMERA_RIGHT, GLFW_KEY_RIGHT);
+	
 	// Set up scene renderer
 	camera = new Camera();
 	gameRenderer = new FlatRenderer(camera);
@@ -135,6 +183,7 @@ public class ViklingsPrototype implements GameLogic {
 	punchySprite.setPosition(100, 100);
 	
 	Vector3f punchyphysxPosition = new Vector3f(112, 100, 0);
+	Vector3f punchyHome = new Vector3f(punchyphysxPosition); // The body moves its position, on its own thread if threaded
 	HitBox punchyHitBox = new HitBox(punchyphysxPosition, 32, 12);
 	RigidBody punchyPhsxBody = new RigidBody(punchyHitBox, 0.5f, punchyphysxPosition, new Vector3f());
 	
@@ -142,16 +191,33 @@ public class ViklingsPrototype implements GameLogic {
 	
 	//Punchy is AI, so register with AI.
 	ViklingBrain punchyAi = new ViklingBrain(punchy, punchyPhsxBody);
-	aiEngine.addAgent(punchyAi);
+	aiEngine.addParallelAgent(punchyAi, punchyPhsxBody);
 	
 	physicsEngine.registerListener(bjornPhsxBody, bjornPhsxBody);
 	physicsEngine.registerListener(punchyPhsxBody, punchyPhsxBody);
 	
 	physicsInteractions.add(new Pair<>(bjornPhsxBody, punchyPhsxBody));
 	physicsEngine.setPossibleInteractions(physicsInteractions);
+	if (physicsThread != null) {
+	    bjorn.setBodyControl(physicsThread.getControl(bjornPhsxBody));
+	    punchy.setBodyControl(physicsThread.getControl(punchyPhsxBody));
+	    // The physics thread writes the bodies, so the AI reads what it publishes instead
+	    aiEngine.setPhysicsThread(physicsThread);
+	    physicsThread.start();
+	}
 	//Add Terrain
-	FlatRenderable terrain = terrainGenerator.generateTerrain();
-	scene.add(terrain);
+	terrain = terrainGenerator.generateTerrain();
+	terrain.setView(camera, window.getWidth(), window.getHeight());
+	terrain.rebuildDirtyChunks();
+	scene.addAll(terrain.getChunks());
+	
+	//Punchy finds his way home over the terrain
+	NavigationGrid navigationGrid = new NavigationGrid(terrain.getWidth(), terrain.getHeight(), 
+		terrain.getTileSize(), 0, 0);
+	punchyHomeField = new FlowField(navigationGrid);
+	punchyHomeField.setGoal(punchyHome.x, punchyHome.y);
+	punchyHomeField.build();
+	punchyAi.setFlowField(punchyHomeField);
 	
 	//Add items to the scene
 	SpriteSheet goldSpriteSheet = new SpriteSheet("textures/gold.png", 1, 1);
@@ -186,38 +252,36 @@ public class ViklingsPrototype implements GameLogic {
 	}
     }
     
-    private boolean isSpacePressed = false;
-    
     private void inputPauseControls(GameWindow window, MouseInput mouseInput, float interval) {
-	//Since this is a toggled key, we need to have a cooldown on it, so we dont rapidly toggle on and off
-	if (isSpacePressed && !window.isKeyPressed(GLFW_KEY_SPACE)) {
+	// Toggle on release, so holding space doesn't flip back and forth
+	if (controls.wasReleased(Control.PAUSE)) {
 	    isPaused = !isPaused;
 	}
-	
-	isSpacePressed = window.isKeyPressed(GLFW_KEY_SPACE);
     }
     
     private void inputCharacterControls(GameWindow window, MouseInput mouseInput) {
-	if (window.isKeyPressed(GLFW_KEY_W)) {
+	boolean up = controls.isActive(Control.MOVE_UP);
+	boolean down = controls.isActive(Control.MOVE_DOWN);
+	boolean left = controls.isActive(Control.MOVE_LEFT);
+	boolean right = controls.isActive(Control.MOVE_RIGHT);
+	
+	if (up) {
 	    bjorn.move(Move.UP);
 	}
 	
-	if (window.isKeyPressed(GLFW_KEY_S)) {
+	if (down) {
 	    bjorn.move(Move.DOWN);
 	} 
 	
-	if (window.isKeyPressed(GLFW_KEY_A)) {
+	if (left) {
 	    bjorn.move(Move.LEFT);
 	} 
 
-	if (window.isKeyPressed(GLFW_KEY_D)) {
+	if (right) {
 	    bjorn.move(Move.RIGHT);
 	} 
 
-	if (!window.isKeyPressed(GLFW_KEY_D) &&
-		!window.isKeyPressed(GLFW_KEY_W) &&
-		!window.isKeyPressed(GLFW_KEY_S) &&
-		!window.isKeyPressed(GLFW_KEY_A)) {
+	if (!up && !down && !left && !right) {
 	    bjorn.move(Move.STAND);
 	}
     }
@@ -225,15 +289,15 @@ public class ViklingsPrototype implements GameLogic {
     private void inputCameraControls(GameWindow window, MouseInput mouseInput) {
 	float dxCam = 0, dyCam = 0;
 	
-	if (window.isKeyPressed(GLFW_KEY_UP)) {
+	if (controls.isActive(Control.CAMERA_UP)) {
 	    dyCam = .02f;
-	} else if (window.isKeyPressed(GLFW_KEY_DOWN)) {
+	} else if (controls.isActive(Control.CAMERA_DOWN)) {
 	    dyCam = -.02f;
 	}
 	
-	if (window.isKeyPressed(GLFW_KEY_RIGHT)) {
+	if (controls.isActive(Control.CAMERA_RIGHT)) {
 	    dxCam = .02f;
-	} else if (window.isKeyPressed(GLFW_KEY_LEFT)) {
+	} else if (controls.isActive(Control.CAMERA_LEFT)) {
 	    dxCam = -.02f;
 	}
 	
@@ -254,6 +318,8 @@ public class ViklingsPrototype implements GameLogic {
 	    
 	    bjorn.update(interval);
 	    punchy.update(interval);
+	    terrain.rebuildDirtyChunks();
+	    punchyHomeField.update(FLOW_FIELD_CELLS_PER_UPDATE);
 	} catch (Exception e) {
 	    logger.error("Exception updating game logic!", e);
 	    throw new RuntimeException();
@@ -264,12 +330,56 @@ public class ViklingsPrototype implements GameLogic {
     public void render(GameWindow window) {
 	graphicsEngine.render();
     }
+    
+    @Override
+    public void snapshot(RenderSnapshot snapshot) {
+	gameRenderer.snapshot(snapshot);
+    }
+    
+    @Override
+    public void render(GameWindow window, RenderSnapshot previous, RenderSnapshot current, float alpha) {
+	gameRenderer.setSnapshots(previous, current, alpha);
+	graphicsEngine.render();
+    }
 
     @Override
     public void cleanup() {
+	// Cleanup runs on the GL thread, free the chunk meshes and atlas while the context is still there
+	terrain.cleanup();
 	graphicsEngine.removeRenderer(gameRenderer);
+	aiEngine.shutdown();
+	physicsEngine.shutdown();
+	terrain.shutdown();
+	if (physicsThread != null) {
+	    try {
+		physicsThread.stop();
+	    } catch (InterruptedException e) {
+		Thread.currentThread().interrupt();
+	    }
+	}
     }
 
+    private final Vector3f hashScratch = new Vector3f();
+    
+    @Override
+    public long getStateHash() {
+	long hash = 17;
+	for (ViklingCharacter vikling : new ViklingCharacter[] { bjorn, punchy }) {
+	    // Through the control, which reads the published transforms when physics has its own thread
+	    vikling.getBodyControl().getPosition(hashScratch);
+	    hash = hash(hash, hashScratch);
+	    vikling.getBodyControl().getVelocity(hashScratch);
+	    hash = hash(hash, hashScratch);
+	}
+	return hash;
+    }
+    
+    private static long hash(long hash, Vector3f vector) {
+	hash = hash * 31 + Float.floatToIntBits(vector.x);
+	hash = hash * 31 + Float.floatToIntBits(vector.y);
+	return hash * 31 + Float.floatToIntBits(vector.z);
+    }
+    
     @Override
     public List<EngineComponent> getEngineComponents() {
 	return gameEngineComponents;
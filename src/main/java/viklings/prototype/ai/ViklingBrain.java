@@ -1,46 +1,145 @@
 package viklings.prototype.ai;
 
+import java.io.IOException;
+
 import org.joml.Vector3f;
 
-import engine.ai.IntelligentAgent;
+import engine.ai.BehaviorTree;
+import engine.ai.BehaviorTreeCompiler;
+import engine.ai.Blackboard;
+import engine.ai.CommandBuffer;
+import engine.ai.FlowField;
+import engine.ai.ParallelAgent;
+import engine.ai.WorldView;
 import engine.physics.RigidBody;
 import viklings.prototype.ViklingCharacter;
 import viklings.prototype.ViklingCharacter.Move;
 
-public class ViklingBrain implements IntelligentAgent {
-    
+public class ViklingBrain implements ParallelAgent {
+
+    private static final Move[] MOVES = Move.values();
+
     private final Vector3f initialPos;
     private final ViklingCharacter body;
-    private final RigidBody decisionContext;
-    
+    private FlowField flowField;
+    private final Blackboard blackboard;
+
+    // What the tree's leaves read and emit into, set for the length of a think
+    private int self;
+    private WorldView view;
+    private CommandBuffer commands;
+
     public ViklingBrain(ViklingCharacter body, RigidBody decisionContext) {
 	this.body = body;
-	this.decisionContext = decisionContext;
 	this.initialPos = decisionContext.getPosition();
+	this.blackboard = Behavior.TREE.createBlackboard();
     }
-    
+
     /**
-     * For now the dumb guy just tries to go back to where he started
+     * Follow a shared flow field, e.g. to a rally point, instead of heading back to where he started. 
+     * Null goes back to heading home.
+     */
+    public void setFlowField(FlowField flowField) {
+	this.flowField = flowField;
+    }
+
+    /**
+     * For now the dumb guy just tries to go back to where he started, see behaviors/vikling.json. Reads the AI 
+     * tick's snapshot of the world, so it can run on any thread.
      */
     @Override
-    public void think() {
-	float distance = decisionContext.getPosition().distance(initialPos);
-	if (distance < 1 || decisionContext.isSliding()) {
-	    body.move(Move.STAND);
-	    return;
+    public void think(int self, WorldView view, CommandBuffer commands) {
+	this.self = self;
+	this.view = view;
+	this.commands = commands;
+	try {
+	    Behavior.TREE.tick(this, blackboard);
+	} finally {
+	    this.view = null;
+	    this.commands = null;
+	}
+    }
+
+    private void emit(Move move) {
+	commands.emit(move.ordinal());
+    }
+
+    /**
+     * @return false if the field has no way on from here, at its goal or off its grid
+     */
+    private boolean followFlowField() {
+	int direction = flowField.getDirection(view.getX(self), view.getY(self));
+	if (direction == FlowField.NO_DIRECTION) {
+	    return false;
 	}
 	
-	if (decisionContext.getPosition().x < initialPos.x) {
-	    body.move(Move.RIGHT);
-	} else if (decisionContext.getPosition().x > initialPos.x) {
-	    body.move(Move.LEFT);
+	int stepX = FlowField.getStepX(direction);
+	int stepY = FlowField.getStepY(direction);
+	if (stepX != 0) {
+	    emit(stepX < 0 ? Move.LEFT : Move.RIGHT);
+	}
+	if (stepY != 0) {
+	    emit(stepY < 0 ? Move.UP : Move.DOWN);
+	}
+	return true;
+    }
+
+    private void walkHome() {
+	float x = view.getX(self);
+	float y = view.getY(self);
+	if (x < initialPos.x) {
+	    emit(Move.RIGHT);
+	} else if (x > initialPos.x) {
+	    emit(Move.LEFT);
 	}
 	
-	if (decisionContext.getPosition().y < initialPos.y) {
-	    body.move(Move.DOWN);
-	} else if (decisionContext.getPosition().y > initialPos.y) {
-	    body.move(Move.UP);
+	if (y < initialPos.y) {
+	    emit(Move.DOWN);
+	} else if (y > initialPos.y) {
+	    emit(Move.UP);
+	}
+    }
+
+    private boolean isNearHome(float distance) {
+	float dx = view.getX(self) - initialPos.x;
+	float dy = view.getY(self) - initialPos.y;
+	return dx * dx + dy * dy < distance * distance;
+    }
+
+    private static int status(boolean condition) {
+	return condition ? BehaviorTree.SUCCESS : BehaviorTree.FAILURE;
+    }
+
+    /**
+     * The vikling behavior tree, compiled once and shared by every brain
+     */
+    private static class Behavior {
+	static final BehaviorTree<ViklingBrain> TREE = compile();
+
+	private static BehaviorTree<ViklingBrain> compile() {
+	    BehaviorTreeCompiler<ViklingBrain> compiler = new BehaviorTreeCompiler<ViklingBrain>()
+		    .register("isSliding", (brain, board, param) -> status(brain.view.isSliding(brain.self)))
+		    .register("hasFlowField", (brain, board, param) -> status(brain.flowField != null))
+		    .register("isNearHome", (brain, board, param) -> status(brain.isNearHome(param)))
+		    .register("stand", (brain, board, param) -> {
+			brain.emit(Move.STAND);
+			return BehaviorTree.SUCCESS;
+		    })
+		    .register("followFlowField", (brain, board, param) -> status(brain.followFlowField()))
+		    .register("walkHome", (brain, board, param) -> {
+			brain.walkHome();
+			return BehaviorTree.RUNNING;
+		    });
+	    try {
+		return compiler.compileResource("behaviors/vikling.json");
+	    } catch (IOException e) {
+		throw new IllegalStateException("Could not load the vikling behavior tree", e);
+	    }
 	}
     }
 
+    @Override
+    public void execute(int command) {
+	body.move(MOVES[command]);
+    }
 }
@@ -0,0 +1,16 @@
+#version 330
+
+in float outAlpha;
+out vec4 fragColor;
+
+uniform vec4 color;
+
+void main()
+{
+    // Round, with soft edges
+    float distance = length(gl_PointCoord - vec2(0.5)) * 2.0;
+    if (distance > 1.0) {
+        discard;
+    }
+    fragColor = vec4(color.rgb, color.a * outAlpha * (1.0 - distance * distance));
+}
\ No newline at end of file
@@ -0,0 +1,17 @@
+#version 330
+
+layout (location=0) in vec4 particle;
+
+out float outAlpha;
+
+uniform mat4 projMatrix;
+uniform mat4 viewMatrix;
+uniform float depth;
+
+void main()
+{
+    // x and y, then the size across and the alpha
+    gl_Position = viewMatrix * projMatrix * vec4(particle.xy, depth, 1.0);
+    gl_PointSize = particle.z;
+    outAlpha = particle.w;
+}
\ No newline at end of file
@@ -0,0 +1,52 @@
+package engine;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FramePacerTest {
+
+    @Test
+    public void framesLandOnTheTargetRateWithoutSpinningTheWholeTime() {
+	FramePacer pacer = new FramePacer(144);
+	ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+	long cpuStart = threads.getCurrentThreadCpuTime();
+	long wallStart = System.nanoTime();
+
+	for (int frame = 0; frame < 145; frame++) {
+	    pacer.waitForNextFrame();
+	}
+
+	long wall = System.nanoTime() - wallStart;
+	long cpu = threads.getCurrentThreadCpuTime() - cpuStart;
+	Assert.assertEquals(144, pacer.getFrameCount());
+	// Coarse bounds only, a loaded machine can wake the pacer late and steal the cpu. Frames never come early 
+	// though, and a pacer that spins the whole time uses about as much cpu as wall time.
+	double period = pacer.getPeriodNanos();
+	Assert.assertTrue("Mean frame " + pacer.getMeanFrameNanos() + "ns", pacer.getMeanFrameNanos() > period * 0.9);
+	Assert.assertTrue("Mean frame " + pacer.getMeanFrameNanos() + "ns", pacer.getMeanFrameNanos() < period * 4);
+	Assert.assertTrue(pacer.getMinFrameNanos() <= pacer.getMaxFrameNanos());
+	Assert.assertTrue(pacer.getJitterNanos() >= 0);
+	Assert.assertTrue("Used " + cpu + "ns of cpu in " + wall + "ns", cpu < wall * 0.9);
+    }
+
+    @Test
+    public void slowFramesDontMakeTheNextOnesRush() throws Exception {
+	FramePacer pacer = new FramePacer(200);
+	pacer.waitForNextFrame();
+	Thread.sleep(50);
+	pacer.waitForNextFrame();
+	pacer.resetStats();
+
+	pacer.waitForNextFrame();
+	pacer.waitForNextFrame();
+	Assert.assertTrue(pacer.getLastFrameNanos() > pacer.getPeriodNanos() / 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void targetRateMustBePositive() {
+	new FramePacer(0);
+    }
+}
@@ -0,0 +1,74 @@
+package engine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ObjectPoolTest {
+
+    @Test
+    public void staleHandlesAreRefusedOnceTheSlotIsReused() {
+	ObjectPool<StringBuilder> pool = new ObjectPool<>(1, StringBuilder::new);
+	long first = pool.spawn();
+	StringBuilder object = pool.get(first);
+
+	Assert.assertTrue(pool.despawn(first));
+	long second = pool.spawn();
+
+	Assert.assertNotEquals(first, second);
+	Assert.assertSame(object, pool.get(second));
+	Assert.assertFalse(pool.isAlive(first));
+	Assert.assertNull(pool.get(first));
+	Assert.assertFalse(pool.despawn(first));
+	Assert.assertTrue(pool.isAlive(second));
+    }
+
+    @Test
+    public void spawningFailsOnceEveryObjectIsInUse() {
+	ObjectPool<StringBuilder> pool = new ObjectPool<>(2, StringBuilder::new);
+	pool.spawn();
+	pool.spawn();
+
+	Assert.assertEquals(ObjectPool.NO_HANDLE, pool.spawn());
+	Assert.assertFalse(pool.isAlive(ObjectPool.NO_HANDLE));
+	Assert.assertEquals(2, pool.getLiveCount());
+    }
+
+    @Test
+    public void liveObjectsStayPackedAfterDespawning() {
+	ObjectPool<StringBuilder> pool = new ObjectPool<>(4, StringBuilder::new);
+	long[] handles = new long[4];
+	for (int i = 0; i < handles.length; i++) {
+	    handles[i] = pool.spawn();
+	    pool.get(handles[i]).append(i);
+	}
+
+	pool.despawn(handles[1]);
+
+	Assert.assertEquals(3, pool.getLiveCount());
+	List<String> live = new ArrayList<>();
+	for (int i = 0; i < pool.getLiveCount(); i++) {
+	    Assert.assertTrue(pool.isAlive(pool.getLiveHandle(i)));
+	    live.add(pool.getLive(i).toString());
+	}
+	Assert.assertEquals(3, live.size());
+	Assert.assertTrue(live.contains("0") && live.contains("2") && live.contains("3"));
+    }
+
+    @Test
+    public void objectsAreReadiedAndPutAwayOnSpawnAndDespawn() {
+	List<String> calls = new ArrayList<>();
+	ObjectPool<StringBuilder> pool = new ObjectPool<>(1, StringBuilder::new,
+		object -> calls.add("spawn"), object -> calls.add("despawn"));
+
+	long handle = pool.spawn();
+	pool.despawn(handle);
+	pool.despawn(handle);
+
+	Assert.assertEquals(2, calls.size());
+	Assert.assertEquals("spawn", calls.get(0));
+	Assert.assertEquals("despawn", calls.get(1));
+    }
+}
@@ -0,0 +1,81 @@
+package engine;
+
+import org.joml.Vector3f;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TripleBufferTest {
+
+    @Test
+    public void consumerOnlySeesWholeSnapshotsInOrder() throws Exception {
+	TripleBuffer<RenderSnapshot> buffer = new TripleBuffer<>(RenderSnapshot::new);
+	int ticks = 200_000;
+	Thread producer = new Thread(() -> {
+	    for (int tick = 1; tick <= ticks; tick++) {
+		RenderSnapshot snapshot = buffer.getBack();
+		snapshot.clear();
+		for (int item = 0; item < 10; item++) {
+		    snapshot.add(tick, tick, tick, tick, null);
+		}
+		snapshot.setTimeNanos(tick);
+		buffer.publish();
+	    }
+	});
+	producer.start();
+
+	long lastTick = 0;
+	while (lastTick < ticks) {
+	    if (!buffer.swap()) {
+		continue;
+	    }
+	    RenderSnapshot snapshot = buffer.getFront();
+	    Assert.assertTrue(snapshot.getTimeNanos() > lastTick);
+	    lastTick = snapshot.getTimeNanos();
+	    Assert.assertEquals(10, snapshot.size());
+	    for (int item = 0; item < 10; item++) {
+		Assert.assertEquals(lastTick, snapshot.getX(item), 0);
+		Assert.assertEquals(lastTick, snapshot.getFrame(item));
+	    }
+	}
+	producer.join();
+	Assert.assertFalse(buffer.swap());
+    }
+
+    @Test
+    public void alphaRunsFromThePreviousSnapshotToTheCurrentOne() {
+	RenderSnapshot previous = new RenderSnapshot();
+	previous.setTimeNanos(1_000);
+	RenderSnapshot current = new RenderSnapshot();
+	current.setTimeNanos(2_000);
+
+	Assert.assertEquals(0, current.getAlpha(previous, 2_000), 0);
+	Assert.assertEquals(0.25f, current.getAlpha(previous, 2_250), 0);
+	Assert.assertEquals(1, current.getAlpha(previous, 5_000), 0);
+	Assert.assertEquals(1, current.getAlpha(new RenderSnapshot(), 2_000), 0);
+    }
+
+    @Test
+    public void copiesCarryTheTransformsCameraAndOwnersItemsAreMatchedBy() {
+	Object first = new Object();
+	Object second = new Object();
+	RenderSnapshot published = new RenderSnapshot();
+	published.add(1, 2, 3, 0, null);
+	published.setTransform(0, first, new Vector3f(0, 0, 90), 2);
+	published.add(4, 5, 6, 0, null);
+	published.setTransform(1, second, new Vector3f(), 1);
+	published.setCamera(new Vector3f(7, 8, 9), new Vector3f(0, 45, 0));
+
+	RenderSnapshot copy = new RenderSnapshot();
+	copy.copyFrom(published);
+	published.clear();
+
+	Assert.assertEquals(90, copy.getRotation(0, new Vector3f()).z, 0);
+	Assert.assertEquals(2, copy.getScale(0), 0);
+	Assert.assertEquals(new Vector3f(7, 8, 9), copy.getCameraPosition(new Vector3f()));
+	Assert.assertEquals(45, copy.getCameraRotation(new Vector3f()).y, 0);
+	Assert.assertEquals(0, copy.indexOf(first, 0));
+	Assert.assertEquals(1, copy.indexOf(second, 0));
+	Assert.assertEquals(-1, copy.indexOf(new Object(), 0));
+	Assert.assertEquals(-1, published.indexOf(first, 0));
+    }
+}
@@ -0,0 +1,90 @@
+package engine.ai;
+
+import org.joml.Vector3f;
+import org.junit.Assert;
+import org.junit.Test;
+
+import engine.physics.HitBox;
+import engine.physics.RigidBody;
+
+public class AgentSchedulerTest {
+
+    private static final float TICK = 1f / 60f;
+
+    @Test
+    public void distantAgentsThinkAtTheirLevelOfDetailRate() {
+	AgentScheduler scheduler = new AgentScheduler(Long.MAX_VALUE);
+	scheduler.addLevelOfDetail(100, 60);
+	scheduler.addLevelOfDetail(1000, 5);
+	int near = scheduler.addAgent(() -> {}, givenBody(10, 10));
+	int far = scheduler.addAgent(() -> {}, givenBody(500, 0));
+	int farthest = scheduler.addAgent(() -> {}, givenBody(5000, 0));
+
+	for (int i = 0; i < 60; i++) {
+	    scheduler.update(TICK);
+	}
+
+	Assert.assertEquals(60, scheduler.getThinkCount(near));
+	Assert.assertEquals(5, scheduler.getThinkCount(far), 1);
+	Assert.assertEquals(5, scheduler.getThinkCount(farthest), 1);
+    }
+
+    @Test
+    public void agentsOverBudgetTakeTurns() {
+	AgentScheduler scheduler = new AgentScheduler(1);
+	int[] thinks = new int[10];
+	for (int i = 0; i < thinks.length; i++) {
+	    int agent = i;
+	    scheduler.addAgent(() -> thinks[agent]++, givenBody(0, 0));
+	}
+
+	// The budget only fits one agent per tick
+	for (int i = 0; i < thinks.length; i++) {
+	    scheduler.update(TICK);
+	    Assert.assertEquals(1, scheduler.getLastTickThinks());
+	}
+
+	for (int agentThinks : thinks) {
+	    Assert.assertEquals(1, agentThinks);
+	}
+	// Without levels of detail every agent is due every tick, so the rest are always waiting
+	Assert.assertEquals(thinks.length - 1, scheduler.getLastTickDeferred());
+    }
+
+    @Test
+    public void farBandsStillThinkWhenNearAgentsUseTheWholeBudget() {
+	AgentScheduler scheduler = new AgentScheduler(1);
+	scheduler.addLevelOfDetail(100, 60);
+	scheduler.addLevelOfDetail(1000, 60);
+	for (int i = 0; i < 20; i++) {
+	    scheduler.addAgent(() -> {}, givenBody(0, 0));
+	}
+	int far = scheduler.addAgent(() -> {}, givenBody(500, 0));
+
+	// The near band alone has more due agents than the budget fits every tick
+	for (int i = 0; i < 10; i++) {
+	    scheduler.update(TICK);
+	}
+
+	Assert.assertTrue(scheduler.getThinkCount(far) > 0);
+    }
+
+    @Test
+    public void thinkLatencyIsRecorded() {
+	AgentScheduler scheduler = new AgentScheduler(Long.MAX_VALUE);
+	int slow = scheduler.addAgent(() -> {
+	    long end = System.nanoTime() + 200_000;
+	    while (System.nanoTime() < end);
+	}, givenBody(0, 0));
+
+	scheduler.update(TICK);
+
+	Assert.assertTrue(scheduler.getLastThinkNanos(slow) >= 200_000);
+	Assert.assertEquals(scheduler.getLastThinkNanos(slow), scheduler.getAverageThinkNanos(slow));
+    }
+
+    private RigidBody givenBody(float x, float y) {
+	Vector3f position = new Vector3f(x, y, 0);
+	return new RigidBody(new HitBox(position, 1, 1), 1, position, new Vector3f());
+    }
+}
@@ -0,0 +1,109 @@
+package engine.ai;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BehaviorTreeTest {
+
+    private static final String PATROL = "{"
+	    + "\"name\": \"patrol\","
+	    + "\"blackboard\": { \"floats\": [\"x\"], \"ints\": [\"steps\"] },"
+	    + "\"root\": { \"type\": \"selector\", \"children\": ["
+	    + "  { \"type\": \"sequence\", \"children\": ["
+	    + "    { \"type\": \"invert\", \"children\": [{ \"type\": \"leaf\", \"name\": \"isBelow\", \"param\": 3 }] },"
+	    + "    { \"type\": \"leaf\", \"name\": \"rest\" }"
+	    + "  ]},"
+	    + "  { \"type\": \"memorySequence\", \"children\": ["
+	    + "    { \"type\": \"leaf\", \"name\": \"step\" },"
+	    + "    { \"type\": \"leaf\", \"name\": \"walk\" }"
+	    + "  ]}"
+	    + "]}}";
+
+    private BehaviorTreeCompiler<int[]> compiler;
+
+    private int xSlot;
+    private int stepsSlot;
+
+    @Before
+    public void registerLeaves() {
+	compiler = new BehaviorTreeCompiler<int[]>()
+		.register("isBelow", (agent, board, param) -> 
+			board.getFloat(xSlot) < param ? BehaviorTree.SUCCESS : BehaviorTree.FAILURE)
+		.register("rest", (agent, board, param) -> {
+		    agent[0]++;
+		    return BehaviorTree.SUCCESS;
+		})
+		.register("step", (agent, board, param) -> {
+		    board.setInt(stepsSlot, board.getInt(stepsSlot) + 1);
+		    return BehaviorTree.SUCCESS;
+		})
+		.register("walk", (agent, board, param) -> {
+		    board.setFloat(xSlot, board.getFloat(xSlot) + 0.5f);
+		    return board.getFloat(xSlot) % 1 == 0 ? BehaviorTree.SUCCESS : BehaviorTree.RUNNING;
+		});
+    }
+
+    @Test
+    public void agentsShareATreeButNotTheirState() throws Exception {
+	BehaviorTree<int[]> tree = compiler.compile(PATROL);
+	xSlot = tree.getFloatSlot("x");
+	stepsSlot = tree.getIntSlot("steps");
+	Assert.assertEquals(8, tree.size());
+
+	int[] walker = new int[1];
+	Blackboard walkerBoard = tree.createBlackboard();
+	int[] rester = new int[1];
+	Blackboard resterBoard = tree.createBlackboard();
+	resterBoard.setFloat(xSlot, 10);
+
+	for (int i = 0; i < 10; i++) {
+	    tree.tick(walker, walkerBoard);
+	    tree.tick(rester, resterBoard);
+	}
+
+	// walking takes two ticks a step, and the memory sequence resumes walking instead of stepping again
+	Assert.assertEquals(3, walkerBoard.getInt(stepsSlot));
+	Assert.assertEquals(3, walkerBoard.getFloat(xSlot), 0);
+	Assert.assertEquals(4, walker[0]);
+	Assert.assertEquals(10, rester[0]);
+	Assert.assertEquals(0, resterBoard.getInt(stepsSlot));
+    }
+
+    @Test
+    public void tickingAllocatesNothing() throws Exception {
+	BehaviorTree<int[]> tree = compiler.compile(PATROL);
+	xSlot = tree.getFloatSlot("x");
+	stepsSlot = tree.getIntSlot("steps");
+	int[] agent = new int[1];
+	Blackboard board = tree.createBlackboard();
+
+	for (int i = 0; i < 100_000; i++) {
+	    board.setFloat(xSlot, i % 6);
+	    tree.tick(agent, board);
+	}
+
+	com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+	long thread = Thread.currentThread().getId();
+	long before = threads.getThreadAllocatedBytes(thread);
+	for (int i = 0; i < 100_000; i++) {
+	    board.setFloat(xSlot, i % 6);
+	    tree.tick(agent, board);
+	}
+	long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+	Assert.assertTrue("Allocated " + allocated + " bytes", allocated < 1024);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unregisteredLeavesFailToCompile() throws Exception {
+	new BehaviorTreeCompiler<int[]>().compile(PATROL);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownBlackboardKeysAreRejected() throws Exception {
+	compiler.compile(PATROL).getFloatSlot("y");
+    }
+}
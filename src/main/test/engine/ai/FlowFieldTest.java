@@ -0,0 +1,106 @@
+package engine.ai;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FlowFieldTest {
+
+    private static final float CELL_SIZE = 32;
+
+    private NavigationGrid grid;
+    private FlowField flowField;
+
+    @Before
+    public void setupGrid() {
+	grid = new NavigationGrid(20, 20, CELL_SIZE, 0, 0);
+	// A wall down column 10, with a gap at the bottom
+	grid.setBlocked(10, 0, 1, 19, true);
+	flowField = new FlowField(grid);
+    }
+
+    @Test
+    public void followingTheFieldReachesTheGoal() {
+	flowField.setGoal(cell(17), cell(2));
+	flowField.build();
+
+	for (int startX : new int[] { 0, 5, 9, 11, 19 }) {
+	    Assert.assertEquals(17 * 20 + 2, walk(startX, 2));
+	}
+    }
+
+    @Test
+    public void agentsKeepTheOldFieldWhileTheNewOneBuilds() {
+	flowField.setGoal(cell(17), cell(2));
+	flowField.build();
+	int oldDirection = flowField.getDirection(cell(2), cell(2));
+
+	flowField.setGoal(cell(2), cell(17));
+	Assert.assertFalse(flowField.update(10));
+	Assert.assertEquals(oldDirection, flowField.getDirection(cell(2), cell(2)));
+
+	while (!flowField.update(10));
+	Assert.assertEquals(2 * 20 + 17, walk(2, 2));
+    }
+
+    @Test
+    public void walledOffCellsHaveNoDirection() {
+	grid.setBlocked(10, 19, true);
+	flowField.setGoal(cell(17), cell(2));
+	flowField.build();
+
+	Assert.assertEquals(FlowField.NO_DIRECTION, flowField.getDirection(cell(2), cell(2)));
+	Assert.assertNotEquals(FlowField.NO_DIRECTION, flowField.getDirection(cell(15), cell(2)));
+    }
+
+    @Test
+    public void theFieldIsRebuiltWhenObstaclesChange() {
+	flowField.setGoal(cell(17), cell(2));
+	flowField.build();
+	Assert.assertFalse(flowField.isStale());
+
+	// Close the gap, and open one at the top instead
+	grid.setBlocked(10, 19, true);
+	grid.setBlocked(10, 0, false);
+	Assert.assertTrue(flowField.isStale());
+	// The same goal doesn't skip the rebuild once the grid has changed
+	flowField.setGoal(cell(17), cell(2));
+	Assert.assertTrue(flowField.isBuilding());
+
+	while (!flowField.update(10));
+	Assert.assertFalse(flowField.isStale());
+	Assert.assertEquals(17 * 20 + 2, walk(2, 2));
+    }
+
+    @Test
+    public void updatingAFinishedFieldPicksUpObstacleChanges() {
+	flowField.setGoal(cell(17), cell(2));
+	flowField.build();
+
+	grid.setBlocked(10, 19, true);
+	Assert.assertFalse(flowField.update(10));
+	flowField.build();
+
+	Assert.assertEquals(FlowField.NO_DIRECTION, flowField.getDirection(cell(2), cell(2)));
+    }
+
+    /**
+     * @return x * 20 + y of the cell the walk stopped at
+     */
+    private int walk(int x, int y) {
+	for (int steps = 0; steps < 400; steps++) {
+	    int direction = flowField.getDirection(cell(x), cell(y));
+	    if (direction == FlowField.NO_DIRECTION) {
+		break;
+	    }
+	    x += FlowField.getStepX(direction);
+	    y += FlowField.getStepY(direction);
+	    Assert.assertFalse(grid.isBlocked(x, y));
+	}
+	return x * 20 + y;
+    }
+
+    private static float cell(int cell) {
+	return cell * CELL_SIZE + CELL_SIZE / 2;
+    }
+}
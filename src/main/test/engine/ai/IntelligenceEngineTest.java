@@ -0,0 +1,121 @@
+package engine.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.joml.Vector3f;
+import org.junit.Assert;
+import org.junit.Test;
+
+import engine.physics.HitBox;
+import engine.physics.PhysicsEngine;
+import engine.physics.PhysicsThread;
+import engine.physics.RigidBody;
+
+public class IntelligenceEngineTest {
+
+    private static final int AGENT_COUNT = 1000;
+
+    @Test
+    public void parallelAgentsExecuteSameCommandsAsSerial() throws Exception {
+	List<Integer> serial = runAgents(1);
+	List<Integer> parallel = runAgents(4);
+
+	Assert.assertEquals(AGENT_COUNT * 2, serial.size());
+	Assert.assertEquals(serial, parallel);
+    }
+
+    @Test
+    public void agentsSeeOtherTrackedBodies() throws Exception {
+	IntelligenceEngine engine = new IntelligenceEngine(0.1f);
+	RigidBody player = givenBody(40, 50);
+	int playerIndex = engine.trackBody(player);
+	List<Integer> executed = new ArrayList<>();
+
+	engine.addParallelAgent(new ParallelAgent() {
+	    @Override
+	    public void think(int self, WorldView view, CommandBuffer commands) {
+		commands.emit((int) (view.getX(playerIndex) - view.getX(self)));
+	    }
+
+	    @Override
+	    public void execute(int command) {
+		executed.add(command);
+	    }
+	}, givenBody(10, 0));
+	engine.update(0.1f);
+
+	Assert.assertEquals(30, (int) executed.get(0));
+	Assert.assertEquals(2, engine.getWorldView().getBodyCount());
+    }
+
+    @Test
+    public void aScheduledEngineCantBeReplayed() {
+	IntelligenceEngine engine = new IntelligenceEngine(0.1f);
+	Assert.assertTrue(engine.isReplayable());
+
+	engine.setScheduler(new AgentScheduler(1_000_000));
+	Assert.assertFalse(engine.isReplayable());
+    }
+
+    @Test
+    public void withThreadedPhysicsTheViewComesFromThePublishedTransforms() throws Exception {
+	PhysicsEngine physics = new PhysicsEngine(0.1f);
+	physics.setPossibleInteractions(new ArrayList<>());
+	RigidBody body = givenBody(10, 0);
+	physics.registerListener(body, body);
+	PhysicsThread physicsThread = new PhysicsThread(physics, 0.1f, 16);
+	IntelligenceEngine engine = new IntelligenceEngine(0.1f);
+	int index = engine.trackBody(body);
+	engine.setPhysicsThread(physicsThread);
+	engine.addParallelAgent(new ParallelAgent() {
+	    @Override
+	    public void think(int self, WorldView view, CommandBuffer commands) {
+	    }
+
+	    @Override
+	    public void execute(int command) {
+	    }
+	}, body);
+
+	physicsThread.start();
+	physicsThread.stop();
+	// Only the physics thread may touch the body, the view must not see this
+	body.move(new Vector3f(5, 0, 0));
+	engine.update(0.1f);
+
+	Assert.assertEquals(10, engine.getWorldView().getX(index), 0);
+    }
+
+    private List<Integer> runAgents(int threads) throws Exception {
+	IntelligenceEngine engine = new IntelligenceEngine(0.1f);
+	engine.setParallelism(threads);
+	List<Integer> executed = new ArrayList<>();
+
+	for (int i = 0; i < AGENT_COUNT; i++) {
+	    int id = i;
+	    engine.addParallelAgent(new ParallelAgent() {
+		@Override
+		public void think(int self, WorldView view, CommandBuffer commands) {
+		    commands.emit(id);
+		    commands.emit((int) view.getY(self));
+		}
+
+		@Override
+		public void execute(int command) {
+		    // Only ever called on the game thread, so no locking needed
+		    executed.add(command);
+		}
+	    }, givenBody(i, i * 2));
+	}
+
+	engine.update(0.1f);
+	engine.shutdown();
+	return executed;
+    }
+
+    private RigidBody givenBody(float x, float y) {
+	Vector3f position = new Vector3f(x, y, 0);
+	return new RigidBody(new HitBox(position, 1, 1), 1, position, new Vector3f());
+    }
+}
@@ -0,0 +1,95 @@
+package engine.ai;
+
+import java.util.Collections;
+
+import org.joml.Vector3f;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import engine.physics.HitBox;
+
+public class PathfindingServiceTest {
+
+    private static final float CELL_SIZE = 32;
+
+    private NavigationGrid grid;
+    private PathfindingService service;
+
+    @Before
+    public void setupGrid() {
+	grid = new NavigationGrid(20, 20, CELL_SIZE, 0, 0);
+	// A wall down column 10, with a gap at the bottom
+	grid.setBlocked(10, 0, 1, 19, true);
+	service = new PathfindingService(grid, 2, 64);
+    }
+
+    @After
+    public void shutdown() {
+	service.shutdown();
+    }
+
+    @Test
+    public void pathGoesAroundTheWall() {
+	Path path = service.findPath(cell(2), cell(2), cell(17), cell(2));
+
+	Assert.assertTrue(path.isFound());
+	Assert.assertEquals(cell(2), path.getX(0), 0f);
+	Assert.assertEquals(cell(17), path.getX(path.size() - 1), 0f);
+	for (int i = 0; i < path.size(); i++) {
+	    Assert.assertFalse(grid.isBlocked(grid.toCellX(path.getX(i)), grid.toCellY(path.getY(i))));
+	}
+	// Has to go down through the gap in row 19
+	Assert.assertTrue(path.size() > 30);
+    }
+
+    @Test
+    public void noPathWhenGoalIsWalledOff() {
+	grid.setBlocked(10, 19, true);
+
+	Assert.assertFalse(service.findPath(cell(2), cell(2), cell(17), cell(2)).isFound());
+    }
+
+    @Test
+    public void cachedPathIsDroppedWhenObstaclesChange() {
+	service.findPath(cell(2), cell(2), cell(17), cell(2));
+	service.findPath(cell(2), cell(2), cell(17), cell(2));
+	Assert.assertEquals(1, service.getSearchCount());
+	Assert.assertEquals(1, service.getCacheHits());
+
+	HitBox crate = new HitBox(new Vector3f(cell(10), cell(19), 0), 4, 4);
+	grid.blockHitBoxes(Collections.singletonList(crate));
+
+	Assert.assertFalse(service.findPath(cell(2), cell(2), cell(17), cell(2)).isFound());
+	Assert.assertEquals(2, service.getSearchCount());
+    }
+
+    @Test
+    public void endpointsOffTheGridDontShareACachedPath() {
+	Assert.assertTrue(service.findPath(cell(17), cell(2), cell(2), cell(2)).isFound());
+
+	// Cell 22, 1 is off the 20 wide grid, but would have the same index as cell 2, 2
+	Assert.assertFalse(service.findPath(cell(17), cell(2), cell(22), cell(1)).isFound());
+	Assert.assertFalse(service.requestPath(cell(17), cell(2), cell(22), cell(1)).getPath().isFound());
+	Assert.assertEquals(0, service.getCacheHits());
+    }
+
+    @Test
+    public void asyncRequestCompletes() throws Exception {
+	PathRequest request = service.requestPath(cell(2), cell(2), cell(17), cell(2));
+
+	long deadline = System.currentTimeMillis() + 5000;
+	while (!request.isDone() && System.currentTimeMillis() < deadline) {
+	    Thread.sleep(1);
+	}
+
+	Assert.assertTrue(request.getPath().isFound());
+	// Now it's cached, so a new request is done right away
+	Assert.assertTrue(service.requestPath(cell(2), cell(2), cell(17), cell(2)).isDone());
+    }
+
+    private static float cell(int cell) {
+	return cell * CELL_SIZE + CELL_SIZE / 2;
+    }
+}
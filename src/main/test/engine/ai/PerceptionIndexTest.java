@@ -0,0 +1,127 @@
+package engine.ai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.joml.Vector3f;
+import org.junit.Assert;
+import org.junit.Test;
+
+import engine.physics.HitBox;
+import engine.physics.RigidBody;
+
+public class PerceptionIndexTest {
+
+    @Test
+    public void radiusQueriesMatchABruteForceScan() {
+	List<RigidBody> bodies = givenRandomBodies(2000);
+	PerceptionIndex index = new PerceptionIndex(50);
+	index.rebuild(bodies);
+	int[] results = new int[bodies.size()];
+
+	Random random = new Random(7);
+	for (int query = 0; query < 100; query++) {
+	    float x = random.nextFloat() * 2000 - 1000;
+	    float y = random.nextFloat() * 2000 - 1000;
+	    float radius = random.nextFloat() * 200;
+
+	    int found = index.queryRadius(x, y, radius, results);
+	    int[] actual = Arrays.copyOf(results, found);
+	    Arrays.sort(actual);
+	    Assert.assertArrayEquals(bruteForce(bodies, x, y, radius), actual);
+	}
+    }
+
+    @Test
+    public void nearestQueriesReturnTheClosestFirst() {
+	List<RigidBody> bodies = givenRandomBodies(2000);
+	PerceptionIndex index = new PerceptionIndex(50);
+	index.rebuild(bodies);
+	int[] nearest = new int[5];
+
+	for (int self = 0; self < 100; self++) {
+	    float x = index.getX(self);
+	    float y = index.getY(self);
+	    Assert.assertEquals(5, index.queryNearest(x, y, 10_000, self, nearest));
+
+	    Integer[] expected = new Integer[bodies.size()];
+	    for (int i = 0; i < expected.length; i++) {
+		expected[i] = i;
+	    }
+	    Arrays.sort(expected, (a, b) -> Float.compare(distance(index, a, x, y), distance(index, b, x, y)));
+	    for (int i = 0; i < 5; i++) {
+		// expected[0] is self
+		Assert.assertEquals(distance(index, expected[i + 1], x, y), distance(index, nearest[i], x, y), 0);
+	    }
+	}
+    }
+
+    @Test
+    public void nearestQueriesStopAtTheirMaxRadius() {
+	List<RigidBody> bodies = new ArrayList<>();
+	bodies.add(givenBody(0, 0));
+	bodies.add(givenBody(30, 0));
+	bodies.add(givenBody(300, 0));
+	PerceptionIndex index = new PerceptionIndex(50);
+	index.rebuild(bodies);
+	int[] nearest = new int[3];
+
+	Assert.assertEquals(1, index.queryNearest(0, 0, 100, 0, nearest));
+	Assert.assertEquals(1, nearest[0]);
+    }
+
+    @Test
+    public void wallsBlockLineOfSight() {
+	NavigationGrid grid = new NavigationGrid(10, 10, 32, 0, 0);
+	grid.setBlocked(5, 0, 1, 5, true);
+	PerceptionIndex index = new PerceptionIndex(64);
+	index.setOccluders(grid);
+	List<RigidBody> bodies = new ArrayList<>();
+	bodies.add(givenBody(16, 16));
+	bodies.add(givenBody(300, 16));
+	bodies.add(givenBody(300, 300));
+	bodies.add(givenBody(16, 300));
+	bodies.add(givenBody(300, 100));
+	index.rebuild(bodies);
+
+	Assert.assertFalse(index.canSee(0, 1));
+	Assert.assertFalse(index.canSee(1, 0));
+	Assert.assertTrue(index.canSee(2, 3));
+	Assert.assertTrue(index.canSee(0, 3));
+	Assert.assertTrue(index.canSee(0, 2));
+	Assert.assertFalse(index.canSee(0, 4));
+	Assert.assertTrue(index.hasLineOfSight(16, 16, 100, 16));
+    }
+
+    private static int[] bruteForce(List<RigidBody> bodies, float x, float y, float radius) {
+	Vector3f position = new Vector3f();
+	return java.util.stream.IntStream.range(0, bodies.size()).filter(i -> {
+	    bodies.get(i).getPosition(position);
+	    float dx = position.x - x;
+	    float dy = position.y - y;
+	    return dx * dx + dy * dy <= radius * radius;
+	}).toArray();
+    }
+
+    private static float distance(PerceptionIndex index, int body, float x, float y) {
+	float dx = index.getX(body) - x;
+	float dy = index.getY(body) - y;
+	return dx * dx + dy * dy;
+    }
+
+    private static List<RigidBody> givenRandomBodies(int count) {
+	Random random = new Random(42);
+	List<RigidBody> bodies = new ArrayList<>();
+	for (int i = 0; i < count; i++) {
+	    bodies.add(givenBody(random.nextFloat() * 2000 - 1000, random.nextFloat() * 2000 - 1000));
+	}
+	return bodies;
+    }
+
+    private static RigidBody givenBody(float x, float y) {
+	Vector3f position = new Vector3f(x, y, 0);
+	return new RigidBody(new HitBox(position, 1, 1), 1, position, new Vector3f());
+    }
+}
@@ -0,0 +1,96 @@
+package engine.game.state;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import engine.physics.IntegrationSystem;
+
+public class EntityWorldTest {
+
+    private EntityWorld world = new EntityWorld();
+
+    @Test
+    public void queryVisitsEveryArchetypeWithTheRequiredComponents() {
+	for (int i = 0; i < 3000; i++) {
+	    world.createEntity(ComponentType.POSITION, ComponentType.VELOCITY);
+	}
+	for (int i = 0; i < 500; i++) {
+	    world.createEntity(ComponentType.POSITION, ComponentType.VELOCITY, ComponentType.AI_STATE);
+	}
+	for (int i = 0; i < 200; i++) {
+	    world.createEntity(ComponentType.POSITION);
+	}
+
+	Assert.assertEquals(3500, world.query(ComponentType.POSITION, ComponentType.VELOCITY).count());
+	Assert.assertEquals(3700, world.query(ComponentType.POSITION).count());
+	Assert.assertEquals(500, world.query(ComponentType.AI_STATE).count());
+	Assert.assertEquals(0, world.query(ComponentType.SPRITE_FRAME).count());
+    }
+
+    @Test
+    public void destroyingEntitiesKeepsOthersIntact() {
+	int[] entities = new int[EntityChunk.CAPACITY + 10];
+	for (int i = 0; i < entities.length; i++) {
+	    entities[i] = world.createEntity(ComponentType.POSITION);
+	    world.setFloats(entities[i], ComponentType.POSITION, i, 0, 0);
+	}
+
+	world.destroyEntity(entities[0]);
+	world.destroyEntity(entities[500]);
+
+	Assert.assertFalse(world.isAlive(entities[0]));
+	Assert.assertEquals(entities.length - 2, world.query(ComponentType.POSITION).count());
+	for (int i = 1; i < entities.length; i++) {
+	    if (i != 500) {
+		Assert.assertEquals(i, world.getFloat(entities[i], ComponentType.POSITION, 0), 0f);
+	    }
+	}
+
+	// Freed slots get reused, under a new id the old one doesn't alias
+	int reused = world.createEntity(ComponentType.POSITION);
+	Assert.assertNotEquals(entities[500], reused);
+	Assert.assertTrue(world.isAlive(reused));
+	Assert.assertFalse(world.isAlive(entities[500]));
+	Assert.assertEquals(entities.length - 1, world.getEntityCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void staleIdsAreRefused() {
+	int entity = world.createEntity(ComponentType.POSITION);
+	world.destroyEntity(entity);
+	world.createEntity(ComponentType.POSITION);
+
+	world.getFloat(entity, ComponentType.POSITION, 0);
+    }
+
+    @Test
+    public void addingComponentMovesEntityAndKeepsValues() {
+	int entity = world.createEntity(ComponentType.POSITION);
+	world.setFloats(entity, ComponentType.POSITION, 1, 2, 3);
+
+	world.addComponent(entity, ComponentType.SPRITE_FRAME);
+	world.setInt(entity, ComponentType.SPRITE_FRAME, 4);
+
+	Assert.assertTrue(world.has(entity, ComponentType.SPRITE_FRAME));
+	Assert.assertEquals(2, world.getFloat(entity, ComponentType.POSITION, 1), 0f);
+	Assert.assertEquals(4, world.getInt(entity, ComponentType.SPRITE_FRAME));
+
+	world.removeComponent(entity, ComponentType.SPRITE_FRAME);
+	Assert.assertFalse(world.has(entity, ComponentType.SPRITE_FRAME));
+	Assert.assertEquals(3, world.getFloat(entity, ComponentType.POSITION, 2), 0f);
+    }
+
+    @Test
+    public void integrationSystemMovesEntitiesByVelocity() {
+	int moving = world.createEntity(ComponentType.POSITION, ComponentType.VELOCITY);
+	int still = world.createEntity(ComponentType.POSITION);
+	world.setFloats(moving, ComponentType.VELOCITY, 10, -20, 0);
+	world.setFloats(still, ComponentType.POSITION, 5, 5, 0);
+
+	new IntegrationSystem().update(world, 0.5f);
+
+	Assert.assertEquals(5, world.getFloat(moving, ComponentType.POSITION, 0), 0f);
+	Assert.assertEquals(-10, world.getFloat(moving, ComponentType.POSITION, 1), 0f);
+	Assert.assertEquals(5, world.getFloat(still, ComponentType.POSITION, 0), 0f);
+    }
+}
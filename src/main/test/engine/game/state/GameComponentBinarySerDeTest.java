@@ -0,0 +1,105 @@
+package engine.game.state;
+
+import java.nio.ByteBuffer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.joml.Vector4f;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class GameComponentBinarySerDeTest {
+    private static final Logger logger = LogManager.getLogger(GameComponentBinarySerDeTest.class.getName());
+
+    private static final int BENCHMARK_ITERATIONS = 100_000;
+
+    private GameComponentBinarySerDe serDe = new GameComponentBinarySerDe();
+    private GameComponent grassblock;
+
+    @Before
+    public void setupGameComponent() throws Exception {
+	float grassReflectance = 0.8f;
+	Material grass = new Material("textures/grassblock.png", grassReflectance);
+	grassblock = new GameComponent("models/cube.obj", grass);
+	Position position = new Position();
+	position.setScale(0.5f);
+	position.setCoordinates(0, 0, -2);
+	position.setRotation(0, 45, 0);
+	grassblock.setPosition(position);
+    }
+
+    @Test
+    public void testSerDe() throws Exception {
+	ByteBuffer componentBytes = serDe.serialize(grassblock);
+	GameComponent grassblockPhoenix = serDe.deserialize(componentBytes);
+
+	Assert.assertEquals(grassblock, grassblockPhoenix);
+	Assert.assertFalse(componentBytes.hasRemaining());
+    }
+
+    @Test
+    public void testSerDeWithoutTexture() throws Exception {
+	GameComponent plain = new GameComponent(null, new Material(new Vector4f(0.5f, 0.25f, 1f, 0.5f), 0f));
+
+	Assert.assertEquals(plain, serDe.deserialize(serDe.serialize(plain)));
+    }
+
+    @Test
+    public void sharedStringTableWritesEachPathOnce() throws Exception {
+	ByteBuffer buffer = ByteBuffer.allocate(1024);
+	StringTable writeStrings = new StringTable();
+
+	serDe.write(grassblock, buffer, writeStrings);
+	int firstSize = buffer.position();
+	serDe.write(grassblock, buffer, writeStrings);
+	int secondSize = buffer.position() - firstSize;
+
+	// Both paths are now a single byte id instead of a code, a length and the utf8 bytes
+	Assert.assertEquals(firstSize - "models/cube.obj".length() - "textures/grassblock.png".length() - 2, secondSize);
+
+	buffer.flip();
+	StringTable readStrings = new StringTable();
+	Assert.assertEquals(grassblock, serDe.read(buffer, readStrings));
+	Assert.assertEquals(grassblock, serDe.read(buffer, readStrings));
+	Assert.assertEquals(2, readStrings.size());
+    }
+
+    @Test
+    public void binaryIsMuchSmallerThanJackson() throws Exception {
+	GameComponentByteArraySerDe byteArraySerDe = new GameComponentByteArraySerDe();
+	GameComponentJsonSerDe jsonSerDe = new GameComponentJsonSerDe();
+
+	int binarySize = serDe.serialize(grassblock).remaining();
+	int jsonSize = byteArraySerDe.serialize(grassblock).length;
+	logger.debug("Encoded size: binary [{}] bytes, jackson [{}] bytes", binarySize, jsonSize);
+	Assert.assertTrue(binarySize * 3 < jsonSize);
+
+	// Timings are only logged, for comparing by hand. Asserting on them would fail on a loaded machine.
+	long binaryNanos = timeSerialize(serDe);
+	long byteArrayNanos = timeSerialize(byteArraySerDe);
+	long jsonNanos = timeSerialize(jsonSerDe);
+	logger.debug("Serialize x{}: binary [{}] ms, jackson byte[] [{}] ms, jackson json [{}] ms", BENCHMARK_ITERATIONS,
+		binaryNanos / 1_000_000, byteArrayNanos / 1_000_000, jsonNanos / 1_000_000);
+
+	long start = System.nanoTime();
+	ByteBuffer encoded = serDe.serialize(grassblock);
+	for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+	    encoded.rewind();
+	    serDe.deserialize(encoded);
+	}
+	logger.debug("Deserialize x{}: binary [{}] ms", BENCHMARK_ITERATIONS, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private <T> long timeSerialize(GameComponentSerDe<T> serDe) throws Exception {
+	// Warm up first
+	for (int i = 0; i < BENCHMARK_ITERATIONS / 10; i++) {
+	    serDe.serialize(grassblock);
+	}
+	long start = System.nanoTime();
+	for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+	    serDe.serialize(grassblock);
+	}
+	return System.nanoTime() - start;
+    }
+}
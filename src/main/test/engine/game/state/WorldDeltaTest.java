@@ -0,0 +1,88 @@
+package engine.game.state;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.joml.Vector3f;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WorldDeltaTest {
+    private static final Logger logger = LogManager.getLogger(WorldDeltaTest.class.getName());
+
+    private static final int WORLD_SIZE = 10_000;
+
+    private WorldDeltaEncoder encoder = new WorldDeltaEncoder();
+    private WorldDeltaDecoder decoder = new WorldDeltaDecoder();
+
+    private List<GameComponent> world;
+    private List<GameComponent> replica;
+
+    @Before
+    public void setupWorld() {
+	world = new ArrayList<>();
+	for (int i = 0; i < WORLD_SIZE; i++) {
+	    GameComponent comp = new GameComponent("models/cube.obj", new Material("textures/grassblock.png", 0.5f));
+	    comp.getPosition().setCoordinates(i, -i, 0);
+	    world.add(comp);
+	}
+	replica = new ArrayList<>();
+    }
+
+    @Test
+    public void firstDeltaCarriesWholeWorld() {
+	decoder.apply(encoder.encode(world, 1), replica);
+
+	Assert.assertEquals(world, replica);
+	Assert.assertEquals(1, decoder.getSnapshotId());
+    }
+
+    @Test
+    public void deltaOnlyCarriesMovedComponents() {
+	ByteBuffer full = encoder.encode(world, 1);
+	int fullSize = full.remaining();
+	decoder.apply(full, replica);
+
+	// Move 2% of the world
+	for (int i = 0; i < WORLD_SIZE; i += 50) {
+	    world.get(i).getPosition().change(new Vector3f(1, 2, 0));
+	}
+	ByteBuffer delta = encoder.encode(world, 2);
+	int deltaSize = delta.remaining();
+	decoder.apply(delta, replica);
+
+	logger.debug("Full world [{}] bytes, 2% moved delta [{}] bytes", fullSize, deltaSize);
+	Assert.assertEquals(world, replica);
+	Assert.assertTrue(deltaSize < fullSize * 0.03f);
+
+	// Nothing changed since, so the next delta is just a header
+	Assert.assertTrue(encoder.encode(world, 3).remaining() < 32);
+    }
+
+    @Test
+    public void deltaCarriesAddedReplacedAndRemovedComponents() {
+	decoder.apply(encoder.encode(world, 1), replica);
+
+	world.set(10, null);
+	world.set(20, new GameComponent("models/skybox.obj", new Material("textures/skybox.png")));
+	world.get(30).getMaterial().setReflectance(1f);
+	world.get(40).getPosition().setRotation(0, 90, 0);
+	world.remove(world.size() - 1);
+	world.add(new GameComponent("models/cube.obj", new Material("textures/gold.png")));
+	decoder.apply(encoder.encode(world, 2), replica);
+
+	Assert.assertEquals(world, replica);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void deltaAgainstAnotherSnapshotIsRejected() {
+	decoder.apply(encoder.encode(world, 1), replica);
+	encoder.encode(world, 2);
+
+	decoder.apply(encoder.encode(world, 3), replica);
+    }
+}
@@ -0,0 +1,79 @@
+package engine.game.state;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WorldSnapshotTest {
+
+    private static final int WORLD_SIZE = 10_000;
+
+    private List<GameComponent> world;
+
+    @Before
+    public void setupWorld() {
+	world = new ArrayList<>();
+	for (int i = 0; i < WORLD_SIZE; i++) {
+	    Material material = new Material(i % 2 == 0 ? "textures/grassblock.png" : "textures/gold.png", 0.5f);
+	    GameComponent comp = new GameComponent("models/cube.obj", material);
+	    comp.getPosition().setCoordinates(i, -i, i % 7);
+	    world.add(comp);
+	}
+    }
+
+    @Test
+    public void snapshotRoundTripsInOrder() throws Exception {
+	byte[] snapshot = givenSnapshot(WorldSnapshotWriter.DEFAULT_CHUNK_SIZE);
+
+	List<GameComponent> loaded = new ArrayList<>();
+	try (WorldSnapshotReader reader = new WorldSnapshotReader(Channels.newChannel(new ByteArrayInputStream(snapshot)))) {
+	    Assert.assertEquals(WORLD_SIZE, reader.read(loaded::add));
+	}
+
+	Assert.assertEquals(world, loaded);
+    }
+
+    @Test
+    public void snapshotLoadsInParallel() throws Exception {
+	byte[] snapshot = givenSnapshot(100);
+
+	List<GameComponent> loaded = Collections.synchronizedList(new ArrayList<>());
+	ExecutorService executor = Executors.newFixedThreadPool(4);
+	try (WorldSnapshotReader reader = new WorldSnapshotReader(Channels.newChannel(new ByteArrayInputStream(snapshot)))) {
+	    Assert.assertEquals(WORLD_SIZE, reader.readParallel(loaded::add, executor, 8));
+	} finally {
+	    executor.shutdown();
+	}
+
+	Assert.assertEquals(WORLD_SIZE, loaded.size());
+	Assert.assertEquals(new HashSet<>(world), new HashSet<>(loaded));
+    }
+
+    @Test
+    public void emptySnapshotHasNoComponents() throws Exception {
+	world.clear();
+	byte[] snapshot = givenSnapshot(10);
+
+	try (WorldSnapshotReader reader = new WorldSnapshotReader(Channels.newChannel(new ByteArrayInputStream(snapshot)))) {
+	    Assert.assertEquals(0, reader.read(comp -> Assert.fail()));
+	}
+    }
+
+    private byte[] givenSnapshot(int chunkSize) throws Exception {
+	ByteArrayOutputStream out = new ByteArrayOutputStream();
+	try (WorldSnapshotWriter writer = new WorldSnapshotWriter(Channels.newChannel(out), chunkSize)) {
+	    writer.writeAll(world);
+	}
+	return out.toByteArray();
+    }
+}
@@ -0,0 +1,92 @@
+package engine.input;
+
+import static org.lwjgl.glfw.GLFW.GLFW_KEY_SPACE;
+import static org.lwjgl.glfw.GLFW.GLFW_KEY_W;
+import static org.lwjgl.glfw.GLFW.GLFW_MOUSE_BUTTON_1;
+import static org.lwjgl.glfw.GLFW.GLFW_MOUSE_BUTTON_2;
+import static org.lwjgl.glfw.GLFW.GLFW_PRESS;
+import static org.lwjgl.glfw.GLFW.GLFW_RELEASE;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class InputEventQueueTest {
+
+    private enum Action {
+	JUMP, FIRE
+    }
+
+    @Test
+    public void eventsCrossThreadsInOrder() throws Exception {
+	InputEventQueue queue = new InputEventQueue(1024);
+	int events = 100_000;
+	Thread producer = new Thread(() -> {
+	    for (int i = 0; i < events; i++) {
+		while (!queue.offer(InputEventQueue.KEY, i, GLFW_PRESS, 0, 0, i)) {
+		    Thread.yield();
+		}
+	    }
+	});
+	producer.start();
+
+	int[] next = new int[1];
+	while (next[0] < events) {
+	    queue.drain((type, code, action, x, y, timeNanos) -> {
+		Assert.assertEquals(next[0], code);
+		Assert.assertEquals(next[0], timeNanos);
+		next[0]++;
+	    });
+	}
+	producer.join();
+	Assert.assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void fullQueuesDropNewEvents() {
+	InputEventQueue queue = new InputEventQueue(3);
+	Assert.assertEquals(4, queue.getCapacity());
+	for (int i = 0; i < 6; i++) {
+	    queue.offer(InputEventQueue.KEY, i, GLFW_PRESS, 0, 0, i);
+	}
+
+	Assert.assertEquals(2, queue.getDroppedCount());
+	int[] last = new int[1];
+	Assert.assertEquals(4, queue.drain((type, code, action, x, y, timeNanos) -> last[0] = code));
+	Assert.assertEquals(3, last[0]);
+    }
+
+    @Test
+    public void tapsBetweenTicksAreNotLost() {
+	InputEventQueue queue = new InputEventQueue(16);
+	InputState state = new InputState();
+	InputBindings<Action> bindings = new InputBindings<>(Action.class, state)
+		.bindKey(Action.JUMP, GLFW_KEY_SPACE)
+		.bindKey(Action.JUMP, GLFW_KEY_W)
+		.bindButton(Action.FIRE, GLFW_MOUSE_BUTTON_1);
+
+	queue.offer(InputEventQueue.KEY, GLFW_KEY_W, GLFW_PRESS, 0, 0, 1);
+	queue.offer(InputEventQueue.KEY, GLFW_KEY_W, GLFW_RELEASE, 0, 0, 2);
+	queue.offer(InputEventQueue.MOUSE_BUTTON, GLFW_MOUSE_BUTTON_1, GLFW_PRESS, 0, 0, 3);
+	queue.offer(InputEventQueue.MOUSE_BUTTON, GLFW_MOUSE_BUTTON_2, GLFW_PRESS, 0, 0, 4);
+	queue.offer(InputEventQueue.CURSOR_POSITION, 0, 0, 12.5, 40, 5);
+	state.update(queue);
+
+	Assert.assertFalse(state.isKeyDown(GLFW_KEY_W));
+	Assert.assertTrue(state.wasKeyPressed(GLFW_KEY_W));
+	Assert.assertTrue(bindings.isActive(Action.JUMP));
+	Assert.assertTrue(bindings.wasTriggered(Action.JUMP));
+	Assert.assertTrue(bindings.wasReleased(Action.JUMP));
+	// Another button doesn't overwrite the left button
+	Assert.assertTrue(state.isButtonDown(GLFW_MOUSE_BUTTON_1));
+	Assert.assertTrue(state.isButtonDown(GLFW_MOUSE_BUTTON_2));
+	Assert.assertTrue(bindings.isActive(Action.FIRE));
+	Assert.assertEquals(12.5, state.getCursorX(), 0);
+	Assert.assertEquals(5, state.getLastEventNanos());
+
+	state.update(queue);
+
+	Assert.assertFalse(bindings.isActive(Action.JUMP));
+	Assert.assertFalse(bindings.wasTriggered(Action.FIRE));
+	Assert.assertTrue(bindings.isActive(Action.FIRE));
+    }
+}
@@ -0,0 +1,132 @@
+package engine.physics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.joml.Vector3f;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import engine.physics.PhysicsEngine.Pair;
+
+public class ContactManagerTest {
+
+    private static final float TICK = 1f / 30f;
+
+    private PhysicsEngine physics;
+
+    private List<Pair<RigidBody>> interactions;
+
+    private final List<String> heard = new ArrayList<>();
+
+    private final List<RigidBody> names = new ArrayList<>();
+
+    private int calls;
+
+    private final PhysicsEngine.ContactListener listener = events -> {
+	calls++;
+	for (int i = 0; i < events.size(); i++) {
+	    heard.add(events.getType(i) + ":" + names.indexOf(events.getBody(i)) + "-"
+		    + names.indexOf(events.getOther(i)));
+	}
+    };
+
+    @Before
+    public void setupEngine() {
+	physics = new PhysicsEngine(TICK);
+	physics.setTicksToSleep(0);
+	interactions = new ArrayList<>();
+	physics.setPossibleInteractions(interactions);
+    }
+
+    @Test
+    public void contactsBeginAndEndOnce() throws Exception {
+	RigidBody trigger = givenBody(0, 10, 0);
+	trigger.setSensor(true);
+	RigidBody runner = givenBody(-2.5f, 2, 30); // Crosses in 5 ticks, leaves in the 12th
+	interactions.add(new Pair<>(trigger, runner));
+	physics.registerContactListener(listener, trigger, ContactEvents.BEGIN | ContactEvents.END);
+
+	for (int i = 0; i < 20; i++) {
+	    physics.update(TICK);
+	}
+
+	Assert.assertEquals(2, calls);
+	Assert.assertEquals("1:0-1", heard.get(0));
+	Assert.assertEquals("4:0-1", heard.get(1));
+	Assert.assertEquals(0, physics.getContactCount());
+    }
+
+    @Test
+    public void persistIsOnlyHeardWhenAskedFor() throws Exception {
+	RigidBody trigger = givenBody(0, 10, 0);
+	trigger.setSensor(true);
+	RigidBody runner = givenBody(-2.5f, 2, 30);
+	interactions.add(new Pair<>(trigger, runner));
+	physics.registerContactListener(listener, runner, ContactEvents.ALL);
+
+	for (int i = 0; i < 20; i++) {
+	    physics.update(TICK);
+	}
+
+	Assert.assertEquals("1:1-0", heard.get(0));
+	Assert.assertEquals("2:1-0", heard.get(1));
+	Assert.assertEquals("4:1-0", heard.get(heard.size() - 1));
+	Assert.assertEquals(calls, heard.size());
+    }
+
+    @Test
+    public void eventsAreBatchedPerListener() throws Exception {
+	RigidBody trigger = givenBody(0, 10, 0);
+	trigger.setSensor(true);
+	RigidBody a = givenBody(1, 2, 0);
+	RigidBody b = givenBody(5, 2, 0);
+	interactions.add(new Pair<>(trigger, a));
+	interactions.add(new Pair<>(trigger, b));
+	physics.registerContactListener(listener, a, ContactEvents.BEGIN);
+	physics.registerContactListener(listener, b, ContactEvents.BEGIN);
+
+	physics.update(TICK);
+	physics.update(TICK);
+
+	Assert.assertEquals(1, calls);
+	Assert.assertEquals(2, heard.size());
+    }
+
+    @Test
+    public void tableSurvivesManyContactsEnding() {
+	ContactManager contacts = new ContactManager();
+	RigidBody[] bodies = new RigidBody[400];
+	for (int i = 0; i < bodies.length; i++) {
+	    bodies[i] = givenBody(i, 1, 0);
+	    physics.registerContactListener(listener, bodies[i], ContactEvents.BEGIN);
+	}
+
+	contacts.beginTick();
+	for (int i = 0; i + 1 < bodies.length; i++) {
+	    contacts.touch(bodies[i], bodies[i + 1]);
+	}
+	contacts.endTick();
+	Assert.assertEquals(bodies.length - 1, contacts.getContactCount());
+
+	heard.clear();
+	contacts.beginTick();
+	for (int i = 0; i + 1 < bodies.length; i += 2) {
+	    contacts.touch(bodies[i], bodies[i + 1]);
+	}
+	contacts.endTick();
+
+	// Nothing began again, and every other contact ended
+	Assert.assertTrue(heard.isEmpty());
+	Assert.assertEquals(bodies.length / 2, contacts.getContactCount());
+    }
+
+    private RigidBody givenBody(float x, float size, float velocityX) {
+	Vector3f position = new Vector3f(x, 0, 0);
+	RigidBody body = new RigidBody(new HitBox(position, size, size), 1, position, new Vector3f(velocityX, 0, 0));
+	physics.registerListener(body, body);
+	names.add(body);
+	return body;
+    }
+}
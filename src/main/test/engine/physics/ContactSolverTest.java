@@ -0,0 +1,153 @@
+package engine.physics;
+
+import org.joml.Vector3f;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ContactSolverTest {
+
+    private ContactSolver solver;
+
+    private PhysicsEngine physics;
+
+    @Before
+    public void setupSolver() {
+	solver = new ContactSolver();
+	// Only used to give the bodies ids for warm starting
+	physics = new PhysicsEngine(1f / 30f);
+    }
+
+    @Test
+    public void elasticContactsSwapVelocities() {
+	solver.setRestitution(1);
+	RigidBody a = givenBody(0, 100);
+	RigidBody b = givenBody(9, 0);
+
+	Assert.assertTrue(solver.addContact(a, b));
+	solver.solve();
+	CollisionEvent collision = solver.getCollision(0);
+
+	Assert.assertEquals(-100, collision.getMessageA().getDv().x, 0.01f);
+	Assert.assertEquals(100, collision.getMessageB().getDv().x, 0.01f);
+    }
+
+    @Test
+    public void pushesAreSharedAlongARow() {
+	RigidBody a = givenBody(0, 90);
+	RigidBody b = givenBody(9, 0);
+	RigidBody c = givenBody(18, 0);
+
+	solver.setIterations(50);
+	solver.addContact(a, b);
+	solver.addContact(b, c);
+	solver.solve();
+
+	// Stopped dead against each other, the row moves off together with a's momentum
+	Assert.assertEquals(30, a.getVelocity().x + getDv(a), 0.1f);
+	Assert.assertEquals(30, getDv(b), 0.1f);
+	Assert.assertEquals(30, getDv(c), 0.1f);
+    }
+
+    @Test
+    public void warmStartingConvergesOverTicks() {
+	RigidBody a = givenBody(0, 90);
+	RigidBody b = givenBody(9, 0);
+	RigidBody c = givenBody(18, 0);
+	solver.setIterations(1);
+
+	float firstError = solveRow(a, b, c);
+	float secondError = solveRow(a, b, c);
+
+	Assert.assertTrue(secondError < firstError / 2);
+    }
+
+    @Test
+    public void warmStartingKeepsEveryContactOfABigTick() {
+	int rows = 50; // More contacts than the impulse table starts with room for
+	RigidBody[] bodies = new RigidBody[rows * 3];
+	for (int i = 0; i < bodies.length; i++) {
+	    bodies[i] = givenBody(i % 3 * 9, i / 3 * 20, i % 3 == 0 ? 90 : 0);
+	}
+	solver.setIterations(1);
+
+	float[] firstErrors = solveRows(bodies);
+	float[] secondErrors = solveRows(bodies);
+
+	for (int row = 0; row < rows; row++) {
+	    Assert.assertTrue("Row " + row, secondErrors[row] < firstErrors[row] / 2);
+	}
+    }
+
+    @Test
+    public void overlapIsPushedOutBeyondTheSlop() {
+	RigidBody a = givenBody(0, 0);
+	RigidBody b = givenBody(5.5f, 0);
+
+	solver.addContact(a, b);
+	solver.solve();
+	CollisionEvent collision = solver.getCollision(0);
+
+	// 4.5 overlap less 0.5 slop, a fifth of it, split between equal masses
+	Assert.assertEquals(-0.4f, collision.getMessageA().getDs().x, 0.001f);
+	Assert.assertEquals(0.4f, collision.getMessageB().getDs().x, 0.001f);
+	Assert.assertEquals(0, collision.getMessageA().getDv().x, 0.001f);
+    }
+
+    @Test
+    public void separatedBodiesAreNotContacts() {
+	Assert.assertFalse(solver.addContact(givenBody(0, 0), givenBody(10, 0)));
+	Assert.assertEquals(0, solver.getContactCount());
+    }
+
+    /**
+     * @return how far c's velocity is from where the row would settle
+     */
+    private float solveRow(RigidBody a, RigidBody b, RigidBody c) {
+	solver.addContact(a, b);
+	solver.addContact(b, c);
+	solver.solve();
+	float error = Math.abs(30 - getDv(c));
+	solver.clear();
+	return error;
+    }
+
+    private float[] solveRows(RigidBody[] bodies) {
+	for (int i = 0; i < bodies.length; i += 3) {
+	    solver.addContact(bodies[i], bodies[i + 1]);
+	    solver.addContact(bodies[i + 1], bodies[i + 2]);
+	}
+	solver.solve();
+	float[] errors = new float[bodies.length / 3];
+	for (int row = 0; row < errors.length; row++) {
+	    errors[row] = Math.abs(30 - getDv(bodies[row * 3 + 2]));
+	}
+	solver.clear();
+	return errors;
+    }
+
+    private float getDv(RigidBody body) {
+	float dv = 0;
+	for (int i = 0; i < solver.getContactCount(); i++) {
+	    CollisionEvent collision = solver.getCollision(i);
+	    if (collision.getMessageA().getBody() == body) {
+		dv += collision.getMessageA().getDv().x;
+	    }
+	    if (collision.getMessageB().getBody() == body) {
+		dv += collision.getMessageB().getDv().x;
+	    }
+	}
+	return dv;
+    }
+
+    private RigidBody givenBody(float x, float velocityX) {
+	return givenBody(x, 0, velocityX);
+    }
+
+    private RigidBody givenBody(float x, float y, float velocityX) {
+	Vector3f position = new Vector3f(x, y, 0);
+	RigidBody body = new RigidBody(new HitBox(position, 10, 10), 1, position, new Vector3f(velocityX, 0, 0));
+	physics.registerListener(body, body);
+	return body;
+    }
+}
@@ -63,6 +63,25 @@ public class HitBoxTest {
 	Assert.assertEquals(expectedIntersection.y, actualIntersection.y, 0.000001f);
     }
 
+    @Test
+    public void sweepFindsTheTimeOfImpact() {
+	hitBox = givenHitBoxWithRectangle(0f, 1f, 0f, 1f);
+	otherHitBox = givenHitBoxWithRectangle(5f, 6f, 0.5f, 1.5f);
+	Vector3f normal = new Vector3f();
+	
+	// Moving right 8 while the other moves left 2 closes the gap of 4 at 0.4
+	Assert.assertEquals(0.4f, hitBox.sweep(8, 0, otherHitBox, -2, 0, normal), 0.000001f);
+	Assert.assertEquals(new Vector3f(-1, 0, 0), normal);
+	
+	// Passing above, or falling short, never touches
+	Assert.assertEquals(1f, hitBox.sweep(8, -3, otherHitBox, 0, 0, normal), 0f);
+	Assert.assertEquals(1f, hitBox.sweep(3, 0, otherHitBox, 0, 0, normal), 0f);
+	
+	// Already overlapping is left to the discrete test
+	otherHitBox = givenHitBoxWithRectangle(0.5f, 1.5f, 0f, 1f);
+	Assert.assertEquals(1f, hitBox.sweep(8, 0, otherHitBox, 0, 0, normal), 0f);
+    }
+    
     private HitBox givenHitBoxWithRectangle(float minX, float maxX, float minY, float maxY) {
 	float h = maxY - minY;
 	float w = maxX - minX;
@@ -0,0 +1,186 @@
+package engine.physics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.joml.Vector3f;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import engine.physics.PhysicsEngine.Pair;
+
+public class PhysicsEngineTest {
+
+    private static final float TICK = 1f / 30f;
+
+    private PhysicsEngine physics;
+
+    private List<Pair<RigidBody>> interactions;
+
+    @Before
+    public void setupEngine() {
+	physics = new PhysicsEngine(TICK);
+	interactions = new ArrayList<>();
+	physics.setPossibleInteractions(interactions);
+    }
+
+    @Test
+    public void fastBodiesTunnelWithoutContinuousCollision() throws Exception {
+	RigidBody bullet = givenBody(0, 0, 2, 3000);
+	RigidBody wall = givenBody(50, -10, 4, 0);
+	interactions.add(new Pair<>(bullet, wall));
+
+	physics.update(TICK);
+
+	Assert.assertTrue(bullet.getHitBox().getMinX() > wall.getHitBox().getMaxX());
+    }
+
+    @Test
+    public void continuousCollisionBouncesAtTheTimeOfImpact() throws Exception {
+	RigidBody bullet = givenBody(0, 0, 2, 3000);
+	bullet.setContinuousCollision(true);
+	RigidBody wall = givenBody(50, -10, 4, 0);
+	wall.setMass(1_000_000);
+	interactions.add(new Pair<>(bullet, wall));
+
+	physics.update(TICK);
+
+	// 48 to the wall, then the other 52 of the step's 100 straight back
+	Assert.assertEquals(-4, bullet.getHitBox().getMinX(), 0.1f);
+	Assert.assertEquals(-3000, bullet.getVelocity().x, 1f);
+	Assert.assertFalse(bullet.getHitBox().isCollision(wall.getHitBox()));
+    }
+
+    @Test
+    public void restingIslandsSleepAndWakeTogether() throws Exception {
+	physics.setTicksToSleep(10);
+	RigidBody a = givenBody(0, 0, 2, 0);
+	RigidBody b = givenBody(2, 0, 2, 0); // Touching a
+	RigidBody c = givenBody(100, 0, 2, 0);
+	interactions.add(new Pair<>(a, b));
+	interactions.add(new Pair<>(b, c));
+
+	for (int i = 0; i < 9; i++) {
+	    physics.update(TICK);
+	}
+	Assert.assertFalse(a.isSleeping());
+	physics.update(TICK);
+	Assert.assertTrue(a.isSleeping());
+	Assert.assertTrue(b.isSleeping());
+	Assert.assertTrue(c.isSleeping());
+
+	a.setVelocity(new Vector3f(10, 0, 0));
+
+	Assert.assertFalse(b.isSleeping());
+	Assert.assertTrue(c.isSleeping());
+    }
+
+    @Test
+    public void sleepingBodiesStaySleepingUntilHit() throws Exception {
+	physics.setTicksToSleep(1);
+	RigidBody body = givenBody(0, 0, 2, 0);
+	physics.update(TICK);
+	Assert.assertTrue(body.isSleeping());
+
+	body.move(new Vector3f());
+	body.setVelocity(new Vector3f());
+	physics.update(TICK);
+	Assert.assertTrue(body.isSleeping());
+
+	body.notifyOfCollision(new ElasticCollisionMessage(body, new Vector3f(), new Vector3f()));
+	Assert.assertFalse(body.isSleeping());
+    }
+
+    @Test
+    public void movingBodiesWakeSleepersTheyHit() throws Exception {
+	physics.setTicksToSleep(5);
+	RigidBody ball = givenBody(0, 0, 2, 0);
+	RigidBody wall = givenBody(20, -10, 4, 0);
+	interactions.add(new Pair<>(ball, wall));
+	for (int i = 0; i < 5; i++) {
+	    physics.update(TICK);
+	}
+	Assert.assertTrue(wall.isSleeping());
+
+	ball.setVelocity(new Vector3f(600, 0, 0));
+	physics.update(TICK);
+
+	Assert.assertFalse(wall.isSleeping());
+	physics.update(TICK);
+	Assert.assertTrue(wall.getVelocity().x > 0);
+    }
+
+    @Test
+    public void maskedOutBodiesPassThroughEachOther() throws Exception {
+	int projectiles = 2;
+	RigidBody a = givenBody(0, 0, 2, 0);
+	RigidBody b = givenBody(1, 0, 2, 0);
+	a.setCollisionCategory(projectiles);
+	a.setCollisionMask(~projectiles);
+	b.setCollisionCategory(projectiles);
+	interactions.add(new Pair<>(a, b));
+
+	physics.update(TICK);
+	physics.update(TICK);
+
+	Assert.assertEquals(0, a.getHitBox().getMinX(), 0);
+	Assert.assertEquals(1, b.getHitBox().getMinX(), 0);
+    }
+
+    @Test
+    public void sensorsReportOverlapsWithoutBouncing() throws Exception {
+	RigidBody trigger = givenBody(0, 0, 4, 0);
+	trigger.setSensor(true);
+	RigidBody runner = givenBody(-2.5f, 0, 2, 30);
+	List<RigidBody> overlaps = new ArrayList<>();
+	physics.registerListener(new PhysicsEngine.Listener() {
+	    @Override
+	    public void notifyOfCollision(ElasticCollisionMessage message) {
+		Assert.fail("Sensors don't collide");
+	    }
+
+	    @Override
+	    public void notifyOfOverlap(RigidBody body, RigidBody other) {
+		overlaps.add(other);
+	    }
+	}, trigger);
+	interactions.add(new Pair<>(trigger, runner));
+
+	physics.update(TICK);
+	physics.update(TICK);
+
+	Assert.assertEquals(2, overlaps.size());
+	Assert.assertSame(runner, overlaps.get(0));
+	Assert.assertEquals(30, runner.getVelocity().x, 0);
+    }
+
+    @Test
+    public void inactiveBodiesNeitherMoveNorCollide() throws Exception {
+	RigidBody pooled = givenBody(0, 0, 2, 30);
+	RigidBody other = givenBody(1, 0, 2, 0);
+	interactions.add(new Pair<>(pooled, other));
+	pooled.setActive(false);
+
+	physics.update(TICK);
+	physics.update(TICK);
+
+	Assert.assertEquals(0, pooled.getHitBox().getMinX(), 0);
+	Assert.assertEquals(1, other.getHitBox().getMinX(), 0);
+	Assert.assertEquals(0, other.getVelocity().x, 0);
+
+	pooled.setActive(true);
+	pooled.setVelocity(new Vector3f(30, 0, 0));
+	physics.update(TICK);
+	physics.update(TICK);
+
+	Assert.assertTrue(other.getHitBox().getMinX() > 1);
+    }
+
+    private RigidBody givenBody(float x, float y, float size, float velocityX) {
+	Vector3f position = new Vector3f(x, y, 0);
+	RigidBody body = new RigidBody(new HitBox(position, size * 10, size), 1, position, new Vector3f(velocityX, 0, 0));
+	physics.registerListener(body, body);
+	return body;
+    }
+}
@@ -0,0 +1,145 @@
+package engine.physics;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.joml.Vector3f;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PhysicsQueryTest {
+
+    private PhysicsEngine physics;
+
+    @Before
+    public void setupEngine() {
+	physics = new PhysicsEngine(1f / 30f);
+	physics.setPossibleInteractions(new ArrayList<>());
+    }
+
+    @After
+    public void shutdownEngine() {
+	physics.shutdown();
+    }
+
+    @Test
+    public void raysHitTheNearestBody() throws Exception {
+	RigidBody self = givenBody(0, 0, 10);
+	RigidBody near = givenBody(100, -5, 10);
+	givenBody(200, -5, 10);
+	RaycastBatch rays = new RaycastBatch(4);
+	int ray = rays.add(5, 0, 1, 0, 1000, RigidBody.ALL_CATEGORIES, self);
+	int miss = rays.add(5, 0, 0, -1, 1000, RigidBody.ALL_CATEGORIES, self);
+
+	physics.raycast(rays);
+
+	Assert.assertSame(near, rays.getHitBody(ray));
+	Assert.assertEquals(95, rays.getHitDistance(ray), 0.001f);
+	Assert.assertEquals(100, rays.getHitX(ray), 0.001f);
+	Assert.assertFalse(rays.isHit(miss));
+	Assert.assertEquals(1000, rays.getHitDistance(miss), 0);
+    }
+
+    @Test
+    public void staticGeometryBlocksRays() throws Exception {
+	givenBody(100, -5, 10);
+	physics.setStaticColliders(StaticCollisionLayer.builder(10, 10, 10, 0, 0).setSolid(5, 0).build());
+	RaycastBatch rays = new RaycastBatch(1);
+	int ray = rays.add(0, 5, 1, 0, 1000);
+
+	physics.raycast(rays);
+
+	Assert.assertTrue(rays.isHit(ray));
+	Assert.assertNull(rays.getHitBody(ray));
+	Assert.assertEquals(50, rays.getHitDistance(ray), 0.001f);
+    }
+
+    @Test
+    public void boxesFindEachBodyOnce() throws Exception {
+	physics.setQueryCellSize(8);
+	RigidBody big = givenBody(0, 0, 100);
+	RigidBody small = givenBody(150, 150, 4);
+	OverlapBatch queries = new OverlapBatch(2, 8);
+	int box = queries.addBox(50, 50, 160, 160);
+	int point = queries.addPoint(152, 152);
+
+	physics.queryOverlaps(queries);
+
+	Assert.assertEquals(2, queries.getResultCount(box));
+	Assert.assertEquals(1, queries.getResultCount(point));
+	Assert.assertSame(small, queries.getResult(point, 0));
+	Assert.assertTrue(queries.getResult(box, 0) == big || queries.getResult(box, 1) == big);
+    }
+
+    @Test
+    public void masksFilterQueries() throws Exception {
+	RigidBody player = givenBody(0, 0, 10);
+	player.setCollisionCategory(2);
+	givenBody(20, 0, 10);
+	OverlapBatch queries = new OverlapBatch(1, 8);
+	int query = queries.addBox(-100, -100, 100, 100, 2);
+
+	physics.queryOverlaps(queries);
+
+	Assert.assertEquals(1, queries.getResultCount(query));
+	Assert.assertSame(player, queries.getResult(query, 0));
+    }
+
+    @Test
+    public void queriesFollowBodiesAfterUpdates() throws Exception {
+	RigidBody body = givenBody(0, 0, 10);
+	body.setVelocity(new Vector3f(300, 0, 0));
+	OverlapBatch queries = new OverlapBatch(1, 1);
+	queries.addPoint(5, 5);
+	physics.queryOverlaps(queries);
+	Assert.assertEquals(1, queries.getResultCount(0));
+
+	physics.update(1f / 30f);
+	physics.queryOverlaps(queries);
+
+	Assert.assertEquals(0, queries.getResultCount(0));
+    }
+
+    @Test
+    public void parallelQueriesMatchSerialQueries() throws Exception {
+	Random random = new Random(7);
+	for (int i = 0; i < 1000; i++) {
+	    givenBody(random.nextFloat() * 2000, random.nextFloat() * 2000, 4 + random.nextFloat() * 30);
+	}
+	RaycastBatch rays = new RaycastBatch(500);
+	OverlapBatch queries = new OverlapBatch(500, 16);
+	for (int i = 0; i < 500; i++) {
+	    float x = random.nextFloat() * 2000;
+	    float y = random.nextFloat() * 2000;
+	    rays.add(x, y, random.nextFloat() - 0.5f, random.nextFloat() - 0.5f, 500);
+	    queries.addBox(x, y, x + 60, y + 60);
+	}
+
+	physics.raycast(rays);
+	physics.queryOverlaps(queries);
+	RigidBody[] serialHits = new RigidBody[500];
+	int[] serialCounts = new int[500];
+	for (int i = 0; i < 500; i++) {
+	    serialHits[i] = rays.getHitBody(i);
+	    serialCounts[i] = queries.getResultCount(i);
+	}
+
+	physics.setQueryParallelism(4);
+	physics.raycast(rays);
+	physics.queryOverlaps(queries);
+
+	for (int i = 0; i < 500; i++) {
+	    Assert.assertSame(serialHits[i], rays.getHitBody(i));
+	    Assert.assertEquals(serialCounts[i], queries.getResultCount(i));
+	}
+    }
+
+    private RigidBody givenBody(float x, float y, float size) {
+	Vector3f position = new Vector3f(x, y, 0);
+	RigidBody body = new RigidBody(new HitBox(position, size, size), 1, position, new Vector3f());
+	physics.registerListener(body, body);
+	return body;
+    }
+}
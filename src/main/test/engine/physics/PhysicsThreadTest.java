@@ -0,0 +1,91 @@
+package engine.physics;
+
+import java.util.ArrayList;
+
+import org.joml.Vector3f;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PhysicsThreadTest {
+
+    private static final float STEP = 1f / 240f;
+
+    private PhysicsEngine physics;
+
+    private PhysicsThread physicsThread;
+
+    private RigidBody body;
+
+    @Before
+    public void setupPhysics() {
+	physics = new PhysicsEngine(STEP);
+	physics.setPossibleInteractions(new ArrayList<>());
+	Vector3f position = new Vector3f(10, 20, 0);
+	body = new RigidBody(new HitBox(position, 10, 10), 1, position, new Vector3f());
+	physics.registerListener(body, body);
+	physicsThread = new PhysicsThread(physics, STEP, 64);
+    }
+
+    @After
+    public void stopPhysics() throws InterruptedException {
+	physicsThread.stop();
+    }
+
+    @Test
+    public void transformsArePublishedBeforeTheFirstStep() {
+	physicsThread.start();
+
+	BodyTransforms transforms = physicsThread.getTransforms();
+
+	Assert.assertEquals(1, transforms.getBodyCount());
+	Assert.assertEquals(new Vector3f(10, 20, 0), transforms.getPosition(body.getPhysicsId(), new Vector3f()));
+    }
+
+    @Test
+    public void controlsSeeTheirOwnChangesUntilPhysicsCatchesUp() throws Exception {
+	physicsThread.start();
+	BodyControl control = physicsThread.getControl(body);
+
+	control.move(new Vector3f(5, 0, 0));
+	control.setVelocity(new Vector3f(0, 7, 0));
+
+	// Straight away, before physics has applied them
+	Assert.assertEquals(15, control.getPosition(new Vector3f()).x, 0);
+	Assert.assertEquals(7, control.getVelocity(new Vector3f()).y, 0);
+
+	BodyTransforms transforms = waitForCommands(2);
+	Assert.assertEquals(15, transforms.getPosition(body.getPhysicsId(), new Vector3f()).x, 0);
+	Assert.assertEquals(7, transforms.getVelocity(body.getPhysicsId(), new Vector3f()).y, 0);
+	// And the move isn't counted twice once it has been applied
+	Assert.assertEquals(15, control.getPosition(new Vector3f()).x, 0);
+    }
+
+    @Test
+    public void transformsStayTheSameUntilTheNextUpdate() throws Exception {
+	physicsThread.start();
+	BodyTransforms transforms = physicsThread.getTransforms();
+	long step = transforms.getStep();
+
+	Thread.sleep(50);
+
+	Assert.assertSame(transforms, physicsThread.getTransforms());
+	Assert.assertEquals(step, transforms.getStep());
+	physicsThread.update(STEP);
+	Assert.assertTrue(physicsThread.getTransforms().getStep() > step);
+    }
+
+    private BodyTransforms waitForCommands(long commands) throws Exception {
+	long deadline = System.nanoTime() + 5_000_000_000L;
+	while (System.nanoTime() < deadline) {
+	    physicsThread.update(STEP);
+	    BodyTransforms transforms = physicsThread.getTransforms();
+	    if (transforms.getAppliedCommands() >= commands) {
+		return transforms;
+	    }
+	    Thread.sleep(1);
+	}
+	throw new AssertionError("Physics never applied the commands");
+    }
+}
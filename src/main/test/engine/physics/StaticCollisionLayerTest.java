@@ -0,0 +1,93 @@
+package engine.physics;
+
+import java.util.ArrayList;
+
+import org.joml.Vector3f;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StaticCollisionLayerTest {
+
+    private static final float TICK = 1f / 30f;
+
+    @Test
+    public void cellsOutsideTheLayerAreOpen() {
+	StaticCollisionLayer layer = StaticCollisionLayer.builder(4, 4, 10, 0, 0).setSolid(0, 0, 4, 4).build();
+
+	Assert.assertTrue(layer.isSolid(3, 3));
+	Assert.assertFalse(layer.isSolid(4, 3));
+	Assert.assertFalse(layer.isSolid(-1, 0));
+	Assert.assertTrue(layer.isSolidAt(39.9f, 0));
+	Assert.assertFalse(layer.isSolidAt(40, 0));
+    }
+
+    @Test
+    public void touchingEdgesDontOverlap() {
+	StaticCollisionLayer layer = StaticCollisionLayer.builder(4, 4, 10, 0, 0).setSolid(2, 0, 2, 4).build();
+
+	Assert.assertFalse(layer.isOverlapping(new HitBox(new Vector3f(10, 0, 0), 10, 10)));
+	Assert.assertTrue(layer.isOverlapping(new HitBox(new Vector3f(11, 0, 0), 10, 10)));
+    }
+
+    @Test
+    public void contactsPushOutTheShortestWay() {
+	// A floor along the bottom row
+	StaticCollisionLayer layer = StaticCollisionLayer.builder(10, 10, 10, 0, 0).setSolid(0, 9, 10, 1).build();
+	Vector3f push = new Vector3f();
+
+	Assert.assertTrue(layer.getContact(new HitBox(new Vector3f(42, 82, 0), 10, 5), push));
+
+	Assert.assertEquals(new Vector3f(0, -2, 0), push);
+	Assert.assertFalse(layer.getContact(new HitBox(new Vector3f(42, 80, 0), 10, 5), push));
+    }
+
+    @Test
+    public void hitBoxesAreRoundedOutToCells() {
+	StaticCollisionLayer layer = StaticCollisionLayer.builder(10, 10, 10, 0, 0)
+		.addHitBox(new HitBox(new Vector3f(15, 15, 0), 2, 20)).build();
+
+	Assert.assertTrue(layer.isSolid(1, 1));
+	Assert.assertTrue(layer.isSolid(3, 1));
+	Assert.assertFalse(layer.isSolid(4, 1));
+	Assert.assertFalse(layer.isSolid(1, 2));
+    }
+
+    @Test
+    public void millionsOfCellsCostALookup() {
+	StaticCollisionLayer layer = StaticCollisionLayer.builder(4096, 4096, 1, 0, 0).setSolid(4000, 4000).build();
+
+	Assert.assertTrue(layer.isOverlapping(new HitBox(new Vector3f(3999.5f, 3999.5f, 0), 1, 1)));
+	Assert.assertFalse(layer.isOverlapping(new HitBox(new Vector3f(100, 100, 0), 1, 1)));
+    }
+
+    @Test
+    public void onlyCellsInTheLayerAreWalked() {
+	StaticCollisionLayer layer = StaticCollisionLayer.builder(4, 4, 10, 0, 0).setSolid(3, 3).build();
+	// Covers billions of cells around the layer, which would take far too long to walk
+	HitBox huge = new HitBox(new Vector3f(-5e5f, -5e5f, 0), 1e6f, 1e6f);
+
+	Assert.assertTrue(layer.isOverlapping(huge));
+	Assert.assertTrue(layer.getContact(huge, new Vector3f()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void layersTooBigToIndexAreRefused() {
+	StaticCollisionLayer.builder(Integer.MAX_VALUE, Integer.MAX_VALUE, 1, 0, 0);
+    }
+
+    @Test
+    public void bodiesBounceOffStaticGeometry() throws Exception {
+	PhysicsEngine physics = new PhysicsEngine(TICK);
+	physics.setPossibleInteractions(new ArrayList<>());
+	physics.setStaticColliders(StaticCollisionLayer.builder(10, 10, 10, 0, 0).setSolid(5, 0, 5, 10).build());
+	Vector3f position = new Vector3f(35, 20, 0);
+	RigidBody body = new RigidBody(new HitBox(position, 10, 10), 1, position, new Vector3f(300, 0, 0));
+	physics.registerListener(body, body);
+
+	physics.update(TICK); // Moves 10 into the wall
+	physics.update(TICK); // Pushed back out
+
+	Assert.assertTrue(body.getVelocity().x < 0);
+	Assert.assertTrue(body.getHitBox().getMaxX() <= 50);
+    }
+}
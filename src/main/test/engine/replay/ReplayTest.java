@@ -0,0 +1,175 @@
+package engine.replay;
+
+import static org.lwjgl.glfw.GLFW.GLFW_KEY_D;
+import static org.lwjgl.glfw.GLFW.GLFW_PRESS;
+import static org.lwjgl.glfw.GLFW.GLFW_RELEASE;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.joml.Vector3f;
+import org.junit.Assert;
+import org.junit.Test;
+
+import engine.EngineComponent;
+import engine.GameLogic;
+import engine.GameWindow;
+import engine.MouseInput;
+import engine.input.InputEventQueue;
+import engine.physics.HitBox;
+import engine.physics.PhysicsEngine;
+import engine.physics.PhysicsEngine.Pair;
+import engine.physics.RigidBody;
+
+public class ReplayTest {
+
+    private static final float TICK = 1f / 30f;
+
+    @Test
+    public void replaysReproduceEveryTicksState() throws Exception {
+	ByteArrayOutputStream log = new ByteArrayOutputStream();
+	List<Long> recordedHashes = record(log, 1_000);
+
+	ReplayPlayer player = new ReplayPlayer(new PushingGame(), new GameWindow("replay", 100, 100, false));
+	long ticks = player.play(ByteBuffer.wrap(log.toByteArray()));
+
+	Assert.assertEquals(recordedHashes.size(), ticks);
+	Assert.assertEquals(0, player.getMismatchCount());
+	Assert.assertEquals(-1, player.getFirstMismatchTick());
+	// Something actually happened
+	Assert.assertTrue(recordedHashes.stream().distinct().count() > 100);
+    }
+
+    @Test
+    public void replaysFindTheTickTheyDivergeOn() throws Exception {
+	ByteArrayOutputStream log = new ByteArrayOutputStream();
+	record(log, 200);
+
+	PushingGame game = new PushingGame();
+	game.divergeAtTick = 50;
+	ReplayPlayer player = new ReplayPlayer(game, new GameWindow("replay", 100, 100, false));
+	player.play(ByteBuffer.wrap(log.toByteArray()));
+
+	Assert.assertEquals(50, player.getFirstMismatchTick());
+    }
+
+    /**
+     * Drive the game the way GameEngine does, with uneven frame times and a key mashed at random
+     */
+    private static List<Long> record(ByteArrayOutputStream out, int frames) throws Exception {
+	PushingGame game = new PushingGame();
+	GameWindow window = new GameWindow("recording", 100, 100, false);
+	MouseInput mouseInput = new MouseInput();
+	ReplayRecorder recorder = new ReplayRecorder(Channels.newChannel(out));
+	window.getInput().setRecorder(recorder);
+	List<EngineComponent> components = game.getEngineComponents();
+	float[] accumulators = new float[components.size()];
+	float accumulator = 0;
+	List<Long> hashes = new ArrayList<>();
+	Random random = new Random(3);
+
+	for (int frame = 0; frame < frames; frame++) {
+	    float elapsed = 0.005f + random.nextFloat() * 0.02f;
+	    if (random.nextInt(10) == 0) {
+		int action = random.nextBoolean() ? GLFW_PRESS : GLFW_RELEASE;
+		window.getInputEvents().offer(InputEventQueue.KEY, GLFW_KEY_D, action, 0, 0, System.nanoTime());
+		window.getInputEvents().offer(InputEventQueue.CURSOR_POSITION, 0, 0, random.nextDouble(), 2.5, 0);
+	    }
+	    
+	    for (int i = 0; i < components.size(); i++) {
+		accumulators[i] += elapsed;
+		if (accumulators[i] >= components.get(i).getUpdateInterval()) {
+		    recorder.recordComponentTick(i, accumulators[i]);
+		    components.get(i).update(accumulators[i]);
+		    accumulators[i] = 0;
+		}
+	    }
+	    
+	    accumulator += elapsed;
+	    while (accumulator >= TICK) {
+		window.pollInput();
+		mouseInput.input(window);
+		game.input(window, mouseInput, TICK);
+		game.update(TICK);
+		accumulator -= TICK;
+		hashes.add(game.getStateHash());
+		recorder.recordFixedTick(TICK, game.getStateHash());
+	    }
+	}
+	recorder.close();
+	return hashes;
+    }
+
+    /**
+     * Two bodies bouncing off each other, one of them pushed right while D is held
+     */
+    private static class PushingGame implements GameLogic {
+
+	private final PhysicsEngine physics = new PhysicsEngine(1f / 120f);
+	private final RigidBody pushed = body(0, 0);
+	private final RigidBody wall = body(40, 0);
+	private final Vector3f scratch = new Vector3f();
+	private int tick = 0;
+	int divergeAtTick = -1;
+
+	PushingGame() {
+	    physics.registerListener(pushed, pushed);
+	    physics.registerListener(wall, wall);
+	    physics.setPossibleInteractions(Arrays.asList(new Pair<>(pushed, wall)));
+	}
+
+	private static RigidBody body(float x, float y) {
+	    Vector3f position = new Vector3f(x, y, 0);
+	    return new RigidBody(new HitBox(position, 10, 10), 1, position, new Vector3f());
+	}
+
+	@Override
+	public void init(GameWindow window) {
+	}
+
+	@Override
+	public void input(GameWindow window, MouseInput mouseInput, float interval) {
+	    if (window.isKeyPressed(GLFW_KEY_D)) {
+		pushed.getVelocity(scratch);
+		pushed.setVelocity(scratch.add(300 * interval, 0, 0));
+	    }
+	}
+
+	@Override
+	public void update(float interval) {
+	    if (tick++ == divergeAtTick) {
+		pushed.move(new Vector3f(0.001f, 0, 0));
+	    }
+	}
+
+	@Override
+	public void render(GameWindow window) {
+	}
+
+	@Override
+	public void cleanup() {
+	}
+
+	@Override
+	public List<EngineComponent> getEngineComponents() {
+	    return Arrays.asList(physics);
+	}
+
+	@Override
+	public long getStateHash() {
+	    long hash = 17;
+	    for (RigidBody body : new RigidBody[] { pushed, wall }) {
+		body.getPosition(scratch);
+		hash = hash * 31 + Float.floatToIntBits(scratch.x);
+		body.getVelocity(scratch);
+		hash = hash * 31 + Float.floatToIntBits(scratch.x);
+	    }
+	    return hash;
+	}
+    }
+}
@@ -0,0 +1,160 @@
+package graphics.flat.particle;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import engine.physics.PhysicsEngine;
+import engine.physics.StaticCollisionLayer;
+
+public class ParticleEmitterTest {
+
+    private static final float TICK = 1f / 60f;
+
+    @Test
+    public void emittingStopsAtCapacity() {
+	ParticleEmitter emitter = new ParticleEmitter(10);
+
+	Assert.assertEquals(6, emitter.emit(6));
+	Assert.assertEquals(4, emitter.emit(6));
+	Assert.assertEquals(10, emitter.getCount());
+    }
+
+    @Test
+    public void emittingANegativeNumberSpawnsNothing() {
+	ParticleEmitter emitter = new ParticleEmitter(10);
+	emitter.emit(3);
+
+	Assert.assertEquals(0, emitter.emit(-5));
+	Assert.assertEquals(3, emitter.getCount());
+    }
+
+    @Test
+    public void colorAndDepthArePublishedWithTheVertices() {
+	ParticleEmitter emitter = new ParticleEmitter(1);
+	emitter.setColor(1, 0.5f, 0, 1);
+	emitter.setPosition(0, 0, 3);
+	emitter.update(TICK);
+
+	// Changed after the update, so not for the renderer to see until the next one
+	emitter.setColor(0, 0, 0, 0);
+	emitter.setPosition(0, 0, 7);
+	ParticleEmitter.Vertices vertices = emitter.getVertices();
+
+	Assert.assertArrayEquals(new float[] { 1, 0.5f, 0, 1 }, vertices.color, 0);
+	Assert.assertEquals(3, vertices.z, 0);
+    }
+
+    @Test
+    public void theRendererKeepsTheEmittersItWasHandedWhileTheyChange() {
+	ParticleSystem particles = new ParticleSystem(TICK);
+	ParticleEmitter first = new ParticleEmitter(1);
+	particles.addEmitter(first);
+	ParticleEmitter[] published = particles.getPublishedEmitters();
+
+	particles.addEmitter(new ParticleEmitter(1));
+	particles.removeEmitter(first);
+
+	Assert.assertArrayEquals(new ParticleEmitter[] { first }, published);
+	Assert.assertEquals(1, particles.getPublishedEmitters().length);
+	Assert.assertNotSame(first, particles.getPublishedEmitters()[0]);
+    }
+
+    @Test
+    public void particlesExpireAtTheEndOfTheirLifetime() {
+	ParticleEmitter emitter = new ParticleEmitter(100);
+	emitter.setLifetime(0.5f, 0.5f);
+	emitter.emit(100);
+
+	for (int i = 0; i < 29; i++) {
+	    emitter.update(TICK);
+	}
+	Assert.assertEquals(100, emitter.getCount());
+	emitter.update(TICK);
+	emitter.update(TICK);
+	Assert.assertEquals(0, emitter.getCount());
+    }
+
+    @Test
+    public void particlesFallWithGravity() {
+	ParticleEmitter emitter = new ParticleEmitter(1);
+	emitter.setPosition(10, 20, 0);
+	emitter.setSpeed(0, 0);
+	emitter.setGravity(0, 600);
+	emitter.emit(1);
+
+	emitter.update(0.5f);
+
+	Assert.assertEquals(10, emitter.getX(0), 0);
+	Assert.assertEquals(20 + 150, emitter.getY(0), 0.001f);
+    }
+
+    @Test
+    public void emissionRateSpreadsParticlesOverTicks() {
+	ParticleEmitter emitter = new ParticleEmitter(1000);
+	emitter.setLifetime(10, 10);
+	emitter.setEmissionRate(90);
+
+	for (int i = 0; i < 60; i++) {
+	    emitter.update(TICK);
+	}
+
+	Assert.assertEquals(90, emitter.getCount(), 1);
+    }
+
+    @Test
+    public void particlesBounceOffTheStaticLayer() throws Exception {
+	PhysicsEngine physics = new PhysicsEngine(TICK);
+	physics.setStaticColliders(StaticCollisionLayer.builder(10, 10, 10, 0, 0).setSolid(0, 5, 10, 1).build());
+	ParticleEmitter emitter = new ParticleEmitter(1);
+	emitter.setCollisions(physics, 0.5f);
+	emitter.setPosition(50, 45, 0);
+	emitter.setSpeed(300, 300);
+	emitter.setDirection((float) Math.PI / 2, 0);
+	emitter.emit(1);
+
+	for (int i = 0; i < 30; i++) {
+	    emitter.update(TICK);
+	}
+
+	Assert.assertTrue(emitter.getY(0) < 50);
+    }
+
+    @Test
+    public void verticesOfTheLatestUpdateArePublished() {
+	ParticleEmitter emitter = new ParticleEmitter(5);
+	emitter.setSize(4, 8);
+	emitter.setLifetime(1, 1);
+	emitter.emit(3);
+
+	emitter.update(0.5f);
+	ParticleEmitter.Vertices vertices = emitter.getVertices();
+
+	Assert.assertEquals(3, vertices.count);
+	Assert.assertEquals(6, vertices.data[2], 0.001f);
+	Assert.assertEquals(0.5f, vertices.data[3], 0.001f);
+    }
+
+    @Test
+    public void emittersUpdateInParallel() throws Exception {
+	ParticleSystem particles = new ParticleSystem(TICK);
+	particles.setParallelism(4);
+	try {
+	    for (int i = 0; i < 4; i++) {
+		ParticleEmitter emitter = new ParticleEmitter(25_000);
+		emitter.setLifetime(10, 10);
+		emitter.setGravity(0, 100);
+		emitter.emit(25_000);
+		particles.addEmitter(emitter);
+	    }
+
+	    particles.update(TICK);
+
+	    Assert.assertEquals(100_000, particles.getParticleCount());
+	    for (ParticleEmitter emitter : particles.getEmitters()) {
+		Assert.assertEquals(25_000, emitter.getVertices().count);
+	    }
+	} finally {
+	    particles.shutdown();
+	}
+    }
+}
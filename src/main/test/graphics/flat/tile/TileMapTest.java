@@ -0,0 +1,104 @@
+package graphics.flat.tile;
+
+import org.joml.Vector3f;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import graphics.core.scene.Camera;
+
+public class TileMapTest {
+
+    private TileMap map;
+
+    @Before
+    public void setupMap() {
+	// 2x2 chunks of 4x4 tiles, from a 4x2 atlas
+	map = new TileMap(8, 8, 4, 10, "textures/tiles.png", 4, 2, 0);
+	map.setMeshBuilder(Runnable::run);
+    }
+
+    @Test
+    public void tilesAreStoredPerChunk() {
+	map.setTile(5, 6, (short) 3);
+
+	Assert.assertEquals(3, map.getTile(5, 6));
+	Assert.assertEquals(TileMap.EMPTY, map.getTile(6, 5));
+	Assert.assertEquals(4, map.getChunks().size());
+    }
+
+    @Test
+    public void chunksAreCulledAgainstTheCameraTheyAreGiven() {
+	Camera live = new Camera();
+	map.setView(live, 40, 40);
+	// The live camera has moved on to the right half, the snapshot still has it at the left
+	live.setPosition(2, 0, 0);
+	Vector3f captured = new Vector3f(0, 0, 0);
+
+	Assert.assertTrue(map.isVisible(captured, 0, 0, 40, 40));
+	Assert.assertFalse(map.isVisible(captured, 40, 0, 80, 40));
+	Assert.assertFalse(map.isVisible(0, 0, 40, 40));
+	Assert.assertTrue(map.isVisible(40, 0, 80, 40));
+    }
+
+    @Test
+    public void anEditOnlyRebuildsItsOwnChunk() {
+	map.fill(0, 0, 8, 8, (short) 1);
+	map.rebuildDirtyChunks();
+	for (TileChunk chunk : map.getChunks()) {
+	    Assert.assertEquals(1, chunk.getMeshBuilds());
+	}
+
+	map.setTile(5, 1, (short) 2);
+	map.setTile(6, 2, (short) 2);
+	map.rebuildDirtyChunks();
+
+	for (TileChunk chunk : map.getChunks()) {
+	    boolean edited = chunk.getChunkX() == 1 && chunk.getChunkY() == 0;
+	    Assert.assertEquals(edited ? 2 : 1, chunk.getMeshBuilds());
+	}
+    }
+
+    @Test
+    public void unchangedTilesDontDirtyTheChunk() {
+	map.setTile(1, 1, (short) 1);
+	map.rebuildDirtyChunks();
+
+	map.setTile(1, 1, (short) 1);
+	map.rebuildDirtyChunks();
+
+	Assert.assertEquals(1, map.getChunks().get(0).getMeshBuilds());
+    }
+
+    @Test
+    public void meshesUseTheTilesAtlasCoordinates() {
+	map.setTile(1, 2, (short) 6); // Second column of the second atlas row
+	map.rebuildDirtyChunks();
+
+	TileChunk.ChunkMesh mesh = map.getChunks().get(0).peekBuiltMesh();
+	Assert.assertEquals(6, mesh.indices.length);
+	// Left top vertex, relative to the chunk
+	Assert.assertEquals(10, mesh.positions[0], 0);
+	Assert.assertEquals(20, mesh.positions[1], 0);
+	Assert.assertEquals(0.25f, mesh.textCoords[0], 0);
+	Assert.assertEquals(0.5f, mesh.textCoords[1], 0);
+	// Right bottom vertex
+	Assert.assertEquals(0.5f, mesh.textCoords[4], 0);
+	Assert.assertEquals(1f, mesh.textCoords[5], 0);
+    }
+
+    @Test
+    public void emptyTilesGetNoQuads() {
+	map.fill(4, 4, 4, 4, (short) 1);
+	map.setTile(7, 7, TileMap.EMPTY);
+	map.rebuildDirtyChunks();
+
+	Assert.assertNull(map.getChunks().get(0).peekBuiltMesh());
+	Assert.assertEquals(15 * 6, map.getChunks().get(3).peekBuiltMesh().indices.length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tilesMustBeInTheAtlas() {
+	map.setTile(0, 0, (short) 9);
+    }
+}